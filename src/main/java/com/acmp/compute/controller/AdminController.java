@@ -2,13 +2,25 @@ package com.acmp.compute.controller;
 
 import com.acmp.compute.dto.IssueCredentialRequest;
 import com.acmp.compute.dto.IssueCredentialResponse;
+import com.acmp.compute.dto.NodeCacheEntry;
 import com.acmp.compute.dto.PhysicalClusterRegisterRequest;
 import com.acmp.compute.dto.PhysicalClusterResponse;
+import com.acmp.compute.dto.PodPolicyRequest;
+import com.acmp.compute.dto.PrestageItemResponse;
+import com.acmp.compute.dto.PrestageRequest;
 import com.acmp.compute.dto.ResourcePoolCreateRequest;
 import com.acmp.compute.dto.ResourcePoolResponse;
+import com.acmp.compute.dto.WarmPoolRequest;
+import com.acmp.compute.dto.WarmPoolResponse;
+import com.acmp.compute.entity.Operation;
+import com.acmp.compute.entity.QuotaBorrowEvent;
 import com.acmp.compute.service.AdminPhysicalClusterService;
 import com.acmp.compute.service.AdminResourcePoolService;
+import com.acmp.compute.service.ElasticQuotaService;
+import com.acmp.compute.service.OperationService;
+import com.acmp.compute.service.PrestageService;
 import com.acmp.compute.service.ResourcePoolService;
+import com.acmp.compute.service.WarmPoolService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -16,6 +28,9 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
 
 /**
  * 管理员 API 控制器：物理集群注册、资源池创建、凭证发放等管理员操作。
@@ -30,6 +45,10 @@ public class AdminController {
     private final AdminPhysicalClusterService adminPhysicalClusterService;
     private final ResourcePoolService resourcePoolService;
     private final AdminResourcePoolService adminResourcePoolService;
+    private final OperationService operationService;
+    private final ElasticQuotaService elasticQuotaService;
+    private final WarmPoolService warmPoolService;
+    private final PrestageService prestageService;
 
     /**
      * 注册新的物理集群。
@@ -72,10 +91,21 @@ public class AdminController {
      * - 创建 Role（部门级权限）
      * - 创建 RoleBinding
      * - 创建 Volcano Queue
+     * 
+     * async=true 时返回 202 + 操作记录（GET /api/v1/operations/{id} 查询），
+     * 可配合 Idempotency-Key 请求头对重试去重。
      */
     @PostMapping("/resource-pools")
-    public ResponseEntity<ResourcePoolResponse> createResourcePool(
-            @Valid @RequestBody ResourcePoolCreateRequest request) {
+    public ResponseEntity<?> createResourcePool(
+            @Valid @RequestBody ResourcePoolCreateRequest request,
+            @RequestParam(defaultValue = "false") boolean async,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        if (async) {
+            Operation op = resourcePoolService.createAsync(request, idempotencyKey);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/v1/operations/" + op.getId()))
+                    .body(operationService.toResponse(op));
+        }
         ResourcePoolResponse resp = resourcePoolService.create(request);
         return ResponseEntity.status(HttpStatus.CREATED).body(resp);
     }
@@ -106,4 +136,173 @@ public class AdminController {
         IssueCredentialResponse resp = adminResourcePoolService.issueCredential(poolId, request);
         return ResponseEntity.ok(resp);
     }
+
+    /**
+     * 设置资源池弹性配额边界。
+     * PATCH /api/v1/admin/resource-pools/{poolId}/elastic-quota
+     * 
+     * 请求体示例：
+     * {
+     *   "gpuFloor": 2,
+     *   "gpuCeiling": 16
+     * }
+     * 
+     * gpuFloor：空闲时最多借出到只剩该值；gpuCeiling：需求高时最多借入到该值。为空表示不借出/不借入。
+     */
+    @PatchMapping("/resource-pools/{poolId}/elastic-quota")
+    public ResponseEntity<ResourcePoolResponse> updateElasticQuota(
+            @PathVariable String poolId,
+            @RequestBody Map<String, Integer> body) {
+        return ResponseEntity.ok(resourcePoolService.updateElasticLimits(poolId, body.get("gpuFloor"), body.get("gpuCeiling")));
+    }
+
+    /**
+     * 设置资源池推理限流，运行时生效。
+     * PATCH /api/v1/admin/resource-pools/{poolId}/inference-limits
+     * 
+     * 请求体示例：
+     * {
+     *   "inferenceRps": 50,
+     *   "inferenceTps": 200000,
+     *   "inferenceUserRps": 10,
+     *   "inferenceUserTps": 50000
+     * }
+     * 
+     * 整个资源池与池内单个用户的每秒请求数 / 每秒估算 token 数，为空表示不限。超额请求排队，队列满或排队超时返回 429。
+     */
+    @PatchMapping("/resource-pools/{poolId}/inference-limits")
+    public ResponseEntity<ResourcePoolResponse> updateInferenceLimits(
+            @PathVariable String poolId,
+            @RequestBody Map<String, Integer> body) {
+        return ResponseEntity.ok(resourcePoolService.updateInferenceLimits(poolId, body.get("inferenceRps"),
+                body.get("inferenceTps"), body.get("inferenceUserRps"), body.get("inferenceUserTps")));
+    }
+
+    /**
+     * 设置资源池 Pod 运行时策略，对之后提交的部署与训练任务生效。
+     * PATCH /api/v1/admin/resource-pools/{poolId}/pod-policy
+     * 
+     * 请求体示例：
+     * {
+     *   "shmMaxGib": 64,
+     *   "allowHostIpc": true,
+     *   "allowHostNetwork": false
+     * }
+     * 
+     * 部署与训练任务的 /dev/shm（内存型 emptyDir）不超过 shmMaxGib；未允许时申请 hostIPC / hostNetwork 返回 400。
+     * 只更新请求体中出现的字段，未给出的字段保持原值。
+     */
+    @PatchMapping("/resource-pools/{poolId}/pod-policy")
+    public ResponseEntity<ResourcePoolResponse> updatePodPolicy(
+            @PathVariable String poolId,
+            @Valid @RequestBody PodPolicyRequest request) {
+        return ResponseEntity.ok(resourcePoolService.updatePodPolicy(poolId, request.getShmMaxGib(),
+                request.getAllowHostIpc(), request.getAllowHostNetwork()));
+    }
+
+    /**
+     * 查询资源池的弹性配额借出/借入记录（按时间倒序）。
+     * GET /api/v1/admin/resource-pools/{poolId}/quota-events?limit=100
+     */
+    @GetMapping("/resource-pools/{poolId}/quota-events")
+    public ResponseEntity<List<QuotaBorrowEvent>> quotaEvents(
+            @PathVariable String poolId,
+            @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(elasticQuotaService.listEvents(poolId, limit));
+    }
+
+    /**
+     * 为资源池新增温备池规格：后台保持 size 个已加载模型的待命副本，镜像、模型与 GPU 规格完全一致的部署直接接管。
+     * POST /api/v1/admin/resource-pools/{poolId}/warm-pools
+     * 
+     * 请求体示例：
+     * {
+     *   "vllmImage": "vllm/vllm-openai:v0.6.3",
+     *   "modelIdOrPath": "/models/qwen3",
+     *   "hostModelPath": "/data/models/Qwen3",
+     *   "gpuPerReplica": 1,
+     *   "size": 2
+     * }
+     */
+    @PostMapping("/resource-pools/{poolId}/warm-pools")
+    public ResponseEntity<WarmPoolResponse> createWarmPool(
+            @PathVariable String poolId,
+            @Valid @RequestBody WarmPoolRequest request) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(warmPoolService.create(poolId, request));
+    }
+
+    /**
+     * 资源池的温备池规格、待命副本数与命中统计。
+     * GET /api/v1/admin/resource-pools/{poolId}/warm-pools
+     */
+    @GetMapping("/resource-pools/{poolId}/warm-pools")
+    public ResponseEntity<List<WarmPoolResponse>> listWarmPools(@PathVariable String poolId) {
+        return ResponseEntity.ok(warmPoolService.list(poolId));
+    }
+
+    /**
+     * 调整待命副本数，请求体 {"size": 3}。
+     * PATCH /api/v1/admin/warm-pools/{warmPoolId}
+     */
+    @PatchMapping("/warm-pools/{warmPoolId}")
+    public ResponseEntity<WarmPoolResponse> resizeWarmPool(
+            @PathVariable String warmPoolId,
+            @RequestBody Map<String, Integer> body) {
+        Integer size = body.get("size");
+        if (size == null) throw new IllegalArgumentException("size 不能为空");
+        return ResponseEntity.ok(warmPoolService.resize(warmPoolId, size));
+    }
+
+    /**
+     * 删除温备池规格，待命副本在下一轮补充时回收。
+     * DELETE /api/v1/admin/warm-pools/{warmPoolId}
+     */
+    @DeleteMapping("/warm-pools/{warmPoolId}")
+    public ResponseEntity<Map<String, String>> deleteWarmPool(@PathVariable String warmPoolId) {
+        warmPoolService.delete(warmPoolId);
+        return ResponseEntity.ok(Map.of("message", "已删除温备池"));
+    }
+
+    /**
+     * 标记热点镜像或权重目录，在物理集群的 GPU 节点（或 nodeSelector 选中的节点）上提前拉取 / 预置，新节点自动覆盖。
+     * POST /api/v1/admin/physical-clusters/{clusterId}/prestage
+     * 
+     * 请求体示例：
+     * {"kind": "image", "image": "vllm/vllm-openai:v0.6.3"}
+     * {"kind": "weights", "hostPath": "/data/models/Qwen3", "sourcePath": "/mnt/nfs/models/Qwen3", "nodeSelector": "gpu-node=true"}
+     */
+    @PostMapping("/physical-clusters/{clusterId}/prestage")
+    public ResponseEntity<PrestageItemResponse> createPrestage(
+            @PathVariable String clusterId,
+            @Valid @RequestBody PrestageRequest request) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(prestageService.create(clusterId, request));
+    }
+
+    /**
+     * 物理集群的预置项及覆盖进度（需预置节点数 / 已完成节点数）。
+     * GET /api/v1/admin/physical-clusters/{clusterId}/prestage
+     */
+    @GetMapping("/physical-clusters/{clusterId}/prestage")
+    public ResponseEntity<List<PrestageItemResponse>> listPrestage(@PathVariable String clusterId) {
+        return ResponseEntity.ok(prestageService.list(clusterId));
+    }
+
+    /**
+     * 各节点已有的镜像（含 digest）与已预置的权重目录，即部署调度时使用的节点亲和依据。
+     * GET /api/v1/admin/physical-clusters/{clusterId}/prestage/index
+     */
+    @GetMapping("/physical-clusters/{clusterId}/prestage/index")
+    public ResponseEntity<List<NodeCacheEntry>> prestageIndex(@PathVariable String clusterId) {
+        return ResponseEntity.ok(prestageService.index(clusterId));
+    }
+
+    /**
+     * 删除预置项及其 DaemonSet（节点上已拉取的镜像与已复制的权重保留）。
+     * DELETE /api/v1/admin/prestage/{itemId}
+     */
+    @DeleteMapping("/prestage/{itemId}")
+    public ResponseEntity<Map<String, String>> deletePrestage(@PathVariable String itemId) {
+        prestageService.delete(itemId);
+        return ResponseEntity.ok(Map.of("message", "已删除预置项"));
+    }
 }
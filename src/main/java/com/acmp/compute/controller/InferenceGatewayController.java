@@ -0,0 +1,54 @@
+package com.acmp.compute.controller;
+
+import com.acmp.compute.dto.InferenceCacheStats;
+import com.acmp.compute.dto.InferenceRoutingStats;
+import com.acmp.compute.service.InferenceGatewayService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 推理网关：OpenAI 兼容接口按部署转发，如 POST /api/v1/inference/{deploymentId}/v1/chat/completions。
+ * 请求线程在上游响应到达前即释放；流式（stream=true）响应按块透传。
+ */
+@RestController
+@RequestMapping("/api/v1/inference")
+@RequiredArgsConstructor
+public class InferenceGatewayController {
+
+    private final InferenceGatewayService inferenceGatewayService;
+
+    @RequestMapping("/{deploymentId}/v1/**")
+    public CompletableFuture<ResponseEntity<ResponseBodyEmitter>> proxy(@PathVariable String deploymentId,
+                                                                        @RequestHeader HttpHeaders headers,
+                                                                        HttpServletRequest request) throws IOException {
+        String prefix = "/api/v1/inference/" + deploymentId + "/v1/";
+        String uri = request.getRequestURI().substring(request.getContextPath().length());
+        String path = uri.startsWith(prefix) ? uri.substring(prefix.length()) : "";
+        byte[] body = StreamUtils.copyToByteArray(request.getInputStream());
+        return inferenceGatewayService.proxy(deploymentId, request.getMethod(), path, request.getQueryString(), headers, body);
+    }
+
+    /** 路由统计：请求数、亲和溢出、估算的 prefix cache 命中率与节省的 prefill token */
+    @GetMapping("/{deploymentId}/routing-stats")
+    public ResponseEntity<InferenceRoutingStats> routingStats(@PathVariable String deploymentId) {
+        return ResponseEntity.ok(inferenceGatewayService.routingStats(deploymentId));
+    }
+
+    /** 响应缓存统计：命中/未命中、回放字节数、当前条目与占用 */
+    @GetMapping("/{deploymentId}/cache-stats")
+    public ResponseEntity<InferenceCacheStats> cacheStats(@PathVariable String deploymentId) {
+        return ResponseEntity.ok(inferenceGatewayService.cacheStats(deploymentId));
+    }
+}
@@ -2,13 +2,17 @@ package com.acmp.compute.controller;
 
 import com.acmp.compute.dto.ModelDeploymentResponse;
 import com.acmp.compute.dto.VllmDeployRequest;
+import com.acmp.compute.entity.Operation;
 import com.acmp.compute.service.ModelDeploymentService;
+import com.acmp.compute.service.OperationService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import javax.validation.Valid;
+import java.net.URI;
 import java.util.List;
 import java.util.Map;
 
@@ -21,11 +25,30 @@ import java.util.Map;
 public class ModelDeploymentController {
 
     private final ModelDeploymentService modelDeploymentService;
+    private final OperationService operationService;
 
+    /**
+     * 部署模型。async=true 时返回 202 + 操作记录（Location 指向 /api/v1/operations/{id}），
+     * 可配合 Idempotency-Key 请求头对重试去重；dryRun=true 时仅返回渲染后的 YAML 清单，不做部署。
+     */
     @PostMapping
-    public ResponseEntity<ModelDeploymentResponse> deploy(
+    public ResponseEntity<?> deploy(
             @PathVariable String poolId,
-            @Valid @RequestBody VllmDeployRequest request) {
+            @Valid @RequestBody VllmDeployRequest request,
+            @RequestParam(defaultValue = "false") boolean async,
+            @RequestParam(defaultValue = "false") boolean dryRun,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        if (dryRun) {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType("application/yaml"))
+                    .body(modelDeploymentService.renderManifest(poolId, request));
+        }
+        if (async) {
+            Operation op = modelDeploymentService.deployAsync(poolId, request, idempotencyKey);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/v1/operations/" + op.getId()))
+                    .body(operationService.toResponse(op));
+        }
         ModelDeploymentResponse resp = modelDeploymentService.deploy(poolId, request);
         return ResponseEntity.status(HttpStatus.CREATED).body(resp);
     }
@@ -42,6 +65,29 @@ public class ModelDeploymentController {
         return ResponseEntity.ok(modelDeploymentService.getStatus(poolId, deploymentId));
     }
 
+    /**
+     * 设置自动扩缩容范围，请求体 {"minReplicas": 1, "maxReplicas": 4}；maxReplicas 为空表示关闭。
+     */
+    @PatchMapping("/{deploymentId}/autoscaling")
+    public ResponseEntity<ModelDeploymentResponse> updateAutoscaling(
+            @PathVariable String poolId,
+            @PathVariable String deploymentId,
+            @RequestBody Map<String, Integer> body) {
+        return ResponseEntity.ok(modelDeploymentService.updateAutoscaling(poolId, deploymentId,
+                body.get("minReplicas"), body.get("maxReplicas")));
+    }
+
+    /**
+     * 设置空闲缩容，请求体 {"idleMinutes": 30}；为空表示关闭。
+     */
+    @PatchMapping("/{deploymentId}/idle-policy")
+    public ResponseEntity<ModelDeploymentResponse> updateIdlePolicy(
+            @PathVariable String poolId,
+            @PathVariable String deploymentId,
+            @RequestBody Map<String, Integer> body) {
+        return ResponseEntity.ok(modelDeploymentService.updateIdlePolicy(poolId, deploymentId, body.get("idleMinutes")));
+    }
+
     @DeleteMapping("/{deploymentId}")
     public ResponseEntity<Map<String, String>> delete(
             @PathVariable String poolId,
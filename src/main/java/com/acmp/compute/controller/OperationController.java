@@ -0,0 +1,31 @@
+package com.acmp.compute.controller;
+
+import com.acmp.compute.dto.OperationResponse;
+import com.acmp.compute.service.OperationService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 异步操作查询：提交接口返回 202 + operationId 后，客户端在此轮询或长轮询（waitMs）结果。
+ */
+@RestController
+@RequestMapping("/api/v1/operations")
+@RequiredArgsConstructor
+public class OperationController {
+
+    private final OperationService operationService;
+
+    /**
+     * GET /api/v1/operations/{id}?waitMs=20000
+     * waitMs > 0 时为长轮询：操作结束或等待超时后返回，期间不占用请求线程。
+     */
+    @GetMapping("/{id}")
+    public CompletableFuture<ResponseEntity<OperationResponse>> get(
+            @PathVariable String id,
+            @RequestParam(defaultValue = "0") long waitMs) {
+        return operationService.await(id, waitMs).thenApply(ResponseEntity::ok);
+    }
+}
@@ -1,8 +1,11 @@
 package com.acmp.compute.controller;
 
 import com.acmp.compute.dto.CapacityResponse;
+import com.acmp.compute.dto.ClusterGuardStatus;
+import com.acmp.compute.dto.FleetCapacityResponse;
 import com.acmp.compute.dto.PhysicalClusterRegisterRequest;
 import com.acmp.compute.dto.PhysicalClusterResponse;
+import com.acmp.compute.service.FleetCapacityService;
 import com.acmp.compute.service.PhysicalClusterService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -20,6 +23,7 @@ import java.util.Map;
 public class PhysicalClusterController {
 
     private final PhysicalClusterService physicalClusterService;
+    private final FleetCapacityService fleetCapacityService;
 
     @PostMapping
     @PreAuthorize("hasRole('PLATFORM_ADMIN')")
@@ -34,11 +38,31 @@ public class PhysicalClusterController {
         return ResponseEntity.ok(physicalClusterService.list());
     }
 
+    /** 全部集群容量与健康汇总（并发查询，单集群超时或失败不影响整体） */
+    @GetMapping("/capacity")
+    @PreAuthorize("hasRole('PLATFORM_ADMIN')")
+    public ResponseEntity<FleetCapacityResponse> getFleetCapacity() {
+        return ResponseEntity.ok(fleetCapacityService.getFleetCapacity());
+    }
+
     @GetMapping("/{id}/capacity")
     public ResponseEntity<CapacityResponse> getCapacity(@PathVariable String id) {
         return ResponseEntity.ok(physicalClusterService.getCapacity(id));
     }
 
+    /** 所有集群的调用保护状态（熔断、并发、排队深度） */
+    @GetMapping("/guards")
+    @PreAuthorize("hasRole('PLATFORM_ADMIN')")
+    public ResponseEntity<List<ClusterGuardStatus>> listGuards() {
+        return ResponseEntity.ok(physicalClusterService.listGuardStatuses());
+    }
+
+    @GetMapping("/{id}/guard")
+    @PreAuthorize("hasRole('PLATFORM_ADMIN')")
+    public ResponseEntity<ClusterGuardStatus> getGuard(@PathVariable String id) {
+        return ResponseEntity.ok(physicalClusterService.getGuardStatus(id));
+    }
+
     @DeleteMapping("/{id}")
     @PreAuthorize("hasRole('PLATFORM_ADMIN')")
     public ResponseEntity<Map<String, String>> delete(@PathVariable String id) {
@@ -1,15 +1,23 @@
 package com.acmp.compute.controller;
 
+import com.acmp.compute.dto.IdleSavingsResponse;
 import com.acmp.compute.dto.ResourcePoolCreateRequest;
 import com.acmp.compute.dto.ResourcePoolResponse;
+import com.acmp.compute.entity.Operation;
+import com.acmp.compute.service.IdleScalerService;
+import com.acmp.compute.service.OperationService;
+import com.acmp.compute.service.PoolEventService;
 import com.acmp.compute.service.ResourcePoolService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import javax.validation.Valid;
+import java.net.URI;
 import java.util.List;
 import java.util.Map;
 
@@ -19,10 +27,22 @@ import java.util.Map;
 public class ResourcePoolController {
 
     private final ResourcePoolService resourcePoolService;
+    private final OperationService operationService;
+    private final PoolEventService poolEventService;
+    private final IdleScalerService idleScalerService;
 
+    /** async=true 时返回 202 + 操作记录，可配合 Idempotency-Key 请求头对重试去重 */
     @PostMapping
     @PreAuthorize("hasRole('PLATFORM_ADMIN') or hasRole('ORG_ADMIN')")
-    public ResponseEntity<ResourcePoolResponse> create(@Valid @RequestBody ResourcePoolCreateRequest request) {
+    public ResponseEntity<?> create(@Valid @RequestBody ResourcePoolCreateRequest request,
+                                    @RequestParam(defaultValue = "false") boolean async,
+                                    @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        if (async) {
+            Operation op = resourcePoolService.createAsync(request, idempotencyKey);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/v1/operations/" + op.getId()))
+                    .body(operationService.toResponse(op));
+        }
         ResourcePoolResponse resp = resourcePoolService.create(request);
         return ResponseEntity.status(HttpStatus.CREATED).body(resp);
     }
@@ -50,4 +70,17 @@ public class ResourcePoolController {
                 body.get("memoryGiB"));
         return ResponseEntity.ok(resp);
     }
+
+    /** 空闲缩容回收的 GPU 小时与冷启动耗时 */
+    @GetMapping("/{id}/idle-savings")
+    public ResponseEntity<IdleSavingsResponse> idleSavings(@PathVariable String id) {
+        return ResponseEntity.ok(idleScalerService.savings(id));
+    }
+
+    /** 资源池活动事件流（SSE），断线重连时浏览器自动携带 Last-Event-ID 续传 */
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events(@PathVariable String id,
+                             @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return poolEventService.subscribe(id, lastEventId);
+    }
 }
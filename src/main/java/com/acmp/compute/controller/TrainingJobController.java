@@ -3,6 +3,7 @@ package com.acmp.compute.controller;
 import com.acmp.compute.dto.TrainingJobRequest;
 import com.acmp.compute.service.TrainingJobService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -16,10 +17,17 @@ public class TrainingJobController {
 
     private final TrainingJobService trainingJobService;
 
+    /** 提交训练任务；dryRun=true 时仅返回渲染后的 VolcanoJob YAML，不做提交 */
     @PostMapping
-    public ResponseEntity<Map<String, String>> submit(
+    public ResponseEntity<?> submit(
             @PathVariable String poolId,
-            @Valid @RequestBody TrainingJobRequest request) {
+            @Valid @RequestBody TrainingJobRequest request,
+            @RequestParam(defaultValue = "false") boolean dryRun) {
+        if (dryRun) {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.parseMediaType("application/yaml"))
+                    .body(trainingJobService.renderManifest(poolId, request));
+        }
         String jobName = trainingJobService.submit(poolId, request);
         return ResponseEntity.status(201).body(Map.of("jobName", jobName, "message", "已提交"));
     }
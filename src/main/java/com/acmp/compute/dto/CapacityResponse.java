@@ -3,11 +3,37 @@ package com.acmp.compute.dto;
 import lombok.Builder;
 import lombok.Data;
 
-/** 集群或资源池容量汇总（GPU/CPU/Memory） */
+/**
+ * 集群或资源池容量汇总（GPU/CPU/Memory）。
+ * gpuSlots/cpu/memory 为 allocatable 合计（cpu、memory 为 K8s Quantity 字符串）；
+ * 其余字段为定点数值：CPU 毫核、内存字节、HAMi gpumem MiB、gpucores 百分比核数。
+ */
 @Data
 @Builder
 public class CapacityResponse {
     private Long gpuSlots;
     private String cpu;
     private String memory;
+
+    private Long gpuRequested;
+    private Long gpuFree;
+    private Long cpuMillis;
+    private Long cpuRequestedMillis;
+    private Long cpuFreeMillis;
+    private Long memoryBytes;
+    private Long memoryRequestedBytes;
+    private Long memoryFreeBytes;
+    private Long gpumemMb;
+    private Long gpumemRequestedMb;
+    private Long gpumemFreeMb;
+    private Long gpucores;
+    private Long gpucoresRequested;
+    private Long gpucoresFree;
+    private Integer nodeCount;
+    private Integer readyNodeCount;
+
+    /** 数据来源：informer（容量索引）或 live（索引未同步时实时 LIST） */
+    private String source;
+    /** 容量索引陈旧度（毫秒），live 时为 0 */
+    private Long stalenessMs;
 }
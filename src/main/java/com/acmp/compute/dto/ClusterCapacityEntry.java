@@ -0,0 +1,19 @@
+package com.acmp.compute.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+/** 全局容量视图中单个集群的结果：容量、耗时与健康状态 */
+@Data
+@Builder
+public class ClusterCapacityEntry {
+    private String physicalClusterId;
+    private String name;
+    /** ok / timeout / error / unavailable（熔断或限流） */
+    private String status;
+    private Long latencyMs;
+    private String error;
+    /** 当前熔断器状态 */
+    private String breakerState;
+    private CapacityResponse capacity;
+}
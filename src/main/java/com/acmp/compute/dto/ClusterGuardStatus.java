@@ -0,0 +1,26 @@
+package com.acmp.compute.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+
+/** 物理集群调用保护状态：熔断器、并发与排队情况 */
+@Data
+@Builder
+public class ClusterGuardStatus {
+    private String physicalClusterId;
+    /** CLOSED / OPEN / HALF_OPEN */
+    private String breakerState;
+    private Integer consecutiveFailures;
+    private Instant openedAt;
+    /** 正在执行的 apiserver 调用数 */
+    private Integer inFlight;
+    private Integer availablePermits;
+    /** 排队等待（限流令牌或并发许可）的交互式调用数 */
+    private Integer waitingInteractive;
+    /** 排队等待的后台调用数 */
+    private Integer waitingBackground;
+    private Long rejectedTotal;
+    private Long failuresTotal;
+}
@@ -0,0 +1,27 @@
+package com.acmp.compute.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 全部物理集群的容量与健康汇总。合计值只统计 status=ok 的集群，
+ * 部分集群超时或失败时仍返回其余集群的结果。
+ */
+@Data
+@Builder
+public class FleetCapacityResponse {
+    private Integer clusterCount;
+    private Integer healthyCount;
+    private Long gpuSlots;
+    private Long gpuFree;
+    private Long cpuMillis;
+    private Long cpuFreeMillis;
+    private Long memoryBytes;
+    private Long memoryFreeBytes;
+    private Long gpumemMb;
+    private Long gpumemFreeMb;
+    private Long elapsedMs;
+    private List<ClusterCapacityEntry> clusters;
+}
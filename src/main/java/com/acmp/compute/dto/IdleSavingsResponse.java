@@ -0,0 +1,29 @@
+package com.acmp.compute.dto;
+
+import com.acmp.compute.entity.DeploymentIdleEvent;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 资源池空闲缩容的收益与冷启动代价。
+ */
+@Data
+@Builder
+public class IdleSavingsResponse {
+    private String resourcePoolId;
+    /** 累计回收的 GPU 小时（已唤醒的休眠 + 仍在休眠中的部分） */
+    private Double gpuHoursReclaimed;
+    /** 当前处于休眠（已缩到 0）的部署数 */
+    private Integer sleepingDeployments;
+    /** 当前休眠部署释放的 GPU 数 */
+    private Integer gpuReleased;
+    /** 成功唤醒次数 */
+    private Long coldStarts;
+    private Long coldStartAvgMs;
+    private Long coldStartP95Ms;
+    private Long coldStartMaxMs;
+    /** 最近的缩容 / 唤醒记录（时间倒序） */
+    private List<DeploymentIdleEvent> recentEvents;
+}
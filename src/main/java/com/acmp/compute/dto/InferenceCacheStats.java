@@ -0,0 +1,26 @@
+package com.acmp.compute.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * 推理响应缓存单个部署的统计（网关进程启动以来的累计值，entries / bytes 为当前值）。
+ */
+@Data
+@Builder
+public class InferenceCacheStats {
+    private String deploymentId;
+    /** 部署开启了 responseCache 且全局未关闭 */
+    private Boolean enabled;
+    private Long hits;
+    private Long misses;
+    private Double hitRatio;
+    /** 命中时直接返回的响应字节数 */
+    private Long bytesServed;
+    private Long entries;
+    private Long bytes;
+    private Long offHeapBytes;
+    /** TinyLFU 准入拒绝（新条目频率不高于被淘汰者）的次数 */
+    private Long admissionRejected;
+    private Long evictions;
+}
@@ -0,0 +1,35 @@
+package com.acmp.compute.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 推理网关单个部署的路由统计（网关进程启动以来的累计值）。
+ * 命中与节省的 prefill 为估算：选中副本近期处理过相同亲和键即视为命中，节省量按前缀长度 / charsPerToken 折算。
+ */
+@Data
+@Builder
+public class InferenceRoutingStats {
+    private String deploymentId;
+    /** least_outstanding / prefix_affinity */
+    private String routingMode;
+    private Long requests;
+    private Long affinityRequests;
+    /** 首选副本超载而溢出的请求数 */
+    private Long affinitySpills;
+    private Long cacheHits;
+    /** cacheHits / affinityRequests */
+    private Double hitRatio;
+    private Long estimatedPrefillTokensSaved;
+    private List<Replica> replicas;
+
+    @Data
+    @Builder
+    public static class Replica {
+        private String address;
+        private Integer outstanding;
+        private Boolean ejected;
+    }
+}
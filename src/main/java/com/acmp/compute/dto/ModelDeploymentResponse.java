@@ -4,6 +4,7 @@ import lombok.Builder;
 import lombok.Data;
 
 import java.time.Instant;
+import java.util.Map;
 
 @Data
 @Builder
@@ -17,11 +18,34 @@ public class ModelDeploymentResponse {
     private String vllmImage;
     private Integer gpuPerReplica;
     private Integer replicas;
+    private Integer nodes;
     private String k8sDeploymentName;
     private String k8sServiceName;
     private String status;
     private String serviceUrl;
+    private String routingMode;
+    private Boolean responseCache;
+    private Integer minReplicas;
+    private Integer maxReplicas;
+    private Integer idleMinutes;
+    private String enginePreset;
+    private Integer tensorParallelSize;
+    private Integer maxNumSeqs;
+    private Integer maxModelLen;
+    private Double gpuMemoryUtilization;
+    private Boolean enablePrefixCaching;
+    private Boolean enableChunkedPrefill;
+    private String quantization;
+    private String dtype;
     private Integer readyReplicas;
+    private Integer availableReplicas;
+    private Integer updatedReplicas;
+    /** 各 Pod 阶段的数量，如 {"Running": 2, "Pending": 1} */
+    private Map<String, Integer> podPhases;
+    /** readyReplicas 来源：informer（本地缓存）/ live（实时读取） */
+    private String statusSource;
+    /** 来自缓存时的陈旧度（毫秒） */
+    private Long statusStalenessMs;
     private String createdBy;
     private Instant createdAt;
     private Instant updatedAt;
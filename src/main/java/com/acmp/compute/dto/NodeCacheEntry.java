@@ -0,0 +1,19 @@
+package com.acmp.compute.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 单个节点的预置索引：已有的热点镜像（镜像地址 -> digest）与已预置的权重目录。
+ */
+@Data
+@Builder
+public class NodeCacheEntry {
+    private String nodeName;
+    /** 镜像地址 -> digest（节点未上报 digest 时为空串） */
+    private Map<String, String> images;
+    private List<String> weights;
+}
@@ -0,0 +1,25 @@
+package com.acmp.compute.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@Builder
+public class OperationResponse {
+    private String id;
+    private String type;
+    private String status;
+    private String resourceType;
+    private String resourceId;
+    /** 成功时的结果（与同步接口的响应体一致） */
+    private Object result;
+    private String error;
+    private List<SagaStepRecord> sagaLog;
+    private String createdBy;
+    private Instant createdAt;
+    private Instant updatedAt;
+    private Instant finishedAt;
+}
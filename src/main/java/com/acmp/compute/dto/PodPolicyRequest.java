@@ -0,0 +1,18 @@
+package com.acmp.compute.dto;
+
+import lombok.Data;
+
+import javax.validation.constraints.Min;
+
+/**
+ * 资源池 Pod 运行时策略：/dev/shm 上限与是否允许 hostIPC / hostNetwork。为空的字段不修改。
+ */
+@Data
+public class PodPolicyRequest {
+    /** /dev/shm 上限（GiB），未设置过时取平台默认（16GiB），0 表示不挂载 */
+    @Min(0)
+    private Integer shmMaxGib;
+    private Boolean allowHostIpc;
+    /** RDMA 等需要宿主机网络的场景 */
+    private Boolean allowHostNetwork;
+}
@@ -0,0 +1,23 @@
+package com.acmp.compute.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * 资源池事件流（SSE）中的一条事件。id 同时作为 SSE 的 event id，供断线后以 Last-Event-ID 续传。
+ */
+@Data
+@Builder
+public class PoolEvent {
+    private long id;
+    /** deployment / pod / quota / event（K8s Event），以及控制类 synced / overflow / reset */
+    private String type;
+    /** ADDED / MODIFIED / DELETED；快照中的对象为 SYNC */
+    private String action;
+    private String name;
+    /** 对象摘要，如副本数、Pod 阶段、配额 hard/used、事件原因与消息 */
+    private Map<String, Object> data;
+    private long timestampMs;
+}
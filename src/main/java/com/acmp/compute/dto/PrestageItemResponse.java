@@ -0,0 +1,23 @@
+package com.acmp.compute.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@Builder
+public class PrestageItemResponse {
+    private String id;
+    private String physicalClusterId;
+    private String kind;
+    private String image;
+    private String hostPath;
+    private String sourcePath;
+    private String nodeSelector;
+    /** 需要预置的节点数（DaemonSet desiredNumberScheduled），集群不可达时为空 */
+    private Integer desiredNodes;
+    /** 已完成预置的节点数 */
+    private Integer readyNodes;
+    private Instant createdAt;
+}
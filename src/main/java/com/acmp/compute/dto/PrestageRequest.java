@@ -0,0 +1,24 @@
+package com.acmp.compute.dto;
+
+import lombok.Data;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.Pattern;
+
+/**
+ * 标记热点镜像或权重目录。kind=image 时 image 必填；kind=weights 时 hostPath 必填。
+ */
+@Data
+public class PrestageRequest {
+    @NotBlank
+    @Pattern(regexp = "^(image|weights)$", message = "kind 只能是 image 或 weights")
+    private String kind;
+    private String image;
+    /** 节点上的权重目录，与部署请求的 hostModelPath 相同 */
+    private String hostPath;
+    /** 目标目录为空时的复制来源（宿主机目录，如共享存储挂载点），可空 */
+    private String sourcePath;
+    /** 节点选择 key=value，为空时为全部 GPU 节点 */
+    @Pattern(regexp = "^[A-Za-z0-9./_-]+=[A-Za-z0-9._-]*$", message = "nodeSelector 格式为 key=value")
+    private String nodeSelector;
+}
@@ -0,0 +1,20 @@
+package com.acmp.compute.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** 资源池开通中单个 K8s 步骤的执行结果与耗时 */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProvisioningStepResult {
+    /** 步骤名，如 namespace / resourceQuota / roleBinding */
+    private String step;
+    /** succeeded / failed / skipped（依赖步骤失败而未执行） */
+    private String status;
+    private Long durationMs;
+    private String error;
+}
@@ -4,6 +4,7 @@ import lombok.Builder;
 import lombok.Data;
 
 import java.time.Instant;
+import java.util.List;
 
 @Data
 @Builder
@@ -20,7 +21,27 @@ public class ResourcePoolResponse {
     private Integer memoryGiB;
     private Integer maxPods;
     private String volcanoQueueName;
+    private Integer gpuFloor;
+    private Integer gpuCeiling;
+    /** 当前借入的 GPU 数（负数表示借出） */
+    private Integer gpuBorrowed;
+    private Integer inferenceRps;
+    private Integer inferenceTps;
+    private Integer inferenceUserRps;
+    private Integer inferenceUserTps;
+    private Integer shmMaxGib;
+    private Boolean allowHostIpc;
+    private Boolean allowHostNetwork;
     private String status;
     private Instant createdAt;
     private Instant updatedAt;
+    /** 仅创建时返回：各开通步骤的执行结果与耗时 */
+    private List<ProvisioningStepResult> provisioningSteps;
+    /** 仅创建时返回：实际写入 apiserver 的对象数 / 因期望状态哈希未变而跳过的对象数 */
+    private Integer appliedWritten;
+    private Integer appliedSkipped;
+    /** 最近一次容量调整向 ResourceQuota / Volcano Queue 的传播状态：pending / applying / applied / failed，未调整过时为空 */
+    private String capacityPropagation;
+    private String capacityPropagationError;
+    private Instant capacityPropagatedAt;
 }
@@ -0,0 +1,21 @@
+package com.acmp.compute.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/** saga 日志中的一条记录：正向步骤或其补偿 */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SagaStepRecord {
+    private String step;
+    /** succeeded / failed / compensated / compensation_failed */
+    private String status;
+    private String error;
+    private Instant at;
+}
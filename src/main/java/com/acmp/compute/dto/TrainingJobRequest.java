@@ -20,4 +20,10 @@ public class TrainingJobRequest {
     private Integer gpuMemPerPod;
     private Integer gpuCoresPerPod;
     private List<String> command;
+    /** /dev/shm 大小（GiB），为空时按每卡 2GiB 推算；不超过资源池上限 */
+    @Min(1)
+    private Integer shmSizeGiB;
+    /** 共享宿主机 IPC / 网络命名空间（RDMA 等），须资源池策略允许 */
+    private Boolean hostIpc;
+    private Boolean hostNetwork;
 }
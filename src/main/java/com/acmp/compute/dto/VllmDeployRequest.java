@@ -2,9 +2,12 @@ package com.acmp.compute.dto;
 
 import lombok.Data;
 
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
 
 /**
  * vLLM 模型服务部署请求。
@@ -28,6 +31,49 @@ public class VllmDeployRequest {
     private Integer gpucores;
     @NotNull @Min(1)
     private Integer replicas;
+    /**
+     * 多节点服务：单节点放不下的模型按节点数拆分（leader + worker，成组调度），节点间流水线并行、节点内张量并行；
+     * gpuPerReplica 为每个节点的 GPU 数，replicas 须为 1。为空或 1 表示单节点部署
+     */
+    @Min(1)
+    private Integer nodes;
     /** 宿主机权重目录（用于挂载，可选），如 /data/models/Qwen3 */
     private String hostModelPath;
+    /** 推理网关路由模式：least_outstanding（默认）/ prefix_affinity（按会话或 prompt 前缀亲和，提高 prefix cache 命中） */
+    @Pattern(regexp = "^(least_outstanding|prefix_affinity)$", message = "routingMode 只能是 least_outstanding 或 prefix_affinity")
+    private String routingMode;
+    /** 推理网关响应缓存：开启后 temperature=0 等确定性请求的相同请求直接返回缓存结果 */
+    private Boolean responseCache;
+    /** 自动扩缩容范围（按 vLLM 排队深度），maxReplicas 为空表示固定 replicas；replicas 为初始副本数 */
+    @Min(1)
+    private Integer minReplicas;
+    @Min(1)
+    private Integer maxReplicas;
+    /** 空闲缩容：连续该分钟数无请求时缩到 0 副本，经推理网关的首个请求触发唤醒 */
+    @Min(1)
+    private Integer idleMinutes;
+    /** vLLM 引擎预设：latency / throughput / long-context，按 GPU 规格校验；下列显式设置的引擎参数优先于预设 */
+    @Pattern(regexp = "^(latency|throughput|long-context)$", message = "enginePreset 只能是 latency、throughput 或 long-context")
+    private String enginePreset;
+    /** 张量并行度，默认等于 gpuPerReplica；须整除 gpuPerReplica，其余 GPU 用于流水线并行 */
+    @Min(1)
+    private Integer tensorParallelSize;
+    @Min(1)
+    private Integer maxNumSeqs;
+    @Min(1)
+    private Integer maxModelLen;
+    @DecimalMin(value = "0.1") @DecimalMax(value = "1.0")
+    private Double gpuMemoryUtilization;
+    private Boolean enablePrefixCaching;
+    private Boolean enableChunkedPrefill;
+    @Pattern(regexp = "^(awq|gptq|fp8|bitsandbytes|compressed-tensors)$", message = "quantization 不支持")
+    private String quantization;
+    @Pattern(regexp = "^(auto|half|float16|bfloat16|float32)$", message = "dtype 只能是 auto、half、float16、bfloat16 或 float32")
+    private String dtype;
+    /** /dev/shm 大小（GiB），为空时按每卡 2GiB 推算；不超过资源池上限 */
+    @Min(1)
+    private Integer shmSizeGiB;
+    /** 共享宿主机 IPC / 网络命名空间（RDMA 等），须资源池策略允许 */
+    private Boolean hostIpc;
+    private Boolean hostNetwork;
 }
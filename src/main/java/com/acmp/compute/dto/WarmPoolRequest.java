@@ -0,0 +1,25 @@
+package com.acmp.compute.dto;
+
+import lombok.Data;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+
+/**
+ * 温备池规格：镜像、模型与 GPU 规格与部署请求中的同名字段含义相同，部署请求与之完全一致时才能接管待命副本。
+ */
+@Data
+public class WarmPoolRequest {
+    @NotBlank
+    private String vllmImage;
+    private String modelIdOrPath;
+    private String hostModelPath;
+    @NotNull @Min(1)
+    private Integer gpuPerReplica;
+    private Integer gpumemMb;
+    private Integer gpucores;
+    /** 保持的待命副本数，每个占用 gpuPerReplica 个资源池 GPU */
+    @NotNull @Min(0)
+    private Integer size;
+}
@@ -0,0 +1,30 @@
+package com.acmp.compute.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+@Builder
+public class WarmPoolResponse {
+    private String id;
+    private String resourcePoolId;
+    private String vllmImage;
+    private String modelIdOrPath;
+    private String hostModelPath;
+    private Integer gpuPerReplica;
+    private Integer gpumemMb;
+    private Integer gpucores;
+    private Integer size;
+    /** 已加载模型、可立即接管的待命副本数（集群不可达时为空） */
+    private Integer readyStandbys;
+    /** 正在启动的待命副本数 */
+    private Integer startingStandbys;
+    private Long hits;
+    private Long misses;
+    private Double hitRatio;
+    /** 命中累计省去的部署就绪时间（秒） */
+    private Long timeToServeSavedSeconds;
+    private Instant createdAt;
+}
@@ -0,0 +1,30 @@
+package com.acmp.compute.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * 模型部署空闲缩容记录，由空闲缩容控制器在缩到 0 与唤醒时写入。
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DeploymentIdleEvent {
+    private String id;
+    private String resourcePoolId;
+    private String modelDeploymentId;
+    /** scale_to_zero / wake */
+    private String action;
+    /** 释放（scale_to_zero）或重新占用（wake）的 GPU 数 */
+    private Integer gpu;
+    /** wake：本次休眠时长 */
+    private Long idleMs;
+    /** wake：从唤醒到首个副本就绪的耗时，超时未就绪时为空 */
+    private Long coldStartMs;
+    private Instant createdAt;
+}
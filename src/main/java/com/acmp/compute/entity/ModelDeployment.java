@@ -30,12 +30,35 @@ public class ModelDeployment {
     private Integer gpumemMb;
     private Integer gpucores;
     private Integer replicas;
+    /** 多节点服务的节点数（leader + worker，k8sDeploymentName 为 VolcanoJob 名）；为空或 1 表示单节点 Deployment */
+    private Integer nodes;
     private String k8sDeploymentName;
     private String k8sServiceName;
-    /** pending / running / failed / stopped */
+    /** pending / running / failed / stopped / missing（Deployment 在集群中已不存在，由调谐写入） */
     private String status;
     /** 服务访问地址，如 http://svc-name.namespace.svc.cluster.local:8000 */
     private String serviceUrl;
+    /** 推理网关路由模式：least_outstanding / prefix_affinity */
+    private String routingMode;
+    /** 推理网关是否缓存确定性请求的响应 */
+    private Boolean responseCache;
+    /** 自动扩缩容的副本数范围，maxReplicas 为空表示固定副本数 */
+    private Integer minReplicas;
+    private Integer maxReplicas;
+    /** 空闲缩容：连续该分钟数无推理请求时缩到 0 副本，首个请求到达时唤醒；为空表示不缩容 */
+    private Integer idleMinutes;
+    /** 最近一次推理活动时间（各实例的网关定期写入），空闲缩容据此判断跨实例的空闲时长 */
+    private Instant lastActiveAt;
+    /** vLLM 引擎参数（已按预设补全）：latency / throughput / long-context，为空表示未使用预设 */
+    private String enginePreset;
+    private Integer tensorParallelSize;
+    private Integer maxNumSeqs;
+    private Integer maxModelLen;
+    private Double gpuMemoryUtilization;
+    private Boolean enablePrefixCaching;
+    private Boolean enableChunkedPrefill;
+    private String quantization;
+    private String dtype;
     private String createdBy;
     private Instant createdAt;
     private Instant updatedAt;
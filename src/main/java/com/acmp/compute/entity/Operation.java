@@ -0,0 +1,42 @@
+package com.acmp.compute.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * 异步操作记录：资源池创建、模型部署等耗时 K8s 操作在专用线程池执行，
+ * 客户端通过 /api/v1/operations/{id} 轮询或长轮询结果。
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Operation {
+    private String id;
+    /** create_resource_pool / deploy_model */
+    private String type;
+    /** pending / running / succeeded / failed */
+    private String status;
+    /** 操作产生的资源类型，如 resource_pool / model_deployment */
+    private String resourceType;
+    private String resourceId;
+    /** 客户端 Idempotency-Key，同一用户下唯一 */
+    private String idempotencyKey;
+    /** 请求体摘要（SHA-256），用于识别幂等键被不同请求复用 */
+    private String requestHash;
+    /** 成功时的响应体 JSON */
+    private String resultJson;
+    private String error;
+    /** saga 步骤与补偿日志 JSON */
+    private String sagaLog;
+    /** 执行该操作的服务实例（operation.instance-id），重启后只恢复本实例的操作 */
+    private String owner;
+    private String createdBy;
+    private Instant createdAt;
+    private Instant updatedAt;
+    private Instant finishedAt;
+}
@@ -0,0 +1,31 @@
+package com.acmp.compute.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * 预置项：标记为热点的镜像或权重目录，由物理集群上的预置 DaemonSet 提前拉取 / 预置到节点。
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PrestageItem {
+    private String id;
+    private String physicalClusterId;
+    /** image / weights */
+    private String kind;
+    /** kind=image：镜像地址 */
+    private String image;
+    /** kind=weights：节点上的权重目录，与部署请求的 hostModelPath 对应 */
+    private String hostPath;
+    /** kind=weights：目标目录为空时从该宿主机目录（如共享存储挂载点）复制，可空 */
+    private String sourcePath;
+    /** 节点选择，格式 key=value；为空时为全部 GPU 节点（gpu-node=true） */
+    private String nodeSelector;
+    private Instant createdAt;
+}
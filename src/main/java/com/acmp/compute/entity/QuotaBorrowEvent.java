@@ -0,0 +1,30 @@
+package com.acmp.compute.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * 弹性配额借出/借入记录，由弹性配额控制器在资源池借入量变化时写入。
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuotaBorrowEvent {
+    private String id;
+    private String physicalClusterId;
+    private String resourcePoolId;
+    /** borrow（借入增加）/ reclaim（借入被收回）/ lend（借出增加）/ return（借出归还） */
+    private String action;
+    /** 本次变化的 GPU 数 */
+    private Integer gpu;
+    /** 变化后的借入量（负数表示借出） */
+    private Integer gpuBorrowedAfter;
+    /** 决策时资源池的 GPU 需求 */
+    private Integer demandGpu;
+    private Instant createdAt;
+}
@@ -34,6 +34,23 @@ public class ResourcePool {
     private Integer maxPods;
     /** Volcano Queue 名称 */
     private String volcanoQueueName;
+    /** 弹性配额下限：GPU 空闲时最多借出到只剩该值（为空表示不借出，等同 gpuSlots） */
+    private Integer gpuFloor;
+    /** 弹性配额上限：需求超出 gpuSlots 时最多借入到该值（为空表示不借入，等同 gpuSlots） */
+    private Integer gpuCeiling;
+    /** 当前借入的 GPU 数（负数表示借出），由弹性配额控制器维护 */
+    private Integer gpuBorrowed;
+    /** 推理请求限流（整个资源池）：每秒请求数 / 每秒估算 token 数，为空表示不限 */
+    private Integer inferenceRps;
+    private Integer inferenceTps;
+    /** 推理请求限流（资源池内单个用户），为空表示不限 */
+    private Integer inferenceUserRps;
+    private Integer inferenceUserTps;
+    /** Pod 运行时策略：/dev/shm 上限（GiB，为空取平台默认）、是否允许 hostIPC / hostNetwork（RDMA 等场景） */
+    private Integer shmMaxGib;
+    private Boolean allowHostIpc;
+    private Boolean allowHostNetwork;
+    /** active / degraded（调谐补回 K8s 对象失败） */
     private String status;
     private Instant createdAt;
     private Instant updatedAt;
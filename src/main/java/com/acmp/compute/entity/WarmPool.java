@@ -0,0 +1,35 @@
+package com.acmp.compute.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * 温备池规格：资源池内按（镜像、模型、GPU 规格）保持 size 个已加载模型的待命副本，部署时直接接管。
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class WarmPool {
+    private String id;
+    private String resourcePoolId;
+    private String vllmImage;
+    private String modelIdOrPath;
+    private String hostModelPath;
+    private Integer gpuPerReplica;
+    private Integer gpumemMb;
+    private Integer gpucores;
+    private Integer size;
+    /** 部署接管到就绪待命副本的次数 */
+    private Long hits;
+    /** 部署与规格匹配但没有就绪待命副本的次数 */
+    private Long misses;
+    /** 命中时省去的冷启动耗时之和（待命副本从创建到就绪的实测耗时） */
+    private Long savedMs;
+    private Instant createdAt;
+    private Instant updatedAt;
+}
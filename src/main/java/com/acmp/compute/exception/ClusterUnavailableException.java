@@ -0,0 +1,16 @@
+package com.acmp.compute.exception;
+
+/** 物理集群熔断、限流或并发已满时快速失败抛出 */
+public class ClusterUnavailableException extends RuntimeException {
+
+    private final String physicalClusterId;
+
+    public ClusterUnavailableException(String physicalClusterId, String reason) {
+        super("集群暂不可用 (" + physicalClusterId + "): " + reason);
+        this.physicalClusterId = physicalClusterId;
+    }
+
+    public String getPhysicalClusterId() {
+        return physicalClusterId;
+    }
+}
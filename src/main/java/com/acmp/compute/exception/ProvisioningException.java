@@ -0,0 +1,26 @@
+package com.acmp.compute.exception;
+
+import com.acmp.compute.dto.ProvisioningStepResult;
+
+import java.util.List;
+
+/** 资源开通失败时抛出，携带导致失败的步骤与全部步骤结果 */
+public class ProvisioningException extends RuntimeException {
+
+    private final String failedStep;
+    private final List<ProvisioningStepResult> steps;
+
+    public ProvisioningException(String failedStep, List<ProvisioningStepResult> steps, Throwable cause) {
+        super("资源开通失败，步骤 " + failedStep + ": " + (cause != null ? cause.getMessage() : "未知错误"), cause);
+        this.failedStep = failedStep;
+        this.steps = steps;
+    }
+
+    public String getFailedStep() {
+        return failedStep;
+    }
+
+    public List<ProvisioningStepResult> getSteps() {
+        return steps;
+    }
+}
@@ -0,0 +1,24 @@
+package com.acmp.compute.exception;
+
+import lombok.Getter;
+
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 资源池剩余配额不足，提交在发往 apiserver 之前即被拒绝。shortfall 为各维度的缺口（如 gpu=2、cpuMillis=500）。
+ */
+@Getter
+public class QuotaExceededException extends RuntimeException {
+
+    private final String resourcePoolId;
+    private final Map<String, Long> shortfall;
+
+    public QuotaExceededException(String resourcePoolId, Map<String, Long> shortfall) {
+        super("资源池配额不足: " + shortfall.entrySet().stream()
+                .map(e -> e.getKey() + " 缺 " + e.getValue())
+                .collect(Collectors.joining(", ")));
+        this.resourcePoolId = resourcePoolId;
+        this.shortfall = shortfall;
+    }
+}
@@ -0,0 +1,22 @@
+package com.acmp.compute.exception;
+
+/** 推理请求超出资源池或用户的限流，且公平队列已满或排队超时时抛出 */
+public class RateLimitedException extends RuntimeException {
+
+    private final String resourcePoolId;
+    private final long retryAfterSeconds;
+
+    public RateLimitedException(String resourcePoolId, String reason, long retryAfterSeconds) {
+        super("推理请求被限流 (" + resourcePoolId + "): " + reason);
+        this.resourcePoolId = resourcePoolId;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public String getResourcePoolId() {
+        return resourcePoolId;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,16 @@
+package com.acmp.compute.exception;
+
+/** 推理网关没有可用的上游副本（无就绪 Pod，或所有副本连接失败）时抛出 */
+public class UpstreamUnavailableException extends RuntimeException {
+
+    private final String deploymentId;
+
+    public UpstreamUnavailableException(String deploymentId, String reason) {
+        super("推理服务暂不可用 (" + deploymentId + "): " + reason);
+        this.deploymentId = deploymentId;
+    }
+
+    public String getDeploymentId() {
+        return deploymentId;
+    }
+}
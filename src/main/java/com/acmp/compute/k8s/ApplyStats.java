@@ -0,0 +1,38 @@
+package com.acmp.compute.k8s;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 一次开通/调谐运行中的 apply 统计：实际写入 apiserver 的对象数与因哈希一致而跳过的对象数。
+ * 可被并行步骤共享。
+ */
+public class ApplyStats {
+
+    /** 单次 apply 的结果 */
+    public enum Result { WRITTEN, SKIPPED }
+
+    private final AtomicInteger written = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+
+    public Result record(Result result) {
+        if (result == Result.SKIPPED) {
+            skipped.incrementAndGet();
+        } else {
+            written.incrementAndGet();
+        }
+        return result;
+    }
+
+    public int getWritten() {
+        return written.get();
+    }
+
+    public int getSkipped() {
+        return skipped.get();
+    }
+
+    @Override
+    public String toString() {
+        return "written=" + written.get() + ", skipped=" + skipped.get();
+    }
+}
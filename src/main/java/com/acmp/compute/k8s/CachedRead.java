@@ -0,0 +1,31 @@
+package com.acmp.compute.k8s;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 读取结果及其来源：来自 Informer 本地缓存（附带陈旧度）或实时 GET。
+ */
+@Getter
+@AllArgsConstructor
+public class CachedRead<T> {
+    /** 读取到的对象，可能为 null（对象不存在） */
+    private final T value;
+    /** true 表示来自 Informer 缓存，false 表示实时读取 apiserver */
+    private final boolean fromCache;
+    /** 缓存陈旧度（毫秒），实时读取时为 0 */
+    private final long stalenessMs;
+
+    public static <T> CachedRead<T> cached(T value, long stalenessMs) {
+        return new CachedRead<>(value, true, stalenessMs);
+    }
+
+    public static <T> CachedRead<T> live(T value) {
+        return new CachedRead<>(value, false, 0L);
+    }
+
+    /** 供响应体使用的来源标识：informer / live */
+    public String getSource() {
+        return fromCache ? "informer" : "live";
+    }
+}
@@ -0,0 +1,364 @@
+package com.acmp.compute.k8s;
+
+import io.fabric8.kubernetes.api.model.Container;
+import io.fabric8.kubernetes.api.model.Node;
+import io.fabric8.kubernetes.api.model.NodeCondition;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.Quantity;
+import io.fabric8.kubernetes.api.model.ResourceRequirements;
+import io.fabric8.kubernetes.client.informers.ResourceEventHandler;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 集群容量索引：由 Node / Pod 的 watch 事件增量维护每个节点的 allocatable 与已请求量，
+ * 并同步维护集群合计，容量与空闲量查询为 O(1)，不再每次 LIST 全部节点。
+ * <p>
+ * 数值统一存为定点 long：CPU 为毫核，内存为字节，GPU 为卡数，HAMi gpumem 为 MiB、gpucores 为百分比核数。
+ * 节点未在 allocatable 中暴露 HAMi 资源时，从 HAMi 调度器注册注解中解析每卡显存与算力。
+ * <p>
+ * Pod 事件可能早于其节点事件到达：所在节点尚未登记的 Pod 只记下、不计入合计（也不凭空生成节点），
+ * 节点事件到达时再补计；节点删除后其上的 Pod 同样转为未计入，直到节点重新出现或 Pod 删除。
+ */
+@Slf4j
+public class CapacityIndex {
+
+    public static final String RESOURCE_GPU = "nvidia.com/gpu";
+    public static final String RESOURCE_GPUMEM = "nvidia.com/gpumem";
+    public static final String RESOURCE_GPUCORES = "nvidia.com/gpucores";
+
+    /** HAMi 设备注册注解：id,count,devmem,devcore,type,numa,health:... */
+    static final String HAMI_NODE_REGISTER_ANNOTATION = "hami.io/node-nvidia-register";
+
+    static final int GPU = 0;
+    static final int CPU_MILLIS = 1;
+    static final int MEMORY_BYTES = 2;
+    static final int GPUMEM_MB = 3;
+    static final int GPUCORES = 4;
+    private static final int DIMENSIONS = 5;
+
+    /** 节点名 -> 节点容量 */
+    private final Map<String, NodeEntry> nodes = new HashMap<>();
+    /** namespace/name -> 已计入的 Pod 请求 */
+    private final Map<String, PodEntry> pods = new HashMap<>();
+
+    private final long[] allocatableTotal = new long[DIMENSIONS];
+    private final long[] requestedTotal = new long[DIMENSIONS];
+    private int readyNodes;
+    private volatile long updatedAtMs = System.currentTimeMillis();
+
+    /** 节点事件处理器，注册到 Node informer */
+    public ResourceEventHandler<Node> nodeHandler() {
+        return new ResourceEventHandler<Node>() {
+            @Override
+            public void onAdd(Node node) {
+                upsertNode(node);
+            }
+
+            @Override
+            public void onUpdate(Node oldNode, Node newNode) {
+                upsertNode(newNode);
+            }
+
+            @Override
+            public void onDelete(Node node, boolean deletedFinalStateUnknown) {
+                removeNode(node.getMetadata().getName());
+            }
+        };
+    }
+
+    /** Pod 事件处理器，注册到 Pod informer */
+    public ResourceEventHandler<Pod> podHandler() {
+        return new ResourceEventHandler<Pod>() {
+            @Override
+            public void onAdd(Pod pod) {
+                upsertPod(pod);
+            }
+
+            @Override
+            public void onUpdate(Pod oldPod, Pod newPod) {
+                upsertPod(newPod);
+            }
+
+            @Override
+            public void onDelete(Pod pod, boolean deletedFinalStateUnknown) {
+                removePod(podKey(pod));
+            }
+        };
+    }
+
+    public synchronized void upsertNode(Node node) {
+        String name = node.getMetadata().getName();
+        NodeEntry entry = nodes.get(name);
+        if (entry == null) {
+            entry = new NodeEntry();
+            nodes.put(name, entry);
+            // 补计先于节点事件到达的 Pod
+            for (PodEntry pod : pods.values()) {
+                if (!pod.counted && name.equals(pod.nodeName)) account(pod);
+            }
+        }
+        subtract(allocatableTotal, entry.allocatable);
+        if (entry.ready) readyNodes--;
+        entry.allocatable = allocatableOf(node);
+        entry.ready = isReady(node);
+        add(allocatableTotal, entry.allocatable);
+        if (entry.ready) readyNodes++;
+        touch();
+    }
+
+    public synchronized void removeNode(String name) {
+        NodeEntry entry = nodes.remove(name);
+        if (entry == null) return;
+        subtract(allocatableTotal, entry.allocatable);
+        if (entry.ready) readyNodes--;
+        // 节点上仍计入的 Pod 请求一并移出合计并转为未计入；Pod 删除事件到达时不会重复扣减
+        subtract(requestedTotal, entry.requested);
+        for (PodEntry pod : pods.values()) {
+            if (name.equals(pod.nodeName)) pod.counted = false;
+        }
+        touch();
+    }
+
+    public synchronized void upsertPod(Pod pod) {
+        String key = podKey(pod);
+        String nodeName = pod.getSpec() != null ? pod.getSpec().getNodeName() : null;
+        String phase = pod.getStatus() != null ? pod.getStatus().getPhase() : null;
+        // 未调度或已终止的 Pod 不占用节点资源
+        if (nodeName == null || "Succeeded".equals(phase) || "Failed".equals(phase)) {
+            removePod(key);
+            return;
+        }
+        long[] requests = requestsOf(pod);
+        PodEntry existing = pods.get(key);
+        if (existing != null) {
+            unaccount(existing);
+        }
+        PodEntry entry = new PodEntry(nodeName, requests);
+        pods.put(key, entry);
+        account(entry);
+        touch();
+    }
+
+    public synchronized void removePod(String key) {
+        PodEntry entry = pods.remove(key);
+        if (entry == null) return;
+        unaccount(entry);
+        touch();
+    }
+
+    /** 计入所在节点与集群合计；节点尚未登记时保持未计入 */
+    private void account(PodEntry entry) {
+        NodeEntry node = nodes.get(entry.nodeName);
+        if (node == null) return;
+        add(node.requested, entry.requests);
+        add(requestedTotal, entry.requests);
+        entry.counted = true;
+    }
+
+    private void unaccount(PodEntry entry) {
+        if (!entry.counted) return;
+        NodeEntry node = nodes.get(entry.nodeName);
+        if (node != null) subtract(node.requested, entry.requests);
+        subtract(requestedTotal, entry.requests);
+        entry.counted = false;
+    }
+
+    /** 集群合计快照（O(1)） */
+    public synchronized Snapshot snapshot() {
+        return new Snapshot(allocatableTotal, requestedTotal, nodes.size(), readyNodes, updatedAtMs);
+    }
+
+    /** 单个节点快照；节点不存在时返回 null */
+    public synchronized Snapshot node(String nodeName) {
+        NodeEntry entry = nodes.get(nodeName);
+        if (entry == null) return null;
+        return new Snapshot(entry.allocatable, entry.requested, 1, entry.ready ? 1 : 0, updatedAtMs);
+    }
+
+    private void touch() {
+        updatedAtMs = System.currentTimeMillis();
+    }
+
+    // ---------- 资源解析 ----------
+
+    static long[] allocatableOf(Node node) {
+        long[] v = new long[DIMENSIONS];
+        if (node.getStatus() == null || node.getStatus().getAllocatable() == null) return v;
+        Map<String, Quantity> allocatable = node.getStatus().getAllocatable();
+        v[GPU] = toLong(allocatable.get(RESOURCE_GPU));
+        v[CPU_MILLIS] = toMillis(allocatable.get("cpu"));
+        v[MEMORY_BYTES] = toLong(allocatable.get("memory"));
+        v[GPUMEM_MB] = toLong(allocatable.get(RESOURCE_GPUMEM));
+        v[GPUCORES] = toLong(allocatable.get(RESOURCE_GPUCORES));
+        if (v[GPUMEM_MB] == 0 && v[GPUCORES] == 0) {
+            Map<String, String> annotations = node.getMetadata().getAnnotations();
+            String register = annotations != null ? annotations.get(HAMI_NODE_REGISTER_ANNOTATION) : null;
+            if (register != null) parseHamiRegister(register, v);
+        }
+        return v;
+    }
+
+    /** 解析 HAMi 注册注解，累加每张健康 GPU 的显存（MiB）与算力（百分比） */
+    private static void parseHamiRegister(String register, long[] v) {
+        for (String device : register.split(":")) {
+            String[] f = device.split(",");
+            if (f.length < 4) continue;
+            if (f.length >= 7 && "false".equalsIgnoreCase(f[6].trim())) continue;
+            try {
+                v[GPUMEM_MB] += Long.parseLong(f[2].trim());
+                v[GPUCORES] += Long.parseLong(f[3].trim());
+            } catch (NumberFormatException e) {
+                log.debug("忽略无法解析的 HAMi 设备注册信息: {}", device);
+            }
+        }
+    }
+
+    /**
+     * Pod 的有效请求量：max(各容器请求之和, 任一 init 容器请求) + overhead。
+     * 扩展资源（GPU、gpumem、gpucores）未声明 requests 时以 limits 计，与调度器行为一致。
+     */
+    static long[] requestsOf(Pod pod) {
+        long[] sum = new long[DIMENSIONS];
+        if (pod.getSpec() == null) return sum;
+        for (Container c : pod.getSpec().getContainers()) {
+            add(sum, containerRequests(c.getResources()));
+        }
+        List<Container> initContainers = pod.getSpec().getInitContainers();
+        if (initContainers != null) {
+            for (Container c : initContainers) {
+                long[] init = containerRequests(c.getResources());
+                for (int i = 0; i < DIMENSIONS; i++) sum[i] = Math.max(sum[i], init[i]);
+            }
+        }
+        Map<String, Quantity> overhead = pod.getSpec().getOverhead();
+        if (overhead != null) {
+            sum[CPU_MILLIS] += toMillis(overhead.get("cpu"));
+            sum[MEMORY_BYTES] += toLong(overhead.get("memory"));
+        }
+        return sum;
+    }
+
+    private static long[] containerRequests(ResourceRequirements resources) {
+        long[] v = new long[DIMENSIONS];
+        if (resources == null) return v;
+        Map<String, Quantity> requests = resources.getRequests() != null ? resources.getRequests() : Map.of();
+        Map<String, Quantity> limits = resources.getLimits() != null ? resources.getLimits() : Map.of();
+        v[CPU_MILLIS] = toMillis(requests.getOrDefault("cpu", limits.get("cpu")));
+        v[MEMORY_BYTES] = toLong(requests.getOrDefault("memory", limits.get("memory")));
+        v[GPU] = toLong(requests.getOrDefault(RESOURCE_GPU, limits.get(RESOURCE_GPU)));
+        v[GPUMEM_MB] = toLong(requests.getOrDefault(RESOURCE_GPUMEM, limits.get(RESOURCE_GPUMEM)));
+        v[GPUCORES] = toLong(requests.getOrDefault(RESOURCE_GPUCORES, limits.get(RESOURCE_GPUCORES)));
+        return v;
+    }
+
+    /** Quantity 转为基本单位的 long（如 "512Gi" -> 字节数，"8" -> 8）；无法解析时返回 0 */
+    public static long toLong(Quantity q) {
+        BigDecimal amount = numerical(q);
+        return amount == null ? 0L : amount.longValue();
+    }
+
+    /** Quantity 转为千分单位的 long（如 CPU "500m" -> 500，"2" -> 2000） */
+    public static long toMillis(Quantity q) {
+        BigDecimal amount = numerical(q);
+        return amount == null ? 0L : amount.movePointRight(3).longValue();
+    }
+
+    private static BigDecimal numerical(Quantity q) {
+        if (q == null || q.getAmount() == null) return null;
+        try {
+            return q.getNumericalAmount();
+        } catch (RuntimeException e) {
+            log.debug("无法解析 Quantity {}{}: {}", q.getAmount(), q.getFormat(), e.getMessage());
+            return null;
+        }
+    }
+
+    private static boolean isReady(Node node) {
+        if (node.getSpec() != null && Boolean.TRUE.equals(node.getSpec().getUnschedulable())) return false;
+        if (node.getStatus() == null || node.getStatus().getConditions() == null) return false;
+        for (NodeCondition c : node.getStatus().getConditions()) {
+            if ("Ready".equals(c.getType())) return "True".equals(c.getStatus());
+        }
+        return false;
+    }
+
+    private static String podKey(Pod pod) {
+        return pod.getMetadata().getNamespace() + "/" + pod.getMetadata().getName();
+    }
+
+    private static void add(long[] target, long[] delta) {
+        for (int i = 0; i < DIMENSIONS; i++) target[i] += delta[i];
+    }
+
+    private static void subtract(long[] target, long[] delta) {
+        for (int i = 0; i < DIMENSIONS; i++) target[i] -= delta[i];
+    }
+
+    private static class NodeEntry {
+        long[] allocatable = new long[DIMENSIONS];
+        final long[] requested = new long[DIMENSIONS];
+        boolean ready;
+    }
+
+    private static class PodEntry {
+        final String nodeName;
+        final long[] requests;
+        /** 是否已计入节点与集群合计 */
+        boolean counted;
+
+        PodEntry(String nodeName, long[] requests) {
+            this.nodeName = nodeName;
+            this.requests = requests;
+        }
+    }
+
+    /** 容量快照：allocatable、已请求与空闲（= allocatable - 已请求，下限为 0） */
+    @Getter
+    public static class Snapshot {
+        private final long gpuAllocatable;
+        private final long gpuRequested;
+        private final long gpuFree;
+        private final long cpuMillisAllocatable;
+        private final long cpuMillisRequested;
+        private final long cpuMillisFree;
+        private final long memoryBytesAllocatable;
+        private final long memoryBytesRequested;
+        private final long memoryBytesFree;
+        private final long gpumemMbAllocatable;
+        private final long gpumemMbRequested;
+        private final long gpumemMbFree;
+        private final long gpucoresAllocatable;
+        private final long gpucoresRequested;
+        private final long gpucoresFree;
+        private final int nodeCount;
+        private final int readyNodeCount;
+        private final long updatedAtMs;
+
+        Snapshot(long[] allocatable, long[] requested, int nodeCount, int readyNodeCount, long updatedAtMs) {
+            this.gpuAllocatable = allocatable[GPU];
+            this.gpuRequested = requested[GPU];
+            this.gpuFree = Math.max(0, allocatable[GPU] - requested[GPU]);
+            this.cpuMillisAllocatable = allocatable[CPU_MILLIS];
+            this.cpuMillisRequested = requested[CPU_MILLIS];
+            this.cpuMillisFree = Math.max(0, allocatable[CPU_MILLIS] - requested[CPU_MILLIS]);
+            this.memoryBytesAllocatable = allocatable[MEMORY_BYTES];
+            this.memoryBytesRequested = requested[MEMORY_BYTES];
+            this.memoryBytesFree = Math.max(0, allocatable[MEMORY_BYTES] - requested[MEMORY_BYTES]);
+            this.gpumemMbAllocatable = allocatable[GPUMEM_MB];
+            this.gpumemMbRequested = requested[GPUMEM_MB];
+            this.gpumemMbFree = Math.max(0, allocatable[GPUMEM_MB] - requested[GPUMEM_MB]);
+            this.gpucoresAllocatable = allocatable[GPUCORES];
+            this.gpucoresRequested = requested[GPUCORES];
+            this.gpucoresFree = Math.max(0, allocatable[GPUCORES] - requested[GPUCORES]);
+            this.nodeCount = nodeCount;
+            this.readyNodeCount = readyNodeCount;
+            this.updatedAtMs = updatedAtMs;
+        }
+    }
+}
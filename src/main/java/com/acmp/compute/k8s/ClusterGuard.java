@@ -0,0 +1,276 @@
+package com.acmp.compute.k8s;
+
+import com.acmp.compute.dto.ClusterGuardStatus;
+import com.acmp.compute.exception.ClusterUnavailableException;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.KubernetesClientTimeoutException;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 单个物理集群的调用保护：舱壁（并发上限）+ 熔断器 + 分优先级的客户端限流。
+ * <ul>
+ *   <li>舱壁：每集群最大并发调用数，后台通道只能使用其中一部分，为交互式请求预留余量</li>
+ *   <li>熔断：连续失败达到阈值后打开，在冷却期内快速失败；冷却后半开放行一次试探调用</li>
+ *   <li>限流：交互式与后台通道各自一个令牌桶（QPS + burst），后台调度/容量扫描不挤占用户请求</li>
+ * </ul>
+ */
+@Slf4j
+public class ClusterGuard {
+
+    /** 调用优先级通道 */
+    public enum Lane { INTERACTIVE, BACKGROUND }
+
+    public enum BreakerState { CLOSED, OPEN, HALF_OPEN }
+
+    /** 当前线程的调用通道，默认交互式；后台任务通过 KubernetesClientManager.inBackground 切换 */
+    private static final ThreadLocal<Lane> CURRENT_LANE = ThreadLocal.withInitial(() -> Lane.INTERACTIVE);
+
+    private final String physicalClusterId;
+    private final Settings settings;
+    private final Semaphore permits;
+    private final Semaphore backgroundPermits;
+    private final RateLimiter interactiveLimiter;
+    private final RateLimiter backgroundLimiter;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger waitingInteractive = new AtomicInteger();
+    private final AtomicInteger waitingBackground = new AtomicInteger();
+    private final AtomicLong rejectedTotal = new AtomicLong();
+    private final AtomicLong failuresTotal = new AtomicLong();
+
+    private volatile BreakerState state = BreakerState.CLOSED;
+    private volatile long openedAtMs;
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicBoolean halfOpenTrial = new AtomicBoolean();
+
+    public ClusterGuard(String physicalClusterId, Settings settings) {
+        this.physicalClusterId = physicalClusterId;
+        this.settings = settings;
+        this.permits = new Semaphore(settings.getMaxConcurrent(), true);
+        this.backgroundPermits = new Semaphore(Math.min(settings.getBackgroundMaxConcurrent(), settings.getMaxConcurrent()), true);
+        this.interactiveLimiter = new RateLimiter(settings.getInteractiveQps(), settings.getInteractiveBurst());
+        this.backgroundLimiter = new RateLimiter(settings.getBackgroundQps(), settings.getBackgroundBurst());
+    }
+
+    public static Lane currentLane() {
+        return CURRENT_LANE.get();
+    }
+
+    /** 在后台通道中执行 action（用于调谐、容量扫描等非交互任务） */
+    public static <T> T withLane(Lane lane, Supplier<T> action) {
+        Lane previous = CURRENT_LANE.get();
+        CURRENT_LANE.set(lane);
+        try {
+            return action.get();
+        } finally {
+            CURRENT_LANE.set(previous);
+        }
+    }
+
+    /**
+     * 受保护地执行一次对 apiserver 的调用。
+     *
+     * @throws ClusterUnavailableException 熔断打开、限流等待超时或并发已满时快速失败
+     */
+    public <T> T call(Supplier<T> call) {
+        Lane lane = currentLane();
+        boolean trial = beforeCall();
+        try {
+            acquireRate(lane);
+            acquirePermit(lane);
+            inFlight.incrementAndGet();
+            try {
+                T result = call.get();
+                onSuccess();
+                return result;
+            } catch (RuntimeException e) {
+                if (isClusterFailure(e)) {
+                    onFailure(e);
+                } else {
+                    // 4xx 等业务错误说明集群可达，不计入熔断
+                    onSuccess();
+                }
+                throw e;
+            } finally {
+                inFlight.decrementAndGet();
+                permits.release();
+                if (lane == Lane.BACKGROUND) backgroundPermits.release();
+            }
+        } finally {
+            // 试探调用以任何方式结束（含 Error、限流或并发拒绝）都须释放，否则半开状态下后续调用一直被拒绝
+            if (trial) halfOpenTrial.set(false);
+        }
+    }
+
+    /** 熔断检查；返回本次调用是否为半开状态下的试探调用（调用结束后须释放） */
+    private boolean beforeCall() {
+        if (state == BreakerState.OPEN) {
+            if (System.currentTimeMillis() - openedAtMs < settings.getOpenMs()) {
+                reject("熔断中");
+            }
+            state = BreakerState.HALF_OPEN;
+        }
+        if (state != BreakerState.HALF_OPEN) return false;
+        if (!halfOpenTrial.compareAndSet(false, true)) {
+            reject("熔断半开，试探调用进行中");
+        }
+        return true;
+    }
+
+    private void acquireRate(Lane lane) {
+        RateLimiter limiter = lane == Lane.BACKGROUND ? backgroundLimiter : interactiveLimiter;
+        long waitNanos = limiter.reserve(TimeUnit.MILLISECONDS.toNanos(settings.getAcquireTimeoutMs()));
+        if (waitNanos < 0) {
+            reject("客户端限流（" + lane + "）");
+        }
+        if (waitNanos > 0) {
+            AtomicInteger waiting = lane == Lane.BACKGROUND ? waitingBackground : waitingInteractive;
+            waiting.incrementAndGet();
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                reject("等待限流令牌时被中断");
+            } finally {
+                waiting.decrementAndGet();
+            }
+        }
+    }
+
+    private void acquirePermit(Lane lane) {
+        AtomicInteger waiting = lane == Lane.BACKGROUND ? waitingBackground : waitingInteractive;
+        waiting.incrementAndGet();
+        try {
+            long timeout = settings.getAcquireTimeoutMs();
+            if (lane == Lane.BACKGROUND && !backgroundPermits.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+                reject("后台通道并发已满");
+            }
+            if (!permits.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+                if (lane == Lane.BACKGROUND) backgroundPermits.release();
+                reject("集群并发已满");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reject("等待并发许可时被中断");
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    private void onSuccess() {
+        consecutiveFailures.set(0);
+        if (state != BreakerState.CLOSED) {
+            log.info("集群 {} 熔断恢复为 CLOSED", physicalClusterId);
+            state = BreakerState.CLOSED;
+        }
+    }
+
+    private void onFailure(RuntimeException e) {
+        failuresTotal.incrementAndGet();
+        int failures = consecutiveFailures.incrementAndGet();
+        if (state == BreakerState.HALF_OPEN || failures >= settings.getFailureThreshold()) {
+            if (state != BreakerState.OPEN) {
+                log.warn("集群 {} 熔断打开（连续失败 {} 次）: {}", physicalClusterId, failures, e.getMessage());
+            }
+            state = BreakerState.OPEN;
+            openedAtMs = System.currentTimeMillis();
+        }
+    }
+
+    private void reject(String reason) {
+        rejectedTotal.incrementAndGet();
+        throw new ClusterUnavailableException(physicalClusterId, reason);
+    }
+
+    /** 判断异常是否代表集群不可用（连接失败、超时、5xx、429），而非业务性错误 */
+    static boolean isClusterFailure(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof KubernetesClientTimeoutException || t instanceof TimeoutException || t instanceof IOException) {
+                return true;
+            }
+            if (t instanceof KubernetesClientException) {
+                int code = ((KubernetesClientException) t).getCode();
+                if (code >= 500 || code == 429) return true;
+                if (code > 0) return false;
+            }
+        }
+        return false;
+    }
+
+    public ClusterGuardStatus status() {
+        return ClusterGuardStatus.builder()
+                .physicalClusterId(physicalClusterId)
+                .breakerState(state.name())
+                .consecutiveFailures(consecutiveFailures.get())
+                .openedAt(state == BreakerState.CLOSED || openedAtMs == 0 ? null : Instant.ofEpochMilli(openedAtMs))
+                .inFlight(inFlight.get())
+                .availablePermits(permits.availablePermits())
+                .waitingInteractive(waitingInteractive.get())
+                .waitingBackground(waitingBackground.get())
+                .rejectedTotal(rejectedTotal.get())
+                .failuresTotal(failuresTotal.get())
+                .build();
+    }
+
+    public BreakerState getState() {
+        return state;
+    }
+
+    /** 集群调用保护参数 */
+    @Getter
+    @Builder
+    public static class Settings {
+        private final int maxConcurrent;
+        private final int backgroundMaxConcurrent;
+        private final long acquireTimeoutMs;
+        private final double interactiveQps;
+        private final int interactiveBurst;
+        private final double backgroundQps;
+        private final int backgroundBurst;
+        private final int failureThreshold;
+        private final long openMs;
+    }
+
+    /**
+     * 预约式令牌桶：令牌可透支，调用方按返回的纳秒数等待；等待超过上限时不预约并返回 -1。
+     */
+    static class RateLimiter {
+        private final double tokensPerNano;
+        private final double burst;
+        private double tokens;
+        private long lastRefillNanos;
+
+        RateLimiter(double qps, int burst) {
+            this.tokensPerNano = qps / TimeUnit.SECONDS.toNanos(1);
+            this.burst = Math.max(1, burst);
+            this.tokens = this.burst;
+            this.lastRefillNanos = System.nanoTime();
+        }
+
+        synchronized long reserve(long maxWaitNanos) {
+            long now = System.nanoTime();
+            tokens = Math.min(burst, tokens + (now - lastRefillNanos) * tokensPerNano);
+            lastRefillNanos = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            long wait = (long) Math.ceil((1 - tokens) / tokensPerNano);
+            if (wait > maxWaitNanos) return -1;
+            tokens -= 1;
+            return wait;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.acmp.compute.k8s;
+
+import io.fabric8.kubernetes.api.model.GenericKubernetesResource;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.Node;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.ResourceQuota;
+import io.fabric8.kubernetes.api.model.apps.Deployment;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.dsl.base.ResourceDefinitionContext;
+import io.fabric8.kubernetes.client.informers.ResourceEventHandler;
+import io.fabric8.kubernetes.client.informers.SharedIndexInformer;
+import io.fabric8.kubernetes.client.informers.cache.Cache;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单个物理集群的共享 Informer 集合：Deployment / Pod / Node / ResourceQuota / VolcanoJob。
+ * 由 KubernetesClientManager 在首次读取时懒启动，按 namespace 与 label 建索引，
+ * 状态查询直接读本地缓存，避免每次轮询都向 apiserver 发起 GET。
+ */
+@Slf4j
+public class ClusterInformers implements AutoCloseable {
+
+    /** 按 namespace 建立的索引名 */
+    public static final String NAMESPACE_INDEX = "acmp-namespace";
+    /** 按 label（key=value）建立的索引名 */
+    public static final String LABEL_INDEX = "acmp-label";
+
+    /** VolcanoJob CRD 定义：batch.volcano.sh/v1alpha1 Job（与 K8sResourceBuilder.buildVolcanoJob、Role 中的 jobs 保持一致） */
+    public static final ResourceDefinitionContext VOLCANO_JOB_CONTEXT = new ResourceDefinitionContext.Builder()
+            .withGroup("batch.volcano.sh")
+            .withVersion("v1alpha1")
+            .withKind("Job")
+            .withPlural("jobs")
+            .withNamespaced(true)
+            .build();
+
+    private final String physicalClusterId;
+    private final SharedIndexInformer<Deployment> deployments;
+    private final SharedIndexInformer<Pod> pods;
+    private final SharedIndexInformer<Node> nodes;
+    private final SharedIndexInformer<ResourceQuota> resourceQuotas;
+    private final SharedIndexInformer<GenericKubernetesResource> volcanoJobs;
+
+    /** 由 Node / Pod 事件增量维护的容量索引 */
+    private final CapacityIndex capacityIndex = new CapacityIndex();
+
+    /** 各 Informer 最近一次收到事件（含 resync 与首次同步完成）的时间，用于计算各自缓存的陈旧度 */
+    private final Map<SharedIndexInformer<?>, AtomicLong> lastEventAtMs = new IdentityHashMap<>();
+    private final long startedAtMs;
+
+    ClusterInformers(String physicalClusterId, KubernetesClient client, long resyncMs) {
+        this.physicalClusterId = physicalClusterId;
+        this.deployments = prepare(client.apps().deployments().inAnyNamespace().runnableInformer(resyncMs));
+        this.pods = prepare(client.pods().inAnyNamespace().runnableInformer(resyncMs));
+        this.nodes = prepare(client.nodes().runnableInformer(resyncMs));
+        this.resourceQuotas = prepare(client.resourceQuotas().inAnyNamespace().runnableInformer(resyncMs));
+        this.volcanoJobs = prepare(client.genericKubernetesResources(VOLCANO_JOB_CONTEXT).inAnyNamespace().runnableInformer(resyncMs));
+        this.nodes.addEventHandler(capacityIndex.nodeHandler());
+        this.pods.addEventHandler(capacityIndex.podHandler());
+        this.startedAtMs = System.currentTimeMillis();
+        start("Deployment", deployments);
+        start("Pod", pods);
+        start("Node", nodes);
+        start("ResourceQuota", resourceQuotas);
+        start("VolcanoJob", volcanoJobs);
+    }
+
+    private <T extends HasMetadata> SharedIndexInformer<T> prepare(SharedIndexInformer<T> informer) {
+        informer.addIndexers(Map.of(
+                NAMESPACE_INDEX, ClusterInformers::namespaceIndex,
+                LABEL_INDEX, ClusterInformers::labelIndex));
+        AtomicLong lastEvent = new AtomicLong(0);
+        lastEventAtMs.put(informer, lastEvent);
+        informer.addEventHandler(new ResourceEventHandler<T>() {
+            @Override
+            public void onAdd(T obj) {
+                lastEvent.set(System.currentTimeMillis());
+            }
+
+            @Override
+            public void onUpdate(T oldObj, T newObj) {
+                lastEvent.set(System.currentTimeMillis());
+            }
+
+            @Override
+            public void onDelete(T obj, boolean deletedFinalStateUnknown) {
+                lastEvent.set(System.currentTimeMillis());
+            }
+        });
+        return informer;
+    }
+
+    private void start(String kind, SharedIndexInformer<?> informer) {
+        // start() 异步完成首次 LIST，未 sync 前读取方回退到实时 GET
+        informer.start().whenComplete((v, e) -> {
+            if (e != null) {
+                log.warn("Informer {} 启动失败 @ cluster {}: {}", kind, physicalClusterId, e.getMessage());
+            } else {
+                lastEventAtMs.get(informer).set(System.currentTimeMillis());
+                log.info("Informer {} 已同步 @ cluster {}", kind, physicalClusterId);
+            }
+        });
+    }
+
+    private static List<String> namespaceIndex(HasMetadata obj) {
+        String ns = obj.getMetadata() != null ? obj.getMetadata().getNamespace() : null;
+        return ns == null ? Collections.emptyList() : Collections.singletonList(ns);
+    }
+
+    private static List<String> labelIndex(HasMetadata obj) {
+        if (obj.getMetadata() == null || obj.getMetadata().getLabels() == null) return Collections.emptyList();
+        List<String> keys = new ArrayList<>(obj.getMetadata().getLabels().size());
+        obj.getMetadata().getLabels().forEach((k, v) -> keys.add(labelKey(k, v)));
+        return keys;
+    }
+
+    /** label 索引键格式：key=value */
+    public static String labelKey(String key, String value) {
+        return key + "=" + value;
+    }
+
+    public SharedIndexInformer<Deployment> deployments() {
+        return deployments;
+    }
+
+    public SharedIndexInformer<Pod> pods() {
+        return pods;
+    }
+
+    public SharedIndexInformer<Node> nodes() {
+        return nodes;
+    }
+
+    public SharedIndexInformer<ResourceQuota> resourceQuotas() {
+        return resourceQuotas;
+    }
+
+    public SharedIndexInformer<GenericKubernetesResource> volcanoJobs() {
+        return volcanoJobs;
+    }
+
+    public CapacityIndex capacityIndex() {
+        return capacityIndex;
+    }
+
+    /** Node 与 Pod 均已完成首次同步时，容量索引才是完整的 */
+    public boolean capacitySynced() {
+        return nodes.hasSynced() && pods.hasSynced();
+    }
+
+    /** 按 namespace/name 从缓存取对象；informer 未同步时返回 empty，由调用方决定是否实时读取 */
+    public static <T extends HasMetadata> Optional<T> get(SharedIndexInformer<T> informer, String namespace, String name) {
+        return Optional.ofNullable(informer.getIndexer().getByKey(Cache.namespaceKeyFunc(namespace, name)));
+    }
+
+    /** Pod 未在终止中且 Ready 条件为 True（容器均通过就绪探针） */
+    public static boolean isReady(Pod pod) {
+        return pod.getMetadata().getDeletionTimestamp() == null && pod.getStatus() != null && pod.getStatus().getConditions() != null && pod.getStatus().getConditions().stream()
+                .anyMatch(c -> "Ready".equals(c.getType()) && "True".equals(c.getStatus()));
+    }
+
+    /** 按 namespace 列出缓存对象 */
+    public static <T extends HasMetadata> List<T> listByNamespace(SharedIndexInformer<T> informer, String namespace) {
+        return informer.getIndexer().byIndex(NAMESPACE_INDEX, namespace);
+    }
+
+    /** 按 namespace + 单个 label 过滤缓存对象 */
+    public static <T extends HasMetadata> List<T> listByLabel(SharedIndexInformer<T> informer, String namespace,
+                                                              String key, String value) {
+        List<T> result = new ArrayList<>();
+        for (T obj : informer.getIndexer().byIndex(LABEL_INDEX, labelKey(key, value))) {
+            if (namespace == null || namespace.equals(obj.getMetadata().getNamespace())) result.add(obj);
+        }
+        return result;
+    }
+
+    /**
+     * 缓存陈旧度（毫秒）：距离给定 Informer 最近一次事件或 resync 的时间，多个 Informer 时取最旧者；
+     * 从未收到事件时以启动时间计。某一类对象的 watch 中断不会被其他类型的事件掩盖。
+     */
+    public long stalenessMs(SharedIndexInformer<?>... informers) {
+        long now = System.currentTimeMillis();
+        long staleness = 0;
+        for (SharedIndexInformer<?> informer : informers) {
+            AtomicLong lastEvent = lastEventAtMs.get(informer);
+            long last = lastEvent != null ? lastEvent.get() : 0;
+            staleness = Math.max(staleness, now - (last > 0 ? last : startedAtMs));
+        }
+        return staleness;
+    }
+
+    @Override
+    public void close() {
+        for (SharedIndexInformer<?> informer : List.of(deployments, pods, nodes, resourceQuotas, volcanoJobs)) {
+            try {
+                informer.stop();
+            } catch (Exception e) {
+                log.warn("停止 Informer 异常 @ cluster {}: {}", physicalClusterId, e.getMessage());
+            }
+        }
+    }
+}
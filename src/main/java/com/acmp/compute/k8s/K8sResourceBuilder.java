@@ -1,27 +1,49 @@
 package com.acmp.compute.k8s;
 
 import io.fabric8.kubernetes.api.model.*;
+import io.fabric8.kubernetes.api.model.apps.DaemonSet;
+import io.fabric8.kubernetes.api.model.apps.DaemonSetBuilder;
 import io.fabric8.kubernetes.api.model.apps.Deployment;
 import io.fabric8.kubernetes.api.model.apps.DeploymentBuilder;
+import io.fabric8.kubernetes.client.dsl.base.ResourceDefinitionContext;
 import io.fabric8.kubernetes.client.utils.Serialization;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Kubernetes 资源 Builder 辅助类：使用 fabric8 Builder API 构建 K8s 资源。
- * 避免使用 YAML 模板，获得类型安全、编译时检查的好处。
+ * 避免使用 YAML 模板，获得类型安全、编译时检查的好处；构建结果直接以对象交给客户端 server-side apply，
+ * YAML 仅在调试/导出时渲染。
  */
 @Slf4j
 public class K8sResourceBuilder {
 
+    /** 多节点服务组标识（VolcanoJob 名）与组内角色（leader / worker） */
+    public static final String LABEL_SERVING_GROUP = "acmp.io/serving-group";
+    public static final String LABEL_SERVING_ROLE = "acmp.io/serving-role";
+    private static final int RAY_PORT = 6379;
+    /** vLLM 容器按 GPU 数请求的 CPU（毫核）与内存（GiB）：资源池 ResourceQuota 限制 cpu / memory 时 Pod 必须声明请求，配额账本按同一比例记账 */
+    public static final long VLLM_CPU_MILLIS_PER_GPU = 2000;
+    public static final long VLLM_MEMORY_GIB_PER_GPU = 8;
+
+    /** Volcano Queue CRD 定义（集群级） */
+    public static final ResourceDefinitionContext VOLCANO_QUEUE_CONTEXT = new ResourceDefinitionContext.Builder()
+            .withGroup("scheduling.volcano.sh")
+            .withVersion("v1beta1")
+            .withKind("Queue")
+            .withPlural("queues")
+            .withNamespaced(false)
+            .build();
+
     /**
-     * 构建 vLLM Deployment + Service YAML。
+     * 构建 vLLM Deployment。
      * 
      * @param deploymentName Deployment 名称
-     * @param serviceName Service 名称
      * @param namespace 目标 namespace
      * @param image vLLM 镜像地址
      * @param modelIdOrPath 模型路径
@@ -30,11 +52,13 @@ public class K8sResourceBuilder {
      * @param gpucores GPU 核心数
      * @param replicas 副本数
      * @param hostModelPath 宿主机模型路径（用于 hostPath 挂载，可选）
-     * @return 完整的 vLLM Deployment + Service YAML 字符串
+     * @param engineArgs vLLM 启动参数（如 --tensor-parallel-size 2），为空时沿用镜像默认
+     * @param shmSizeGiB /dev/shm 大小（GiB，内存型 emptyDir），为空时使用容器默认的 64MB
+     * @param hostIpc 是否共享宿主机 IPC 命名空间
+     * @param hostNetwork 是否使用宿主机网络（RDMA 等），同时将 DNS 策略设为 ClusterFirstWithHostNet
      */
-    public static String buildVllmDeploymentAndService(
+    public static Deployment buildVllmDeployment(
             String deploymentName,
-            String serviceName,
             String namespace,
             String image,
             String modelIdOrPath,
@@ -42,7 +66,11 @@ public class K8sResourceBuilder {
             Integer gpumemMb,
             Integer gpucores,
             Integer replicas,
-            String hostModelPath) {
+            String hostModelPath,
+            List<String> engineArgs,
+            Integer shmSizeGiB,
+            boolean hostIpc,
+            boolean hostNetwork) {
         
         // 构建 Container
         ContainerBuilder containerBuilder = new ContainerBuilder()
@@ -63,6 +91,9 @@ public class K8sResourceBuilder {
                         .withPeriodSeconds(10)
                         .build()
                 );
+        if (engineArgs != null && !engineArgs.isEmpty()) {
+            containerBuilder.withArgs(engineArgs);
+        }
         
         // 构建资源限制
         Map<String, Quantity> limits = new HashMap<>();
@@ -74,8 +105,11 @@ public class K8sResourceBuilder {
             limits.put("nvidia.com/gpucores", Quantity.parse(String.valueOf(gpucores)));
         }
         
+        int gpus = gpuPerReplica != null ? gpuPerReplica : 1;
         Map<String, Quantity> requests = new HashMap<>();
-        requests.put("nvidia.com/gpu", Quantity.parse(String.valueOf(gpuPerReplica != null ? gpuPerReplica : 1)));
+        requests.put("nvidia.com/gpu", Quantity.parse(String.valueOf(gpus)));
+        requests.put("cpu", Quantity.parse((gpus * VLLM_CPU_MILLIS_PER_GPU) + "m"));
+        requests.put("memory", Quantity.parse((gpus * VLLM_MEMORY_GIB_PER_GPU) + "Gi"));
         
         containerBuilder.withResources(new ResourceRequirementsBuilder()
                 .withLimits(limits)
@@ -84,13 +118,18 @@ public class K8sResourceBuilder {
         
         // 如果指定了 hostPath，添加 volumeMount 和 volume
         if (hostModelPath != null && !hostModelPath.isEmpty()) {
-            containerBuilder.withVolumeMounts(
+            containerBuilder.addToVolumeMounts(
                 new VolumeMountBuilder()
                     .withName("model-data")
                     .withMountPath("/models")
                     .build()
             );
         }
+        // 多卡张量并行（NCCL）依赖较大的 /dev/shm
+        boolean shm = shmSizeGiB != null && shmSizeGiB > 0;
+        if (shm) {
+            containerBuilder.addToVolumeMounts(new VolumeMountBuilder().withName("dshm").withMountPath("/dev/shm").build());
+        }
         
         // 构建 Pod Template Spec
         PodSpecBuilder podSpecBuilder = new PodSpecBuilder()
@@ -100,7 +139,7 @@ public class K8sResourceBuilder {
         
         // 添加 Volume（如果使用 hostPath）
         if (hostModelPath != null && !hostModelPath.isEmpty()) {
-            podSpecBuilder.withVolumes(
+            podSpecBuilder.addToVolumes(
                 new VolumeBuilder()
                     .withName("model-data")
                     .withHostPath(new HostPathVolumeSourceBuilder()
@@ -110,9 +149,18 @@ public class K8sResourceBuilder {
                     .build()
             );
         }
+        if (shm) {
+            podSpecBuilder.addToVolumes(shmVolume(shmSizeGiB));
+        }
+        if (hostIpc) {
+            podSpecBuilder.withHostIPC(true);
+        }
+        if (hostNetwork) {
+            podSpecBuilder.withHostNetwork(true).withDnsPolicy("ClusterFirstWithHostNet");
+        }
         
         // 构建 Deployment
-        Deployment deployment = new DeploymentBuilder()
+        return new DeploymentBuilder()
                 .withNewMetadata()
                     .withName(deploymentName)
                     .withNamespace(namespace)
@@ -134,9 +182,27 @@ public class K8sResourceBuilder {
                     .endTemplate()
                 .endSpec()
                 .build();
-        
+    }
+
+    /**
+     * 内存型 emptyDir，挂载到 /dev/shm 替代容器默认的 64MB 共享内存；占用计入 Pod 内存。
+     */
+    private static Volume shmVolume(int sizeGiB) {
+        return new VolumeBuilder()
+                .withName("dshm")
+                .withEmptyDir(new EmptyDirVolumeSourceBuilder()
+                        .withMedium("Memory")
+                        .withSizeLimit(new Quantity(sizeGiB + "Gi"))
+                        .build())
+                .build();
+    }
+
+    /**
+     * 构建 vLLM Service（ClusterIP，选择该 Deployment 的 Pod）。
+     */
+    public static Service buildVllmService(String serviceName, String namespace, String deploymentName) {
         // 构建 Service
-        Service service = new ServiceBuilder()
+        return new ServiceBuilder()
                 .withNewMetadata()
                     .withName(serviceName)
                     .withNamespace(namespace)
@@ -152,15 +218,307 @@ public class K8sResourceBuilder {
                     .withType("ClusterIP")
                 .endSpec()
                 .build();
-        
-        // 序列化为 YAML
-        String deploymentYaml = Serialization.asYaml(deployment);
-        String serviceYaml = Serialization.asYaml(service);
-        
-        log.debug("Generated vLLM Deployment YAML:\n{}", deploymentYaml);
-        log.debug("Generated Service YAML:\n{}", serviceYaml);
-        
-        return "---\n" + deploymentYaml + "\n---\n" + serviceYaml;
+    }
+
+    /**
+     * 倾向调度到已缓存镜像 / 权重的节点（preferred，不满足时照常调度到其他节点）。
+     * 同时具备两者的节点得分最高；镜像通常远大于权重的读取代价，权重更高。
+     *
+     * @param imageNodes  已有镜像的节点名
+     * @param weightNodes 已预置权重目录的节点名
+     * @return 两个列表均为空时返回 null
+     */
+    public static Affinity preferredNodeAffinity(List<String> imageNodes, List<String> weightNodes) {
+        List<PreferredSchedulingTerm> terms = new ArrayList<>();
+        if (imageNodes != null && !imageNodes.isEmpty()) terms.add(hostnameTerm(60, imageNodes));
+        if (weightNodes != null && !weightNodes.isEmpty()) terms.add(hostnameTerm(40, weightNodes));
+        if (terms.isEmpty()) return null;
+        return new AffinityBuilder()
+                .withNewNodeAffinity()
+                    .withPreferredDuringSchedulingIgnoredDuringExecution(terms)
+                .endNodeAffinity()
+                .build();
+    }
+
+    private static PreferredSchedulingTerm hostnameTerm(int weight, List<String> nodes) {
+        return new PreferredSchedulingTermBuilder()
+                .withWeight(weight)
+                .withNewPreference()
+                    .addNewMatchExpression()
+                        .withKey("kubernetes.io/hostname")
+                        .withOperator("In")
+                        .withValues(nodes.stream().sorted().distinct().collect(Collectors.toList()))
+                    .endMatchExpression()
+                .endPreference()
+                .build();
+    }
+
+    /**
+     * 构建预置 DaemonSet：在匹配 nodeSelector 的每个节点上执行一次预置，完成后以 pause 容器常驻（Pod 就绪即表示该节点已预置）。
+     * <ul>
+     *   <li>image：init 容器直接使用目标镜像并立即退出，由 kubelet 拉取镜像到节点</li>
+     *   <li>weights：init 容器挂载宿主机权重目录，sourcePath 非空且目标目录为空时先从 sourcePath 复制，
+     *       再顺序读取全部文件预热页缓存；读入的页缓存计入容器 cgroup，因此该 init 容器不设内存上限，
+     *       否则超出上限的部分会被立即回收，大于上限的权重无法留在页缓存中</li>
+     * </ul>
+     * 容忍 nvidia.com/gpu 污点，资源请求很小，不占用 GPU。
+     *
+     * @param itemId       预置项 ID，写入 Pod label acmp.io/prestage
+     * @param nodeSelector 节点选择（如 gpu-node=true）
+     * @param helperImage  weights 预置使用的工具镜像（需提供 sh、cp、find、cat）
+     * @param pauseImage   常驻容器镜像
+     */
+    public static DaemonSet buildPrestageDaemonSet(
+            String name,
+            String namespace,
+            String itemId,
+            String kind,
+            String image,
+            String hostPath,
+            String sourcePath,
+            Map<String, String> nodeSelector,
+            String helperImage,
+            String pauseImage) {
+        ResourceRequirements small = new ResourceRequirementsBuilder()
+                .addToRequests("cpu", Quantity.parse("10m"))
+                .addToRequests("memory", Quantity.parse("16Mi"))
+                .addToLimits("memory", Quantity.parse("256Mi"))
+                .build();
+        ContainerBuilder init = new ContainerBuilder()
+                .withName("prestage")
+                .withImagePullPolicy("IfNotPresent");
+        List<Volume> volumes = new ArrayList<>();
+        if ("weights".equals(kind)) {
+            init.withResources(new ResourceRequirementsBuilder()
+                    .addToRequests("cpu", Quantity.parse("10m"))
+                    .addToRequests("memory", Quantity.parse("16Mi"))
+                    .build());
+            String script = "if [ -d /source ] && [ -z \"$(ls -A /target)\" ]; then cp -a /source/. /target/; fi; "
+                    + "find /target -type f -exec cat {} + > /dev/null";
+            init.withImage(helperImage)
+                    .withCommand("sh", "-c", script)
+                    .addNewVolumeMount().withName("target").withMountPath("/target").endVolumeMount();
+            volumes.add(new VolumeBuilder().withName("target")
+                    .withHostPath(new HostPathVolumeSourceBuilder().withPath(hostPath).withType("DirectoryOrCreate").build())
+                    .build());
+            if (sourcePath != null && !sourcePath.isEmpty()) {
+                init.addNewVolumeMount().withName("source").withMountPath("/source").withReadOnly(true).endVolumeMount();
+                volumes.add(new VolumeBuilder().withName("source")
+                        .withHostPath(new HostPathVolumeSourceBuilder().withPath(sourcePath).withType("Directory").build())
+                        .build());
+            }
+        } else {
+            init.withImage(image).withCommand("sh", "-c", "exit 0").withResources(small);
+        }
+        return new DaemonSetBuilder()
+                .withNewMetadata()
+                    .withName(name)
+                    .withNamespace(namespace)
+                    .addToLabels("app", "acmp-prestage")
+                    .addToLabels("acmp.io/prestage", itemId)
+                .endMetadata()
+                .withNewSpec()
+                    .withNewSelector()
+                        .addToMatchLabels("acmp.io/prestage", itemId)
+                    .endSelector()
+                    .withNewTemplate()
+                        .withNewMetadata()
+                            .addToLabels("app", "acmp-prestage")
+                            .addToLabels("acmp.io/prestage", itemId)
+                        .endMetadata()
+                        .withNewSpec()
+                            .withInitContainers(init.build())
+                            .withContainers(new ContainerBuilder()
+                                    .withName("pause")
+                                    .withImage(pauseImage)
+                                    .withResources(small)
+                                    .build())
+                            .withVolumes(volumes)
+                            .withNodeSelector(nodeSelector)
+                            .withTolerations(new TolerationBuilder()
+                                    .withKey("nvidia.com/gpu")
+                                    .withOperator("Exists")
+                                    .withEffect("NoSchedule")
+                                    .build())
+                        .endSpec()
+                    .endTemplate()
+                .endSpec()
+                .build();
+    }
+
+    /**
+     * 构建多节点 vLLM 服务的 VolcanoJob（单节点放不下的模型）：1 个 leader + (nodes - 1) 个 worker，
+     * minAvailable=nodes 经资源池 Volcano Queue 成组调度，Pod 间反亲和保证每个节点一个 Pod。
+     * <p>
+     * worker 通过 headless Service 解析 leader 地址并以 Ray 加入；leader 等 Ray 集群的 GPU 凑齐后启动 vLLM OpenAI 服务，
+     * 跨节点流水线并行、节点内张量并行（由 engineArgs 给出）。leader Pod 带 app=vllm、deployment=name 标签，
+     * 与单节点部署一样由 {@link #buildVllmService} 与推理网关选中；任一 Pod 失败或被驱逐时整组重启，
+     * 重启 maxRetry 次仍失败则 Job 进入 Failed，由调谐将部署标记为 failed。
+     *
+     * @param name Job 名称（同时作为服务组标识）
+     * @param headlessServiceName leader 的 headless Service 名称
+     * @param gpuPerNode 每个节点（Pod）的 GPU 数量
+     * @param nodes 节点数（leader + worker）
+     * @param engineArgs vLLM 启动参数（不含 Ray 后端参数）
+     * @param maxRetry 整组重启次数上限
+     */
+    public static GenericKubernetesResource buildVllmMultiNodeJob(
+            String name,
+            String namespace,
+            String queueName,
+            String headlessServiceName,
+            String image,
+            Integer gpuPerNode,
+            Integer gpumemMb,
+            Integer gpucores,
+            int nodes,
+            String hostModelPath,
+            List<String> engineArgs,
+            Integer shmSizeGiB,
+            boolean hostIpc,
+            boolean hostNetwork,
+            int maxRetry) {
+        int gpus = gpuPerNode != null ? gpuPerNode : 1;
+        String leaderAddress = headlessServiceName + "." + namespace + ".svc.cluster.local:" + RAY_PORT;
+        String leaderScript = "ray start --head --port=" + RAY_PORT + " --num-gpus=" + gpus + " && "
+                + "until [ \"$(python3 -c 'import ray; ray.init(address=\"auto\", logging_level=\"ERROR\"); "
+                + "print(int(ray.cluster_resources().get(\"GPU\", 0)))')\" -ge " + gpus * nodes + " ]; do sleep 5; done && "
+                + "exec python3 -m vllm.entrypoints.openai.api_server "
+                + engineArgs.stream().map(K8sResourceBuilder::shellQuote).collect(Collectors.joining(" "))
+                + " --distributed-executor-backend ray";
+        String workerScript = "until ray start --address=" + leaderAddress + " --num-gpus=" + gpus + " --block; do sleep 5; done";
+
+        Map<String, Object> leader = new HashMap<>();
+        leader.put("name", "leader");
+        leader.put("replicas", 1);
+        leader.put("template", multiNodePodTemplate(name, "leader", image, leaderScript, gpus, gpumemMb, gpucores,
+                hostModelPath, shmSizeGiB, hostIpc, hostNetwork));
+        Map<String, Object> worker = new HashMap<>();
+        worker.put("name", "worker");
+        worker.put("replicas", nodes - 1);
+        worker.put("template", multiNodePodTemplate(name, "worker", image, workerScript, gpus, gpumemMb, gpucores,
+                hostModelPath, shmSizeGiB, hostIpc, hostNetwork));
+
+        Map<String, Object> spec = new HashMap<>();
+        spec.put("minAvailable", nodes);
+        spec.put("schedulerName", "volcano");
+        spec.put("queue", queueName);
+        spec.put("maxRetry", maxRetry);
+        spec.put("policies", List.of(
+                Map.of("event", "PodFailed", "action", "RestartJob"),
+                Map.of("event", "PodEvicted", "action", "RestartJob")));
+        spec.put("tasks", List.of(leader, worker));
+
+        GenericKubernetesResource job = generic(ClusterInformers.VOLCANO_JOB_CONTEXT, name, namespace, spec);
+        Map<String, String> labels = new HashMap<>();
+        labels.put("app", "vllm-multinode");
+        labels.put(LABEL_SERVING_GROUP, name);
+        job.getMetadata().setLabels(labels);
+        return job;
+    }
+
+    /**
+     * 构建多节点服务 leader 的 headless Service：worker 经其 DNS 直接解析到 leader Pod IP 加入 Ray 集群；
+     * leader 在 vLLM 就绪前即需可解析，因此发布未就绪地址。
+     */
+    public static Service buildVllmHeadlessService(String serviceName, String namespace, String groupName) {
+        return new ServiceBuilder()
+                .withNewMetadata()
+                    .withName(serviceName)
+                    .withNamespace(namespace)
+                    .addToLabels(LABEL_SERVING_GROUP, groupName)
+                .endMetadata()
+                .withNewSpec()
+                    .withClusterIP("None")
+                    .withPublishNotReadyAddresses(true)
+                    .addToSelector(LABEL_SERVING_GROUP, groupName)
+                    .addToSelector(LABEL_SERVING_ROLE, "leader")
+                    .withPorts(
+                        new ServicePortBuilder().withName("ray").withPort(RAY_PORT).withTargetPort(new IntOrString(RAY_PORT)).build(),
+                        new ServicePortBuilder().withName("http").withPort(8000).withTargetPort(new IntOrString(8000)).build())
+                .endSpec()
+                .build();
+    }
+
+    private static Map<String, Object> multiNodePodTemplate(String group, String role, String image, String script,
+                                                            int gpus, Integer gpumemMb, Integer gpucores,
+                                                            String hostModelPath, Integer shmSizeGiB,
+                                                            boolean hostIpc, boolean hostNetwork) {
+        Map<String, String> labels = new HashMap<>();
+        labels.put(LABEL_SERVING_GROUP, group);
+        labels.put(LABEL_SERVING_ROLE, role);
+        if ("leader".equals(role)) {
+            // 与单节点部署一致，供 vLLM Service 与推理网关按 deployment 标签选择
+            labels.put("app", "vllm");
+            labels.put("deployment", group);
+        } else {
+            labels.put("app", "vllm-worker");
+        }
+
+        Map<String, Object> container = new HashMap<>();
+        container.put("name", "leader".equals(role) ? "vllm" : "ray-worker");
+        container.put("image", image);
+        container.put("command", List.of("sh", "-c", script));
+        container.put("env", List.of(Map.of("name", "NVIDIA_VISIBLE_DEVICES", "value", "all")));
+        Map<String, String> limitMap = new HashMap<>();
+        limitMap.put("nvidia.com/gpu", String.valueOf(gpus));
+        if (gpumemMb != null && gpumemMb > 0) {
+            limitMap.put("nvidia.com/gpumem", String.valueOf(gpumemMb));
+        }
+        if (gpucores != null && gpucores > 0) {
+            limitMap.put("nvidia.com/gpucores", String.valueOf(gpucores));
+        }
+        container.put("resources", Map.of("limits", limitMap, "requests", Map.of(
+                "nvidia.com/gpu", String.valueOf(gpus),
+                "cpu", (gpus * VLLM_CPU_MILLIS_PER_GPU) + "m",
+                "memory", (gpus * VLLM_MEMORY_GIB_PER_GPU) + "Gi")));
+        List<Map<String, Object>> ports = new ArrayList<>();
+        ports.add(Map.of("name", "ray", "containerPort", RAY_PORT));
+        if ("leader".equals(role)) {
+            ports.add(Map.of("name", "http", "containerPort", 8000));
+            container.put("readinessProbe", Map.of(
+                    "httpGet", Map.of("path", "/health", "port", 8000),
+                    "initialDelaySeconds", 120,
+                    "periodSeconds", 10));
+        }
+        container.put("ports", ports);
+
+        List<Map<String, Object>> mounts = new ArrayList<>();
+        List<Map<String, Object>> volumes = new ArrayList<>();
+        if (hostModelPath != null && !hostModelPath.isEmpty()) {
+            mounts.add(Map.of("name", "model-data", "mountPath", "/models"));
+            volumes.add(Map.of("name", "model-data", "hostPath", Map.of("path", hostModelPath, "type", "Directory")));
+        }
+        if (shmSizeGiB != null && shmSizeGiB > 0) {
+            mounts.add(Map.of("name", "dshm", "mountPath", "/dev/shm"));
+            volumes.add(Map.of("name", "dshm", "emptyDir", Map.of("medium", "Memory", "sizeLimit", shmSizeGiB + "Gi")));
+        }
+        if (!mounts.isEmpty()) container.put("volumeMounts", mounts);
+
+        Map<String, Object> podSpec = new HashMap<>();
+        podSpec.put("restartPolicy", "Never");
+        podSpec.put("nodeSelector", Map.of("gpu-node", "true"));
+        podSpec.put("containers", List.of(container));
+        if (!volumes.isEmpty()) podSpec.put("volumes", volumes);
+        if (hostIpc) podSpec.put("hostIPC", true);
+        if (hostNetwork) {
+            podSpec.put("hostNetwork", true);
+            podSpec.put("dnsPolicy", "ClusterFirstWithHostNet");
+        }
+        // 同组 Pod 分散到不同节点：流水线并行的每一段独占一个节点
+        podSpec.put("affinity", Map.of("podAntiAffinity", Map.of(
+                "requiredDuringSchedulingIgnoredDuringExecution", List.of(Map.of(
+                        "labelSelector", Map.of("matchLabels", Map.of(LABEL_SERVING_GROUP, group)),
+                        "topologyKey", "kubernetes.io/hostname")))));
+
+        Map<String, Object> template = new HashMap<>();
+        template.put("metadata", Map.of("labels", labels));
+        template.put("spec", podSpec);
+        return template;
+    }
+
+    private static String shellQuote(String s) {
+        return "'" + s.replace("'", "'\\''") + "'";
     }
 
     /**
@@ -175,9 +533,12 @@ public class K8sResourceBuilder {
      * @param gpuMemPerPod GPU 内存（可选）
      * @param gpuCoresPerPod GPU 核心数（可选）
      * @param command 执行命令（可选）
-     * @return VolcanoJob YAML 字符串
+     * @param shmSizeGiB /dev/shm 大小（GiB，内存型 emptyDir），为空时使用容器默认的 64MB
+     * @param hostIpc 是否共享宿主机 IPC 命名空间
+     * @param hostNetwork 是否使用宿主机网络（RDMA 等）
+     * @return VolcanoJob 对象（以 GenericKubernetesResource 表示，直接交给客户端 apply）
      */
-    public static String buildVolcanoJob(
+    public static GenericKubernetesResource buildVolcanoJob(
             String jobName,
             String namespace,
             String queueName,
@@ -186,20 +547,12 @@ public class K8sResourceBuilder {
             Integer gpuPerPod,
             Integer gpuMemPerPod,
             Integer gpuCoresPerPod,
-            List<String> command) {
+            List<String> command,
+            Integer shmSizeGiB,
+            boolean hostIpc,
+            boolean hostNetwork) {
         
-        // 注意：fabric8 可能未提供原生的 VolcanoJob CRD Builder
-        // 在这种情况下，我们需要使用 Unstructured API 或回退到 YAML
-        // 下面是使用 Unstructured 的方式
-        
-        Map<String, Object> jobMap = new HashMap<>();
-        jobMap.put("apiVersion", "batch.volcano.sh/v1alpha1");
-        jobMap.put("kind", "VolcanoJob");
-        
-        Map<String, Object> metadata = new HashMap<>();
-        metadata.put("name", jobName);
-        metadata.put("namespace", namespace);
-        jobMap.put("metadata", metadata);
+        // fabric8 未提供 VolcanoJob CRD 的类型化模型，使用 GenericKubernetesResource 表示
         
         Map<String, Object> spec = new HashMap<>();
         spec.put("minAvailable", replicas);
@@ -220,6 +573,13 @@ public class K8sResourceBuilder {
         Map<String, String> nodeSelector = new HashMap<>();
         nodeSelector.put("gpu-node", "true");
         podSpec.put("nodeSelector", nodeSelector);
+        if (hostIpc) {
+            podSpec.put("hostIPC", true);
+        }
+        if (hostNetwork) {
+            podSpec.put("hostNetwork", true);
+            podSpec.put("dnsPolicy", "ClusterFirstWithHostNet");
+        }
         
         // 构建 Container
         Map<String, Object> container = new HashMap<>();
@@ -248,68 +608,99 @@ public class K8sResourceBuilder {
         
         container.put("resources", resources);
         
+        // NCCL 集合通信与 DataLoader 多进程依赖较大的 /dev/shm
+        if (shmSizeGiB != null && shmSizeGiB > 0) {
+            container.put("volumeMounts", List.of(Map.of("name", "dshm", "mountPath", "/dev/shm")));
+            podSpec.put("volumes", List.of(Map.of("name", "dshm",
+                    "emptyDir", Map.of("medium", "Memory", "sizeLimit", shmSizeGiB + "Gi"))));
+        }
+        
         podSpec.put("containers", List.of(container));
         template.put("spec", podSpec);
         
         task.put("template", template);
         
         spec.put("tasks", List.of(task));
-        jobMap.put("spec", spec);
         
-        // 序列化为 YAML
-        String yaml = Serialization.asYaml(jobMap);
-        log.debug("Generated VolcanoJob YAML:\n{}", yaml);
-        
-        return yaml;
+        return generic(ClusterInformers.VOLCANO_JOB_CONTEXT, jobName, namespace, spec);
     }
 
     /**
-     * 构建 Volcano Queue YAML（集群级资源，用于资源池创建）。
+     * 构建 Volcano Queue（集群级资源，用于资源池创建）。
      * Volcano Queue 是自定义资源 (CRD)，用来配置训练任务的资源配额。
      * 
      * @param queueName Queue 名称（如：queue-dept-finance）
      * @param gpuSlots GPU 配额数量
      * @param cpuCores CPU 核心数
      * @param memoryGiB 内存 GB 数
-     * @return Volcano Queue YAML 字符串
+     * @return Volcano Queue 对象（以 GenericKubernetesResource 表示）
      */
-    public static String buildVolcanoQueue(
+    public static GenericKubernetesResource buildVolcanoQueue(
             String queueName,
             String gpuSlots,
             String cpuCores,
             String memoryGiB) {
+        return buildVolcanoQueue(queueName, gpuSlots, cpuCores, memoryGiB, 1, null);
+    }
+
+    /**
+     * 构建带弹性配额的 Volcano Queue：capability 为当前可用上限（含借入），deserved 为保障份额，
+     * 超出 deserved 的部分在其他队列需求回升时可被 Volcano 回收（reclaimable）。
+     *
+     * @param weight      队列权重，proportion 插件按权重划分集群资源
+     * @param deservedGpu 保障 GPU 数；为空时不设置 deserved（非弹性资源池）
+     */
+    public static GenericKubernetesResource buildVolcanoQueue(
+            String queueName,
+            String gpuSlots,
+            String cpuCores,
+            String memoryGiB,
+            int weight,
+            String deservedGpu) {
+        
+        Map<String, Object> capability = new HashMap<>();
+        capability.put("nvidia.com/gpu", gpuSlots);
+        capability.put("cpu", cpuCores);
+        capability.put("memory", memoryGiB + "Gi");
+        
+        Map<String, Object> spec = new HashMap<>();
+        spec.put("capability", capability);
+        spec.put("weight", Math.max(1, weight));
+        spec.put("reclaimable", true);
+        if (deservedGpu != null) {
+            Map<String, Object> deserved = new HashMap<>();
+            deserved.put("nvidia.com/gpu", deservedGpu);
+            deserved.put("cpu", cpuCores);
+            deserved.put("memory", memoryGiB + "Gi");
+            spec.put("deserved", deserved);
+        }
         
-        try {
-            // 使用 Unstructured API 构建 Volcano Queue（自定义 CRD）
-            Map<String, Object> metadata = new HashMap<>();
-            metadata.put("name", queueName);
-            
-            Map<String, Object> capability = new HashMap<>();
-            capability.put("nvidia.com/gpu", gpuSlots);
-            capability.put("cpu", cpuCores);
-            capability.put("memory", memoryGiB + "Gi");
-            
-            Map<String, Object> spec = new HashMap<>();
-            spec.put("capability", capability);
-            spec.put("weight", 1);
-            spec.put("reclaimable", true);
-            
-            Map<String, Object> queueMap = new HashMap<>();
-            queueMap.put("apiVersion", "scheduling.volcano.sh/v1beta1");
-            queueMap.put("kind", "Queue");
-            queueMap.put("metadata", metadata);
-            queueMap.put("spec", spec);
-            
-            // 序列化为 YAML
-            String yaml = Serialization.asYaml(queueMap);
-            log.debug("✓ 构建 Volcano Queue YAML 成功: {}", queueName);
-            log.debug("Generated Queue YAML:\n{}", yaml);
-            
-            return yaml;
-            
-        } catch (Exception e) {
-            log.error("✗ 构建 Volcano Queue YAML 失败: {}", e.getMessage(), e);
-            throw new RuntimeException("构建 Volcano Queue 失败: " + e.getMessage(), e);
+        log.debug("✓ 构建 Volcano Queue: {} (weight={})", queueName, weight);
+        return generic(VOLCANO_QUEUE_CONTEXT, queueName, null, spec);
+    }
+
+    private static GenericKubernetesResource generic(ResourceDefinitionContext context, String name,
+                                                     String namespace, Map<String, Object> spec) {
+        GenericKubernetesResource resource = new GenericKubernetesResourceBuilder()
+                .withApiVersion(context.getGroup() + "/" + context.getVersion())
+                .withKind(context.getKind())
+                .withNewMetadata()
+                    .withName(name)
+                    .withNamespace(namespace)
+                .endMetadata()
+                .build();
+        resource.setAdditionalProperty("spec", spec);
+        return resource;
+    }
+
+    /**
+     * 将资源渲染为多文档 YAML，仅用于调试与导出（dryRun），部署路径不经过 YAML。
+     */
+    public static String toYaml(HasMetadata... resources) {
+        StringBuilder sb = new StringBuilder();
+        for (HasMetadata resource : resources) {
+            sb.append("---\n").append(Serialization.asYaml(resource));
         }
+        return sb.toString();
     }
 }
@@ -1,10 +1,15 @@
 package com.acmp.compute.k8s;
 
+import com.acmp.compute.dto.ClusterGuardStatus;
 import com.acmp.compute.entity.PhysicalCluster;
+import com.acmp.compute.exception.ClusterUnavailableException;
 import com.acmp.compute.mapper.PhysicalClusterMapper;
 import com.acmp.compute.service.EncryptionService;
+import io.fabric8.kubernetes.api.model.GenericKubernetesResource;
+import io.fabric8.kubernetes.api.model.HasMetadata;
 import io.fabric8.kubernetes.api.model.Namespace;
 import io.fabric8.kubernetes.api.model.NamespaceBuilder;
+import io.fabric8.kubernetes.api.model.Pod;
 import io.fabric8.kubernetes.api.model.Quantity;
 import io.fabric8.kubernetes.api.model.ResourceQuota;
 import io.fabric8.kubernetes.api.model.ResourceQuotaBuilder;
@@ -22,21 +27,31 @@ import io.fabric8.kubernetes.api.model.rbac.PolicyRuleBuilder;
 import io.fabric8.kubernetes.client.Config;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.KubernetesClientBuilder;
+import io.fabric8.kubernetes.client.dsl.Resource;
+import io.fabric8.kubernetes.client.dsl.base.ResourceDefinitionContext;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.ByteArrayInputStream;
-import java.nio.charset.StandardCharsets;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 
 /**
  * Kubernetes 客户端管理器：按物理集群 ID 缓存 KubernetesClient，
  * 使用平台高权限 ServiceAccount 代理操作 K8s，不 per-user 创建 ServiceAccount。
+ * 同时按集群懒启动一组共享 Informer（见 ClusterInformers），状态类读取优先走本地缓存。
+ * 所有 apiserver 调用经 ClusterGuard 保护：每集群独立的并发舱壁、熔断器与交互式/后台两条限流通道，
+ * 单个慢集群或不可达集群不会拖垮其他集群的调用方。
  */
 @Slf4j
 @Service
@@ -49,6 +64,43 @@ public class KubernetesClientManager {
     /** 集群 ID -> 已创建的 KubernetesClient 缓存，避免重复解析 kubeconfig */
     private final Map<String, KubernetesClient> clientCache = new ConcurrentHashMap<>();
 
+    /** 集群 ID -> 懒启动的共享 Informer 集合 */
+    private final Map<String, ClusterInformers> informerCache = new ConcurrentHashMap<>();
+
+    /** 集群 ID -> 调用保护（舱壁/熔断/限流） */
+    private final Map<String, ClusterGuard> guards = new ConcurrentHashMap<>();
+
+    /** server-side apply 使用的 field manager */
+    @Value("${k8s.apply.field-manager:acmp-compute}")
+    private String fieldManager;
+
+    /** Informer 全量 resync 周期（毫秒） */
+    @Value("${k8s.informer.resync-ms:300000}")
+    private long informerResyncMs;
+
+    @Value("${k8s.client.request-timeout-ms:30000}")
+    private int requestTimeoutMs;
+    @Value("${k8s.client.connect-timeout-ms:5000}")
+    private int connectTimeoutMs;
+    @Value("${k8s.guard.max-concurrent:32}")
+    private int guardMaxConcurrent;
+    @Value("${k8s.guard.background-max-concurrent:8}")
+    private int guardBackgroundMaxConcurrent;
+    @Value("${k8s.guard.acquire-timeout-ms:2000}")
+    private long guardAcquireTimeoutMs;
+    @Value("${k8s.guard.interactive-qps:50}")
+    private double guardInteractiveQps;
+    @Value("${k8s.guard.interactive-burst:100}")
+    private int guardInteractiveBurst;
+    @Value("${k8s.guard.background-qps:10}")
+    private double guardBackgroundQps;
+    @Value("${k8s.guard.background-burst:20}")
+    private int guardBackgroundBurst;
+    @Value("${k8s.guard.failure-threshold:5}")
+    private int guardFailureThreshold;
+    @Value("${k8s.guard.open-ms:30000}")
+    private long guardOpenMs;
+
     /**
      * 获取指定物理集群的 Kubernetes 客户端。若缓存不存在则从库中取 kubeconfig 解密后创建并缓存。
      */
@@ -61,11 +113,69 @@ public class KubernetesClientManager {
                 .orElseThrow(() -> new IllegalArgumentException("集群不存在: " + physicalClusterId));
         String decrypted = encryptionService.decrypt(cluster.getKubeconfigBase64Encrypted());
         Config config = Config.fromKubeconfig(decrypted);
+        // 单次调用超时：慢集群不会无限期占用调用线程
+        config.setRequestTimeout(requestTimeoutMs);
+        config.setConnectionTimeout(connectTimeoutMs);
         return new KubernetesClientBuilder().withConfig(config).build();
     }
 
+    /** 获取指定集群的调用保护 */
+    public ClusterGuard getGuard(String physicalClusterId) {
+        return guards.computeIfAbsent(physicalClusterId, id -> new ClusterGuard(id, ClusterGuard.Settings.builder()
+                .maxConcurrent(guardMaxConcurrent)
+                .backgroundMaxConcurrent(guardBackgroundMaxConcurrent)
+                .acquireTimeoutMs(guardAcquireTimeoutMs)
+                .interactiveQps(guardInteractiveQps)
+                .interactiveBurst(guardInteractiveBurst)
+                .backgroundQps(guardBackgroundQps)
+                .backgroundBurst(guardBackgroundBurst)
+                .failureThreshold(guardFailureThreshold)
+                .openMs(guardOpenMs)
+                .build()));
+    }
+
+    /**
+     * 在集群调用保护下执行一次 apiserver 调用。熔断、限流或并发已满时抛出 ClusterUnavailableException。
+     */
+    public <T> T call(String physicalClusterId, Function<KubernetesClient, T> operation) {
+        ClusterGuard guard = getGuard(physicalClusterId);
+        KubernetesClient client = getClient(physicalClusterId);
+        return guard.call(() -> operation.apply(client));
+    }
+
+    /** 无返回值版本的 call */
+    public void run(String physicalClusterId, Consumer<KubernetesClient> operation) {
+        call(physicalClusterId, client -> {
+            operation.accept(client);
+            return null;
+        });
+    }
+
+    /** 以后台优先级执行 action：其中的 apiserver 调用走后台限流通道，让位于用户交互请求 */
+    public static <T> T inBackground(Supplier<T> action) {
+        return ClusterGuard.withLane(ClusterGuard.Lane.BACKGROUND, action);
+    }
+
+    /** 已创建调用保护的集群状态（熔断、并发、排队深度） */
+    public List<ClusterGuardStatus> guardStatuses() {
+        List<ClusterGuardStatus> result = new ArrayList<>();
+        guards.values().forEach(g -> result.add(g.status()));
+        return result;
+    }
+
+    /**
+     * 获取指定集群的共享 Informer 集合，首次调用时启动（异步完成首次 LIST）。
+     */
+    public ClusterInformers getInformers(String physicalClusterId) {
+        return informerCache.computeIfAbsent(physicalClusterId,
+                id -> new ClusterInformers(id, getClient(id), informerResyncMs));
+    }
+
     /** 移除并关闭指定集群的客户端（例如集群删除或 kubeconfig 更新后调用） */
     public void closeClient(String physicalClusterId) {
+        ClusterInformers informers = informerCache.remove(physicalClusterId);
+        if (informers != null) informers.close();
+        guards.remove(physicalClusterId);
         KubernetesClient client = clientCache.remove(physicalClusterId);
         if (client != null) {
             try {
@@ -77,22 +187,31 @@ public class KubernetesClientManager {
     }
 
     /** 在指定集群下创建 Namespace */
-    public void createNamespace(String physicalClusterId, String namespaceName) {
-        KubernetesClient client = getClient(physicalClusterId);
+    public ApplyStats.Result createNamespace(String physicalClusterId, String namespaceName) {
         Namespace ns = new NamespaceBuilder()
                 .withNewMetadata().withName(namespaceName).endMetadata()
                 .build();
-        client.namespaces().resource(ns).createOrReplace();
-        log.info("已创建 Namespace: {} @ cluster {}", namespaceName, physicalClusterId);
+        return apply(physicalClusterId, ns);
+    }
+
+    /** 删除指定 Namespace（其下 ResourceQuota、RBAC、工作负载随之级联删除） */
+    public void deleteNamespace(String physicalClusterId, String namespaceName) {
+        run(physicalClusterId, client -> client.namespaces().withName(namespaceName).delete());
+        log.info("已删除 Namespace: {} @ cluster {}", namespaceName, physicalClusterId);
+    }
+
+    /** 删除集群级 Volcano Queue */
+    public void deleteVolcanoQueue(String physicalClusterId, String queueName) {
+        run(physicalClusterId, client -> client.genericKubernetesResources(K8sResourceBuilder.VOLCANO_QUEUE_CONTEXT).withName(queueName).delete());
+        log.info("已删除 Volcano Queue: {} @ cluster {}", queueName, physicalClusterId);
     }
 
     /**
      * 在指定 namespace 下创建 ResourceQuota，限制 GPU/CPU/Memory/Pods。
      * 与逻辑资源池容量一致，便于池化隔离。
      */
-    public void createResourceQuota(String physicalClusterId, String namespace, String quotaName,
+    public ApplyStats.Result createResourceQuota(String physicalClusterId, String namespace, String quotaName,
                                     int gpuSlots, int cpuCores, int memoryGiB, int maxPods) {
-        KubernetesClient client = getClient(physicalClusterId);
         ResourceQuota quota = new ResourceQuotaBuilder()
                 .withNewMetadata().withName(quotaName).withNamespace(namespace).endMetadata()
                 .withNewSpec()
@@ -102,46 +221,117 @@ public class KubernetesClientManager {
                 .addToHard("pods", Quantity.parse(String.valueOf(maxPods)))
                 .endSpec()
                 .build();
-        client.resourceQuotas().inNamespace(namespace).resource(quota).createOrReplace();
-        log.info("已创建 ResourceQuota: {} @ namespace {} (gpu={}, cpu={}, mem={}Gi, pods={})", 
-                quotaName, namespace, gpuSlots, cpuCores, memoryGiB, maxPods);
+        ApplyStats.Result result = apply(physicalClusterId, quota);
+        log.info("ResourceQuota: {} @ namespace {} (gpu={}, cpu={}, mem={}Gi, pods={}) {}", 
+                quotaName, namespace, gpuSlots, cpuCores, memoryGiB, maxPods, result);
+        return result;
     }
 
     /**
-     * 使用渲染后的 YAML 在指定 namespace 创建或替换资源（如 Deployment、Service）。
-     * 用于 vLLM Deployment、VolcanoJob 等。
+     * 以 server-side apply 提交类型化资源（平台 field manager，冲突时强制接管字段）。
+     * 资源对象直接序列化为请求体，不经过 YAML 渲染与再解析。
+     * GenericKubernetesResource（如 VolcanoJob、Volcano Queue）按已知 CRD 定义定位，不依赖 API discovery。
+     * <p>
+     * 提交前为资源写入期望状态哈希注解（见 SpecHash）；集群中的对象已带相同哈希时跳过写入，
+     * 避免无变化的 apply 推高 resourceVersion 并唤醒所有控制器与 watcher。
+     * 现有对象优先从 Informer 缓存读取（Deployment / ResourceQuota / VolcanoJob），其他类型做一次 GET。
      */
-    public void applyYamlInNamespace(String physicalClusterId, String namespace, String yaml) {
-        KubernetesClient client = getClient(physicalClusterId);
-        try {
-            client.load(new ByteArrayInputStream(yaml.getBytes(StandardCharsets.UTF_8)))
-                    .inNamespace(namespace)
-                    .createOrReplace();
-        } catch (Exception e) {
-            log.error("应用 YAML 失败: {}", e.getMessage());
-            throw new RuntimeException("应用 YAML 失败", e);
+    public ApplyStats.Result apply(String physicalClusterId, HasMetadata resource) {
+        String hash = SpecHash.stamp(resource);
+        if (hash.equals(SpecHash.of(findExisting(physicalClusterId, resource)))) {
+            log.debug("跳过未变化的 {} {} (cluster {})", resource.getKind(), resource.getMetadata().getName(), physicalClusterId);
+            return ApplyStats.Result.SKIPPED;
         }
+        run(physicalClusterId, client -> resourceOf(client, resource)
+                .fieldManager(fieldManager)
+                .forceConflicts()
+                .serverSideApply());
+        log.info("已 apply {} {} @ {} (cluster {})", resource.getKind(), resource.getMetadata().getName(),
+                resource.getMetadata().getNamespace() != null ? resource.getMetadata().getNamespace() : "<cluster>",
+                physicalClusterId);
+        return ApplyStats.Result.WRITTEN;
+    }
+
+    /** 读取集群中已存在的同名对象：Informer 已同步时读缓存，否则实时 GET；不存在时返回 null */
+    private HasMetadata findExisting(String physicalClusterId, HasMetadata resource) {
+        ClusterInformers informers = getInformers(physicalClusterId);
+        String namespace = resource.getMetadata().getNamespace();
+        String name = resource.getMetadata().getName();
+        if (resource instanceof Deployment && informers.deployments().hasSynced()) {
+            return ClusterInformers.get(informers.deployments(), namespace, name).orElse(null);
+        }
+        if (resource instanceof ResourceQuota && informers.resourceQuotas().hasSynced()) {
+            return ClusterInformers.get(informers.resourceQuotas(), namespace, name).orElse(null);
+        }
+        if (genericContext(resource) == ClusterInformers.VOLCANO_JOB_CONTEXT && informers.volcanoJobs().hasSynced()) {
+            return ClusterInformers.get(informers.volcanoJobs(), namespace, name).orElse(null);
+        }
+        return call(physicalClusterId, client -> resourceOf(client, resource).get());
+    }
+
+    private Resource<? extends HasMetadata> resourceOf(KubernetesClient client, HasMetadata resource) {
+        if (resource instanceof GenericKubernetesResource) {
+            ResourceDefinitionContext context = genericContext(resource);
+            if (context != null) {
+                GenericKubernetesResource generic = (GenericKubernetesResource) resource;
+                String namespace = resource.getMetadata().getNamespace();
+                return context.isNamespaceScoped()
+                        ? client.genericKubernetesResources(context).inNamespace(namespace).resource(generic)
+                        : client.genericKubernetesResources(context).resource(generic);
+            }
+        }
+        return client.resource(resource);
+    }
+
+    private static ResourceDefinitionContext genericContext(HasMetadata resource) {
+        for (ResourceDefinitionContext context : List.of(ClusterInformers.VOLCANO_JOB_CONTEXT, K8sResourceBuilder.VOLCANO_QUEUE_CONTEXT)) {
+            String apiVersion = context.getGroup() + "/" + context.getVersion();
+            if (apiVersion.equals(resource.getApiVersion()) && context.getKind().equals(resource.getKind())) {
+                return context;
+            }
+        }
+        return null;
     }
 
     /**
-     * 创建 vLLM Deployment 与 Service（通过 YAML 一次性 apply）。
-     * 具体结构由 K8sTemplateEngine + vllm-deployment.yaml.ftl 生成。
+     * 创建 vLLM Deployment 与 Service（类型化 server-side apply）。
+     * 具体结构由 K8sResourceBuilder.buildVllmDeployment / buildVllmService 生成。
      */
-    public void createVllmDeploymentAndService(String physicalClusterId, String namespace, String yaml) {
-        applyYamlInNamespace(physicalClusterId, namespace, yaml);
+    public ApplyStats createVllmDeploymentAndService(String physicalClusterId, Deployment deployment,
+                                                     io.fabric8.kubernetes.api.model.Service service) {
+        ApplyStats stats = new ApplyStats();
+        stats.record(apply(physicalClusterId, deployment));
+        stats.record(apply(physicalClusterId, service));
+        return stats;
+    }
+
+    /** 创建多节点 vLLM 服务：成组调度的 VolcanoJob、leader 的 headless Service 与对外 Service */
+    public ApplyStats createVllmMultiNodeService(String physicalClusterId, GenericKubernetesResource job,
+                                                 io.fabric8.kubernetes.api.model.Service headless,
+                                                 io.fabric8.kubernetes.api.model.Service service) {
+        ApplyStats stats = new ApplyStats();
+        stats.record(apply(physicalClusterId, headless));
+        stats.record(apply(physicalClusterId, job));
+        stats.record(apply(physicalClusterId, service));
+        return stats;
+    }
+
+    /** 删除指定 namespace 下的 VolcanoJob（其 Pod 随之删除） */
+    public void deleteVolcanoJob(String physicalClusterId, String namespace, String jobName) {
+        run(physicalClusterId, client -> client.genericKubernetesResources(ClusterInformers.VOLCANO_JOB_CONTEXT)
+                .inNamespace(namespace).withName(jobName).delete());
+        log.info("已删除 VolcanoJob: {} @ {}", jobName, namespace);
     }
 
     /** 删除指定 namespace 下的 Deployment */
     public void deleteDeployment(String physicalClusterId, String namespace, String deploymentName) {
-        KubernetesClient client = getClient(physicalClusterId);
-        client.apps().deployments().inNamespace(namespace).withName(deploymentName).delete();
+        run(physicalClusterId, client -> client.apps().deployments().inNamespace(namespace).withName(deploymentName).delete());
         log.info("已删除 Deployment: {} @ {}", deploymentName, namespace);
     }
 
     /** 删除指定 namespace 下的 Service */
     public void deleteService(String physicalClusterId, String namespace, String serviceName) {
-        KubernetesClient client = getClient(physicalClusterId);
-        client.services().inNamespace(namespace).withName(serviceName).delete();
+        run(physicalClusterId, client -> client.services().inNamespace(namespace).withName(serviceName).delete());
         log.info("已删除 Service: {} @ {}", serviceName, namespace);
     }
 
@@ -149,24 +339,62 @@ public class KubernetesClientManager {
      * 获取 Deployment 的 ready 副本数，用于状态同步。
      */
     public Optional<Integer> getDeploymentReadyReplicas(String physicalClusterId, String namespace, String deploymentName) {
-        KubernetesClient client = getClient(physicalClusterId);
-        Deployment deployment = client.apps().deployments().inNamespace(namespace).withName(deploymentName).get();
+        Deployment deployment = readDeployment(physicalClusterId, namespace, deploymentName).getValue();
         if (deployment == null || deployment.getStatus() == null) return Optional.of(0);
         Integer ready = deployment.getStatus().getReadyReplicas();
         return Optional.ofNullable(ready == null ? 0 : ready);
     }
 
     /**
-     * 应用集群级别资源 YAML（如 Volcano Queue）。Queue 无 metadata.namespace，创建为集群级资源。
+     * 按 label 列出 namespace 下的 Deployment：Informer 已同步时读本地缓存，否则一次 label 选择的 LIST。
      */
-    public void applyClusterScopedYaml(String physicalClusterId, String yaml) {
-        KubernetesClient client = getClient(physicalClusterId);
-        try {
-            client.load(new ByteArrayInputStream(yaml.getBytes(StandardCharsets.UTF_8))).createOrReplace();
-        } catch (Exception e) {
-            log.error("应用集群级 YAML 失败: {}", e.getMessage());
-            throw new RuntimeException("应用集群级 YAML 失败", e);
+    public CachedRead<List<Deployment>> listDeployments(String physicalClusterId, String namespace, String labelKey, String labelValue) {
+        ClusterInformers informers = getInformers(physicalClusterId);
+        if (informers.deployments().hasSynced()) {
+            return CachedRead.cached(ClusterInformers.listByLabel(informers.deployments(), namespace, labelKey, labelValue),
+                    informers.stalenessMs(informers.deployments()));
+        }
+        return CachedRead.live(call(physicalClusterId, client -> client.apps().deployments()
+                .inNamespace(namespace).withLabel(labelKey, labelValue).list().getItems()));
+    }
+
+    /**
+     * 按 label 列出 namespace 下的 Pod：Informer 已同步时读本地缓存，否则一次 label 选择的 LIST。
+     */
+    public CachedRead<List<Pod>> listPods(String physicalClusterId, String namespace, String labelKey, String labelValue) {
+        ClusterInformers informers = getInformers(physicalClusterId);
+        if (informers.pods().hasSynced()) {
+            return CachedRead.cached(ClusterInformers.listByLabel(informers.pods(), namespace, labelKey, labelValue),
+                    informers.stalenessMs(informers.pods()));
+        }
+        return CachedRead.live(call(physicalClusterId, client -> client.pods()
+                .inNamespace(namespace).withLabel(labelKey, labelValue).list().getItems()));
+    }
+
+    /**
+     * 读取 Deployment：Informer 已同步时从本地缓存读取并附带陈旧度，否则回退到实时 GET。
+     */
+    public CachedRead<Deployment> readDeployment(String physicalClusterId, String namespace, String deploymentName) {
+        ClusterInformers informers = getInformers(physicalClusterId);
+        if (informers.deployments().hasSynced()) {
+            Deployment cached = ClusterInformers.get(informers.deployments(), namespace, deploymentName).orElse(null);
+            return CachedRead.cached(cached, informers.stalenessMs(informers.deployments()));
         }
+        return CachedRead.live(call(physicalClusterId,
+                client -> client.apps().deployments().inNamespace(namespace).withName(deploymentName).get()));
+    }
+
+    /**
+     * 读取 VolcanoJob：Informer 已同步时从本地缓存读取并附带陈旧度，否则回退到实时 GET。
+     */
+    public CachedRead<GenericKubernetesResource> readVolcanoJob(String physicalClusterId, String namespace, String jobName) {
+        ClusterInformers informers = getInformers(physicalClusterId);
+        if (informers.volcanoJobs().hasSynced()) {
+            GenericKubernetesResource cached = ClusterInformers.get(informers.volcanoJobs(), namespace, jobName).orElse(null);
+            return CachedRead.cached(cached, informers.stalenessMs(informers.volcanoJobs()));
+        }
+        return CachedRead.live(call(physicalClusterId, client -> client.genericKubernetesResources(ClusterInformers.VOLCANO_JOB_CONTEXT)
+                .inNamespace(namespace).withName(jobName).get()));
     }
 
     /** 验证 kubeconfig 是否可用：尝试创建客户端并执行一次 list namespaces。 */
@@ -187,24 +415,21 @@ public class KubernetesClientManager {
      * 创建 ServiceAccount：用于部门用户访问对应 namespace 的凭证生成。
      * ServiceAccount 绑定到 Role，通过 RoleBinding 实现权限隔离。
      */
-    public void createServiceAccount(String physicalClusterId, String namespace, String saName) {
-        KubernetesClient client = getClient(physicalClusterId);
+    public ApplyStats.Result createServiceAccount(String physicalClusterId, String namespace, String saName) {
         ServiceAccount sa = new ServiceAccountBuilder()
                 .withNewMetadata()
                 .withName(saName)
                 .withNamespace(namespace)
                 .endMetadata()
                 .build();
-        client.serviceAccounts().inNamespace(namespace).resource(sa).createOrReplace();
-        log.info("已创建 ServiceAccount: {} @ namespace {}", saName, namespace);
+        return apply(physicalClusterId, sa);
     }
 
     /**
      * 创建 Role：为部门用户定义权限范围，支持 Pod、Deployment、Service、VolcanoJob 等操作。
      * 该 Role 限制在特定 namespace 内。
      */
-    public void createRole(String physicalClusterId, String namespace, String roleName) {
-        KubernetesClient client = getClient(physicalClusterId);
+    public ApplyStats.Result createRole(String physicalClusterId, String namespace, String roleName) {
         
         // Pod 相关权限
         PolicyRule podRule = new PolicyRuleBuilder()
@@ -227,10 +452,10 @@ public class KubernetesClientManager {
                 .withVerbs("get", "list", "watch", "create", "update", "patch", "delete")
                 .build();
         
-        // VolcanoJob 权限
+        // VolcanoJob 权限（batch.volcano.sh/v1alpha1 的资源名为 jobs）
         PolicyRule volcanoJobRule = new PolicyRuleBuilder()
                 .withApiGroups("batch.volcano.sh")
-                .withResources("volcanojobs")
+                .withResources("jobs")
                 .withVerbs("get", "list", "watch", "create", "update", "patch", "delete")
                 .build();
         
@@ -263,16 +488,14 @@ public class KubernetesClientManager {
                 .withRules(podRule, deploymentRule, jobRule, volcanoJobRule, svcRule, eventRule, pvcRule)
                 .build();
         
-        client.rbac().roles().inNamespace(namespace).resource(role).createOrReplace();
-        log.info("已创建 Role: {} @ namespace {}", roleName, namespace);
+        return apply(physicalClusterId, role);
     }
 
     /**
      * 创建 RoleBinding：将 Role 与 ServiceAccount 绑定，赋予 SA 对应的权限。
      */
-    public void createRoleBinding(String physicalClusterId, String namespace, String rbName, 
+    public ApplyStats.Result createRoleBinding(String physicalClusterId, String namespace, String rbName, 
                                   String roleName, String saName) {
-        KubernetesClient client = getClient(physicalClusterId);
         
         // 使用 Builder 模式正确创建 RoleRef
         io.fabric8.kubernetes.api.model.rbac.RoleRef roleRef = new RoleRefBuilder()
@@ -297,8 +520,7 @@ public class KubernetesClientManager {
                 .withSubjects(subject)
                 .build();
         
-        client.rbac().roleBindings().inNamespace(namespace).resource(rb).createOrReplace();
-        log.info("已创建 RoleBinding: {} @ namespace {}", rbName, namespace);
+        return apply(physicalClusterId, rb);
     }
 
     /**
@@ -306,15 +528,14 @@ public class KubernetesClientManager {
      * 返回 Map<token, ca-crt>。
      */
     public Map<String, String> extractServiceAccountCredentials(String physicalClusterId, String namespace, String saName) {
-        KubernetesClient client = getClient(physicalClusterId);
-        ServiceAccount sa = client.serviceAccounts().inNamespace(namespace).withName(saName).get();
+        ServiceAccount sa = call(physicalClusterId, client -> client.serviceAccounts().inNamespace(namespace).withName(saName).get());
         
         if (sa == null || sa.getSecrets() == null || sa.getSecrets().isEmpty()) {
             throw new RuntimeException("ServiceAccount " + saName + " 无关联 Secret");
         }
         
         String secretName = sa.getSecrets().get(0).getName();
-        var secret = client.secrets().inNamespace(namespace).withName(secretName).get();
+        var secret = call(physicalClusterId, client -> client.secrets().inNamespace(namespace).withName(secretName).get());
         
         if (secret == null || secret.getData() == null) {
             throw new RuntimeException("无法获取 ServiceAccount Secret 数据");
@@ -325,4 +546,12 @@ public class KubernetesClientManager {
         
         return Map.of("token", token, "ca-crt", caCrt);
     }
+
+    /** 应用关闭时停止所有 Informer 并关闭客户端 */
+    @PreDestroy
+    public void shutdown() {
+        for (String id : clientCache.keySet()) {
+            closeClient(id);
+        }
+    }
 }
@@ -0,0 +1,165 @@
+package com.acmp.compute.k8s;
+
+import com.acmp.compute.dto.ProvisioningStepResult;
+import com.acmp.compute.exception.ProvisioningException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 开通执行器：按 ProvisioningPlan 的依赖图并行执行 K8s 步骤。
+ * 每个物理集群一个有界线程池，避免单个集群的大量开通请求压垮 apiserver；
+ * 无依赖关系的步骤并发执行，依赖失败的步骤直接跳过，失败归因到具体步骤。
+ */
+@Slf4j
+@Component
+public class ProvisioningExecutor {
+
+    /** 集群 ID -> 该集群专用的有界线程池 */
+    private final Map<String, ExecutorService> executors = new ConcurrentHashMap<>();
+
+    private final int parallelism;
+    private final int queueCapacity;
+    private final long timeoutMs;
+
+    public ProvisioningExecutor(@Value("${k8s.provisioning.parallelism:4}") int parallelism,
+                                @Value("${k8s.provisioning.queue-capacity:64}") int queueCapacity,
+                                @Value("${k8s.provisioning.timeout-ms:60000}") long timeoutMs) {
+        this.parallelism = parallelism;
+        this.queueCapacity = queueCapacity;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * 执行开通计划，全部成功时返回各步骤结果（按登记顺序）；任一步骤失败时抛出 ProvisioningException。
+     */
+    public List<ProvisioningStepResult> execute(String physicalClusterId, ProvisioningPlan plan) {
+        ExecutorService executor = executors.computeIfAbsent(physicalClusterId, this::newExecutor);
+        Map<String, CompletableFuture<Void>> futures = new LinkedHashMap<>();
+        Map<String, ProvisioningStepResult> results = new ConcurrentHashMap<>();
+        long start = System.nanoTime();
+        // 步骤在执行器线程上运行，沿用调用方的调用通道（后台调谐的开通不挤占交互式配额）
+        ClusterGuard.Lane lane = ClusterGuard.currentLane();
+
+        for (ProvisioningPlan.Step step : plan.getSteps()) {
+            CompletableFuture<?>[] deps = step.dependsOn.stream()
+                    .map(futures::get)
+                    .toArray(CompletableFuture[]::new);
+            CompletableFuture<Void> future = CompletableFuture.allOf(deps)
+                    .thenRunAsync(() -> ClusterGuard.withLane(lane, () -> {
+                        runStep(step, results);
+                        return null;
+                    }), executor);
+            futures.put(step.name, future);
+        }
+
+        Throwable failure = null;
+        try {
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0]))
+                    .get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            failure = e.getCause();
+        } catch (TimeoutException e) {
+            failure = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure = e;
+        }
+
+        List<ProvisioningStepResult> ordered = new ArrayList<>();
+        String failedStep = null;
+        for (ProvisioningPlan.Step step : plan.getSteps()) {
+            ProvisioningStepResult r = results.get(step.name);
+            if (r == null) {
+                r = ProvisioningStepResult.builder().step(step.name).status("skipped").build();
+            } else if ("failed".equals(r.getStatus()) && failedStep == null) {
+                failedStep = step.name;
+            }
+            ordered.add(r);
+        }
+
+        long totalMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (failure != null) {
+            if (failedStep == null) {
+                // 超时或线程池拒绝：归因到第一个未成功的步骤
+                failedStep = ordered.stream()
+                        .filter(r -> !"succeeded".equals(r.getStatus()))
+                        .map(ProvisioningStepResult::getStep)
+                        .findFirst().orElse(plan.getName());
+            }
+            log.error("✗ 开通计划 {} 在步骤 {} 失败 @ cluster {} ({} ms)", plan.getName(), failedStep, physicalClusterId, totalMs);
+            throw new ProvisioningException(failedStep, ordered, unwrap(failure));
+        }
+        log.info("✓ 开通计划 {} 完成 @ cluster {} ({} ms): {}", plan.getName(), physicalClusterId, totalMs, ordered);
+        return ordered;
+    }
+
+    private void runStep(ProvisioningPlan.Step step, Map<String, ProvisioningStepResult> results) {
+        long t0 = System.nanoTime();
+        try {
+            step.action.run();
+            results.put(step.name, ProvisioningStepResult.builder()
+                    .step(step.name)
+                    .status("succeeded")
+                    .durationMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0))
+                    .build());
+        } catch (RuntimeException e) {
+            results.put(step.name, ProvisioningStepResult.builder()
+                    .step(step.name)
+                    .status("failed")
+                    .durationMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0))
+                    .error(e.getMessage())
+                    .build());
+            throw e;
+        }
+    }
+
+    private static Throwable unwrap(Throwable t) {
+        while (t instanceof CompletionException && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t;
+    }
+
+    private ExecutorService newExecutor(String physicalClusterId) {
+        AtomicInteger seq = new AtomicInteger();
+        String prefix = "provision-" + (physicalClusterId.length() > 8 ? physicalClusterId.substring(0, 8) : physicalClusterId) + "-";
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, prefix + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /** 集群删除时释放其线程池 */
+    public void release(String physicalClusterId) {
+        ExecutorService executor = executors.remove(physicalClusterId);
+        if (executor != null) executor.shutdown();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executors.values().forEach(ExecutorService::shutdown);
+        executors.clear();
+    }
+}
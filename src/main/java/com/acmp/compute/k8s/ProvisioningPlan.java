@@ -0,0 +1,63 @@
+package com.acmp.compute.k8s;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 开通计划：以依赖图（DAG）描述一组 K8s 操作步骤。
+ * 步骤按添加顺序登记，依赖必须是已登记的步骤，因此添加顺序即为一个合法的拓扑序。
+ */
+public class ProvisioningPlan {
+
+    private final String name;
+    private final Map<String, Step> steps = new LinkedHashMap<>();
+
+    public ProvisioningPlan(String name) {
+        this.name = name;
+    }
+
+    /**
+     * 登记一个步骤。
+     *
+     * @param stepName  步骤名（计划内唯一）
+     * @param action    实际执行的 K8s 调用
+     * @param dependsOn 前置步骤名，全部成功后才会执行本步骤
+     */
+    public ProvisioningPlan step(String stepName, Runnable action, String... dependsOn) {
+        if (steps.containsKey(stepName)) {
+            throw new IllegalArgumentException("重复的开通步骤: " + stepName);
+        }
+        for (String dep : dependsOn) {
+            if (!steps.containsKey(dep)) {
+                throw new IllegalArgumentException("步骤 " + stepName + " 依赖未登记的步骤: " + dep);
+            }
+        }
+        steps.put(stepName, new Step(stepName, action, Arrays.asList(dependsOn)));
+        return this;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    Collection<Step> getSteps() {
+        return Collections.unmodifiableCollection(steps.values());
+    }
+
+    static class Step {
+        final String name;
+        final Runnable action;
+        final List<String> dependsOn;
+
+        Step(String name, Runnable action, List<String> dependsOn) {
+            this.name = name;
+            this.action = action;
+            this.dependsOn = new ArrayList<>(dependsOn);
+        }
+    }
+}
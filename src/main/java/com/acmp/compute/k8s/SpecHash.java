@@ -0,0 +1,71 @@
+package com.acmp.compute.k8s;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.ObjectMeta;
+import io.fabric8.kubernetes.api.model.PodTemplateSpec;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 期望状态内容哈希：对平台生成的资源（不含哈希注解本身）做规范化 JSON 序列化后取 SHA-256，
+ * 写入 acmp.io/spec-hash 注解。apply 时与集群中对象的注解比较，相同则跳过写入。
+ */
+public final class SpecHash {
+
+    public static final String ANNOTATION = "acmp.io/spec-hash";
+
+    /** 属性与 Map 键均排序，保证同一期望状态在不同进程、不同 HashMap 迭代顺序下哈希一致 */
+    private static final ObjectMapper CANONICAL = JsonMapper.builder()
+            .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true)
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true)
+            .build();
+
+    private SpecHash() {
+    }
+
+    /** 计算哈希并写入资源注解，返回哈希值 */
+    public static String stamp(HasMetadata resource) {
+        ObjectMeta metadata = resource.getMetadata();
+        Map<String, String> annotations = metadata.getAnnotations() != null
+                ? new HashMap<>(metadata.getAnnotations()) : new HashMap<>();
+        annotations.remove(ANNOTATION);
+        metadata.setAnnotations(annotations.isEmpty() ? null : annotations);
+        String hash = compute(resource);
+        annotations.put(ANNOTATION, hash);
+        metadata.setAnnotations(annotations);
+        return hash;
+    }
+
+    /** 读取对象上的哈希注解；对象为空或无注解时返回 null */
+    public static String of(HasMetadata resource) {
+        if (resource == null || resource.getMetadata() == null || resource.getMetadata().getAnnotations() == null) {
+            return null;
+        }
+        return resource.getMetadata().getAnnotations().get(ANNOTATION);
+    }
+
+    /** Pod 模板的内容哈希，用于判断两个工作负载的 Pod 是否可互换（如温备副本接管） */
+    public static String template(PodTemplateSpec template) {
+        return compute(template);
+    }
+
+    private static String compute(Object resource) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] digest = md.digest(CANONICAL.writeValueAsBytes(resource));
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 16; i++) sb.append(String.format("%02x", digest[i]));
+            return sb.toString();
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("计算资源哈希失败: " + e.getMessage(), e);
+        }
+    }
+}
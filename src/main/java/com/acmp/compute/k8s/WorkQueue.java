@@ -0,0 +1,154 @@
+package com.acmp.compute.k8s;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 控制器风格的去重、限流工作队列（语义参照 client-go workqueue）：
+ * <ul>
+ *   <li>去重：同一 key 在队列中只会出现一次；处理期间再次加入的 key 会在 done 后重新入队，而不会被并发处理</li>
+ *   <li>限流：整体令牌桶限制出队速率；addRateLimited 按 key 的连续失败次数指数退避，forget 后清零</li>
+ * </ul>
+ */
+public class WorkQueue<K> {
+
+    private final ArrayDeque<K> queue = new ArrayDeque<>();
+    /** 等待处理的 key（含已在 queue 中的） */
+    private final Set<K> dirty = new HashSet<>();
+    /** 正在被 worker 处理的 key */
+    private final Set<K> processing = new HashSet<>();
+    private final Map<K, Integer> failures = new HashMap<>();
+
+    private final ScheduledExecutorService delayer;
+    private final double tokensPerNano;
+    private final double burst;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+
+    private double tokens;
+    private long lastRefillNanos;
+    private boolean shuttingDown;
+
+    /**
+     * @param name        队列名，用于延迟线程命名
+     * @param qps         整体出队速率
+     * @param burst       令牌桶容量
+     * @param baseDelayMs 失败重试的初始退避
+     * @param maxDelayMs  失败重试的最大退避
+     */
+    public WorkQueue(String name, double qps, int burst, long baseDelayMs, long maxDelayMs) {
+        this.tokensPerNano = qps / TimeUnit.SECONDS.toNanos(1);
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst;
+        this.lastRefillNanos = System.nanoTime();
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.delayer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, name + "-delay");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** 加入 key；已在队列中则忽略，正在处理则在 done 后重新入队 */
+    public synchronized void add(K key) {
+        if (shuttingDown || !dirty.add(key)) return;
+        if (processing.contains(key)) return;
+        queue.addLast(key);
+        notifyAll();
+    }
+
+    /** 延迟加入 */
+    public void addAfter(K key, long delayMs) {
+        if (delayMs <= 0) {
+            add(key);
+            return;
+        }
+        synchronized (this) {
+            if (shuttingDown) return;
+        }
+        delayer.schedule(() -> add(key), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** 按该 key 的连续失败次数指数退避后重新加入 */
+    public void addRateLimited(K key) {
+        int n;
+        synchronized (this) {
+            n = failures.merge(key, 1, Integer::sum);
+        }
+        long delay = baseDelayMs << Math.min(n - 1, 30);
+        addAfter(key, delay <= 0 || delay > maxDelayMs ? maxDelayMs : delay);
+    }
+
+    /** 处理成功后清除该 key 的失败计数 */
+    public synchronized void forget(K key) {
+        failures.remove(key);
+    }
+
+    public synchronized int retries(K key) {
+        return failures.getOrDefault(key, 0);
+    }
+
+    /**
+     * 阻塞取出下一个 key（受整体速率限制）。队列关闭时返回 null。
+     * 取出的 key 必须在处理完成后调用 done。
+     */
+    public K get() throws InterruptedException {
+        K key;
+        synchronized (this) {
+            while (queue.isEmpty() && !shuttingDown) {
+                wait();
+            }
+            if (shuttingDown) return null;
+            key = queue.pollFirst();
+            dirty.remove(key);
+            processing.add(key);
+        }
+        throttle();
+        return key;
+    }
+
+    /** 标记 key 处理结束；处理期间被再次加入的 key 重新入队 */
+    public synchronized void done(K key) {
+        processing.remove(key);
+        if (dirty.contains(key) && !shuttingDown) {
+            queue.addLast(key);
+            notifyAll();
+        }
+    }
+
+    public synchronized int depth() {
+        return queue.size();
+    }
+
+    public synchronized int inProgress() {
+        return processing.size();
+    }
+
+    public void shutdown() {
+        synchronized (this) {
+            shuttingDown = true;
+            notifyAll();
+        }
+        delayer.shutdownNow();
+    }
+
+    /** 预约一个令牌并在令牌不足时等待，保证整体出队速率不超过 qps */
+    private void throttle() throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            tokens = Math.min(burst, tokens + (now - lastRefillNanos) * tokensPerNano);
+            lastRefillNanos = now;
+            tokens -= 1;
+            waitNanos = tokens >= 0 ? 0 : (long) Math.ceil(-tokens / tokensPerNano);
+        }
+        if (waitNanos > 0) TimeUnit.NANOSECONDS.sleep(waitNanos);
+    }
+}
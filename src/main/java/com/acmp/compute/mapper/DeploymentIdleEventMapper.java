@@ -0,0 +1,26 @@
+package com.acmp.compute.mapper;
+
+import com.acmp.compute.entity.DeploymentIdleEvent;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+@Mapper
+public interface DeploymentIdleEventMapper {
+
+    int insert(DeploymentIdleEvent entity);
+
+    /** 部署最近一条记录，用于判断是否处于休眠及休眠起点 */
+    Optional<DeploymentIdleEvent> findLatestByDeploymentId(@Param("modelDeploymentId") String modelDeploymentId);
+
+    /** 按时间倒序返回资源池最近的记录 */
+    List<DeploymentIdleEvent> findByResourcePoolId(@Param("resourcePoolId") String resourcePoolId, @Param("limit") int limit);
+
+    /** 资源池已结束的休眠累计回收的 GPU 毫秒数（gpu × idle_ms 之和） */
+    long sumReclaimedGpuMs(@Param("resourcePoolId") String resourcePoolId);
+
+    /** 资源池全部成功唤醒的冷启动耗时（升序），用于统计均值与分位数 */
+    List<Long> findColdStartMs(@Param("resourcePoolId") String resourcePoolId);
+}
@@ -4,6 +4,7 @@ import com.acmp.compute.entity.ModelDeployment;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,9 +15,30 @@ public interface ModelDeploymentMapper {
 
     int update(ModelDeployment entity);
 
+    /** 状态仍为 expectedStatus 时才更新，返回受影响行数 */
+    int updateStatusIf(@Param("id") String id, @Param("expectedStatus") String expectedStatus,
+                       @Param("status") String status);
+
     Optional<ModelDeployment> findById(@Param("id") String id);
 
     List<ModelDeployment> findByResourcePoolId(@Param("resourcePoolId") String resourcePoolId);
 
+    /** 开启自动扩缩容（maxReplicas 非空）且运行中的部署 */
+    List<ModelDeployment> findAutoscaled();
+
+    int updateAutoscaling(@Param("id") String id, @Param("minReplicas") Integer minReplicas,
+                          @Param("maxReplicas") Integer maxReplicas);
+
+    /** 设置了空闲缩容（idleMinutes 非空）且运行中或已缩到 0 的部署 */
+    List<ModelDeployment> findIdlePolicy();
+
+    int updateIdleMinutes(@Param("id") String id, @Param("idleMinutes") Integer idleMinutes);
+
+    /** 推进最近活动时间（只前进不后退），不改 updated_at */
+    int touchLastActive(@Param("id") String id, @Param("at") Instant at);
+
+    /** 自动扩缩容调整后的副本数，与配额账本占用保持一致 */
+    int updateReplicas(@Param("id") String id, @Param("replicas") int replicas);
+
     int deleteById(@Param("id") String id);
 }
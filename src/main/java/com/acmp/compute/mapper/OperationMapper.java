@@ -0,0 +1,30 @@
+package com.acmp.compute.mapper;
+
+import com.acmp.compute.entity.Operation;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+@Mapper
+public interface OperationMapper {
+
+    int insert(Operation entity);
+
+    int update(Operation entity);
+
+    /** 持久化执行进度：saga 日志与已绑定的资源，供重启后补偿 */
+    int updateProgress(@Param("id") String id, @Param("sagaLog") String sagaLog,
+                       @Param("resourceType") String resourceType, @Param("resourceId") String resourceId);
+
+    Optional<Operation> findById(@Param("id") String id);
+
+    Optional<Operation> findByIdempotencyKey(@Param("createdBy") String createdBy, @Param("idempotencyKey") String idempotencyKey);
+
+    /** 指定实例登记的未完成操作 */
+    List<Operation> findUnfinishedByOwner(@Param("owner") String owner);
+
+    /** 操作仍未完成时标记为失败 */
+    int failIfUnfinished(@Param("id") String id, @Param("error") String error);
+}
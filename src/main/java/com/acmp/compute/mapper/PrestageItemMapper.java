@@ -0,0 +1,22 @@
+package com.acmp.compute.mapper;
+
+import com.acmp.compute.entity.PrestageItem;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+@Mapper
+public interface PrestageItemMapper {
+
+    int insert(PrestageItem entity);
+
+    Optional<PrestageItem> findById(@Param("id") String id);
+
+    List<PrestageItem> findByPhysicalClusterId(@Param("physicalClusterId") String physicalClusterId);
+
+    List<PrestageItem> findAll();
+
+    int deleteById(@Param("id") String id);
+}
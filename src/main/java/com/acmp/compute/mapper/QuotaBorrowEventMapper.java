@@ -0,0 +1,16 @@
+package com.acmp.compute.mapper;
+
+import com.acmp.compute.entity.QuotaBorrowEvent;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+@Mapper
+public interface QuotaBorrowEventMapper {
+
+    int insert(QuotaBorrowEvent entity);
+
+    /** 按时间倒序返回资源池最近的借出/借入记录 */
+    List<QuotaBorrowEvent> findByResourcePoolId(@Param("resourcePoolId") String resourcePoolId, @Param("limit") int limit);
+}
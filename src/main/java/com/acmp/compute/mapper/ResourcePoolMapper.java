@@ -20,5 +20,25 @@ public interface ResourcePoolMapper {
 
     List<ResourcePool> findByPhysicalClusterId(@Param("physicalClusterId") String physicalClusterId);
 
+    Optional<ResourcePool> findByNamespace(@Param("physicalClusterId") String physicalClusterId,
+                                           @Param("namespace") String namespace);
+
+    int updateStatus(@Param("id") String id, @Param("status") String status);
+
+    /** 弹性配额的下限/上限（管理员设置），不经 update 以免覆盖 */
+    int updateElasticLimits(@Param("id") String id, @Param("gpuFloor") Integer gpuFloor, @Param("gpuCeiling") Integer gpuCeiling);
+
+    /** 弹性配额控制器写入的借入量（负数表示借出） */
+    int updateGpuBorrowed(@Param("id") String id, @Param("gpuBorrowed") int gpuBorrowed);
+
+    /** 推理限流参数（管理员设置），不经 update 以免覆盖 */
+    int updateInferenceLimits(@Param("id") String id, @Param("inferenceRps") Integer inferenceRps,
+                              @Param("inferenceTps") Integer inferenceTps, @Param("inferenceUserRps") Integer inferenceUserRps,
+                              @Param("inferenceUserTps") Integer inferenceUserTps);
+
+    /** Pod 运行时策略（管理员设置），不经 update 以免覆盖 */
+    int updatePodPolicy(@Param("id") String id, @Param("shmMaxGib") Integer shmMaxGib,
+                        @Param("allowHostIpc") boolean allowHostIpc, @Param("allowHostNetwork") boolean allowHostNetwork);
+
     int deleteById(@Param("id") String id);
 }
@@ -0,0 +1,29 @@
+package com.acmp.compute.mapper;
+
+import com.acmp.compute.entity.WarmPool;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+import java.util.Optional;
+
+@Mapper
+public interface WarmPoolMapper {
+
+    int insert(WarmPool entity);
+
+    Optional<WarmPool> findById(@Param("id") String id);
+
+    List<WarmPool> findByResourcePoolId(@Param("resourcePoolId") String resourcePoolId);
+
+    List<WarmPool> findAll();
+
+    int updateSize(@Param("id") String id, @Param("size") int size);
+
+    int deleteById(@Param("id") String id);
+
+    /** 命中：累加次数与省去的冷启动耗时 */
+    int recordHit(@Param("id") String id, @Param("savedMs") long savedMs);
+
+    int recordMiss(@Param("id") String id);
+}
@@ -0,0 +1,254 @@
+package com.acmp.compute.service;
+
+import com.acmp.compute.entity.ModelDeployment;
+import com.acmp.compute.entity.ResourcePool;
+import com.acmp.compute.exception.QuotaExceededException;
+import com.acmp.compute.k8s.KubernetesClientManager;
+import com.acmp.compute.mapper.ModelDeploymentMapper;
+import com.acmp.compute.mapper.ResourcePoolMapper;
+import io.fabric8.kubernetes.api.model.apps.Deployment;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * vLLM 部署自动扩缩容：按各副本 /metrics 的排队深度与 KV cache 占用调整 Deployment 副本数（scale 子资源）。
+ * <ul>
+ *   <li>指标：vllm:num_requests_running、vllm:num_requests_waiting、vllm:gpu_cache_usage_perc（新版本为 kv_cache_usage_perc）</li>
+ *   <li>建议副本数 = ceil((running + waiting) / target-concurrency)；平均排队超过 waiting-threshold 或 KV cache
+ *       超过 kv-cache-high 时至少比当前多 1 个；限制在 [minReplicas, maxReplicas]</li>
+ *   <li>稳定窗口（与 HPA 相同语义）：扩容取 scale-up 窗口内建议值的最小者，缩容取 scale-down 窗口内建议值的最大者，
+ *       避免指标抖动导致副本数来回变化</li>
+ *   <li>扩容前在配额账本中调整该部署的占用，资源池 GPU 余量不足时只扩到余量允许的副本数</li>
+ * </ul>
+ * 副本地址与推理网关一致（inference.static-endpoints 可指向本地指标桩服务）。抓取失败的副本不参与计算，全部失败时本轮不调整。
+ */
+@Slf4j
+@Service
+public class AutoscalerService {
+
+    private static final String METRIC_RUNNING = "vllm:num_requests_running";
+    private static final String METRIC_WAITING = "vllm:num_requests_waiting";
+    private static final Set<String> METRIC_KV_CACHE = Set.of("vllm:gpu_cache_usage_perc", "vllm:kv_cache_usage_perc");
+
+    private final ModelDeploymentMapper modelDeploymentMapper;
+    private final ResourcePoolMapper resourcePoolMapper;
+    private final KubernetesClientManager clientManager;
+    private final InferenceGatewayService inferenceGatewayService;
+    private final QuotaLedger quotaLedger;
+    private final boolean enabled;
+    private final double targetConcurrency;
+    private final double waitingThreshold;
+    private final double kvCacheHigh;
+    private final long scaleUpWindowMs;
+    private final long scaleDownWindowMs;
+    private final long scrapeTimeoutMs;
+    private final HttpClient httpClient;
+
+    /** 部署 ID -> 最近的建议副本数（时间戳, 副本数），供稳定窗口使用 */
+    private final Map<String, Deque<long[]>> recommendations = new ConcurrentHashMap<>();
+
+    public AutoscalerService(ModelDeploymentMapper modelDeploymentMapper,
+                             ResourcePoolMapper resourcePoolMapper,
+                             KubernetesClientManager clientManager,
+                             InferenceGatewayService inferenceGatewayService,
+                             QuotaLedger quotaLedger,
+                             @Value("${autoscaler.enabled:true}") boolean enabled,
+                             @Value("${autoscaler.target-concurrency:16}") double targetConcurrency,
+                             @Value("${autoscaler.waiting-threshold:1.0}") double waitingThreshold,
+                             @Value("${autoscaler.kv-cache-high:0.9}") double kvCacheHigh,
+                             @Value("${autoscaler.scale-up-stabilization-ms:30000}") long scaleUpWindowMs,
+                             @Value("${autoscaler.scale-down-stabilization-ms:300000}") long scaleDownWindowMs,
+                             @Value("${autoscaler.scrape-timeout-ms:2000}") long scrapeTimeoutMs) {
+        this.modelDeploymentMapper = modelDeploymentMapper;
+        this.resourcePoolMapper = resourcePoolMapper;
+        this.clientManager = clientManager;
+        this.inferenceGatewayService = inferenceGatewayService;
+        this.quotaLedger = quotaLedger;
+        this.enabled = enabled;
+        this.targetConcurrency = Math.max(1.0, targetConcurrency);
+        this.waitingThreshold = waitingThreshold;
+        this.kvCacheHigh = kvCacheHigh;
+        this.scaleUpWindowMs = scaleUpWindowMs;
+        this.scaleDownWindowMs = scaleDownWindowMs;
+        this.scrapeTimeoutMs = scrapeTimeoutMs;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(scrapeTimeoutMs))
+                .build();
+    }
+
+    @Scheduled(initialDelayString = "${autoscaler.initial-delay-ms:60000}", fixedDelayString = "${autoscaler.interval-ms:15000}")
+    public void evaluateAll() {
+        if (!enabled) return;
+        List<ModelDeployment> deployments = modelDeploymentMapper.findAutoscaled();
+        recommendations.keySet().retainAll(deployments.stream().map(ModelDeployment::getId).collect(Collectors.toSet()));
+        for (ModelDeployment d : deployments) {
+            try {
+                // 读 Deployment / Pod 的回退调用与扩缩容走后台限流通道，不与用户请求争抢
+                KubernetesClientManager.inBackground(() -> {
+                    evaluate(d);
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                log.warn("部署 {} 自动扩缩容失败: {}", d.getId(), e.getMessage());
+            }
+        }
+    }
+
+    void evaluate(ModelDeployment record) {
+        ResourcePool pool = resourcePoolMapper.findById(record.getResourcePoolId()).orElse(null);
+        if (pool == null) return;
+        Deployment deployment = clientManager.readDeployment(pool.getPhysicalClusterId(), pool.getNamespace(),
+                record.getK8sDeploymentName()).getValue();
+        if (deployment == null || deployment.getSpec() == null || deployment.getSpec().getReplicas() == null) return;
+        int current = deployment.getSpec().getReplicas();
+        // 副本数为 0 由空闲缩容（scale-to-zero）管理，此处不介入
+        if (current == 0) return;
+
+        ReplicaMetrics metrics = scrape(inferenceGatewayService.replicaEndpoints(record.getId()));
+        if (metrics.replicas == 0) return;
+        int recommended = recommend(record, current, metrics);
+
+        long now = System.currentTimeMillis();
+        Deque<long[]> history = recommendations.computeIfAbsent(record.getId(), k -> new ArrayDeque<>());
+        int desired;
+        synchronized (history) {
+            history.addLast(new long[]{now, recommended});
+            long keep = Math.max(scaleUpWindowMs, scaleDownWindowMs);
+            while (!history.isEmpty() && history.peekFirst()[0] < now - keep) history.pollFirst();
+            desired = stabilized(history, current, now);
+        }
+        if (desired == current) return;
+        scale(pool, record, current, desired, metrics);
+    }
+
+    /** 单轮建议值，未经稳定窗口 */
+    private int recommend(ModelDeployment record, int current, ReplicaMetrics m) {
+        double perReplicaLoad = (m.running + m.waiting) / m.replicas;
+        int byLoad = (int) Math.ceil(perReplicaLoad * current / targetConcurrency);
+        int desired = byLoad;
+        if (m.waiting / m.replicas > waitingThreshold || m.maxKvCache >= kvCacheHigh) desired = Math.max(desired, current + 1);
+        int min = record.getMinReplicas() != null ? record.getMinReplicas() : 1;
+        return Math.max(min, Math.min(record.getMaxReplicas(), desired));
+    }
+
+    /** 扩容取扩容窗口内的最小建议值，缩容取缩容窗口内的最大建议值 */
+    private int stabilized(Deque<long[]> history, int current, long now) {
+        int upMin = Integer.MAX_VALUE, downMax = Integer.MIN_VALUE;
+        for (long[] r : history) {
+            if (r[0] >= now - scaleUpWindowMs) upMin = Math.min(upMin, (int) r[1]);
+            if (r[0] >= now - scaleDownWindowMs) downMax = Math.max(downMax, (int) r[1]);
+        }
+        if (upMin > current) return upMin;
+        if (downMax < current) return downMax;
+        return current;
+    }
+
+    private void scale(ResourcePool pool, ModelDeployment record, int current, int desired, ReplicaMetrics m) {
+        String key = QuotaLedger.KEY_DEPLOYMENT + record.getId();
+        QuotaLedger.Usage perReplica = QuotaLedger.Usage.vllmReplica(nz(record.getGpuPerReplica()), nz(record.getGpumemMb()),
+                nz(record.getGpucores()));
+        int target = desired;
+        if (desired > current) {
+            // 资源池余量不足时逐个减少，直到账本接受
+            while (target > current) {
+                try {
+                    quotaLedger.resize(pool, key, perReplica.times(target));
+                    break;
+                } catch (QuotaExceededException e) {
+                    target--;
+                }
+            }
+            if (target == current) {
+                log.info("部署 {} 需扩容到 {} 副本，但资源池 {} GPU 余量不足", record.getId(), desired, pool.getId());
+                return;
+            }
+        }
+        int replicas = target;
+        try {
+            clientManager.run(pool.getPhysicalClusterId(), client -> client.apps().deployments()
+                    .inNamespace(pool.getNamespace()).withName(record.getK8sDeploymentName()).scale(replicas));
+        } catch (RuntimeException e) {
+            if (target > current) quotaLedger.resize(pool, key, perReplica.times(current));
+            throw e;
+        }
+        if (target < current) quotaLedger.resize(pool, key, perReplica.times(target));
+        modelDeploymentMapper.updateReplicas(record.getId(), target);
+        log.info("部署 {} 副本 {} -> {}（running {}, waiting {}, KV cache 最高 {}%）", record.getId(), current, target,
+                (long) m.running, (long) m.waiting, Math.round(m.maxKvCache * 100));
+    }
+
+    /** 并发抓取各副本指标并汇总 */
+    private ReplicaMetrics scrape(List<String> endpoints) {
+        List<CompletableFuture<Map<String, Double>>> futures = new ArrayList<>(endpoints.size());
+        for (String address : endpoints) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(address + "/metrics"))
+                    .timeout(Duration.ofMillis(scrapeTimeoutMs))
+                    .GET()
+                    .build();
+            futures.add(httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                    .thenApply(r -> r.statusCode() == 200 ? parse(r.body()) : null)
+                    .exceptionally(e -> null));
+        }
+        ReplicaMetrics m = new ReplicaMetrics();
+        for (CompletableFuture<Map<String, Double>> f : futures) {
+            Map<String, Double> values = f.join();
+            if (values == null) continue;
+            m.replicas++;
+            m.running += values.getOrDefault(METRIC_RUNNING, 0.0);
+            m.waiting += values.getOrDefault(METRIC_WAITING, 0.0);
+            for (String name : METRIC_KV_CACHE) m.maxKvCache = Math.max(m.maxKvCache, values.getOrDefault(name, 0.0));
+        }
+        return m;
+    }
+
+    /** Prometheus 文本格式：同名指标（不同标签，如多个 model_name）求和 */
+    static Map<String, Double> parse(String text) {
+        Map<String, Double> values = new HashMap<>();
+        for (String line : text.split("\n")) {
+            if (line.isEmpty() || line.charAt(0) == '#') continue;
+            int brace = line.indexOf('{');
+            int space = line.indexOf(' ');
+            if (space < 0) continue;
+            String name = brace >= 0 && brace < space ? line.substring(0, brace) : line.substring(0, space);
+            if (!METRIC_RUNNING.equals(name) && !METRIC_WAITING.equals(name) && !METRIC_KV_CACHE.contains(name)) continue;
+            int valueStart = brace >= 0 && brace < space ? line.indexOf(' ', line.indexOf('}', brace)) : space;
+            String[] parts = line.substring(valueStart).trim().split("\\s+");
+            try {
+                values.merge(name, Double.parseDouble(parts[0]), Double::sum);
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return values;
+    }
+
+    private static int nz(Integer v) {
+        return v != null ? v : 0;
+    }
+
+    /** 一轮抓取的汇总：成功抓取的副本数、running / waiting 之和、KV cache 最高占用（0~1） */
+    private static final class ReplicaMetrics {
+        private int replicas;
+        private double running;
+        private double waiting;
+        private double maxKvCache;
+    }
+}
@@ -0,0 +1,230 @@
+package com.acmp.compute.service;
+
+import com.acmp.compute.entity.ModelDeployment;
+import com.acmp.compute.entity.PhysicalCluster;
+import com.acmp.compute.entity.QuotaBorrowEvent;
+import com.acmp.compute.entity.ResourcePool;
+import com.acmp.compute.exception.ResourceNotFoundException;
+import com.acmp.compute.k8s.CapacityIndex;
+import com.acmp.compute.k8s.ClusterInformers;
+import com.acmp.compute.k8s.KubernetesClientManager;
+import com.acmp.compute.mapper.ModelDeploymentMapper;
+import com.acmp.compute.mapper.PhysicalClusterMapper;
+import com.acmp.compute.mapper.QuotaBorrowEventMapper;
+import com.acmp.compute.mapper.ResourcePoolMapper;
+import io.fabric8.kubernetes.api.model.Quantity;
+import io.fabric8.kubernetes.api.model.ResourceQuota;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 弹性配额控制器：同一物理集群内，让需求超出保障份额（gpuSlots）的资源池借用其他资源池空闲的 GPU。
+ * <ul>
+ *   <li>需求取配额账本中已登记的 GPU（含排队中的训练任务）与 ResourceQuota status.used 的较大者</li>
+ *   <li>可借出量：gpuSlots − max(需求, gpuFloor)；想借入量：min(需求, gpuCeiling) − gpuSlots</li>
+ *   <li>可借出总量按水位填充平分给借入方，借入方的 ResourceQuota、Queue capability 与权重随之提高，
+ *       Queue 的 deserved 保持保障份额；出借方的 ResourceQuota 与 Queue capability 同步降低借出量（不低于其需求）</li>
+ *   <li>出借方需求回升时借入部分被收回：Volcano 任务按 reclaimable 由 Volcano 回收；推理 Deployment 不经 Volcano 调度，
+ *       借入方用量超出收回后的上限时，按创建时间从新到旧缩减其单节点部署的副本数（不低于 max(1, minReplicas)，不中断服务）</li>
+ *   <li>借入量变化后同步刷新配额账本的 GPU 限额（保障份额 + 借入量），扩容与新部署不再占用已收回或已借出的 GPU</li>
+ *   <li>每次借入量变化记录一条 borrow / reclaim / lend / return 事件</li>
+ * </ul>
+ * 默认 gpuFloor、gpuCeiling 为空，资源池既不借出也不借入；由管理员按资源池设置后生效。
+ */
+@Slf4j
+@Service
+public class ElasticQuotaService {
+
+    private final PhysicalClusterMapper physicalClusterMapper;
+    private final ResourcePoolMapper resourcePoolMapper;
+    private final ModelDeploymentMapper modelDeploymentMapper;
+    private final QuotaBorrowEventMapper quotaBorrowEventMapper;
+    private final ResourcePoolService resourcePoolService;
+    private final QuotaLedger quotaLedger;
+    private final KubernetesClientManager clientManager;
+    private final boolean enabled;
+
+    public ElasticQuotaService(PhysicalClusterMapper physicalClusterMapper,
+                               ResourcePoolMapper resourcePoolMapper,
+                               ModelDeploymentMapper modelDeploymentMapper,
+                               QuotaBorrowEventMapper quotaBorrowEventMapper,
+                               ResourcePoolService resourcePoolService,
+                               QuotaLedger quotaLedger,
+                               KubernetesClientManager clientManager,
+                               @Value("${elastic-quota.enabled:true}") boolean enabled) {
+        this.physicalClusterMapper = physicalClusterMapper;
+        this.resourcePoolMapper = resourcePoolMapper;
+        this.modelDeploymentMapper = modelDeploymentMapper;
+        this.quotaBorrowEventMapper = quotaBorrowEventMapper;
+        this.resourcePoolService = resourcePoolService;
+        this.quotaLedger = quotaLedger;
+        this.clientManager = clientManager;
+        this.enabled = enabled;
+    }
+
+    @Scheduled(initialDelayString = "${elastic-quota.initial-delay-ms:60000}", fixedDelayString = "${elastic-quota.interval-ms:30000}")
+    public void rebalanceAll() {
+        if (!enabled) return;
+        for (PhysicalCluster cluster : physicalClusterMapper.findAll()) {
+            try {
+                KubernetesClientManager.inBackground(() -> {
+                    rebalance(cluster.getId());
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                log.warn("集群 {} 弹性配额调整失败: {}", cluster.getId(), e.getMessage());
+            }
+        }
+    }
+
+    public List<QuotaBorrowEvent> listEvents(String poolId, int limit) {
+        if (resourcePoolMapper.findById(poolId).isEmpty()) throw new ResourceNotFoundException("资源池不存在: " + poolId);
+        return quotaBorrowEventMapper.findByResourcePoolId(poolId, Math.max(1, Math.min(limit, 500)));
+    }
+
+    /** 计算集群内各资源池的借入量（负数为借出），变化的资源池写库、记事件并传播到 ResourceQuota / Queue */
+    void rebalance(String physicalClusterId) {
+        List<ResourcePool> pools = resourcePoolMapper.findByPhysicalClusterId(physicalClusterId);
+        if (pools.size() < 2) return;
+        Map<String, Long> demand = new HashMap<>();
+        Map<String, Long> lendable = new HashMap<>();
+        Map<String, Long> want = new HashMap<>();
+        for (ResourcePool p : pools) {
+            long slots = nz(p.getGpuSlots());
+            long floor = p.getGpuFloor() != null ? Math.min(p.getGpuFloor(), slots) : slots;
+            long ceiling = p.getGpuCeiling() != null ? Math.max(p.getGpuCeiling(), slots) : slots;
+            long d = demandOf(p);
+            demand.put(p.getId(), d);
+            lendable.put(p.getId(), Math.max(0, slots - Math.max(d, floor)));
+            want.put(p.getId(), Math.max(0, Math.min(d, ceiling) - slots));
+        }
+
+        Map<String, Long> borrowed = waterFill(want, lendable.values().stream().mapToLong(Long::longValue).sum());
+        long totalBorrowed = borrowed.values().stream().mapToLong(Long::longValue).sum();
+        // 借出量按可借出量从大到小依次分摊，保证借出总量与借入总量一致
+        Map<String, Long> lent = new HashMap<>();
+        List<ResourcePool> lenders = new ArrayList<>(pools);
+        lenders.sort(Comparator.comparingLong((ResourcePool p) -> lendable.get(p.getId())).reversed());
+        for (ResourcePool p : lenders) {
+            long take = Math.min(lendable.get(p.getId()), totalBorrowed);
+            lent.put(p.getId(), take);
+            totalBorrowed -= take;
+        }
+
+        for (ResourcePool p : pools) {
+            int before = nz(p.getGpuBorrowed());
+            int after = (int) (borrowed.getOrDefault(p.getId(), 0L) > 0 ? borrowed.get(p.getId()) : -lent.getOrDefault(p.getId(), 0L));
+            if (before == after) continue;
+            resourcePoolMapper.updateGpuBorrowed(p.getId(), after);
+            p.setGpuBorrowed(after);
+            quotaLedger.updateLimits(p);
+            recordEvents(physicalClusterId, p.getId(), before, after, demand.get(p.getId()));
+            resourcePoolService.requestPropagation(p.getId());
+            log.info("资源池 {} 弹性配额 {} -> {} (需求 {} GPU)", p.getId(), before, after, demand.get(p.getId()));
+            if (before > 0 && after < before) {
+                long excess = demand.get(p.getId()) - ResourcePoolService.gpuAllowance(p);
+                if (excess > 0) reclaimDeployments(p, excess);
+            }
+        }
+    }
+
+    /**
+     * 收回借入时缩减借入方推理部署的副本数，直到释放 excess 张 GPU 或无可缩减的部署：
+     * 按创建时间从新到旧逐个缩减，每个部署至少保留 max(1, minReplicas) 个副本（缩到 0 后既不会被空闲唤醒也不会被自动扩缩容拉起）；
+     * 多节点部署由 Volcano 调度，交给 Volcano 回收。
+     */
+    private void reclaimDeployments(ResourcePool pool, long excess) {
+        long remaining = excess;
+        for (ModelDeployment d : modelDeploymentMapper.findByResourcePoolId(pool.getId())) {
+            if (remaining <= 0) break;
+            if (!"running".equals(d.getStatus()) || ModelDeploymentService.isMultiNode(d.getNodes())) continue;
+            int gpus = nz(d.getGpuPerReplica());
+            int current = nz(d.getReplicas());
+            int floor = Math.max(1, nz(d.getMinReplicas()));
+            if (gpus <= 0 || current <= floor) continue;
+            int target = (int) Math.max(floor, current - (remaining + gpus - 1) / gpus);
+            try {
+                clientManager.run(pool.getPhysicalClusterId(), client -> client.apps().deployments()
+                        .inNamespace(pool.getNamespace()).withName(d.getK8sDeploymentName()).scale(target));
+            } catch (RuntimeException e) {
+                log.warn("收回借入 GPU 时缩容部署 {} 失败: {}", d.getId(), e.getMessage());
+                continue;
+            }
+            d.setReplicas(target);
+            quotaLedger.resize(pool, QuotaLedger.KEY_DEPLOYMENT + d.getId(), QuotaLedger.usageOf(d));
+            modelDeploymentMapper.updateReplicas(d.getId(), target);
+            remaining -= (long) (current - target) * gpus;
+            log.info("资源池 {} 借入被收回，部署 {} 副本 {} -> {}", pool.getId(), d.getId(), current, target);
+        }
+        if (remaining > 0) {
+            log.info("资源池 {} 借入被收回后仍超出 {} GPU（推理部署已缩至下限），等待 Volcano 回收任务", pool.getId(), remaining);
+        }
+    }
+
+    /** 需求：账本中已登记的 GPU 与 ResourceQuota 已用量的较大者 */
+    private long demandOf(ResourcePool pool) {
+        QuotaLedger.Usage used = quotaLedger.used(pool.getId());
+        long demand = used != null ? used.getGpu() : 0;
+        try {
+            ClusterInformers informers = clientManager.getInformers(pool.getPhysicalClusterId());
+            if (informers.resourceQuotas().hasSynced()) {
+                ResourceQuota quota = ClusterInformers.get(informers.resourceQuotas(), pool.getNamespace(),
+                        ResourcePoolService.quotaNameOf(pool)).orElse(null);
+                Map<String, Quantity> u = quota != null && quota.getStatus() != null ? quota.getStatus().getUsed() : null;
+                if (u != null) demand = Math.max(demand, CapacityIndex.toLong(u.get(CapacityIndex.RESOURCE_GPU)));
+            }
+        } catch (RuntimeException e) {
+            log.debug("读取资源池 {} 的 ResourceQuota 用量失败: {}", pool.getId(), e.getMessage());
+        }
+        return demand;
+    }
+
+    /** 水位填充：总量不足时按需求从小到大依次平分，每个资源池不超过其想借入量 */
+    static Map<String, Long> waterFill(Map<String, Long> want, long total) {
+        Map<String, Long> result = new HashMap<>();
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(want.entrySet());
+        entries.removeIf(e -> e.getValue() <= 0);
+        entries.sort(Map.Entry.comparingByValue());
+        long remaining = total;
+        for (int i = 0; i < entries.size(); i++) {
+            long share = remaining / (entries.size() - i);
+            long give = Math.min(entries.get(i).getValue(), share);
+            result.put(entries.get(i).getKey(), give);
+            remaining -= give;
+        }
+        return result;
+    }
+
+    private void recordEvents(String physicalClusterId, String poolId, int before, int after, long demand) {
+        // 借入与借出角色互换时拆成两条记录
+        if (before > 0 && after < before) insertEvent(physicalClusterId, poolId, "reclaim", before - Math.max(0, after), after, demand);
+        if (before < 0 && after > before) insertEvent(physicalClusterId, poolId, "return", Math.min(0, after) - before, after, demand);
+        if (after > 0 && after > before) insertEvent(physicalClusterId, poolId, "borrow", after - Math.max(0, before), after, demand);
+        if (after < 0 && after < before) insertEvent(physicalClusterId, poolId, "lend", Math.min(0, before) - after, after, demand);
+    }
+
+    private void insertEvent(String physicalClusterId, String poolId, String action, int gpu, int after, long demand) {
+        quotaBorrowEventMapper.insert(QuotaBorrowEvent.builder()
+                .id(UUID.randomUUID().toString())
+                .physicalClusterId(physicalClusterId)
+                .resourcePoolId(poolId)
+                .action(action)
+                .gpu(gpu)
+                .gpuBorrowedAfter(after)
+                .demandGpu((int) demand)
+                .build());
+    }
+
+    private static int nz(Integer v) {
+        return v != null ? v : 0;
+    }
+}
@@ -0,0 +1,156 @@
+package com.acmp.compute.service;
+
+import com.acmp.compute.dto.CapacityResponse;
+import com.acmp.compute.dto.ClusterCapacityEntry;
+import com.acmp.compute.dto.FleetCapacityResponse;
+import com.acmp.compute.entity.PhysicalCluster;
+import com.acmp.compute.exception.ClusterUnavailableException;
+import com.acmp.compute.k8s.KubernetesClientManager;
+import com.acmp.compute.mapper.PhysicalClusterMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 全局容量视图：并发查询所有已注册集群的容量，每个集群独立截止时间。
+ * 容量索引已同步且 watch 正常的集群直接读本地快照，不占用扇出线程；
+ * 其余集群并发实时查询，超时或失败的集群以状态项返回，不影响整体结果。
+ */
+@Slf4j
+@Service
+public class FleetCapacityService {
+
+    private final PhysicalClusterMapper physicalClusterMapper;
+    private final PhysicalClusterService physicalClusterService;
+    private final KubernetesClientManager clientManager;
+    private final ThreadPoolExecutor executor;
+    private final long deadlineMs;
+
+    public FleetCapacityService(PhysicalClusterMapper physicalClusterMapper,
+                                PhysicalClusterService physicalClusterService,
+                                KubernetesClientManager clientManager,
+                                @Value("${fleet.capacity.threads:8}") int threads,
+                                @Value("${fleet.capacity.deadline-ms:3000}") long deadlineMs) {
+        this.physicalClusterMapper = physicalClusterMapper;
+        this.physicalClusterService = physicalClusterService;
+        this.clientManager = clientManager;
+        this.deadlineMs = deadlineMs;
+        AtomicInteger seq = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(threads * 16),
+                r -> {
+                    Thread t = new Thread(r, "fleet-capacity-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    public FleetCapacityResponse getFleetCapacity() {
+        long start = System.nanoTime();
+        List<PhysicalCluster> clusters = physicalClusterMapper.findAll();
+        List<CompletableFuture<ClusterCapacityEntry>> futures = new ArrayList<>(clusters.size());
+        for (PhysicalCluster cluster : clusters) {
+            futures.add(query(cluster));
+        }
+        List<ClusterCapacityEntry> entries = new ArrayList<>(futures.size());
+        for (CompletableFuture<ClusterCapacityEntry> f : futures) {
+            entries.add(f.join());
+        }
+        return aggregate(entries, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private CompletableFuture<ClusterCapacityEntry> query(PhysicalCluster cluster) {
+        long t0 = System.nanoTime();
+        String id = cluster.getId();
+        try {
+            CapacityResponse fresh = physicalClusterService.freshCapacitySnapshot(id);
+            if (fresh != null) {
+                return CompletableFuture.completedFuture(entry(cluster, "ok", t0, null, fresh));
+            }
+            return CompletableFuture.supplyAsync(() -> physicalClusterService.readCapacity(id), executor)
+                    .thenApply(capacity -> entry(cluster, "ok", t0, null, capacity))
+                    .completeOnTimeout(null, deadlineMs, TimeUnit.MILLISECONDS)
+                    .exceptionally(e -> failed(cluster, t0, e))
+                    .thenApply(e -> e != null ? e
+                            : entry(cluster, "timeout", t0, "超过截止时间 " + deadlineMs + " ms", null));
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(entry(cluster, "error", t0, "查询队列已满", null));
+        } catch (RuntimeException e) {
+            // 如 kubeconfig 解密或客户端创建失败
+            return CompletableFuture.completedFuture(failed(cluster, t0, e));
+        }
+    }
+
+    private ClusterCapacityEntry failed(PhysicalCluster cluster, long t0, Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        log.warn("集群 {} 容量查询失败: {}", cluster.getId(), cause.getMessage());
+        String status = cause instanceof ClusterUnavailableException ? "unavailable" : "error";
+        return entry(cluster, status, t0, cause.getMessage(), null);
+    }
+
+    private ClusterCapacityEntry entry(PhysicalCluster cluster, String status, long t0, String error,
+                                       CapacityResponse capacity) {
+        return ClusterCapacityEntry.builder()
+                .physicalClusterId(cluster.getId())
+                .name(cluster.getName())
+                .status(status)
+                .latencyMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0))
+                .error(error)
+                .breakerState(clientManager.getGuard(cluster.getId()).getState().name())
+                .capacity(capacity)
+                .build();
+    }
+
+    private FleetCapacityResponse aggregate(List<ClusterCapacityEntry> entries, long elapsedMs) {
+        long gpu = 0, gpuFree = 0, cpu = 0, cpuFree = 0, mem = 0, memFree = 0, gpumem = 0, gpumemFree = 0;
+        int healthy = 0;
+        for (ClusterCapacityEntry e : entries) {
+            CapacityResponse c = e.getCapacity();
+            if (!"ok".equals(e.getStatus()) || c == null) continue;
+            healthy++;
+            gpu += nz(c.getGpuSlots());
+            gpuFree += nz(c.getGpuFree());
+            cpu += nz(c.getCpuMillis());
+            cpuFree += nz(c.getCpuFreeMillis());
+            mem += nz(c.getMemoryBytes());
+            memFree += nz(c.getMemoryFreeBytes());
+            gpumem += nz(c.getGpumemMb());
+            gpumemFree += nz(c.getGpumemFreeMb());
+        }
+        return FleetCapacityResponse.builder()
+                .clusterCount(entries.size())
+                .healthyCount(healthy)
+                .gpuSlots(gpu)
+                .gpuFree(gpuFree)
+                .cpuMillis(cpu)
+                .cpuFreeMillis(cpuFree)
+                .memoryBytes(mem)
+                .memoryFreeBytes(memFree)
+                .gpumemMb(gpumem)
+                .gpumemFreeMb(gpumemFree)
+                .elapsedMs(elapsedMs)
+                .clusters(entries)
+                .build();
+    }
+
+    private static long nz(Long v) {
+        return v == null ? 0L : v;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,390 @@
+package com.acmp.compute.service;
+
+import com.acmp.compute.dto.IdleSavingsResponse;
+import com.acmp.compute.entity.DeploymentIdleEvent;
+import com.acmp.compute.entity.ModelDeployment;
+import com.acmp.compute.entity.ResourcePool;
+import com.acmp.compute.exception.ForbiddenException;
+import com.acmp.compute.exception.QuotaExceededException;
+import com.acmp.compute.exception.ResourceNotFoundException;
+import com.acmp.compute.exception.UpstreamUnavailableException;
+import com.acmp.compute.k8s.KubernetesClientManager;
+import com.acmp.compute.mapper.DeploymentIdleEventMapper;
+import com.acmp.compute.mapper.ModelDeploymentMapper;
+import com.acmp.compute.mapper.ResourcePoolMapper;
+import com.acmp.compute.security.UserPrincipal;
+import io.fabric8.kubernetes.api.model.apps.Deployment;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 空闲缩容（scale-to-zero）：设置了 idleMinutes 的部署连续该时长没有推理请求时缩到 0 副本，释放 GPU；
+ * 经推理网关的下一个请求触发唤醒，请求在网关挂起直到首个副本就绪后放行。
+ * <ul>
+ *   <li>活动：网关在请求开始与结束时调用 {@link #begin} / {@link #end}，有在途请求（如长时间的流式生成）的部署不会被缩容；
+ *       响应缓存命中不经过上游，不算活动。活动时间按 activity-persist-ms 节流写入 model_deployment.last_active_at，
+ *       有在途请求的部署每轮扫描都会刷新该列；判断空闲取本进程记录与库中记录的较晚者，多实例网关不会互相误判</li>
+ *   <li>缩容：scale 子资源置 0，status 由 running 置为 stopped 成功后配额账本中该部署的占用归零，记录保留原副本数作为唤醒目标；
+ *       随后通知网关丢弃该部署的副本地址缓存（见 {@link #onScaledToZero}），不再向正在终止的 Pod 转发</li>
+ *   <li>唤醒：同一部署并发到达的请求共享一次唤醒；先在账本中恢复占用（资源池 GPU 已被占满时唤醒失败，返回 503），
+ *       再扩回原副本数，轮询 Deployment 的 readyReplicas，超过 wake-timeout-ms 仍未就绪时挂起的请求返回 503；
+ *       副本保持扩容、status 保持 pending，之后的请求（含其他实例发起的唤醒）重新挂起等待同一次唤醒就绪</li>
+ *   <li>统计：缩容与唤醒写入 deployment_idle_event，按资源池汇总回收的 GPU 小时与冷启动耗时，见 {@link #savings}</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+public class IdleScalerService {
+
+    static final String ACTION_SCALE_TO_ZERO = "scale_to_zero";
+    static final String ACTION_WAKE = "wake";
+    private static final int RECENT_EVENTS = 50;
+
+    private final ModelDeploymentMapper modelDeploymentMapper;
+    private final ResourcePoolMapper resourcePoolMapper;
+    private final DeploymentIdleEventMapper deploymentIdleEventMapper;
+    private final KubernetesClientManager clientManager;
+    private final QuotaLedger quotaLedger;
+    private final boolean enabled;
+    private final long wakeTimeoutMs;
+    private final long wakePollMs;
+    private final long activityPersistMs;
+    private final ScheduledExecutorService scheduler;
+
+    /** 部署 ID -> 最近活动与在途请求数 */
+    private final Map<String, Activity> activity = new ConcurrentHashMap<>();
+    /** 部署 ID -> 进行中的唤醒 */
+    private final Map<String, Wake> waking = new ConcurrentHashMap<>();
+    /** 缩容到 0 后的回调（参数为部署 ID） */
+    private final List<Consumer<String>> scaledToZeroListeners = new CopyOnWriteArrayList<>();
+
+    public IdleScalerService(ModelDeploymentMapper modelDeploymentMapper,
+                             ResourcePoolMapper resourcePoolMapper,
+                             DeploymentIdleEventMapper deploymentIdleEventMapper,
+                             KubernetesClientManager clientManager,
+                             QuotaLedger quotaLedger,
+                             @Value("${idle-scaler.enabled:true}") boolean enabled,
+                             @Value("${idle-scaler.wake-timeout-ms:300000}") long wakeTimeoutMs,
+                             @Value("${idle-scaler.wake-poll-ms:1000}") long wakePollMs,
+                             @Value("${idle-scaler.activity-persist-ms:60000}") long activityPersistMs) {
+        this.modelDeploymentMapper = modelDeploymentMapper;
+        this.resourcePoolMapper = resourcePoolMapper;
+        this.deploymentIdleEventMapper = deploymentIdleEventMapper;
+        this.clientManager = clientManager;
+        this.quotaLedger = quotaLedger;
+        this.enabled = enabled;
+        this.wakeTimeoutMs = wakeTimeoutMs;
+        this.wakePollMs = Math.max(100, wakePollMs);
+        this.activityPersistMs = activityPersistMs;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "idle-scaler-wake");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /** 注册缩容到 0 后的回调，如网关丢弃副本地址缓存 */
+    public void onScaledToZero(Consumer<String> listener) {
+        scaledToZeroListeners.add(listener);
+    }
+
+    /** 网关开始转发一个请求 */
+    public void begin(String deploymentId) {
+        Activity a = activityOf(deploymentId);
+        a.inflight.incrementAndGet();
+        a.lastMs = System.currentTimeMillis();
+        persistIfDue(deploymentId, a);
+    }
+
+    /** 网关转发的请求结束（响应体写完、出错或客户端断开） */
+    public void end(String deploymentId) {
+        Activity a = activityOf(deploymentId);
+        a.inflight.decrementAndGet();
+        a.lastMs = System.currentTimeMillis();
+        persistIfDue(deploymentId, a);
+    }
+
+    /** 部署删除后清理内存状态；缩容记录保留用于统计 */
+    public void forget(String deploymentId) {
+        activity.remove(deploymentId);
+    }
+
+    private Activity activityOf(String deploymentId) {
+        return activity.computeIfAbsent(deploymentId, k -> new Activity(System.currentTimeMillis()));
+    }
+
+    /** 距上次写库超过 activity-persist-ms 时异步写入最近活动时间，不阻塞网关线程 */
+    private void persistIfDue(String deploymentId, Activity a) {
+        long last = a.lastMs;
+        long persisted = a.persistedMs;
+        if (last - persisted < activityPersistMs || !a.casPersisted(persisted, last)) return;
+        try {
+            scheduler.execute(() -> persist(deploymentId, last));
+        } catch (RuntimeException e) {
+            log.debug("部署 {} 活动时间写入排队失败: {}", deploymentId, e.getMessage());
+        }
+    }
+
+    private void persist(String deploymentId, long atMs) {
+        try {
+            modelDeploymentMapper.touchLastActive(deploymentId, Instant.ofEpochMilli(atMs));
+        } catch (RuntimeException e) {
+            log.debug("部署 {} 活动时间写入失败: {}", deploymentId, e.getMessage());
+        }
+    }
+
+    @Scheduled(initialDelayString = "${idle-scaler.initial-delay-ms:60000}", fixedDelayString = "${idle-scaler.interval-ms:30000}")
+    public void sweep() {
+        if (!enabled) return;
+        long now = System.currentTimeMillis();
+        for (ModelDeployment d : modelDeploymentMapper.findIdlePolicy()) {
+            if (!"running".equals(d.getStatus()) || waking.containsKey(d.getId())) continue;
+            Activity a = activityOf(d.getId());
+            if (a.inflight.get() > 0) {
+                // 长时间的在途请求：刷新库中活动时间，避免其他实例把部署判为空闲
+                persist(d.getId(), now);
+                continue;
+            }
+            long lastMs = d.getLastActiveAt() != null ? Math.max(a.lastMs, d.getLastActiveAt().toEpochMilli()) : a.lastMs;
+            if (now - lastMs < d.getIdleMinutes() * 60_000L) continue;
+            try {
+                KubernetesClientManager.inBackground(() -> {
+                    scaleToZero(d, now - lastMs);
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                log.warn("部署 {} 空闲缩容失败: {}", d.getId(), e.getMessage());
+            }
+        }
+    }
+
+    private void scaleToZero(ModelDeployment record, long idleMs) {
+        ResourcePool pool = resourcePoolMapper.findById(record.getResourcePoolId()).orElse(null);
+        // 判定空闲后到达的请求：放弃本轮缩容
+        if (pool == null || activityOf(record.getId()).inflight.get() > 0) return;
+        clientManager.run(pool.getPhysicalClusterId(), client -> client.apps().deployments()
+                .inNamespace(pool.getNamespace()).withName(record.getK8sDeploymentName()).scale(0));
+        if (modelDeploymentMapper.updateStatusIf(record.getId(), "running", "stopped") > 0) {
+            quotaLedger.resize(pool, QuotaLedger.KEY_DEPLOYMENT + record.getId(), QuotaLedger.Usage.ZERO);
+        } else {
+            // 状态已被并发修改（如调谐已收敛为 stopped 并释放占用），账本交由调谐同步
+            log.debug("部署 {} 缩容后状态已变化，不调整账本", record.getId());
+        }
+        int gpu = nz(record.getGpuPerReplica()) * nz(record.getReplicas());
+        deploymentIdleEventMapper.insert(DeploymentIdleEvent.builder()
+                .id(UUID.randomUUID().toString())
+                .resourcePoolId(pool.getId())
+                .modelDeploymentId(record.getId())
+                .action(ACTION_SCALE_TO_ZERO)
+                .gpu(gpu)
+                .build());
+        for (Consumer<String> listener : scaledToZeroListeners) {
+            listener.accept(record.getId());
+        }
+        log.info("部署 {} 已空闲 {} 分钟，缩容到 0 副本，释放 {} GPU", record.getId(), idleMs / 60_000, gpu);
+    }
+
+    /**
+     * 唤醒已空闲缩容的部署，返回的 future 在首个副本就绪时完成。
+     * 已在唤醒中（本实例等待超时或由其他实例发起，status 为 pending）时不再扩容，只重新等待副本就绪；
+     * 部署不是因空闲缩容而没有就绪副本时直接抛出 {@link UpstreamUnavailableException}。
+     */
+    public CompletableFuture<Void> wake(String deploymentId) {
+        Wake existing = waking.get(deploymentId);
+        if (existing != null) return existing.future;
+        ModelDeployment record = modelDeploymentMapper.findById(deploymentId)
+                .orElseThrow(() -> new ResourceNotFoundException("部署记录不存在: " + deploymentId));
+        DeploymentIdleEvent slept = deploymentIdleEventMapper.findLatestByDeploymentId(deploymentId).orElse(null);
+        boolean resumed = "pending".equals(record.getStatus());
+        if (!("stopped".equals(record.getStatus()) || resumed) || slept == null || !ACTION_SCALE_TO_ZERO.equals(slept.getAction())) {
+            throw new UpstreamUnavailableException(deploymentId, "没有就绪的副本");
+        }
+        // 继续等待时冷启动从扩容（status 置为 pending）时刻算起
+        long startedMs = resumed && record.getUpdatedAt() != null ? record.getUpdatedAt().toEpochMilli() : System.currentTimeMillis();
+        Wake wake = new Wake(startedMs, System.currentTimeMillis(), slept);
+        Wake raced = waking.putIfAbsent(deploymentId, wake);
+        if (raced != null) return raced.future;
+        try {
+            if (resumed) {
+                resume(record, wake);
+            } else {
+                start(record, wake);
+            }
+        } catch (RuntimeException e) {
+            waking.remove(deploymentId, wake);
+            wake.future.completeExceptionally(e);
+        }
+        return wake.future;
+    }
+
+    private void start(ModelDeployment record, Wake wake) {
+        ResourcePool pool = resourcePoolMapper.findById(record.getResourcePoolId())
+                .orElseThrow(() -> new ResourceNotFoundException("资源池不存在: " + record.getResourcePoolId()));
+        String key = QuotaLedger.KEY_DEPLOYMENT + record.getId();
+        int replicas = Math.max(1, nz(record.getReplicas()));
+        try {
+            quotaLedger.resize(pool, key, QuotaLedger.Usage.vllmReplica(nz(record.getGpuPerReplica()),
+                    nz(record.getGpumemMb()), nz(record.getGpucores())).times(replicas));
+        } catch (QuotaExceededException e) {
+            throw new UpstreamUnavailableException(record.getId(), "资源池 GPU 余量不足，无法唤醒");
+        }
+        try {
+            clientManager.run(pool.getPhysicalClusterId(), client -> client.apps().deployments()
+                    .inNamespace(pool.getNamespace()).withName(record.getK8sDeploymentName()).scale(replicas));
+        } catch (RuntimeException e) {
+            quotaLedger.resize(pool, key, QuotaLedger.Usage.ZERO);
+            throw e;
+        }
+        modelDeploymentMapper.updateStatusIf(record.getId(), "stopped", "pending");
+        log.info("部署 {} 收到请求，从 0 唤醒到 {} 副本", record.getId(), replicas);
+        scheduler.schedule(() -> poll(pool, record, wake), wakePollMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void resume(ModelDeployment record, Wake wake) {
+        ResourcePool pool = resourcePoolMapper.findById(record.getResourcePoolId())
+                .orElseThrow(() -> new ResourceNotFoundException("资源池不存在: " + record.getResourcePoolId()));
+        log.info("部署 {} 唤醒中，继续等待副本就绪", record.getId());
+        scheduler.schedule(() -> poll(pool, record, wake), 0, TimeUnit.MILLISECONDS);
+    }
+
+    private void poll(ResourcePool pool, ModelDeployment record, Wake wake) {
+        long now = System.currentTimeMillis();
+        try {
+            Deployment deployment = clientManager.readDeployment(pool.getPhysicalClusterId(), pool.getNamespace(),
+                    record.getK8sDeploymentName()).getValue();
+            Integer ready = deployment != null && deployment.getStatus() != null ? deployment.getStatus().getReadyReplicas() : null;
+            if (ready != null && ready > 0) {
+                finish(record, wake, now - wake.startedMs);
+                return;
+            }
+        } catch (RuntimeException e) {
+            log.debug("读取部署 {} 状态失败: {}", record.getId(), e.getMessage());
+        }
+        if (now - wake.waitStartedMs >= wakeTimeoutMs) {
+            timeout(record, wake);
+            return;
+        }
+        scheduler.schedule(() -> poll(pool, record, wake), wakePollMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 等待超时：拒绝本次挂起的请求，但不记唤醒事件、不回滚扩容，status 保持 pending，
+     * 之后的请求重新等待；始终无法就绪的部署由调谐按 Deployment 实际状态收敛。
+     */
+    private void timeout(ModelDeployment record, Wake wake) {
+        waking.remove(record.getId(), wake);
+        log.warn("部署 {} 唤醒 {} ms 后仍无就绪副本", record.getId(), wakeTimeoutMs);
+        wake.future.completeExceptionally(new UpstreamUnavailableException(record.getId(), "唤醒超时，副本尚未就绪"));
+    }
+
+    /** 唤醒完成：记录冷启动，放行挂起的请求 */
+    private void finish(ModelDeployment record, Wake wake, long coldStartMs) {
+        waking.remove(record.getId(), wake);
+        activityOf(record.getId()).lastMs = System.currentTimeMillis();
+        try {
+            deploymentIdleEventMapper.insert(DeploymentIdleEvent.builder()
+                    .id(UUID.randomUUID().toString())
+                    .resourcePoolId(record.getResourcePoolId())
+                    .modelDeploymentId(record.getId())
+                    .action(ACTION_WAKE)
+                    .gpu(wake.slept.getGpu())
+                    .idleMs(wake.startedMs - wake.slept.getCreatedAt().toEpochMilli())
+                    .coldStartMs(coldStartMs)
+                    .build());
+        } catch (RuntimeException e) {
+            log.warn("部署 {} 唤醒记录写入失败: {}", record.getId(), e.getMessage());
+        }
+        modelDeploymentMapper.updateStatusIf(record.getId(), "pending", "running");
+        log.info("部署 {} 唤醒完成，冷启动 {} ms", record.getId(), coldStartMs);
+        wake.future.complete(null);
+    }
+
+    /** 资源池空闲缩容统计：回收的 GPU 小时含仍在休眠中的部分 */
+    public IdleSavingsResponse savings(String poolId) {
+        if (resourcePoolMapper.findById(poolId).isEmpty()) throw new ResourceNotFoundException("资源池不存在: " + poolId);
+        Object p = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        if (p instanceof UserPrincipal && !((UserPrincipal) p).canAccessPool(poolId)) {
+            throw new ForbiddenException("无权限访问该资源池");
+        }
+        long now = System.currentTimeMillis();
+        long gpuMs = deploymentIdleEventMapper.sumReclaimedGpuMs(poolId);
+        int sleeping = 0, released = 0;
+        for (ModelDeployment d : modelDeploymentMapper.findByResourcePoolId(poolId)) {
+            if (!"stopped".equals(d.getStatus()) && !waking.containsKey(d.getId())) continue;
+            DeploymentIdleEvent last = deploymentIdleEventMapper.findLatestByDeploymentId(d.getId()).orElse(null);
+            if (last == null || !ACTION_SCALE_TO_ZERO.equals(last.getAction())) continue;
+            sleeping++;
+            released += last.getGpu();
+            gpuMs += (long) last.getGpu() * Math.max(0, now - last.getCreatedAt().toEpochMilli());
+        }
+        List<Long> coldStarts = deploymentIdleEventMapper.findColdStartMs(poolId);
+        int n = coldStarts.size();
+        return IdleSavingsResponse.builder()
+                .resourcePoolId(poolId)
+                .gpuHoursReclaimed(gpuMs / 3_600_000.0)
+                .sleepingDeployments(sleeping)
+                .gpuReleased(released)
+                .coldStarts((long) n)
+                .coldStartAvgMs(n > 0 ? (long) coldStarts.stream().mapToLong(Long::longValue).average().orElse(0) : null)
+                .coldStartP95Ms(n > 0 ? coldStarts.get((int) Math.ceil(n * 0.95) - 1) : null)
+                .coldStartMaxMs(n > 0 ? coldStarts.get(n - 1) : null)
+                .recentEvents(deploymentIdleEventMapper.findByResourcePoolId(poolId, RECENT_EVENTS))
+                .build();
+    }
+
+    private static int nz(Integer v) {
+        return v != null ? v : 0;
+    }
+
+    private static final class Activity {
+        private final AtomicInteger inflight = new AtomicInteger();
+        private volatile long lastMs;
+        private volatile long persistedMs;
+
+        Activity(long lastMs) {
+            this.lastMs = lastMs;
+        }
+
+        synchronized boolean casPersisted(long expected, long value) {
+            if (persistedMs != expected) return false;
+            persistedMs = value;
+            return true;
+        }
+    }
+
+    /** 一次唤醒：扩容时刻（冷启动起点）、本轮等待的开始时刻、对应的缩容记录与挂起请求共享的 future */
+    private static final class Wake {
+        private final long startedMs;
+        private final long waitStartedMs;
+        private final DeploymentIdleEvent slept;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        Wake(long startedMs, long waitStartedMs, DeploymentIdleEvent slept) {
+            this.startedMs = startedMs;
+            this.waitStartedMs = waitStartedMs;
+            this.slept = slept;
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package com.acmp.compute.service;
+
+import com.acmp.compute.entity.ResourcePool;
+import com.acmp.compute.exception.RateLimitedException;
+import com.acmp.compute.mapper.ResourcePoolMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 推理请求准入控制：按资源池与资源池内用户限制每秒请求数（RPS）与每秒估算 token 数（TPS）。
+ * <ul>
+ *   <li>限额来自 ResourcePool 的 inferenceRps / inferenceTps / inferenceUserRps / inferenceUserTps，为空表示不限；
+ *       管理员修改后立即生效，其他网关实例在 limits-refresh-ms 内从库中刷新</li>
+ *   <li>快路径：资源池无排队请求且四个令牌桶均有余量时直接放行，不加锁、不分配</li>
+ *   <li>超额请求进入该资源池的公平队列：每个用户一个子队列，按估算 token 计算虚拟完成时间（各用户权重相同），
+ *       先放行完成时间最小且令牌足够的请求；某用户自身超限时不阻塞其他用户</li>
+ *   <li>队列已满立即 429；排队超过 max-wait-ms 仍未放行也返回 429</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+public class InferenceAdmissionService {
+
+    private static final CompletableFuture<Void> ADMITTED = CompletableFuture.completedFuture(null);
+    /** 空闲用户子队列的清理间隔 */
+    private static final long SWEEP_INTERVAL_MS = 60_000;
+
+    private final ResourcePoolMapper resourcePoolMapper;
+    private final long limitsRefreshMs;
+    private final double burstSeconds;
+    private final int maxQueue;
+    private final long maxWaitMs;
+    private final ScheduledExecutorService scheduler;
+
+    /** 资源池 ID -> 限流状态 */
+    private final Map<String, PoolLimiter> limiters = new ConcurrentHashMap<>();
+
+    public InferenceAdmissionService(ResourcePoolMapper resourcePoolMapper,
+                                     @Value("${inference.admission.limits-refresh-ms:10000}") long limitsRefreshMs,
+                                     @Value("${inference.admission.burst-seconds:1.0}") double burstSeconds,
+                                     @Value("${inference.admission.max-queue:200}") int maxQueue,
+                                     @Value("${inference.admission.max-wait-ms:5000}") long maxWaitMs) {
+        this.resourcePoolMapper = resourcePoolMapper;
+        this.limitsRefreshMs = limitsRefreshMs;
+        this.burstSeconds = Math.max(0.001, burstSeconds);
+        this.maxQueue = Math.max(0, maxQueue);
+        this.maxWaitMs = Math.max(0, maxWaitMs);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "inference-admission");
+            t.setDaemon(true);
+            return t;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::sweep, SWEEP_INTERVAL_MS, SWEEP_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 申请放行一个推理请求。
+     *
+     * @param tokens 估算 token 数（prompt + max_tokens），计入 TPS 限额
+     * @return 放行时完成的 future；排队超时以 {@link RateLimitedException} 失败
+     * @throws RateLimitedException 公平队列已满
+     */
+    public CompletableFuture<Void> admit(String poolId, String userId, long tokens) {
+        PoolLimiter limiter = limiter(poolId);
+        if (limiter.unlimited) return ADMITTED;
+        Flow flow = limiter.flows.computeIfAbsent(userId, limiter::newFlow);
+        long cost = Math.max(1, tokens);
+        if (limiter.queued.get() == 0 && limiter.tryAcquire(flow, cost, System.nanoTime()) == 0) return ADMITTED;
+        return limiter.enqueue(flow, cost);
+    }
+
+    /** 管理员修改限额后调用，本实例立即生效 */
+    public void updateLimits(ResourcePool pool) {
+        PoolLimiter limiter = limiters.get(pool.getId());
+        if (limiter != null) limiter.apply(pool);
+    }
+
+    private PoolLimiter limiter(String poolId) {
+        long now = System.currentTimeMillis();
+        PoolLimiter limiter = limiters.get(poolId);
+        if (limiter != null && now - limiter.loadedAtMs < limitsRefreshMs) return limiter;
+        ResourcePool pool = resourcePoolMapper.findById(poolId).orElse(null);
+        limiter = limiters.computeIfAbsent(poolId, PoolLimiter::new);
+        if (pool != null) limiter.apply(pool);
+        limiter.loadedAtMs = now;
+        return limiter;
+    }
+
+    /** 清理无排队、令牌桶已满的用户子队列 */
+    private void sweep() {
+        long now = System.nanoTime();
+        for (PoolLimiter limiter : limiters.values()) {
+            synchronized (limiter) {
+                limiter.flows.values().removeIf(f -> f.queue.isEmpty() && f.idle(now));
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private static boolean limited(Integer rate) {
+        return rate != null && rate > 0;
+    }
+
+    private static long acquire(TokenBucket bucket, long cost, long now) {
+        return bucket != null ? bucket.tryAcquire(cost, now) : 0;
+    }
+
+    private static void refund(TokenBucket bucket, long cost) {
+        if (bucket != null) bucket.refund(cost);
+    }
+
+    private static TokenBucket bucket(TokenBucket current, Integer rate, double burstSeconds) {
+        if (!limited(rate)) return null;
+        double burst = rate * burstSeconds;
+        if (current == null) return new TokenBucket(rate, burst);
+        current.setRate(rate, burst);
+        return current;
+    }
+
+    /** 单个资源池的令牌桶、用户子队列与公平队列状态 */
+    private class PoolLimiter {
+        private final String poolId;
+        private final Map<String, Flow> flows = new ConcurrentHashMap<>();
+        private final AtomicInteger queued = new AtomicInteger();
+        private volatile TokenBucket rps;
+        private volatile TokenBucket tps;
+        private volatile Integer userRps;
+        private volatile Integer userTps;
+        private volatile boolean unlimited = true;
+        private volatile long loadedAtMs;
+        /** 公平队列的虚拟时间：最近放行请求的虚拟完成时间（受 this 保护） */
+        private double virtualTime;
+        private ScheduledFuture<?> drain;
+        private long drainAtNanos;
+
+        PoolLimiter(String poolId) {
+            this.poolId = poolId;
+        }
+
+        void apply(ResourcePool pool) {
+            synchronized (this) {
+                rps = bucket(rps, pool.getInferenceRps(), burstSeconds);
+                tps = bucket(tps, pool.getInferenceTps(), burstSeconds);
+                userRps = pool.getInferenceUserRps();
+                userTps = pool.getInferenceUserTps();
+                for (Flow f : flows.values()) {
+                    f.rps = bucket(f.rps, userRps, burstSeconds);
+                    f.tps = bucket(f.tps, userTps, burstSeconds);
+                }
+                unlimited = rps == null && tps == null && !limited(userRps) && !limited(userTps);
+                // 限额放宽或取消后尽快放行排队中的请求
+                if (queued.get() > 0) scheduleDrain(0);
+            }
+        }
+
+        Flow newFlow(String userId) {
+            Flow f = new Flow(userId);
+            f.rps = bucket(null, userRps, burstSeconds);
+            f.tps = bucket(null, userTps, burstSeconds);
+            return f;
+        }
+
+        /** 依次取用户与资源池的令牌，任一不足时归还已取得的部分；返回 0 或需等待的纳秒数 */
+        long tryAcquire(Flow flow, long tokens, long now) {
+            TokenBucket ur = flow.rps, ut = flow.tps, pr = rps, pt = tps;
+            long wait = acquire(ur, 1, now);
+            if (wait > 0) return wait;
+            wait = acquire(ut, tokens, now);
+            if (wait > 0) {
+                refund(ur, 1);
+                return wait;
+            }
+            wait = acquire(pr, 1, now);
+            if (wait > 0) {
+                refund(ur, 1);
+                refund(ut, tokens);
+                return wait;
+            }
+            wait = acquire(pt, tokens, now);
+            if (wait > 0) {
+                refund(ur, 1);
+                refund(ut, tokens);
+                refund(pr, 1);
+            }
+            return wait;
+        }
+
+        synchronized CompletableFuture<Void> enqueue(Flow fastPathFlow, long tokens) {
+            if (queued.get() >= maxQueue) {
+                throw new RateLimitedException(poolId, "排队请求已满（" + maxQueue + "）", 1);
+            }
+            // 子队列可能刚被 sweep 清理，以 map 中的为准
+            Flow flow = flows.computeIfAbsent(fastPathFlow.userId, this::newFlow);
+            Waiter w = new Waiter(tokens, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMs));
+            w.finishTag = Math.max(virtualTime, flow.lastFinish) + tokens;
+            flow.lastFinish = w.finishTag;
+            flow.queue.add(w);
+            queued.incrementAndGet();
+            scheduleDrain(0);
+            return w.future;
+        }
+
+        /** 放行令牌足够的排队请求，并按最近的令牌恢复或超时时间安排下一次 */
+        void drain() {
+            List<Waiter> admitted = new ArrayList<>();
+            List<Waiter> expired = new ArrayList<>();
+            synchronized (this) {
+                drain = null;
+                long now = System.nanoTime();
+                long nextNanos = Long.MAX_VALUE;
+                for (Flow f : flows.values()) {
+                    while (!f.queue.isEmpty() && f.queue.peek().deadlineNanos <= now) {
+                        expired.add(f.queue.poll());
+                        queued.decrementAndGet();
+                    }
+                }
+                boolean progress = true;
+                while (progress && queued.get() > 0) {
+                    progress = false;
+                    List<Flow> waiting = new ArrayList<>();
+                    for (Flow f : flows.values()) {
+                        if (!f.queue.isEmpty()) waiting.add(f);
+                    }
+                    waiting.sort((a, b) -> Double.compare(a.queue.peek().finishTag, b.queue.peek().finishTag));
+                    for (Flow f : waiting) {
+                        Waiter head = f.queue.peek();
+                        long wait = tryAcquire(f, head.tokens, now);
+                        if (wait == 0) {
+                            f.queue.poll();
+                            queued.decrementAndGet();
+                            virtualTime = Math.max(virtualTime, head.finishTag);
+                            admitted.add(head);
+                            progress = true;
+                            break;
+                        }
+                        nextNanos = Math.min(nextNanos, wait);
+                    }
+                }
+                for (Flow f : flows.values()) {
+                    Waiter head = f.queue.peek();
+                    if (head != null) nextNanos = Math.min(nextNanos, head.deadlineNanos - now);
+                }
+                if (queued.get() > 0) scheduleDrain(Math.max(nextNanos, TimeUnit.MICROSECONDS.toNanos(200)));
+            }
+            // 在锁外完成 future：放行后的转发在本线程同步发起
+            long retryAfter = Math.max(1, TimeUnit.MILLISECONDS.toSeconds(maxWaitMs));
+            expired.forEach(w -> w.future.completeExceptionally(
+                    new RateLimitedException(poolId, "排队超过 " + maxWaitMs + "ms 未获放行", retryAfter)));
+            admitted.forEach(w -> w.future.complete(null));
+        }
+
+        /** 已安排了更早的 drain 时不重复安排（调用方持有 this） */
+        private void scheduleDrain(long delayNanos) {
+            long at = System.nanoTime() + delayNanos;
+            if (drain != null && drainAtNanos <= at) return;
+            if (drain != null) drain.cancel(false);
+            drainAtNanos = at;
+            drain = scheduler.schedule(() -> {
+                try {
+                    drain();
+                } catch (RuntimeException e) {
+                    log.warn("资源池 {} 推理准入队列处理失败: {}", poolId, e.getMessage());
+                }
+            }, delayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /** 资源池内单个用户：自身令牌桶与排队请求 */
+    private static final class Flow {
+        private final String userId;
+        private volatile TokenBucket rps;
+        private volatile TokenBucket tps;
+        private final ArrayDeque<Waiter> queue = new ArrayDeque<>();
+        /** 该用户最后一个排队请求的虚拟完成时间 */
+        private double lastFinish;
+
+        Flow(String userId) {
+            this.userId = userId;
+        }
+
+        boolean idle(long now) {
+            TokenBucket r = rps, t = tps;
+            return (r == null || r.isIdle(now)) && (t == null || t.isIdle(now));
+        }
+    }
+
+    private static final class Waiter {
+        private final long tokens;
+        private final long deadlineNanos;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+        private double finishTag;
+
+        Waiter(long tokens, long deadlineNanos) {
+            this.tokens = tokens;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+}
@@ -0,0 +1,610 @@
+package com.acmp.compute.service;
+
+import com.acmp.compute.dto.InferenceCacheStats;
+import com.acmp.compute.dto.InferenceRoutingStats;
+import com.acmp.compute.entity.ModelDeployment;
+import com.acmp.compute.entity.ResourcePool;
+import com.acmp.compute.exception.ForbiddenException;
+import com.acmp.compute.exception.ResourceNotFoundException;
+import com.acmp.compute.exception.UpstreamUnavailableException;
+import com.acmp.compute.k8s.ClusterInformers;
+import com.acmp.compute.k8s.KubernetesClientManager;
+import com.acmp.compute.mapper.ModelDeploymentMapper;
+import com.acmp.compute.mapper.ResourcePoolMapper;
+import com.acmp.compute.security.UserPrincipal;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.apps.Deployment;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * 推理网关：将 /api/v1/inference/{deploymentId}/v1/* 转发到该部署的 vLLM 副本（OpenAI 兼容接口）。
+ * <ul>
+ *   <li>副本发现：按 label deployment=&lt;k8sDeploymentName&gt; 读取就绪 Pod（Informer 缓存），短时缓存；
+ *       可用 inference.static-endpoints.&lt;deploymentId&gt; 指定固定地址（如本地 OpenAI 兼容桩服务）</li>
+ *   <li>负载均衡：默认 power-of-two-choices + 最少未完成请求；routingMode=prefix_affinity 的部署按会话头
+ *       （inference.affinity.session-header）或 prompt 的前导片段（开头的 system 消息，没有时取 messages / prompt，
+ *       截取 prefix-chars 个字符并按 KV 缓存块对齐）一致性哈希到副本，负载有界、超载溢出，见 {@link UpstreamBalancer}</li>
+ *   <li>准入控制：按资源池与用户的 RPS / 估算 TPS 限流，超额请求公平排队，见 {@link InferenceAdmissionService}</li>
+ *   <li>响应缓存：部署开启 responseCache 时，确定性请求的相同请求直接回放缓存（不经准入），见 {@link InferenceResponseCache}</li>
+ *   <li>空闲缩容：已缩到 0 副本的部署由请求触发唤醒，请求挂起到首个副本就绪，见 {@link IdleScalerService}</li>
+ *   <li>非阻塞转发：JDK HttpClient 异步发送，响应头到达即返回，响应体按块透传（SSE token 流不缓冲），
+ *       下游写完一块才向上游请求下一块</li>
+ *   <li>连接复用：共享一个 HttpClient 连接池，优先 HTTP/2，上游不支持时回退 HTTP/1.1 keep-alive</li>
+ *   <li>连接失败（尚未向客户端输出任何内容）时摘除该副本并换一个副本重试</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+public class InferenceGatewayService {
+
+    /** 不向上游/下游透传的逐跳头，以及 JDK HttpClient 禁止设置的头 */
+    private static final Set<String> HOP_BY_HOP = Set.of(
+            "connection", "keep-alive", "proxy-authenticate", "proxy-authorization", "te", "trailer",
+            "transfer-encoding", "upgrade", "host", "content-length", "expect", "http2-settings");
+    /** 平台 JWT 只用于网关鉴权，不转发给模型服务 */
+    private static final Set<String> STRIPPED_REQUEST_HEADERS = Set.of("authorization", "cookie");
+    private static final int VLLM_PORT = 8000;
+    static final String ROUTING_PREFIX_AFFINITY = "prefix_affinity";
+    /** vLLM prefix caching 的块大小（token），亲和片段按整块对齐 */
+    private static final int CACHE_BLOCK_TOKENS = 16;
+    private static final String REVISION_ANNOTATION = "deployment.kubernetes.io/revision";
+
+    private final ModelDeploymentMapper modelDeploymentMapper;
+    private final ResourcePoolMapper resourcePoolMapper;
+    private final KubernetesClientManager clientManager;
+    private final InferenceAdmissionService admissionService;
+    private final InferenceResponseCache responseCache;
+    private final IdleScalerService idleScalerService;
+    private final Environment environment;
+    private final ObjectMapper objectMapper;
+    private final HttpClient httpClient;
+    private final long requestTimeoutMs;
+    private final long targetCacheMs;
+    private final long endpointCacheMs;
+    private final long ejectMs;
+    private final int maxAttempts;
+    private final String sessionHeader;
+    private final int prefixChars;
+    private final double loadFactor;
+    private final int charsPerToken;
+    private final int defaultMaxTokens;
+
+    /** 部署 ID -> 路由目标（避免每个请求查库） */
+    private final Map<String, Target> targets = new ConcurrentHashMap<>();
+
+    public InferenceGatewayService(ModelDeploymentMapper modelDeploymentMapper,
+                                   ResourcePoolMapper resourcePoolMapper,
+                                   KubernetesClientManager clientManager,
+                                   InferenceAdmissionService admissionService,
+                                   InferenceResponseCache responseCache,
+                                   IdleScalerService idleScalerService,
+                                   Environment environment,
+                                   ObjectMapper objectMapper,
+                                   @Value("${inference.connect-timeout-ms:2000}") long connectTimeoutMs,
+                                   @Value("${inference.request-timeout-ms:600000}") long requestTimeoutMs,
+                                   @Value("${inference.target-cache-ms:10000}") long targetCacheMs,
+                                   @Value("${inference.endpoint-cache-ms:1000}") long endpointCacheMs,
+                                   @Value("${inference.eject-ms:10000}") long ejectMs,
+                                   @Value("${inference.max-attempts:2}") int maxAttempts,
+                                   @Value("${inference.affinity.session-header:X-Session-Id}") String sessionHeader,
+                                   @Value("${inference.affinity.prefix-chars:2048}") int prefixChars,
+                                   @Value("${inference.affinity.load-factor:1.25}") double loadFactor,
+                                   @Value("${inference.affinity.chars-per-token:4}") int charsPerToken,
+                                   @Value("${inference.admission.default-max-tokens:256}") int defaultMaxTokens) {
+        this.modelDeploymentMapper = modelDeploymentMapper;
+        this.resourcePoolMapper = resourcePoolMapper;
+        this.clientManager = clientManager;
+        this.admissionService = admissionService;
+        this.responseCache = responseCache;
+        this.idleScalerService = idleScalerService;
+        this.environment = environment;
+        this.objectMapper = objectMapper;
+        this.requestTimeoutMs = requestTimeoutMs;
+        this.targetCacheMs = targetCacheMs;
+        this.endpointCacheMs = endpointCacheMs;
+        this.ejectMs = ejectMs;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.sessionHeader = sessionHeader;
+        this.prefixChars = Math.max(1, prefixChars);
+        this.loadFactor = Math.max(1.0, loadFactor);
+        this.charsPerToken = Math.max(1, charsPerToken);
+        this.defaultMaxTokens = Math.max(0, defaultMaxTokens);
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+        idleScalerService.onScaledToZero(this::invalidateEndpoints);
+    }
+
+    private UserPrincipal currentUser() {
+        Object p = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        if (!(p instanceof UserPrincipal)) throw new ForbiddenException("未登录");
+        return (UserPrincipal) p;
+    }
+
+    /**
+     * 转发一个推理请求。权限、部署与副本解析在调用线程完成；部署已空闲缩容时先等待唤醒，超出限流时请求在准入队列中等待
+     * （均不占用线程），返回的 future 在上游响应头到达时完成，响应体随后经 ResponseBodyEmitter 逐块写出。
+     *
+     * @param path  /v1/ 之后的路径，如 chat/completions
+     * @param query 原始查询串，可空
+     */
+    public CompletableFuture<ResponseEntity<ResponseBodyEmitter>> proxy(String deploymentId, String method, String path,
+                                                                        String query, HttpHeaders headers, byte[] body) {
+        Target target = target(deploymentId);
+        UserPrincipal user = currentUser();
+        if (!user.canAccessPool(target.poolId)) throw new ForbiddenException("无权限访问该模型服务");
+        boolean noReplicas = endpoints(target).isEmpty();
+        JsonNode json = parseJson(body);
+        Call call = new Call(target, method, path, query, headers, body);
+        if (target.responseCache) {
+            call.cacheKey = responseCache.keyOf(deploymentId, method, path, json, headers.getCacheControl());
+            InferenceResponseCache.Cached cached = call.cacheKey != null ? responseCache.get(deploymentId, call.cacheKey) : null;
+            // 命中不占用 GPU，不经准入限流
+            if (cached != null) return CompletableFuture.completedFuture(replay(cached));
+        }
+        // 没有就绪副本：空闲缩容的部署在此唤醒（并发请求共享一次唤醒），其余情况直接 503
+        CompletableFuture<Void> ready = noReplicas
+                ? idleScalerService.wake(deploymentId).thenRun(() -> target.endpointsAtMs = 0)
+                : CompletableFuture.completedFuture(null);
+        call.affinity = ROUTING_PREFIX_AFFINITY.equals(target.routingMode) ? affinityKey(headers, json) : null;
+        idleScalerService.begin(deploymentId);
+        return ready
+                .thenCompose(woken -> admissionService.admit(target.poolId, user.getId(), estimateTokens(json, body)))
+                .thenCompose(admitted -> {
+                    // 排队期间副本可能变化，放行后重新取
+                    call.endpoints = endpoints(target);
+                    if (call.endpoints.isEmpty()) throw new UpstreamUnavailableException(deploymentId, "没有就绪的副本");
+                    return attempt(call, 1);
+                })
+                .whenComplete((resp, ex) -> {
+                    // 成功时由 StreamingSubscriber 在响应体结束时计入
+                    if (ex != null) idleScalerService.end(deploymentId);
+                });
+    }
+
+    /** 部署的响应缓存统计 */
+    public InferenceCacheStats cacheStats(String deploymentId) {
+        Target target = target(deploymentId);
+        if (!currentUser().canAccessPool(target.poolId)) throw new ForbiddenException("无权限访问该模型服务");
+        return responseCache.stats(deploymentId, target.responseCache);
+    }
+
+    /** 部署的路由统计；部署尚未有请求经过网关时计数为 0 */
+    public InferenceRoutingStats routingStats(String deploymentId) {
+        Target target = target(deploymentId);
+        if (!currentUser().canAccessPool(target.poolId)) throw new ForbiddenException("无权限访问该模型服务");
+        UpstreamBalancer b = target.balancer;
+        long affinity = b.getAffinityRequests();
+        List<InferenceRoutingStats.Replica> replicas = b.upstreams().stream()
+                .map(u -> InferenceRoutingStats.Replica.builder()
+                        .address(u.getAddress())
+                        .outstanding(u.getOutstanding())
+                        .ejected(u.isEjected())
+                        .build())
+                .collect(Collectors.toList());
+        return InferenceRoutingStats.builder()
+                .deploymentId(deploymentId)
+                .routingMode(target.routingMode)
+                .requests(b.getRequests())
+                .affinityRequests(affinity)
+                .affinitySpills(b.getAffinitySpills())
+                .cacheHits(b.getCacheHits())
+                .hitRatio(affinity > 0 ? (double) b.getCacheHits() / affinity : 0.0)
+                .estimatedPrefillTokensSaved(b.getSavedPrefixChars() / charsPerToken)
+                .replicas(replicas)
+                .build();
+    }
+
+    private CompletableFuture<ResponseEntity<ResponseBodyEmitter>> attempt(Call call, int attempt) {
+        Target target = call.target;
+        AffinityKey key = call.affinity;
+        UpstreamBalancer.Upstream upstream = key != null
+                ? target.balancer.acquireByKey(call.endpoints, call.tried, key.hash, key.prefixChars, loadFactor)
+                : target.balancer.acquire(call.endpoints, call.tried);
+        if (upstream == null) {
+            return CompletableFuture.failedFuture(new UpstreamUnavailableException(target.deploymentId, "所有副本均连接失败"));
+        }
+        HttpRequest request = buildRequest(upstream.getAddress(), call.method, call.path, call.query, call.headers, call.body);
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofPublisher())
+                .thenApply(response -> toResponse(call, response, upstream))
+                .handle((resp, ex) -> {
+                    if (ex == null) return CompletableFuture.completedFuture(resp);
+                    upstream.release();
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    if (isConnectFailure(cause)) {
+                        target.balancer.eject(upstream);
+                        log.warn("推理副本 {} 连接失败（部署 {}）: {}", upstream.getAddress(), target.deploymentId, cause.toString());
+                        if (attempt < maxAttempts) {
+                            call.tried.add(upstream.getAddress());
+                            return attempt(call, attempt + 1);
+                        }
+                        return CompletableFuture.<ResponseEntity<ResponseBodyEmitter>>failedFuture(
+                                new UpstreamUnavailableException(target.deploymentId, "副本连接失败: " + cause.getMessage()));
+                    }
+                    return CompletableFuture.<ResponseEntity<ResponseBodyEmitter>>failedFuture(cause);
+                })
+                .thenCompose(f -> f);
+    }
+
+    /**
+     * 亲和键：会话头优先（多轮对话的历史前缀留在同一副本）；否则取 prompt 的前导片段（见 {@link #leadingSpan}），
+     * 共享系统提示词的请求落到同一副本。请求体无法解析或前导片段不足一个缓存块时返回 null，退回最少在途选择。
+     */
+    private AffinityKey affinityKey(HttpHeaders headers, JsonNode json) {
+        String session = headers.getFirst(sessionHeader);
+        String prefix = json != null ? leadingSpan(json) : null;
+        if (session != null && !session.isBlank()) {
+            return new AffinityKey(UpstreamBalancer.hash("session:" + session), prefix != null ? prefix.length() : 0);
+        }
+        if (prefix == null || prefix.isEmpty()) return null;
+        return new AffinityKey(UpstreamBalancer.hash(prefix), prefix.length());
+    }
+
+    /** 请求体按 JSON 解析，非 JSON 或为空时返回 null */
+    private JsonNode parseJson(byte[] body) {
+        if (body == null || body.length == 0) return null;
+        try {
+            JsonNode root = objectMapper.readTree(body);
+            return root != null && root.isObject() ? root : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /** 估算 token 数：请求体字节数 / charsPerToken + max_tokens（未指定时取 default-max-tokens），用于 TPS 限流 */
+    private long estimateTokens(JsonNode json, byte[] body) {
+        long prompt = body != null ? body.length / charsPerToken : 0;
+        long completion = defaultMaxTokens;
+        if (json != null) {
+            JsonNode max = json.hasNonNull("max_completion_tokens") ? json.get("max_completion_tokens") : json.get("max_tokens");
+            if (max != null && max.canConvertToLong()) completion = Math.max(0, max.asLong());
+        }
+        return prompt + completion;
+    }
+
+    /**
+     * 参与亲和哈希的前导片段：chat/completions 开头连续的 system / developer 消息（共享的系统提示词），
+     * 没有时取全部 messages（按顺序拼接角色与文本）或 completions 的 prompt。
+     * 截取前 prefixChars 个字符后向下对齐到整块（CACHE_BLOCK_TOKENS × charsPerToken 个字符），
+     * 只哈希这段固定的前缀，系统提示词相同而用户问题不同的请求得到同一个键；不足一个块时返回空串。
+     */
+    private String leadingSpan(JsonNode root) {
+        StringBuilder sb = new StringBuilder();
+        JsonNode messages = root.get("messages");
+        if (messages != null && messages.isArray()) {
+            for (JsonNode m : messages) {
+                String role = m.path("role").asText();
+                if (sb.length() >= prefixChars || !("system".equals(role) || "developer".equals(role))) break;
+                appendMessage(sb, m);
+            }
+            if (sb.length() == 0) {
+                for (JsonNode m : messages) {
+                    if (sb.length() >= prefixChars) break;
+                    appendMessage(sb, m);
+                }
+            }
+        } else {
+            JsonNode prompt = root.get("prompt");
+            appendText(sb, prompt != null && prompt.isArray() && prompt.size() > 0 ? prompt.get(0) : prompt);
+        }
+        int blockChars = CACHE_BLOCK_TOKENS * charsPerToken;
+        return sb.substring(0, Math.min(sb.length(), prefixChars) / blockChars * blockChars);
+    }
+
+    private void appendMessage(StringBuilder sb, JsonNode message) {
+        sb.append(message.path("role").asText()).append('\n');
+        appendText(sb, message.get("content"));
+        sb.append('\n');
+    }
+
+    /** 文本内容：字符串，或 [{type:text, text:...}] 形式的多段内容（非文本段跳过） */
+    private void appendText(StringBuilder sb, JsonNode content) {
+        if (content == null || content.isNull()) return;
+        if (content.isTextual()) {
+            String text = content.asText();
+            int room = prefixChars - sb.length();
+            if (room > 0) sb.append(text, 0, Math.min(text.length(), room));
+        } else if (content.isArray()) {
+            for (JsonNode part : content) {
+                if (sb.length() >= prefixChars) return;
+                if (part.hasNonNull("text")) appendText(sb, part.get("text"));
+            }
+        }
+    }
+
+    private HttpRequest buildRequest(String address, String method, String path, String query, HttpHeaders headers, byte[] body) {
+        URI uri = URI.create(address + "/v1/" + path + (query != null && !query.isEmpty() ? "?" + query : ""));
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofMillis(requestTimeoutMs))
+                .method(method, body != null && body.length > 0
+                        ? HttpRequest.BodyPublishers.ofByteArray(body)
+                        : HttpRequest.BodyPublishers.noBody());
+        headers.forEach((name, values) -> {
+            String lower = name.toLowerCase(Locale.ROOT);
+            if (HOP_BY_HOP.contains(lower) || STRIPPED_REQUEST_HEADERS.contains(lower)) return;
+            values.forEach(v -> builder.header(name, v));
+        });
+        return builder.build();
+    }
+
+    private ResponseEntity<ResponseBodyEmitter> toResponse(Call call, HttpResponse<Flow.Publisher<List<ByteBuffer>>> response,
+                                                           UpstreamBalancer.Upstream upstream) {
+        HttpHeaders out = new HttpHeaders();
+        response.headers().map().forEach((name, values) -> {
+            String lower = name.toLowerCase(Locale.ROOT);
+            if (HOP_BY_HOP.contains(lower) || lower.startsWith(":")) return;
+            out.addAll(name, values);
+        });
+        // 流式响应禁止中间层缓冲（如 nginx）
+        out.set("X-Accel-Buffering", "no");
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(requestTimeoutMs);
+        InferenceResponseCache.Capture capture = responseCache.capture(call.target.deploymentId, call.cacheKey,
+                response.statusCode(), response.headers().firstValue("content-type").orElse(null));
+        if (call.cacheKey != null) out.set("X-Cache", "MISS");
+        String deploymentId = call.target.deploymentId;
+        response.body().subscribe(new StreamingSubscriber(emitter, upstream, capture, () -> idleScalerService.end(deploymentId)));
+        return ResponseEntity.status(response.statusCode()).headers(out).body(emitter);
+    }
+
+    /** 回放缓存的响应：SSE 响应逐个事件写出，其余一次写出 */
+    private ResponseEntity<ResponseBodyEmitter> replay(InferenceResponseCache.Cached cached) {
+        HttpHeaders out = new HttpHeaders();
+        if (cached.getContentType() != null) out.set(HttpHeaders.CONTENT_TYPE, cached.getContentType());
+        out.set("X-Cache", "HIT");
+        out.set("X-Accel-Buffering", "no");
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(requestTimeoutMs);
+        try {
+            if (cached.isEventStream()) {
+                for (byte[] event : cached.events()) emitter.send(event);
+            } else {
+                emitter.send(cached.getBody());
+            }
+            emitter.complete();
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+        return ResponseEntity.status(cached.getStatus()).headers(out).body(emitter);
+    }
+
+    private static boolean isConnectFailure(Throwable t) {
+        return t instanceof ConnectException || t instanceof HttpConnectTimeoutException
+                || t instanceof IOException && t.getCause() instanceof ConnectException;
+    }
+
+    private Target target(String deploymentId) {
+        long now = System.currentTimeMillis();
+        Target cached = targets.get(deploymentId);
+        if (cached != null && now - cached.resolvedAtMs < targetCacheMs) return cached;
+        ModelDeployment record = modelDeploymentMapper.findById(deploymentId)
+                .orElseThrow(() -> new ResourceNotFoundException("部署记录不存在: " + deploymentId));
+        ResourcePool pool = resourcePoolMapper.findById(record.getResourcePoolId())
+                .orElseThrow(() -> new ResourceNotFoundException("资源池不存在: " + record.getResourcePoolId()));
+        // 保留已有的负载均衡状态（在途计数），只刷新路由信息
+        UpstreamBalancer balancer = cached != null ? cached.balancer : new UpstreamBalancer(ejectMs);
+        boolean cacheEnabled = Boolean.TRUE.equals(record.getResponseCache());
+        Target target = new Target(deploymentId, pool.getId(), pool.getPhysicalClusterId(), pool.getNamespace(),
+                record.getK8sDeploymentName(), record.getRoutingMode(), cacheEnabled, balancer, now);
+        if (cacheEnabled) responseCache.bindRevision(deploymentId, revisionOf(target));
+        targets.put(deploymentId, target);
+        return target;
+    }
+
+    /** Deployment 的 revision 注解（Pod 模板变化即递增），读取失败返回 null */
+    private String revisionOf(Target target) {
+        try {
+            Deployment deployment = clientManager.readDeployment(target.physicalClusterId, target.namespace,
+                    target.k8sDeploymentName).getValue();
+            Map<String, String> annotations = deployment != null ? deployment.getMetadata().getAnnotations() : null;
+            return annotations != null ? annotations.get(REVISION_ANNOTATION) : null;
+        } catch (RuntimeException e) {
+            log.debug("读取部署 {} 的 revision 失败: {}", target.deploymentId, e.getMessage());
+            return null;
+        }
+    }
+
+    /** 丢弃部署的副本地址缓存，下一个请求重新发现（空闲缩容后不再转发到正在终止的 Pod） */
+    void invalidateEndpoints(String deploymentId) {
+        Target target = targets.get(deploymentId);
+        if (target != null) target.endpointsAtMs = 0;
+    }
+
+    /** 部署的就绪副本地址（供自动扩缩容等内部控制器抓取指标，不做权限校验） */
+    public List<String> replicaEndpoints(String deploymentId) {
+        return endpoints(target(deploymentId));
+    }
+
+    /** 就绪副本地址（http://podIP:8000），静态配置优先；结果短时缓存，避免高 QPS 下反复遍历 Pod */
+    private List<String> endpoints(Target target) {
+        long now = System.currentTimeMillis();
+        List<String> cached = target.endpoints;
+        if (cached != null && now - target.endpointsAtMs < endpointCacheMs) return cached;
+        List<String> result;
+        String fixed = environment.getProperty("inference.static-endpoints." + target.deploymentId);
+        if (fixed != null && !fixed.isBlank()) {
+            result = Arrays.stream(fixed.split(",")).map(String::trim).filter(s -> !s.isEmpty())
+                    .map(s -> s.endsWith("/") ? s.substring(0, s.length() - 1) : s)
+                    .collect(Collectors.toList());
+        } else {
+            List<Pod> pods = clientManager.listPods(target.physicalClusterId, target.namespace,
+                    "deployment", target.k8sDeploymentName).getValue();
+            result = new ArrayList<>(pods.size());
+            for (Pod pod : pods) {
+                if (ClusterInformers.isReady(pod) && pod.getStatus().getPodIP() != null) result.add("http://" + pod.getStatus().getPodIP() + ":" + VLLM_PORT);
+            }
+        }
+        target.balancer.retain(result);
+        target.endpoints = result;
+        target.endpointsAtMs = now;
+        return result;
+    }
+
+    /** 路由目标：部署所在集群、namespace 与副本选择状态 */
+    private static final class Target {
+        private final String deploymentId;
+        private final String poolId;
+        private final String physicalClusterId;
+        private final String namespace;
+        private final String k8sDeploymentName;
+        private final String routingMode;
+        private final boolean responseCache;
+        private final UpstreamBalancer balancer;
+        private final long resolvedAtMs;
+        private volatile List<String> endpoints;
+        private volatile long endpointsAtMs;
+
+        Target(String deploymentId, String poolId, String physicalClusterId, String namespace,
+               String k8sDeploymentName, String routingMode, boolean responseCache, UpstreamBalancer balancer,
+               long resolvedAtMs) {
+            this.deploymentId = deploymentId;
+            this.poolId = poolId;
+            this.physicalClusterId = physicalClusterId;
+            this.namespace = namespace;
+            this.k8sDeploymentName = k8sDeploymentName;
+            this.routingMode = routingMode;
+            this.responseCache = responseCache;
+            this.balancer = balancer;
+            this.resolvedAtMs = resolvedAtMs;
+        }
+    }
+
+    /** 单次转发：请求内容、路由键与重试状态 */
+    private static final class Call {
+        private final Target target;
+        private final String method;
+        private final String path;
+        private final String query;
+        private final HttpHeaders headers;
+        private final byte[] body;
+        private final Set<String> tried = new HashSet<>();
+        private AffinityKey affinity;
+        private String cacheKey;
+        private List<String> endpoints;
+
+        Call(Target target, String method, String path, String query, HttpHeaders headers, byte[] body) {
+            this.target = target;
+            this.method = method;
+            this.path = path;
+            this.query = query;
+            this.headers = headers;
+            this.body = body;
+        }
+    }
+
+    /** 亲和键哈希及参与亲和的前缀长度 */
+    private static final class AffinityKey {
+        private final long hash;
+        private final int prefixChars;
+
+        AffinityKey(long hash, int prefixChars) {
+            this.hash = hash;
+            this.prefixChars = prefixChars;
+        }
+    }
+
+    /**
+     * 将上游响应体逐块写给客户端：每块写出后才 request 下一块，下游慢时背压到上游连接，网关不积压数据。
+     * 结束、出错或客户端断开时释放在途计数并回调 onFinish（只一次）；可缓存的响应同时累积，正常结束后写入缓存。
+     */
+    private static final class StreamingSubscriber implements Flow.Subscriber<List<ByteBuffer>> {
+        private final ResponseBodyEmitter emitter;
+        private final UpstreamBalancer.Upstream upstream;
+        private final InferenceResponseCache.Capture capture;
+        private final Runnable onFinish;
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private volatile Flow.Subscription subscription;
+
+        StreamingSubscriber(ResponseBodyEmitter emitter, UpstreamBalancer.Upstream upstream, InferenceResponseCache.Capture capture,
+                            Runnable onFinish) {
+            this.emitter = emitter;
+            this.upstream = upstream;
+            this.capture = capture;
+            this.onFinish = onFinish;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription s) {
+            this.subscription = s;
+            Runnable cancel = () -> {
+                s.cancel();
+                finish();
+            };
+            emitter.onTimeout(cancel);
+            emitter.onError(e -> cancel.run());
+            emitter.onCompletion(this::finish);
+            s.request(1);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            try {
+                for (ByteBuffer buffer : buffers) {
+                    byte[] bytes = new byte[buffer.remaining()];
+                    buffer.get(bytes);
+                    if (bytes.length == 0) continue;
+                    emitter.send(bytes);
+                    if (capture != null) capture.append(bytes);
+                }
+                subscription.request(1);
+            } catch (IOException | IllegalStateException e) {
+                // 客户端已断开：取消上游请求，vLLM 随即中止该序列的生成
+                subscription.cancel();
+                finish();
+                emitter.completeWithError(e);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            finish();
+            emitter.completeWithError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            finish();
+            if (capture != null) capture.complete();
+            emitter.complete();
+        }
+
+        private void finish() {
+            if (finished.compareAndSet(false, true)) {
+                upstream.release();
+                onFinish.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,406 @@
+package com.acmp.compute.service;
+
+import com.acmp.compute.dto.InferenceCacheStats;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 推理响应精确匹配缓存（按部署开启 responseCache）：相同部署、相同模型、规范化后相同的确定性请求直接返回已缓存的响应。
+ * <ul>
+ *   <li>可缓存：POST completions / chat/completions 且 temperature=0、n≤1，或 embeddings；请求头 Cache-Control: no-cache / no-store 时绕过</li>
+ *   <li>键：部署 ID + model + 规范化请求体（键排序、去掉 user 字段）的 SHA-256；stream 参与键，流式响应按原 SSE 事件回放</li>
+ *   <li>容量按字节限制，LRU 顺序淘汰；新条目需挤出旧条目时经 TinyLFU 准入：新条目的近期访问频率不高于被淘汰者时不写入，
+ *       避免一次性请求冲掉热点条目</li>
+ *   <li>可选堆外存储：大于 offheap-min-bytes 的响应体放在 direct ByteBuffer 中，减少大对象对堆与 GC 的压力</li>
+ *   <li>部署删除时清空；部署重新发布（Deployment revision 变化）时网关发现后清空</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+public class InferenceResponseCache {
+
+    private static final Set<String> CACHEABLE_PATHS = Set.of("completions", "chat/completions", "embeddings");
+    /** 不影响输出的请求字段，规范化时去掉 */
+    private static final Set<String> IGNORED_FIELDS = Set.of("user");
+    private static final ObjectMapper CANONICAL = JsonMapper.builder()
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true)
+            .build();
+
+    private final boolean enabled;
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final boolean offHeap;
+    private final long offHeapMinBytes;
+    private final FrequencySketch sketch;
+
+    /** 访问顺序的 LRU，受 this 保护 */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+    /** 部署 ID -> 统计 */
+    private final Map<String, Stats> stats = new ConcurrentHashMap<>();
+    /** 部署 ID -> 最近看到的 Deployment revision */
+    private final Map<String, String> revisions = new ConcurrentHashMap<>();
+
+    public InferenceResponseCache(@Value("${inference.response-cache.enabled:true}") boolean enabled,
+                                  @Value("${inference.response-cache.max-bytes:268435456}") long maxBytes,
+                                  @Value("${inference.response-cache.max-entry-bytes:4194304}") long maxEntryBytes,
+                                  @Value("${inference.response-cache.offheap:false}") boolean offHeap,
+                                  @Value("${inference.response-cache.offheap-min-bytes:65536}") long offHeapMinBytes) {
+        this.enabled = enabled;
+        this.maxBytes = Math.max(0, maxBytes);
+        this.maxEntryBytes = Math.min(Math.max(0, maxEntryBytes), this.maxBytes);
+        this.offHeap = offHeap;
+        this.offHeapMinBytes = offHeapMinBytes;
+        // 按平均 16KB 一条估算条目数，计数器宽度取其 4 倍
+        this.sketch = new FrequencySketch((int) Math.min(1 << 22, Math.max(1024, this.maxBytes / 16384 * 4)));
+    }
+
+    /**
+     * 可缓存请求的键；不可缓存（全局关闭、非确定性请求、客户端要求绕过）时返回 null。
+     */
+    public String keyOf(String deploymentId, String method, String path, JsonNode json, String cacheControl) {
+        if (!enabled || maxEntryBytes == 0 || !"POST".equals(method) || json == null || !CACHEABLE_PATHS.contains(path)) return null;
+        if (cacheControl != null && (cacheControl.contains("no-cache") || cacheControl.contains("no-store"))) return null;
+        if (!"embeddings".equals(path)) {
+            JsonNode temperature = json.get("temperature");
+            if (temperature == null || !temperature.isNumber() || temperature.asDouble() != 0.0) return null;
+            JsonNode n = json.get("n");
+            if (n != null && n.asInt(1) > 1) return null;
+        }
+        ObjectNode normalized = ((ObjectNode) json).deepCopy();
+        normalized.remove(IGNORED_FIELDS);
+        try {
+            Object tree = CANONICAL.treeToValue(normalized, Object.class);
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            byte[] digest = md.digest(CANONICAL.writeValueAsBytes(tree));
+            StringBuilder sb = new StringBuilder(deploymentId).append('|').append(json.path("model").asText()).append('|').append(path).append('|');
+            for (byte b : digest) sb.append(String.format("%02x", b));
+            return sb.toString();
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
+    /** 查找缓存；命中与未命中均计入统计与 TinyLFU 频率 */
+    public Cached get(String deploymentId, String key) {
+        sketch.increment(key.hashCode());
+        Entry e;
+        synchronized (this) {
+            e = entries.get(key);
+        }
+        Stats s = statsOf(deploymentId);
+        if (e == null) {
+            s.misses.increment();
+            return null;
+        }
+        s.hits.increment();
+        s.bytesServed.add(e.size);
+        return new Cached(e.status, e.contentType, e.bytes());
+    }
+
+    /**
+     * 开始捕获一个上游响应，仅 200 响应可缓存。
+     *
+     * @return 不可缓存时返回 null
+     */
+    public Capture capture(String deploymentId, String key, int status, String contentType) {
+        if (key == null || status != 200) return null;
+        return new Capture(deploymentId, key, status, contentType);
+    }
+
+    /**
+     * Deployment revision 变化（重新发布）时清空该部署的缓存；首次看到 revision 时只记录。
+     */
+    public void bindRevision(String deploymentId, String revision) {
+        if (revision == null) return;
+        String previous = revisions.put(deploymentId, revision);
+        if (previous != null && !previous.equals(revision)) {
+            int removed = invalidate(deploymentId);
+            log.info("部署 {} 重新发布（revision {} -> {}），清空响应缓存 {} 条", deploymentId, previous, revision, removed);
+        }
+    }
+
+    /** 清空部署的全部缓存条目，返回清除条数 */
+    public int invalidate(String deploymentId) {
+        int removed = 0;
+        synchronized (this) {
+            Iterator<Entry> it = entries.values().iterator();
+            while (it.hasNext()) {
+                Entry e = it.next();
+                if (e.deploymentId.equals(deploymentId)) {
+                    it.remove();
+                    onRemoved(e);
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    /** 部署删除：清空缓存并丢弃统计 */
+    public void forget(String deploymentId) {
+        invalidate(deploymentId);
+        stats.remove(deploymentId);
+        revisions.remove(deploymentId);
+    }
+
+    public InferenceCacheStats stats(String deploymentId, boolean deploymentEnabled) {
+        Stats s = statsOf(deploymentId);
+        long hits = s.hits.sum(), misses = s.misses.sum();
+        return InferenceCacheStats.builder()
+                .deploymentId(deploymentId)
+                .enabled(enabled && deploymentEnabled)
+                .hits(hits)
+                .misses(misses)
+                .hitRatio(hits + misses > 0 ? (double) hits / (hits + misses) : 0.0)
+                .bytesServed(s.bytesServed.sum())
+                .entries(s.entries.get())
+                .bytes(s.bytes.get())
+                .offHeapBytes(s.offHeapBytes.get())
+                .admissionRejected(s.rejected.sum())
+                .evictions(s.evictions.sum())
+                .build();
+    }
+
+    private Stats statsOf(String deploymentId) {
+        return stats.computeIfAbsent(deploymentId, k -> new Stats());
+    }
+
+    private void put(String deploymentId, String key, int status, String contentType, byte[] body) {
+        Entry candidate = new Entry(deploymentId, status, contentType, body, offHeap && body.length >= offHeapMinBytes);
+        Stats s = statsOf(deploymentId);
+        List<Entry> evicted = new ArrayList<>();
+        synchronized (this) {
+            Entry existing = entries.remove(key);
+            if (existing != null) onRemoved(existing);
+            int candidateFreq = sketch.frequency(key.hashCode());
+            long needed = totalBytes + candidate.size - maxBytes;
+            // TinyLFU 准入：先确认挤出的每个 LRU 尾部条目频率都不高于新条目，再真正淘汰
+            List<Map.Entry<String, Entry>> victims = new ArrayList<>();
+            Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+            while (needed > 0 && it.hasNext()) {
+                Map.Entry<String, Entry> victim = it.next();
+                if (sketch.frequency(victim.getKey().hashCode()) > candidateFreq) {
+                    s.rejected.increment();
+                    return;
+                }
+                victims.add(victim);
+                needed -= victim.getValue().size;
+            }
+            for (Map.Entry<String, Entry> victim : victims) {
+                entries.remove(victim.getKey());
+                onRemoved(victim.getValue());
+                evicted.add(victim.getValue());
+            }
+            entries.put(key, candidate);
+            totalBytes += candidate.size;
+            s.entries.incrementAndGet();
+            s.bytes.addAndGet(candidate.size);
+            if (candidate.offHeap != null) s.offHeapBytes.addAndGet(candidate.size);
+        }
+        evicted.forEach(e -> statsOf(e.deploymentId).evictions.increment());
+    }
+
+    /** 调用方持有 this */
+    private void onRemoved(Entry e) {
+        totalBytes -= e.size;
+        Stats s = stats.get(e.deploymentId);
+        if (s == null) return;
+        s.entries.decrementAndGet();
+        s.bytes.addAndGet(-e.size);
+        if (e.offHeap != null) s.offHeapBytes.addAndGet(-e.size);
+    }
+
+    /** 缓存命中的响应 */
+    public static final class Cached {
+        private final int status;
+        private final String contentType;
+        private final byte[] body;
+
+        Cached(int status, String contentType, byte[] body) {
+            this.status = status;
+            this.contentType = contentType;
+            this.body = body;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public boolean isEventStream() {
+            return contentType != null && contentType.startsWith("text/event-stream");
+        }
+
+        /** SSE 响应按事件（空行分隔）拆分，回放时逐个事件写出 */
+        public List<byte[]> events() {
+            List<byte[]> events = new ArrayList<>();
+            String text = new String(body, StandardCharsets.UTF_8);
+            int from = 0;
+            while (from < text.length()) {
+                int end = text.indexOf("\n\n", from);
+                end = end < 0 ? text.length() : end + 2;
+                events.add(text.substring(from, end).getBytes(StandardCharsets.UTF_8));
+                from = end;
+            }
+            return events;
+        }
+    }
+
+    /** 正在透传的上游响应：累积响应体，正常结束时写入缓存，超过单条上限则放弃 */
+    public final class Capture {
+        private final String deploymentId;
+        private final String key;
+        private final int status;
+        private final String contentType;
+        /** 开始时的 revision：响应期间部署被重新发布或删除则不写入 */
+        private final String revision;
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+        Capture(String deploymentId, String key, int status, String contentType) {
+            this.deploymentId = deploymentId;
+            this.key = key;
+            this.status = status;
+            this.contentType = contentType;
+            this.revision = revisions.get(deploymentId);
+        }
+
+        public void append(byte[] bytes) {
+            if (buffer == null) return;
+            if (buffer.size() + bytes.length > maxEntryBytes) {
+                buffer = null;
+                return;
+            }
+            buffer.write(bytes, 0, bytes.length);
+        }
+
+        /** 上游响应完整结束时调用；中途取消或出错时不调用 */
+        public void complete() {
+            if (buffer == null || buffer.size() == 0) return;
+            if (Objects.equals(revision, revisions.get(deploymentId))) put(deploymentId, key, status, contentType, buffer.toByteArray());
+            buffer = null;
+        }
+    }
+
+    private static final class Entry {
+        private final String deploymentId;
+        private final int status;
+        private final String contentType;
+        private final long size;
+        private final byte[] heap;
+        private final ByteBuffer offHeap;
+
+        Entry(String deploymentId, int status, String contentType, byte[] body, boolean direct) {
+            this.deploymentId = deploymentId;
+            this.status = status;
+            this.contentType = contentType;
+            this.size = body.length;
+            if (direct) {
+                ByteBuffer buf = ByteBuffer.allocateDirect(body.length);
+                buf.put(body).flip();
+                this.offHeap = buf.asReadOnlyBuffer();
+                this.heap = null;
+            } else {
+                this.offHeap = null;
+                this.heap = body;
+            }
+        }
+
+        byte[] bytes() {
+            if (heap != null) return heap;
+            byte[] out = new byte[(int) size];
+            offHeap.duplicate().get(out);
+            return out;
+        }
+    }
+
+    private static final class Stats {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder bytesServed = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+        private final AtomicLong entries = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong offHeapBytes = new AtomicLong();
+    }
+
+    /**
+     * TinyLFU 频率估计：4 行 count-min sketch，计数上限 15；累计增加次数达到宽度 10 倍时全部减半，使频率反映近期访问。
+     */
+    static final class FrequencySketch {
+        private static final int[] SEEDS = {0x9e3779b9, 0x85ebca6b, 0xc2b2ae35, 0x27d4eb2f};
+        private final byte[][] rows;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int width) {
+            int w = Integer.highestOneBit(Math.max(16, width - 1) << 1);
+            this.rows = new byte[SEEDS.length][w];
+            this.mask = w - 1;
+            this.sampleSize = w * 10;
+        }
+
+        synchronized void increment(int hash) {
+            boolean added = false;
+            for (int i = 0; i < rows.length; i++) {
+                int idx = index(hash, i);
+                if (rows[i][idx] < 15) {
+                    rows[i][idx]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) reset();
+        }
+
+        synchronized int frequency(int hash) {
+            int min = Integer.MAX_VALUE;
+            for (int i = 0; i < rows.length; i++) min = Math.min(min, rows[i][index(hash, i)]);
+            return min;
+        }
+
+        private void reset() {
+            for (byte[] row : rows) {
+                for (int j = 0; j < row.length; j++) row[j] = (byte) (row[j] >> 1);
+            }
+            additions /= 2;
+        }
+
+        private int index(int hash, int row) {
+            int h = hash * SEEDS[row];
+            h ^= h >>> 16;
+            return h & mask;
+        }
+    }
+}
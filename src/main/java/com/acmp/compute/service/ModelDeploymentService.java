@@ -3,22 +3,37 @@ package com.acmp.compute.service;
 import com.acmp.compute.dto.ModelDeploymentResponse;
 import com.acmp.compute.dto.VllmDeployRequest;
 import com.acmp.compute.entity.ModelDeployment;
+import com.acmp.compute.entity.Operation;
 import com.acmp.compute.entity.ResourcePool;
 import com.acmp.compute.exception.ForbiddenException;
+import com.acmp.compute.exception.QuotaExceededException;
 import com.acmp.compute.exception.ResourceNotFoundException;
+import com.acmp.compute.k8s.ApplyStats;
+import com.acmp.compute.k8s.CachedRead;
+import com.acmp.compute.k8s.ClusterInformers;
 import com.acmp.compute.k8s.K8sResourceBuilder;
 import com.acmp.compute.k8s.KubernetesClientManager;
 import com.acmp.compute.mapper.ModelDeploymentMapper;
 import com.acmp.compute.mapper.ResourcePoolMapper;
 import com.acmp.compute.security.UserPrincipal;
+import io.fabric8.kubernetes.api.model.GenericKubernetesResource;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.apps.Deployment;
+import io.fabric8.kubernetes.api.model.apps.DeploymentStatus;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PostConstruct;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -35,6 +50,42 @@ public class ModelDeploymentService {
     private final ModelDeploymentMapper modelDeploymentMapper;
     private final ResourcePoolMapper resourcePoolMapper;
     private final KubernetesClientManager clientManager;
+    private final OperationService operationService;
+    private final QuotaLedger quotaLedger;
+    private final InferenceResponseCache inferenceResponseCache;
+    private final IdleScalerService idleScalerService;
+    private final WarmPoolService warmPoolService;
+    private final PrestageService prestageService;
+
+    /** 本实例正在执行的部署（资源池 ID/Service 名），防止并发的同名部署同时通过重名检查 */
+    private final Set<String> deployingNames = ConcurrentHashMap.newKeySet();
+
+    /** 多节点服务 VolcanoJob 整组重启的次数上限，用尽后部署转为 failed */
+    @Value("${model-deployment.multi-node-max-retry:3}")
+    private int multiNodeMaxRetry;
+
+    @PostConstruct
+    void registerRecovery() {
+        operationService.onInterrupted(OperationService.TYPE_DEPLOY_MODEL, this::recoverInterruptedDeploy);
+    }
+
+    /**
+     * 重启后恢复中断的部署：记录仍为 pending 时执行与 saga 相同的补偿（删除可能已部分创建的对象），
+     * 再标记 failed 并释放占用；记录已离开 pending（apply 已完成或已被调谐接管）时交由调谐收敛。
+     * 删除失败时记录保持 pending，超过宽限期后同样由调谐按集群实际状态收敛。
+     */
+    private void recoverInterruptedDeploy(Operation op) {
+        if (!"model_deployment".equals(op.getResourceType())) return;
+        ModelDeployment record = modelDeploymentMapper.findById(op.getResourceId()).orElse(null);
+        if (record == null || !"pending".equals(record.getStatus())) return;
+        ResourcePool pool = resourcePoolMapper.findById(record.getResourcePoolId()).orElse(null);
+        if (pool == null) return;
+        deleteClusterObjects(pool, record);
+        if (modelDeploymentMapper.updateStatusIf(record.getId(), "pending", "failed") > 0) {
+            quotaLedger.release(pool.getId(), QuotaLedger.KEY_DEPLOYMENT + record.getId());
+            log.info("已撤销中断的部署 {} (资源池 {})", record.getId(), pool.getId());
+        }
+    }
 
     private UserPrincipal currentUser() {
         Object p = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
@@ -51,24 +102,82 @@ public class ModelDeploymentService {
      * 在逻辑资源池上部署 vLLM 模型服务。
      * 
      * 流程：
-     * 1) 校验用户有权限访问该资源池
-     * 2) 写部署记录到数据库（status=pending）
-     * 3) 使用 fabric8 Builder API 构建 Deployment + Service（含 nodeSelector）
-     * 4) 在 K8s 中创建资源
-     * 5) 更新记录状态为 running，写入 serviceUrl
+     * 1) 校验用户有权限访问该资源池，且资源池内没有占用同一 Deployment / Service 名的未失败部署
+     * 2) 有模板一致的就绪待命副本时接管（见 WarmPoolService），沿用其 Deployment 名
+     * 3) 在配额账本中预留 GPU 占用，剩余配额不足时先回收待命副本，仍不足则拒绝（QuotaExceededException）
+     * 4) 写部署记录到数据库（status=pending）
+     * 5) 使用 fabric8 Builder API 构建 Deployment + Service（含 nodeSelector）
+     * 6) 在 K8s 中创建资源（失败时按 saga 日志补偿删除已创建的资源并释放预留）；接管时 Pod 模板不变，不触发滚动更新
+     * 7) 更新记录状态为 running，写入 serviceUrl，确认预留
+     * 
+     * 不在数据库事务中执行远程调用：每次写库单独提交，避免 K8s 调用期间长时间占用连接。
+     * 
+     * nodes 大于 1 时为多节点服务：以 VolcanoJob（leader + worker）经资源池 Volcano Queue 成组调度，
+     * leader 的 headless Service 供 worker 加入，对外 Service 与推理网关只选中 leader；不接管温备池待命副本。
      */
-    @Transactional(rollbackFor = Exception.class)
     public ModelDeploymentResponse deploy(String poolId, VllmDeployRequest request) {
         ensureCanAccessPool(poolId);
+        validateAutoscaling(request.getMinReplicas(), request.getMaxReplicas(), request.getReplicas());
+        validateMultiNode(request);
+        VllmEngineOptions.resolve(request);
+        return doDeploy(poolId, request, currentUser().getId(), SagaLog.detached());
+    }
+
+    /**
+     * 异步部署：校验权限后登记操作并立即返回，部署在操作线程池中执行。
+     */
+    public Operation deployAsync(String poolId, VllmDeployRequest request, String idempotencyKey) {
+        ensureCanAccessPool(poolId);
+        validateAutoscaling(request.getMinReplicas(), request.getMaxReplicas(), request.getReplicas());
+        validateMultiNode(request);
+        VllmEngineOptions.resolve(request);
+        ensureNameAvailable(poolId, request);
+        String userId = currentUser().getId();
+        // 登记操作前先按账本快速检查，真正的预留在执行时进行
+        quotaLedger.check(poolId, usageOf(request));
+        return operationService.submit(OperationService.TYPE_DEPLOY_MODEL, idempotencyKey,
+                Map.of("poolId", poolId, "request", request),
+                saga -> doDeploy(poolId, request, userId, saga));
+    }
+
+    private ModelDeploymentResponse doDeploy(String poolId, VllmDeployRequest request, String userId, SagaLog saga) {
+        String nameKey = poolId + "/" + serviceNameOf(request);
+        if (!deployingNames.add(nameKey)) {
+            throw new IllegalArgumentException("同名模型部署正在进行中: " + request.getName());
+        }
+        try {
+            ensureNameAvailable(poolId, request);
+            return doDeployNamed(poolId, request, userId, saga);
+        } finally {
+            deployingNames.remove(nameKey);
+        }
+    }
+
+    /**
+     * 同名检查：Deployment / Service 名只由部署名称推导，与资源池内未失败的部署重名时 apply 会覆盖其集群对象，
+     * 本次部署失败时 saga 补偿还会删除它们，账本也会把同一批 Pod 计两次，因此直接拒绝。
+     */
+    private void ensureNameAvailable(String poolId, VllmDeployRequest request) {
+        String deploymentName = deploymentNameOf(request);
+        String serviceName = serviceNameOf(request);
+        for (ModelDeployment d : modelDeploymentMapper.findByResourcePoolId(poolId)) {
+            if ("failed".equals(d.getStatus())) continue;
+            if (deploymentName.equals(d.getK8sDeploymentName()) || serviceName.equals(d.getK8sServiceName())) {
+                throw new IllegalArgumentException("资源池内已存在同名模型部署（" + d.getName() + "），请更换 name");
+            }
+        }
+    }
+
+    private ModelDeploymentResponse doDeployNamed(String poolId, VllmDeployRequest request, String userId, SagaLog saga) {
         ResourcePool pool = resourcePoolMapper.findById(poolId)
                 .orElseThrow(() -> new ResourceNotFoundException("资源池不存在: " + poolId));
         
-        String deploymentName = "vllm-" + request.getName().toLowerCase().replaceAll("[^a-z0-9-]", "-");
-        String serviceName = deploymentName + "-svc";
-        if (deploymentName.length() > 50) deploymentName = deploymentName.substring(0, 50);
-        if (serviceName.length() > 50) serviceName = serviceName.substring(0, 50);
-
         String id = UUID.randomUUID().toString();
+        boolean multiNode = VllmEngineOptions.nodesOf(request) > 1;
+        WarmPoolService.Claim claim = multiNode ? null : warmPoolService.claim(pool, request, id);
+        String deploymentName = claim != null ? claim.getName() : deploymentNameOf(request);
+        String serviceName = serviceNameOf(request);
+
         ModelDeployment record = ModelDeployment.builder()
                 .id(id)
                 .resourcePoolId(poolId)
@@ -81,40 +190,80 @@ public class ModelDeploymentService {
                 .gpumemMb(request.getGpumemMb())
                 .gpucores(request.getGpucores())
                 .replicas(request.getReplicas())
+                .nodes(multiNode ? request.getNodes() : null)
                 .k8sDeploymentName(deploymentName)
                 .k8sServiceName(serviceName)
                 .status("pending")
-                .createdBy(currentUser().getId())
+                .routingMode(request.getRoutingMode() != null ? request.getRoutingMode() : "least_outstanding")
+                .responseCache(Boolean.TRUE.equals(request.getResponseCache()))
+                .minReplicas(request.getMaxReplicas() != null && request.getMinReplicas() == null ? 1 : request.getMinReplicas())
+                .maxReplicas(request.getMaxReplicas())
+                .idleMinutes(request.getIdleMinutes())
+                .enginePreset(request.getEnginePreset())
+                .tensorParallelSize(request.getTensorParallelSize())
+                .maxNumSeqs(request.getMaxNumSeqs())
+                .maxModelLen(request.getMaxModelLen())
+                .gpuMemoryUtilization(request.getGpuMemoryUtilization())
+                .enablePrefixCaching(request.getEnablePrefixCaching())
+                .enableChunkedPrefill(request.getEnableChunkedPrefill())
+                .quantization(request.getQuantization())
+                .dtype(request.getDtype())
+                .createdBy(userId)
                 .build();
-        modelDeploymentMapper.insert(record);
+        QuotaLedger.Reservation reservation;
+        try {
+            reservation = reserve(pool, id, request);
+        } catch (RuntimeException e) {
+            if (claim != null) warmPoolService.unclaim(pool, claim);
+            throw e;
+        }
+        try {
+            modelDeploymentMapper.insert(record);
+        } catch (RuntimeException e) {
+            reservation.releaseIfUncommitted();
+            if (claim != null) warmPoolService.unclaim(pool, claim);
+            throw e;
+        }
+        saga.bindResource("model_deployment", id);
 
         try {
-            // 使用 Builder API 构建 Deployment 和 Service YAML
-            String yaml = K8sResourceBuilder.buildVllmDeploymentAndService(
-                    deploymentName,
-                    serviceName,
-                    pool.getNamespace(),
-                    request.getVllmImage(),
-                    request.getModelIdOrPath() != null ? request.getModelIdOrPath() : "/models",
-                    request.getGpuPerReplica(),
-                    request.getGpumemMb(),
-                    request.getGpucores(),
-                    request.getReplicas(),
-                    request.getHostModelPath()
-            );
-            
-            // 在 K8s 中应用资源
-            clientManager.createVllmDeploymentAndService(pool.getPhysicalClusterId(), pool.getNamespace(), yaml);
+            io.fabric8.kubernetes.api.model.Service service = K8sResourceBuilder.buildVllmService(
+                    serviceName, pool.getNamespace(), deploymentName);
+            ApplyStats applyStats;
+            if (multiNode) {
+                GenericKubernetesResource job = buildMultiNodeJob(deploymentName, pool, request);
+                io.fabric8.kubernetes.api.model.Service headless = K8sResourceBuilder.buildVllmHeadlessService(
+                        headlessNameOf(deploymentName), pool.getNamespace(), deploymentName);
+                applyStats = saga.step("k8s-apply",
+                        () -> clientManager.createVllmMultiNodeService(pool.getPhysicalClusterId(), job, headless, service),
+                        () -> deleteMultiNode(pool, deploymentName, serviceName));
+            } else {
+                // 使用 Builder API 构建 Deployment 和 Service，直接以对象 server-side apply
+                Deployment deployment = buildDeployment(deploymentName, pool, request);
+                deployment.getSpec().getTemplate().getSpec().setAffinity(claim != null ? claim.getAffinity()
+                        : prestageService.preferredAffinity(pool.getPhysicalClusterId(), request.getVllmImage(), request.getHostModelPath()));
+
+                // 在 K8s 中应用资源；补偿动作删除可能已部分创建的 Deployment/Service
+                applyStats = saga.step("k8s-apply",
+                        () -> clientManager.createVllmDeploymentAndService(pool.getPhysicalClusterId(), deployment, service),
+                        () -> {
+                            clientManager.deleteDeployment(pool.getPhysicalClusterId(), pool.getNamespace(), deploymentName);
+                            clientManager.deleteService(pool.getPhysicalClusterId(), pool.getNamespace(), serviceName);
+                        });
+            }
             
             String serviceUrl = "http://" + serviceName + "." + pool.getNamespace() + ".svc.cluster.local:8000";
             record.setStatus("running");
             record.setServiceUrl(serviceUrl);
             modelDeploymentMapper.update(record);
+            reservation.commit();
             
-            log.info("✓ vLLM 模型 {} 已成功部署到资源池 {} (serviceUrl: {})", 
-                    request.getName(), poolId, serviceUrl);
+            log.info("✓ vLLM 模型 {} 已成功部署到资源池 {} (serviceUrl: {}, apply: {}{})", 
+                    request.getName(), poolId, serviceUrl, applyStats, claim != null ? ", 接管待命副本 " + deploymentName : "");
         } catch (Exception e) {
             log.error("✗ vLLM 部署失败: {}", e.getMessage(), e);
+            saga.compensate();
+            reservation.releaseIfUncommitted();
             record.setStatus("failed");
             modelDeploymentMapper.update(record);
             throw new RuntimeException("vLLM 部署失败: " + e.getMessage());
@@ -122,11 +271,150 @@ public class ModelDeploymentService {
         return toResponse(record, null);
     }
 
+    /**
+     * 仅渲染部署清单（Deployment + Service 的 YAML），不写库也不提交到集群，用于调试与导出。
+     */
+    public String renderManifest(String poolId, VllmDeployRequest request) {
+        ensureCanAccessPool(poolId);
+        ResourcePool pool = resourcePoolMapper.findById(poolId)
+                .orElseThrow(() -> new ResourceNotFoundException("资源池不存在: " + poolId));
+        validateMultiNode(request);
+        VllmEngineOptions.resolve(request);
+        String deploymentName = deploymentNameOf(request);
+        if (VllmEngineOptions.nodesOf(request) > 1) {
+            return K8sResourceBuilder.toYaml(
+                    buildMultiNodeJob(deploymentName, pool, request),
+                    K8sResourceBuilder.buildVllmHeadlessService(headlessNameOf(deploymentName), pool.getNamespace(), deploymentName),
+                    K8sResourceBuilder.buildVllmService(serviceNameOf(request), pool.getNamespace(), deploymentName));
+        }
+        Deployment deployment = buildDeployment(deploymentName, pool, request);
+        deployment.getSpec().getTemplate().getSpec().setAffinity(
+                prestageService.preferredAffinity(pool.getPhysicalClusterId(), request.getVllmImage(), request.getHostModelPath()));
+        return K8sResourceBuilder.toYaml(
+                deployment,
+                K8sResourceBuilder.buildVllmService(serviceNameOf(request), pool.getNamespace(), deploymentName));
+    }
+
+    /** 预留部署的配额占用；余量不足时回收温备池的待命副本后重试一次 */
+    private QuotaLedger.Reservation reserve(ResourcePool pool, String id, VllmDeployRequest request) {
+        try {
+            return quotaLedger.reserve(pool, QuotaLedger.KEY_DEPLOYMENT + id, usageOf(request));
+        } catch (QuotaExceededException e) {
+            if (!warmPoolService.evictFor(pool, usageOf(request))) throw e;
+            return quotaLedger.reserve(pool, QuotaLedger.KEY_DEPLOYMENT + id, usageOf(request));
+        }
+    }
+
+    private static QuotaLedger.Usage usageOf(VllmDeployRequest request) {
+        return QuotaLedger.Usage.vllmReplica(request.getGpuPerReplica(),
+                request.getGpumemMb() != null ? request.getGpumemMb() : 0,
+                request.getGpucores() != null ? request.getGpucores() : 0)
+                .times(request.getReplicas() * VllmEngineOptions.nodesOf(request));
+    }
+
+    private static String deploymentNameOf(VllmDeployRequest request) {
+        String name = "vllm-" + request.getName().toLowerCase().replaceAll("[^a-z0-9-]", "-");
+        return name.length() > 50 ? name.substring(0, 50) : name;
+    }
+
+    private static String headlessNameOf(String deploymentName) {
+        return deploymentName + "-hs";
+    }
+
+    private static String serviceNameOf(VllmDeployRequest request) {
+        String name = "vllm-" + request.getName().toLowerCase().replaceAll("[^a-z0-9-]", "-") + "-svc";
+        return name.length() > 50 ? name.substring(0, 50) : name;
+    }
+
+    /** 部署流程与温备池共用，保证待命副本与部署请求的 Pod 模板可按内容比较 */
+    static Deployment buildDeployment(String deploymentName, ResourcePool pool, VllmDeployRequest request) {
+        return K8sResourceBuilder.buildVllmDeployment(
+                deploymentName,
+                pool.getNamespace(),
+                request.getVllmImage(),
+                request.getModelIdOrPath() != null ? request.getModelIdOrPath() : "/models",
+                request.getGpuPerReplica(),
+                request.getGpumemMb(),
+                request.getGpucores(),
+                request.getReplicas(),
+                request.getHostModelPath(),
+                VllmEngineOptions.args(request),
+                PodRuntimePolicy.shmSizeGiB(pool, request.getShmSizeGiB(), request.getGpuPerReplica()),
+                PodRuntimePolicy.hostIpc(pool, request.getHostIpc()),
+                PodRuntimePolicy.hostNetwork(pool, request.getHostNetwork()));
+    }
+
+    /** 多节点服务的 VolcanoJob：每个节点一个 Pod，节点内 GPU 规格与 /dev/shm 等运行时策略同单节点部署 */
+    private GenericKubernetesResource buildMultiNodeJob(String name, ResourcePool pool, VllmDeployRequest request) {
+        return K8sResourceBuilder.buildVllmMultiNodeJob(
+                name,
+                pool.getNamespace(),
+                pool.getVolcanoQueueName(),
+                headlessNameOf(name),
+                request.getVllmImage(),
+                request.getGpuPerReplica(),
+                request.getGpumemMb(),
+                request.getGpucores(),
+                request.getNodes(),
+                request.getHostModelPath(),
+                VllmEngineOptions.args(request),
+                PodRuntimePolicy.shmSizeGiB(pool, request.getShmSizeGiB(), request.getGpuPerReplica()),
+                PodRuntimePolicy.hostIpc(pool, request.getHostIpc()),
+                PodRuntimePolicy.hostNetwork(pool, request.getHostNetwork()),
+                Math.max(0, multiNodeMaxRetry));
+    }
+
+    private void deleteClusterObjects(ResourcePool pool, ModelDeployment record) {
+        if (isMultiNode(record.getNodes())) {
+            deleteMultiNode(pool, record.getK8sDeploymentName(), record.getK8sServiceName());
+        } else {
+            clientManager.deleteDeployment(pool.getPhysicalClusterId(), pool.getNamespace(), record.getK8sDeploymentName());
+            clientManager.deleteService(pool.getPhysicalClusterId(), pool.getNamespace(), record.getK8sServiceName());
+        }
+    }
+
+    private void deleteMultiNode(ResourcePool pool, String jobName, String serviceName) {
+        clientManager.deleteVolcanoJob(pool.getPhysicalClusterId(), pool.getNamespace(), jobName);
+        clientManager.deleteService(pool.getPhysicalClusterId(), pool.getNamespace(), headlessNameOf(jobName));
+        clientManager.deleteService(pool.getPhysicalClusterId(), pool.getNamespace(), serviceName);
+    }
+
+    /**
+     * 列出资源池内的部署并附带实时状态：一次库查询取全部记录，Deployment 与 Pod 各一次
+     * 按 label 选择的读取（Informer 已同步时直接读本地缓存），不再逐个部署 GET。
+     * 集群不可达时仍返回库中记录，实时状态字段为空。
+     */
     public List<ModelDeploymentResponse> listByPool(String poolId) {
         ensureCanAccessPool(poolId);
-        return modelDeploymentMapper.findByResourcePoolId(poolId).stream()
+        ResourcePool pool = resourcePoolMapper.findById(poolId)
+                .orElseThrow(() -> new ResourceNotFoundException("资源池不存在: " + poolId));
+        List<ModelDeploymentResponse> result = modelDeploymentMapper.findByResourcePoolId(poolId).stream()
                 .map(m -> toResponse(m, null))
                 .collect(Collectors.toList());
+        if (result.isEmpty()) return result;
+        try {
+            CachedRead<List<Deployment>> deployments = clientManager.listDeployments(
+                    pool.getPhysicalClusterId(), pool.getNamespace(), "app", "vllm");
+            CachedRead<List<Pod>> pods = clientManager.listPods(
+                    pool.getPhysicalClusterId(), pool.getNamespace(), "app", "vllm");
+            Map<String, Deployment> byName = new HashMap<>();
+            deployments.getValue().forEach(d -> byName.put(d.getMetadata().getName(), d));
+            Map<String, List<Pod>> podsByDeployment = pods.getValue().stream()
+                    .filter(p -> p.getMetadata().getLabels() != null && p.getMetadata().getLabels().get("deployment") != null)
+                    .collect(Collectors.groupingBy(p -> p.getMetadata().getLabels().get("deployment")));
+            for (ModelDeploymentResponse resp : result) {
+                if (isMultiNode(resp.getNodes())) {
+                    fillGroupStatus(resp, clientManager.listPods(pool.getPhysicalClusterId(), pool.getNamespace(),
+                            K8sResourceBuilder.LABEL_SERVING_GROUP, resp.getK8sDeploymentName()));
+                    continue;
+                }
+                fillLiveStatus(resp, byName.get(resp.getK8sDeploymentName()),
+                        podsByDeployment.getOrDefault(resp.getK8sDeploymentName(), List.of()), deployments);
+            }
+        } catch (Exception e) {
+            log.warn("读取资源池 {} 的部署实时状态失败: {}", poolId, e.getMessage());
+        }
+        return result;
     }
 
     public ModelDeploymentResponse getStatus(String poolId, String deploymentId) {
@@ -134,15 +422,114 @@ public class ModelDeploymentService {
         ModelDeployment record = modelDeploymentMapper.findById(deploymentId)
                 .orElseThrow(() -> new ResourceNotFoundException("部署记录不存在: " + deploymentId));
         if (!record.getResourcePoolId().equals(poolId)) throw new ForbiddenException("部署不属于该资源池");
-        Integer readyReplicas = null;
+        ModelDeploymentResponse resp = toResponse(record, null);
         try {
             ResourcePool pool = resourcePoolMapper.findById(poolId).orElseThrow();
-            readyReplicas = clientManager.getDeploymentReadyReplicas(pool.getPhysicalClusterId(), pool.getNamespace(), record.getK8sDeploymentName()).orElse(0);
+            if (isMultiNode(record.getNodes())) {
+                fillGroupStatus(resp, clientManager.listPods(pool.getPhysicalClusterId(), pool.getNamespace(),
+                        K8sResourceBuilder.LABEL_SERVING_GROUP, record.getK8sDeploymentName()));
+                return resp;
+            }
+            // 优先读取 Informer 本地缓存，未同步时回退实时 GET
+            CachedRead<Deployment> read = clientManager.readDeployment(pool.getPhysicalClusterId(), pool.getNamespace(), record.getK8sDeploymentName());
+            List<Pod> pods = clientManager.listPods(pool.getPhysicalClusterId(), pool.getNamespace(),
+                    "deployment", record.getK8sDeploymentName()).getValue();
+            fillLiveStatus(resp, read.getValue(), pods, read);
         } catch (Exception ignored) {}
-        return toResponse(record, readyReplicas);
+        return resp;
+    }
+
+    private static void fillLiveStatus(ModelDeploymentResponse resp, Deployment deployment, List<Pod> pods, CachedRead<?> source) {
+        DeploymentStatus status = deployment != null ? deployment.getStatus() : null;
+        resp.setReadyReplicas(status != null && status.getReadyReplicas() != null ? status.getReadyReplicas() : 0);
+        resp.setAvailableReplicas(status != null && status.getAvailableReplicas() != null ? status.getAvailableReplicas() : 0);
+        resp.setUpdatedReplicas(status != null && status.getUpdatedReplicas() != null ? status.getUpdatedReplicas() : 0);
+        Map<String, Integer> phases = new TreeMap<>();
+        for (Pod pod : pods) {
+            String phase = pod.getStatus() != null && pod.getStatus().getPhase() != null ? pod.getStatus().getPhase() : "Unknown";
+            phases.merge(phase, 1, Integer::sum);
+        }
+        resp.setPodPhases(phases);
+        resp.setStatusSource(source.getSource());
+        resp.setStatusStalenessMs(source.getStalenessMs());
+    }
+
+    /** 多节点服务按 leader 计副本：leader 就绪即整组可服务；Pod 阶段统计覆盖 leader 与全部 worker */
+    private static void fillGroupStatus(ModelDeploymentResponse resp, CachedRead<List<Pod>> pods) {
+        int ready = (int) pods.getValue().stream()
+                .filter(p -> "leader".equals(p.getMetadata().getLabels().get(K8sResourceBuilder.LABEL_SERVING_ROLE)))
+                .filter(ClusterInformers::isReady)
+                .count();
+        resp.setReadyReplicas(ready);
+        resp.setAvailableReplicas(ready);
+        resp.setUpdatedReplicas(ready);
+        Map<String, Integer> phases = new TreeMap<>();
+        for (Pod pod : pods.getValue()) {
+            String phase = pod.getStatus() != null && pod.getStatus().getPhase() != null ? pod.getStatus().getPhase() : "Unknown";
+            phases.merge(phase, 1, Integer::sum);
+        }
+        resp.setPodPhases(phases);
+        resp.setStatusSource(pods.getSource());
+        resp.setStatusStalenessMs(pods.getStalenessMs());
+    }
+
+    static boolean isMultiNode(Integer nodes) {
+        return nodes != null && nodes > 1;
+    }
+
+    /**
+     * 设置自动扩缩容范围；maxReplicas 为空时关闭（保持当前副本数）。
+     */
+    public ModelDeploymentResponse updateAutoscaling(String poolId, String deploymentId, Integer minReplicas, Integer maxReplicas) {
+        ensureCanAccessPool(poolId);
+        ModelDeployment record = modelDeploymentMapper.findById(deploymentId)
+                .orElseThrow(() -> new ResourceNotFoundException("部署记录不存在: " + deploymentId));
+        if (!record.getResourcePoolId().equals(poolId)) throw new ForbiddenException("部署不属于该资源池");
+        validateAutoscaling(minReplicas, maxReplicas, null);
+        if (maxReplicas != null && isMultiNode(record.getNodes())) {
+            throw new IllegalArgumentException("多节点服务不支持自动扩缩容");
+        }
+        Integer min = maxReplicas == null ? null : minReplicas != null ? minReplicas : Integer.valueOf(1);
+        modelDeploymentMapper.updateAutoscaling(deploymentId, min, maxReplicas);
+        return toResponse(modelDeploymentMapper.findById(deploymentId).orElseThrow(), null);
+    }
+
+    /** 设置空闲缩容分钟数；为空时关闭（已缩到 0 的部署在下一个请求到达时仍会唤醒） */
+    public ModelDeploymentResponse updateIdlePolicy(String poolId, String deploymentId, Integer idleMinutes) {
+        ensureCanAccessPool(poolId);
+        ModelDeployment record = modelDeploymentMapper.findById(deploymentId)
+                .orElseThrow(() -> new ResourceNotFoundException("部署记录不存在: " + deploymentId));
+        if (!record.getResourcePoolId().equals(poolId)) throw new ForbiddenException("部署不属于该资源池");
+        if (idleMinutes != null && idleMinutes < 1) throw new IllegalArgumentException("idleMinutes 须不小于 1");
+        if (idleMinutes != null && isMultiNode(record.getNodes())) {
+            throw new IllegalArgumentException("多节点服务不支持空闲缩容");
+        }
+        modelDeploymentMapper.updateIdleMinutes(deploymentId, idleMinutes);
+        return toResponse(modelDeploymentMapper.findById(deploymentId).orElseThrow(), null);
+    }
+
+    /** minReplicas ≥ 1、minReplicas ≤ maxReplicas，给定初始 replicas 时须在范围内 */
+    private static void validateAutoscaling(Integer minReplicas, Integer maxReplicas, Integer replicas) {
+        if (maxReplicas == null) {
+            if (minReplicas != null) throw new IllegalArgumentException("设置 minReplicas 时须同时设置 maxReplicas");
+            return;
+        }
+        int min = minReplicas != null ? minReplicas : 1;
+        if (min < 1 || maxReplicas < min) throw new IllegalArgumentException("须满足 1 ≤ minReplicas ≤ maxReplicas");
+        if (replicas != null && (replicas < min || replicas > maxReplicas)) {
+            throw new IllegalArgumentException("replicas 须在 minReplicas 与 maxReplicas 之间");
+        }
+    }
+
+    /** 多节点服务作为一个整体部署：副本数固定为 1，不支持自动扩缩容与空闲缩容 */
+    private static void validateMultiNode(VllmDeployRequest request) {
+        if (VllmEngineOptions.nodesOf(request) <= 1) return;
+        if (request.getReplicas() != 1) throw new IllegalArgumentException("多节点服务的 replicas 须为 1");
+        if (request.getMaxReplicas() != null || request.getIdleMinutes() != null) {
+            throw new IllegalArgumentException("多节点服务不支持自动扩缩容与空闲缩容");
+        }
     }
 
-    @Transactional(rollbackFor = Exception.class)
     public void delete(String poolId, String deploymentId) {
         ensureCanAccessPool(poolId);
         ModelDeployment record = modelDeploymentMapper.findById(deploymentId)
@@ -150,12 +537,14 @@ public class ModelDeploymentService {
         if (!record.getResourcePoolId().equals(poolId)) throw new ForbiddenException("部署不属于该资源池");
         ResourcePool pool = resourcePoolMapper.findById(poolId).orElseThrow();
         try {
-            clientManager.deleteDeployment(pool.getPhysicalClusterId(), pool.getNamespace(), record.getK8sDeploymentName());
-            clientManager.deleteService(pool.getPhysicalClusterId(), pool.getNamespace(), record.getK8sServiceName());
+            deleteClusterObjects(pool, record);
         } catch (Exception e) {
             log.warn("删除 K8s 资源失败: {}", e.getMessage());
         }
         modelDeploymentMapper.deleteById(deploymentId);
+        quotaLedger.release(poolId, QuotaLedger.KEY_DEPLOYMENT + deploymentId);
+        inferenceResponseCache.forget(deploymentId);
+        idleScalerService.forget(deploymentId);
     }
 
     private ModelDeploymentResponse toResponse(ModelDeployment m, Integer readyReplicas) {
@@ -169,10 +558,25 @@ public class ModelDeploymentService {
                 .vllmImage(m.getVllmImage())
                 .gpuPerReplica(m.getGpuPerReplica())
                 .replicas(m.getReplicas())
+                .nodes(m.getNodes())
                 .k8sDeploymentName(m.getK8sDeploymentName())
                 .k8sServiceName(m.getK8sServiceName())
                 .status(m.getStatus())
                 .serviceUrl(m.getServiceUrl())
+                .routingMode(m.getRoutingMode())
+                .responseCache(m.getResponseCache())
+                .minReplicas(m.getMinReplicas())
+                .maxReplicas(m.getMaxReplicas())
+                .idleMinutes(m.getIdleMinutes())
+                .enginePreset(m.getEnginePreset())
+                .tensorParallelSize(m.getTensorParallelSize())
+                .maxNumSeqs(m.getMaxNumSeqs())
+                .maxModelLen(m.getMaxModelLen())
+                .gpuMemoryUtilization(m.getGpuMemoryUtilization())
+                .enablePrefixCaching(m.getEnablePrefixCaching())
+                .enableChunkedPrefill(m.getEnableChunkedPrefill())
+                .quantization(m.getQuantization())
+                .dtype(m.getDtype())
                 .readyReplicas(readyReplicas)
                 .createdBy(m.getCreatedBy())
                 .createdAt(m.getCreatedAt())
@@ -0,0 +1,331 @@
+package com.acmp.compute.service;
+
+import com.acmp.compute.dto.OperationResponse;
+import com.acmp.compute.dto.SagaStepRecord;
+import com.acmp.compute.entity.Operation;
+import com.acmp.compute.exception.ForbiddenException;
+import com.acmp.compute.exception.ResourceNotFoundException;
+import com.acmp.compute.k8s.KubernetesClientManager;
+import com.acmp.compute.mapper.OperationMapper;
+import com.acmp.compute.security.Role;
+import com.acmp.compute.security.UserPrincipal;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 异步操作服务：将资源池创建、模型部署等耗时 K8s 操作放到专用线程池执行，
+ * 请求线程仅写入 operation 记录后立即返回 202。
+ * 支持 Idempotency-Key 去重、saga 补偿日志持久化，以及基于 CompletableFuture 的长轮询（不占用 Tomcat 线程）。
+ * 每个操作记录执行实例（owner），重启后只恢复本实例中断的操作。
+ */
+@Slf4j
+@Service
+public class OperationService {
+
+    public static final String TYPE_CREATE_RESOURCE_POOL = "create_resource_pool";
+    public static final String TYPE_DEPLOY_MODEL = "deploy_model";
+
+    public static final String STATUS_PENDING = "pending";
+    public static final String STATUS_RUNNING = "running";
+    public static final String STATUS_SUCCEEDED = "succeeded";
+    public static final String STATUS_FAILED = "failed";
+
+    private final OperationMapper operationMapper;
+    private final ObjectMapper objectMapper;
+    private final ThreadPoolExecutor executor;
+    private final long maxWaitMs;
+    private final String instanceId;
+
+    /** 进行中的操作 ID -> 完成信号，用于长轮询 */
+    private final Map<String, CompletableFuture<Operation>> inflight = new ConcurrentHashMap<>();
+    /** 操作类型 -> 中断恢复处理器，由发起该类操作的服务登记 */
+    private final Map<String, Consumer<Operation>> recoveries = new ConcurrentHashMap<>();
+
+    public OperationService(OperationMapper operationMapper,
+                            ObjectMapper objectMapper,
+                            @Value("${operation.executor.threads:8}") int threads,
+                            @Value("${operation.executor.queue-capacity:200}") int queueCapacity,
+                            @Value("${operation.long-poll-max-ms:25000}") long maxWaitMs,
+                            @Value("${operation.instance-id:}") String instanceId) {
+        this.operationMapper = operationMapper;
+        this.objectMapper = objectMapper;
+        this.maxWaitMs = maxWaitMs;
+        this.instanceId = resolveInstanceId(instanceId);
+        AtomicInteger seq = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "operation-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    private UserPrincipal currentUser() {
+        Object p = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        if (!(p instanceof UserPrincipal)) throw new ForbiddenException("未登录");
+        return (UserPrincipal) p;
+    }
+
+    /** 未配置 operation.instance-id 时取主机名（Pod 名），须在重启前后保持不变 */
+    private static String resolveInstanceId(String configured) {
+        if (configured != null && !configured.isBlank()) return configured;
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            log.warn("无法获取主机名，操作实例标识使用 local: {}", e.getMessage());
+            return "local";
+        }
+    }
+
+    /**
+     * 登记某类操作的中断恢复处理器：入参为已绑定资源的中断操作，处理器撤销已部分生效的资源，
+     * 或在资源已落库时交由调谐收敛。抛出异常时资源保持原状，操作仍标记失败。
+     */
+    public void onInterrupted(String type, Consumer<Operation> handler) {
+        recoveries.put(type, handler);
+    }
+
+    /**
+     * 服务重启后，本实例上一次进程中未完成的操作已无执行线程：按类型执行恢复处理器后标记失败。
+     * 只处理 owner 为本实例的操作，其他实例仍在执行的操作不受影响。
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverInterruptedOperations() {
+        List<Operation> ops = operationMapper.findUnfinishedByOwner(instanceId);
+        for (Operation op : ops) {
+            String error = "服务重启，操作被中断";
+            Consumer<Operation> handler = recoveries.get(op.getType());
+            if (handler != null && op.getResourceId() != null) {
+                try {
+                    KubernetesClientManager.inBackground(() -> {
+                        handler.accept(op);
+                        return null;
+                    });
+                    error += "，已按 " + op.getResourceType() + " " + op.getResourceId() + " 恢复";
+                } catch (RuntimeException e) {
+                    log.warn("中断操作 {} ({}) 恢复失败: {}", op.getId(), op.getType(), e.getMessage());
+                    error += "，恢复失败: " + e.getMessage();
+                }
+            }
+            operationMapper.failIfUnfinished(op.getId(), error.length() > 2000 ? error.substring(0, 2000) : error);
+        }
+        if (!ops.isEmpty()) log.warn("已将本实例 {} 的 {} 个中断异步操作标记为失败", instanceId, ops.size());
+    }
+
+    /**
+     * 提交异步操作。必须在请求线程调用（需读取当前用户）；work 在专用线程池执行，不能依赖 SecurityContext。
+     *
+     * @param type           操作类型
+     * @param idempotencyKey 客户端幂等键（可空）；同一用户重复提交时返回已有操作
+     * @param request        请求体，用于计算摘要以识别幂等键被不同请求复用
+     * @param work           实际工作，返回值序列化为操作结果
+     */
+    public Operation submit(String type, String idempotencyKey, Object request, Function<SagaLog, Object> work) {
+        String userId = currentUser().getId();
+        String requestHash = hash(type, request);
+        if (idempotencyKey != null && !idempotencyKey.isBlank()) {
+            Operation existing = operationMapper.findByIdempotencyKey(userId, idempotencyKey).orElse(null);
+            if (existing != null) return checkReplay(existing, type, requestHash);
+        } else {
+            idempotencyKey = null;
+        }
+
+        Operation op = Operation.builder()
+                .id(UUID.randomUUID().toString())
+                .type(type)
+                .status(STATUS_PENDING)
+                .idempotencyKey(idempotencyKey)
+                .requestHash(requestHash)
+                .owner(instanceId)
+                .createdBy(userId)
+                .build();
+        try {
+            operationMapper.insert(op);
+        } catch (DuplicateKeyException e) {
+            // 并发重试：另一请求已用同一幂等键插入
+            Operation existing = operationMapper.findByIdempotencyKey(userId, idempotencyKey)
+                    .orElseThrow(() -> e);
+            return checkReplay(existing, type, requestHash);
+        }
+
+        CompletableFuture<Operation> done = new CompletableFuture<>();
+        inflight.put(op.getId(), done);
+        try {
+            executor.execute(() -> run(op, work, done));
+        } catch (RejectedExecutionException e) {
+            log.warn("异步操作队列已满，拒绝操作 {}", op.getId());
+            finish(op, STATUS_FAILED, null, "操作队列已满，请稍后重试", null, done);
+        }
+        return operationMapper.findById(op.getId()).orElse(op);
+    }
+
+    private Operation checkReplay(Operation existing, String type, String requestHash) {
+        if (!existing.getType().equals(type) || !requestHash.equals(existing.getRequestHash())) {
+            throw new IllegalArgumentException("Idempotency-Key 已用于不同的请求");
+        }
+        log.info("幂等键命中，返回已有操作 {}", existing.getId());
+        return existing;
+    }
+
+    private void run(Operation op, Function<SagaLog, Object> work, CompletableFuture<Operation> done) {
+        op.setStatus(STATUS_RUNNING);
+        operationMapper.update(op);
+        SagaLog saga = new SagaLog(s -> operationMapper.updateProgress(op.getId(), toJson(s.getRecords()),
+                s.getResourceType(), s.getResourceId()));
+        try {
+            Object result = work.apply(saga);
+            op.setResourceType(saga.getResourceType());
+            op.setResourceId(saga.getResourceId());
+            finish(op, STATUS_SUCCEEDED, toJson(result), null, saga, done);
+        } catch (Exception e) {
+            log.error("✗ 异步操作 {} ({}) 失败: {}", op.getId(), op.getType(), e.getMessage());
+            op.setResourceType(saga.getResourceType());
+            op.setResourceId(saga.getResourceId());
+            finish(op, STATUS_FAILED, null, e.getMessage(), saga, done);
+        }
+    }
+
+    private void finish(Operation op, String status, String resultJson, String error, SagaLog saga,
+                        CompletableFuture<Operation> done) {
+        op.setStatus(status);
+        op.setResultJson(resultJson);
+        op.setError(error != null && error.length() > 2000 ? error.substring(0, 2000) : error);
+        op.setSagaLog(saga != null ? toJson(saga.getRecords()) : null);
+        op.setFinishedAt(Instant.now());
+        try {
+            operationMapper.update(op);
+        } finally {
+            inflight.remove(op.getId());
+            done.complete(op);
+        }
+    }
+
+    /** 查询操作（仅创建者或平台管理员可见） */
+    public OperationResponse get(String id) {
+        return toResponse(loadAccessible(id));
+    }
+
+    /**
+     * 长轮询：操作未结束时最多等待 waitMs（受 operation.long-poll-max-ms 限制），结束或超时后返回最新状态。
+     * 返回的 future 由操作线程或定时器完成，不阻塞请求线程。
+     */
+    public CompletableFuture<OperationResponse> await(String id, long waitMs) {
+        Operation op = loadAccessible(id);
+        CompletableFuture<Operation> done = inflight.get(id);
+        if (waitMs <= 0 || done == null || isTerminal(op.getStatus())) {
+            return CompletableFuture.completedFuture(toResponse(op));
+        }
+        long wait = Math.min(waitMs, maxWaitMs);
+        return done.copy()
+                .completeOnTimeout(null, wait, TimeUnit.MILLISECONDS)
+                .thenApply(finished -> toResponse(operationMapper.findById(id).orElse(op)));
+    }
+
+    private Operation loadAccessible(String id) {
+        Operation op = operationMapper.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("操作不存在: " + id));
+        UserPrincipal user = currentUser();
+        if (!Role.PLATFORM_ADMIN.name().equals(user.getRole()) && !user.getId().equals(op.getCreatedBy())) {
+            throw new ForbiddenException("无权限查看该操作");
+        }
+        return op;
+    }
+
+    public static boolean isTerminal(String status) {
+        return STATUS_SUCCEEDED.equals(status) || STATUS_FAILED.equals(status);
+    }
+
+    public OperationResponse toResponse(Operation op) {
+        return OperationResponse.builder()
+                .id(op.getId())
+                .type(op.getType())
+                .status(op.getStatus())
+                .resourceType(op.getResourceType())
+                .resourceId(op.getResourceId())
+                .result(fromJson(op.getResultJson(), Object.class))
+                .error(op.getError())
+                .sagaLog(fromJson(op.getSagaLog(), new TypeReference<List<SagaStepRecord>>() {}))
+                .createdBy(op.getCreatedBy())
+                .createdAt(op.getCreatedAt())
+                .updatedAt(op.getUpdatedAt())
+                .finishedAt(op.getFinishedAt())
+                .build();
+    }
+
+    private String toJson(Object value) {
+        if (value == null) return null;
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("序列化失败: " + e.getMessage(), e);
+        }
+    }
+
+    private <T> T fromJson(String json, Class<T> type) {
+        if (json == null) return null;
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            log.warn("反序列化失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private <T> T fromJson(String json, TypeReference<T> type) {
+        if (json == null) return null;
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            log.warn("反序列化失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private String hash(String type, Object request) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(type.getBytes(StandardCharsets.UTF_8));
+            md.update(objectMapper.writeValueAsBytes(request));
+            StringBuilder sb = new StringBuilder();
+            for (byte b : md.digest()) sb.append(String.format("%02x", b));
+            return sb.toString();
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("计算请求摘要失败", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
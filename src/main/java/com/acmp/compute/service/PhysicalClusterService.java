@@ -1,23 +1,25 @@
 package com.acmp.compute.service;
 
 import com.acmp.compute.dto.CapacityResponse;
+import com.acmp.compute.dto.ClusterGuardStatus;
 import com.acmp.compute.dto.PhysicalClusterResponse;
 import com.acmp.compute.entity.PhysicalCluster;
 import com.acmp.compute.exception.ResourceNotFoundException;
+import com.acmp.compute.k8s.CapacityIndex;
+import com.acmp.compute.k8s.ClusterInformers;
 import com.acmp.compute.k8s.KubernetesClientManager;
+import com.acmp.compute.k8s.ProvisioningExecutor;
 import com.acmp.compute.mapper.PhysicalClusterMapper;
 import io.fabric8.kubernetes.api.model.Node;
-import io.fabric8.kubernetes.api.model.Quantity;
-import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.api.model.Pod;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 /**
@@ -32,6 +34,11 @@ public class PhysicalClusterService {
     private final PhysicalClusterMapper physicalClusterMapper;
     private final EncryptionService encryptionService;
     private final KubernetesClientManager clientManager;
+    private final ProvisioningExecutor provisioningExecutor;
+
+    /** watch 中断时本地容量快照仍可直接使用的最大陈旧度 */
+    @Value("${fleet.capacity.max-staleness-ms:60000}")
+    private long capacityMaxStalenessMs;
 
     /**
      * 注册物理集群：校验 kubeconfig 连通性 → 加密存储 → 写入 DB → 缓存客户端。
@@ -64,49 +71,97 @@ public class PhysicalClusterService {
         return toResponse(physicalClusterMapper.findById(id).orElseThrow());
     }
 
-    /** 将 fabric8 Quantity 解析为 long（兼容不同版本 API） */
-    private long parseQuantityAsLong(Quantity q) {
-        if (q == null) return 0L;
-        try {
-            Object amount = q.getAmount();
-            if (amount instanceof Number) return ((Number) amount).longValue();
-        } catch (Exception ignored) {}
-        return 0L;
-    }
-
     public List<PhysicalClusterResponse> list() {
         return physicalClusterMapper.findAll().stream().map(this::toResponse).collect(Collectors.toList());
     }
 
     /**
-     * 实时汇总集群容量：遍历节点 allocatable 中的 nvidia.com/gpu、cpu、memory。
+     * 集群容量：Node/Pod informer 同步后直接读取增量维护的容量索引（O(1)）；
+     * 未同步前回退为一次实时 LIST 并用同一套规则计算。
      */
     public CapacityResponse getCapacity(String id) {
-        KubernetesClient client = clientManager.getClient(id);
-        AtomicLong gpuTotal = new AtomicLong(0);
-        AtomicLong cpuTotal = new AtomicLong(0);
-        AtomicLong memoryTotal = new AtomicLong(0);
-        List<Node> nodes = client.nodes().list().getItems();
-        for (Node node : nodes) {
-            if (node.getStatus() == null || node.getStatus().getAllocatable() == null) continue;
-            Map<String, Quantity> allocatable = node.getStatus().getAllocatable();
-            gpuTotal.addAndGet(parseQuantityAsLong(allocatable.get("nvidia.com/gpu")));
-            cpuTotal.addAndGet(parseQuantityAsLong(allocatable.get("cpu")));
-            memoryTotal.addAndGet(parseQuantityAsLong(allocatable.get("memory")));
+        if (!physicalClusterMapper.findById(id).isPresent()) {
+            throw new ResourceNotFoundException("集群不存在: " + id);
         }
+        return readCapacity(id);
+    }
+
+    /** 同 getCapacity，但不校验集群是否存在（调用方已从库中取得集群） */
+    public CapacityResponse readCapacity(String id) {
+        ClusterInformers informers = clientManager.getInformers(id);
+        if (informers.capacitySynced()) {
+            return toCapacity(informers.capacityIndex().snapshot(), "informer", informers.stalenessMs(informers.nodes(), informers.pods()));
+        }
+        CapacityIndex live = new CapacityIndex();
+        List<Node> nodes = clientManager.call(id, client -> client.nodes().list().getItems());
+        List<Pod> pods = clientManager.call(id, client -> client.pods().inAnyNamespace()
+                .withoutField("status.phase", "Succeeded").list().getItems());
+        nodes.forEach(live::upsertNode);
+        pods.forEach(live::upsertPod);
+        return toCapacity(live.snapshot(), "live", 0L);
+    }
+
+    /**
+     * 足够新鲜的本地容量快照：索引已同步，且 Node/Pod watch 正常或最近事件未超过 maxStalenessMs。
+     * 不满足时返回 null，由调用方决定是否实时查询。
+     */
+    public CapacityResponse freshCapacitySnapshot(String id) {
+        ClusterInformers informers = clientManager.getInformers(id);
+        if (!informers.capacitySynced()) return null;
+        boolean watching = informers.nodes().isWatching() && informers.pods().isWatching();
+        long staleness = informers.stalenessMs(informers.nodes(), informers.pods());
+        if (!watching && staleness > capacityMaxStalenessMs) return null;
+        return toCapacity(informers.capacityIndex().snapshot(), "informer", staleness);
+    }
+
+    private CapacityResponse toCapacity(CapacityIndex.Snapshot s, String source, long stalenessMs) {
         return CapacityResponse.builder()
-                .gpuSlots(gpuTotal.get())
-                .cpu(String.valueOf(cpuTotal.get()))
-                .memory(String.valueOf(memoryTotal.get()))
+                .gpuSlots(s.getGpuAllocatable())
+                .cpu(s.getCpuMillisAllocatable() % 1000 == 0
+                        ? String.valueOf(s.getCpuMillisAllocatable() / 1000)
+                        : s.getCpuMillisAllocatable() + "m")
+                .memory(String.valueOf(s.getMemoryBytesAllocatable()))
+                .gpuRequested(s.getGpuRequested())
+                .gpuFree(s.getGpuFree())
+                .cpuMillis(s.getCpuMillisAllocatable())
+                .cpuRequestedMillis(s.getCpuMillisRequested())
+                .cpuFreeMillis(s.getCpuMillisFree())
+                .memoryBytes(s.getMemoryBytesAllocatable())
+                .memoryRequestedBytes(s.getMemoryBytesRequested())
+                .memoryFreeBytes(s.getMemoryBytesFree())
+                .gpumemMb(s.getGpumemMbAllocatable())
+                .gpumemRequestedMb(s.getGpumemMbRequested())
+                .gpumemFreeMb(s.getGpumemMbFree())
+                .gpucores(s.getGpucoresAllocatable())
+                .gpucoresRequested(s.getGpucoresRequested())
+                .gpucoresFree(s.getGpucoresFree())
+                .nodeCount(s.getNodeCount())
+                .readyNodeCount(s.getReadyNodeCount())
+                .source(source)
+                .stalenessMs(stalenessMs)
                 .build();
     }
 
+    /** 集群调用保护状态：熔断器、并发与排队深度 */
+    public ClusterGuardStatus getGuardStatus(String id) {
+        if (!physicalClusterMapper.findById(id).isPresent()) {
+            throw new ResourceNotFoundException("集群不存在: " + id);
+        }
+        return clientManager.getGuard(id).status();
+    }
+
+    /** 所有已建立连接的集群的调用保护状态 */
+    public List<ClusterGuardStatus> listGuardStatuses() {
+        return clientManager.guardStatuses();
+    }
+
     @Transactional(rollbackFor = Exception.class)
     public void delete(String id) {
         if (!physicalClusterMapper.findById(id).isPresent()) {
             throw new ResourceNotFoundException("集群不存在: " + id);
         }
         clientManager.closeClient(id);
+        provisioningExecutor.release(id);
         physicalClusterMapper.deleteById(id);
     }
 
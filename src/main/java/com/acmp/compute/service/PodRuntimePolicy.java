@@ -0,0 +1,46 @@
+package com.acmp.compute.service;
+
+import com.acmp.compute.entity.ResourcePool;
+
+/**
+ * 资源池 Pod 运行时策略（管理员按资源池设置）：/dev/shm 上限与是否允许 hostIPC / hostNetwork。
+ * 请求未指定 /dev/shm 大小时按 GPU 数推算（每卡 2GiB），并截断到资源池上限；显式指定超出上限或申请未放开的宿主机命名空间时拒绝。
+ */
+final class PodRuntimePolicy {
+
+    /** 资源池未设置上限时允许的 /dev/shm 大小 */
+    static final int DEFAULT_SHM_MAX_GIB = 16;
+    private static final int SHM_GIB_PER_GPU = 2;
+
+    private PodRuntimePolicy() {
+    }
+
+    /** 解析 Pod 的 /dev/shm 大小（GiB），不使用 GPU 且未显式指定时返回 null（沿用容器默认） */
+    static Integer shmSizeGiB(ResourcePool pool, Integer requested, int gpus) {
+        int max = pool.getShmMaxGib() != null ? pool.getShmMaxGib() : DEFAULT_SHM_MAX_GIB;
+        if (requested != null) {
+            if (requested > max) {
+                throw new IllegalArgumentException("shmSizeGiB 超出资源池上限（" + max + "GiB）");
+            }
+            return requested;
+        }
+        if (gpus <= 0 || max <= 0) return null;
+        return Math.min(max, gpus * SHM_GIB_PER_GPU);
+    }
+
+    static boolean hostIpc(ResourcePool pool, Boolean requested) {
+        if (!Boolean.TRUE.equals(requested)) return false;
+        if (!Boolean.TRUE.equals(pool.getAllowHostIpc())) {
+            throw new IllegalArgumentException("资源池未允许 hostIPC");
+        }
+        return true;
+    }
+
+    static boolean hostNetwork(ResourcePool pool, Boolean requested) {
+        if (!Boolean.TRUE.equals(requested)) return false;
+        if (!Boolean.TRUE.equals(pool.getAllowHostNetwork())) {
+            throw new IllegalArgumentException("资源池未允许 hostNetwork");
+        }
+        return true;
+    }
+}
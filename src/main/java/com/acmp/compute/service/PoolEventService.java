@@ -0,0 +1,519 @@
+package com.acmp.compute.service;
+
+import com.acmp.compute.dto.PoolEvent;
+import com.acmp.compute.entity.ResourcePool;
+import com.acmp.compute.exception.ForbiddenException;
+import com.acmp.compute.exception.ResourceNotFoundException;
+import com.acmp.compute.k8s.ClusterInformers;
+import com.acmp.compute.k8s.KubernetesClientManager;
+import com.acmp.compute.mapper.ResourcePoolMapper;
+import com.acmp.compute.security.UserPrincipal;
+import io.fabric8.kubernetes.api.model.ContainerStatus;
+import io.fabric8.kubernetes.api.model.Event;
+import io.fabric8.kubernetes.api.model.HasMetadata;
+import io.fabric8.kubernetes.api.model.ListOptionsBuilder;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.Quantity;
+import io.fabric8.kubernetes.api.model.ResourceQuota;
+import io.fabric8.kubernetes.api.model.apps.Deployment;
+import io.fabric8.kubernetes.api.model.apps.DeploymentStatus;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import io.fabric8.kubernetes.client.WatcherException;
+import io.fabric8.kubernetes.client.informers.ResourceEventHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 资源池活动事件流（SSE）：部署滚动进度、Pod 变化、配额用量与 K8s Event。
+ * <ul>
+ *   <li>Deployment / Pod / ResourceQuota 复用集群共享 Informer，按 namespace 分发；K8s Event 每个 namespace 只开一个 watch，
+ *       首个订阅者到来时建立，最后一个订阅者离开并经过 linger 后关闭</li>
+ *   <li>每个订阅者有独立的有界缓冲：同一对象的多次变化合并为最新一条，缓冲满时丢弃最旧的条目并补发 overflow 事件</li>
+ *   <li>每个 namespace 保留最近若干条事件，带 Last-Event-ID 重连时从断点续传；断点已被淘汰时发送 reset 并重新下发快照</li>
+ * </ul>
+ * 权限仅在订阅时以 {@link UserPrincipal#canAccessPool} 校验一次，推送过程不再访问数据库。
+ */
+@Slf4j
+@Service
+public class PoolEventService {
+
+    private final ResourcePoolMapper resourcePoolMapper;
+    private final KubernetesClientManager clientManager;
+    private final int bufferSize;
+    private final int replaySize;
+    private final long timeoutMs;
+    private final long lingerMs;
+
+    /** 事件 ID 以启动时刻为基数，进程重启后新 ID 仍大于客户端持有的旧 ID */
+    private final AtomicLong sequence = new AtomicLong(System.currentTimeMillis() * 1000);
+    /** clusterId/namespace -> 频道 */
+    private final Map<String, Channel> channels = new ConcurrentHashMap<>();
+    /** 集群 ID -> 已注册分发处理器的 Informer 集合（客户端重建后需重新注册） */
+    private final Map<String, ClusterInformers> watched = new ConcurrentHashMap<>();
+    private final ExecutorService sender;
+    private final ScheduledExecutorService scheduler;
+
+    public PoolEventService(ResourcePoolMapper resourcePoolMapper,
+                            KubernetesClientManager clientManager,
+                            @Value("${pool-events.buffer-size:256}") int bufferSize,
+                            @Value("${pool-events.replay-size:1024}") int replaySize,
+                            @Value("${pool-events.timeout-ms:1800000}") long timeoutMs,
+                            @Value("${pool-events.linger-ms:60000}") long lingerMs,
+                            @Value("${pool-events.heartbeat-ms:15000}") long heartbeatMs,
+                            @Value("${pool-events.sender-threads:4}") int senderThreads) {
+        this.resourcePoolMapper = resourcePoolMapper;
+        this.clientManager = clientManager;
+        this.bufferSize = Math.max(1, bufferSize);
+        this.replaySize = Math.max(1, replaySize);
+        this.timeoutMs = timeoutMs;
+        this.lingerMs = lingerMs;
+        AtomicInteger n = new AtomicInteger();
+        this.sender = Executors.newFixedThreadPool(Math.max(1, senderThreads), r -> {
+            Thread t = new Thread(r, "pool-events-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pool-events-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::heartbeat, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+    }
+
+    private UserPrincipal currentUser() {
+        Object p = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        if (!(p instanceof UserPrincipal)) throw new ForbiddenException("未登录");
+        return (UserPrincipal) p;
+    }
+
+    /**
+     * 订阅资源池事件流。lastEventId 为空或无法续传时先下发当前对象快照（action=SYNC），以 synced 事件结束。
+     */
+    public SseEmitter subscribe(String poolId, String lastEventId) {
+        if (!currentUser().canAccessPool(poolId)) throw new ForbiddenException("无权限访问该资源池");
+        ResourcePool pool = resourcePoolMapper.findById(poolId)
+                .orElseThrow(() -> new ResourceNotFoundException("资源池不存在: " + poolId));
+        String clusterId = pool.getPhysicalClusterId();
+        ClusterInformers informers = clientManager.getInformers(clusterId);
+        watch(clusterId, informers);
+
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber sub = new Subscriber(emitter);
+        Channel channel = channels.compute(channelKey(clusterId, pool.getNamespace()), (k, c) -> {
+            Channel ch = c != null ? c : new Channel(clusterId, pool.getNamespace());
+            ch.subscribers.add(sub);
+            return ch;
+        });
+        channel.ensureEventWatch();
+        Runnable detach = () -> detach(channel, sub);
+        emitter.onCompletion(detach);
+        emitter.onTimeout(detach);
+        emitter.onError(e -> detach.run());
+
+        List<PoolEvent> replay = channel.replaySince(parseId(lastEventId));
+        if (replay != null) {
+            replay.forEach(sub::offer);
+        } else {
+            if (lastEventId != null) sub.offer(control("reset", Map.of("lastEventId", lastEventId)));
+            snapshot(informers, pool.getNamespace()).forEach(sub::offer);
+            sub.offer(control("synced", Map.of("namespace", pool.getNamespace())));
+        }
+        schedule(sub);
+        log.debug("资源池 {} 新增事件订阅，当前订阅数 {}", poolId, channel.subscribers.size());
+        return emitter;
+    }
+
+    /** 在集群 Informer 上注册一次分发处理器，按对象 namespace 投递到对应频道 */
+    private void watch(String clusterId, ClusterInformers informers) {
+        if (watched.get(clusterId) == informers) return;
+        synchronized (watched) {
+            if (watched.get(clusterId) == informers) return;
+            informers.deployments().addEventHandler(new Dispatcher<Deployment>(clusterId, "deployment", PoolEventService::summarize));
+            informers.pods().addEventHandler(new Dispatcher<Pod>(clusterId, "pod", PoolEventService::summarize));
+            informers.resourceQuotas().addEventHandler(new Dispatcher<ResourceQuota>(clusterId, "quota", PoolEventService::summarize));
+            watched.put(clusterId, informers);
+        }
+    }
+
+    private void detach(Channel channel, Subscriber sub) {
+        sub.closed = true;
+        channel.subscribers.remove(sub);
+        if (channel.subscribers.isEmpty()) {
+            // 保留一段时间以便客户端快速重连时复用 watch 与续传缓冲
+            scheduler.schedule(() -> {
+                boolean[] removed = {false};
+                channels.computeIfPresent(channelKey(channel.clusterId, channel.namespace), (k, c) -> {
+                    if (c != channel || !c.subscribers.isEmpty()) return c;
+                    removed[0] = true;
+                    return null;
+                });
+                if (removed[0]) {
+                    channel.close();
+                    log.debug("namespace {} 事件频道已关闭", channel.namespace);
+                }
+            }, lingerMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void publish(String clusterId, String namespace, PoolEvent event) {
+        Channel channel = channels.get(channelKey(clusterId, namespace));
+        if (channel == null) return;
+        channel.record(event);
+        for (Subscriber sub : channel.subscribers) {
+            sub.offer(event);
+            schedule(sub);
+        }
+    }
+
+    /** 保证每个订阅者同一时刻只有一个发送任务，慢消费者不会占满发送线程之外的资源 */
+    private void schedule(Subscriber sub) {
+        if (sub.closed) return;
+        synchronized (sub) {
+            if (sub.draining || sub.pending.isEmpty() && sub.dropped == 0) return;
+            sub.draining = true;
+        }
+        sender.execute(() -> drain(sub));
+    }
+
+    private void drain(Subscriber sub) {
+        while (true) {
+            PoolEvent next;
+            synchronized (sub) {
+                if (sub.closed) {
+                    sub.draining = false;
+                    return;
+                }
+                if (sub.dropped > 0) {
+                    next = control("overflow", Map.of("dropped", sub.dropped));
+                    sub.dropped = 0;
+                } else {
+                    Iterator<PoolEvent> it = sub.pending.values().iterator();
+                    if (!it.hasNext()) {
+                        sub.draining = false;
+                        return;
+                    }
+                    next = it.next();
+                    it.remove();
+                }
+            }
+            try {
+                sub.emitter.send(SseEmitter.event()
+                        .id(String.valueOf(next.getId()))
+                        .name(next.getType())
+                        .data(next, MediaType.APPLICATION_JSON));
+            } catch (IOException | IllegalStateException e) {
+                synchronized (sub) {
+                    sub.closed = true;
+                    sub.draining = false;
+                }
+                sub.emitter.completeWithError(e);
+                return;
+            }
+        }
+    }
+
+    private void heartbeat() {
+        for (Channel channel : channels.values()) {
+            for (Subscriber sub : channel.subscribers) {
+                synchronized (sub) {
+                    // 正在发送的订阅者连接本身是活跃的，无需心跳
+                    if (sub.closed || sub.draining) continue;
+                }
+                try {
+                    sub.emitter.send(SseEmitter.event().comment("keepalive"));
+                } catch (IOException | IllegalStateException e) {
+                    sub.closed = true;
+                    sub.emitter.completeWithError(e);
+                }
+            }
+        }
+    }
+
+    private List<PoolEvent> snapshot(ClusterInformers informers, String namespace) {
+        List<PoolEvent> result = new ArrayList<>();
+        if (informers.deployments().hasSynced()) {
+            ClusterInformers.listByNamespace(informers.deployments(), namespace)
+                    .forEach(d -> result.add(objectEvent("deployment", "SYNC", d, summarize(d))));
+        }
+        if (informers.pods().hasSynced()) {
+            ClusterInformers.listByNamespace(informers.pods(), namespace)
+                    .forEach(p -> result.add(objectEvent("pod", "SYNC", p, summarize(p))));
+        }
+        if (informers.resourceQuotas().hasSynced()) {
+            ClusterInformers.listByNamespace(informers.resourceQuotas(), namespace)
+                    .forEach(q -> result.add(objectEvent("quota", "SYNC", q, summarize(q))));
+        }
+        return result;
+    }
+
+    private PoolEvent objectEvent(String type, String action, HasMetadata obj, Map<String, Object> data) {
+        return PoolEvent.builder()
+                .id(sequence.incrementAndGet())
+                .type(type)
+                .action(action)
+                .name(obj.getMetadata().getName())
+                .data(data)
+                .timestampMs(System.currentTimeMillis())
+                .build();
+    }
+
+    private PoolEvent control(String type, Map<String, Object> data) {
+        return PoolEvent.builder()
+                .id(sequence.incrementAndGet())
+                .type(type)
+                .data(data)
+                .timestampMs(System.currentTimeMillis())
+                .build();
+    }
+
+    private static Map<String, Object> summarize(Deployment d) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        DeploymentStatus s = d.getStatus();
+        m.put("replicas", d.getSpec() != null ? d.getSpec().getReplicas() : null);
+        m.put("readyReplicas", s != null && s.getReadyReplicas() != null ? s.getReadyReplicas() : 0);
+        m.put("availableReplicas", s != null && s.getAvailableReplicas() != null ? s.getAvailableReplicas() : 0);
+        m.put("updatedReplicas", s != null && s.getUpdatedReplicas() != null ? s.getUpdatedReplicas() : 0);
+        m.put("generation", d.getMetadata().getGeneration());
+        m.put("observedGeneration", s != null ? s.getObservedGeneration() : null);
+        return m;
+    }
+
+    private static Map<String, Object> summarize(Pod p) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("phase", p.getStatus() != null ? p.getStatus().getPhase() : null);
+        m.put("node", p.getSpec() != null ? p.getSpec().getNodeName() : null);
+        m.put("deployment", p.getMetadata().getLabels() != null ? p.getMetadata().getLabels().get("deployment") : null);
+        boolean ready = true;
+        int restarts = 0;
+        String reason = null;
+        List<ContainerStatus> statuses = p.getStatus() != null ? p.getStatus().getContainerStatuses() : null;
+        if (statuses == null || statuses.isEmpty()) ready = false;
+        else {
+            for (ContainerStatus cs : statuses) {
+                ready &= Boolean.TRUE.equals(cs.getReady());
+                restarts += cs.getRestartCount() != null ? cs.getRestartCount() : 0;
+                if (reason == null && cs.getState() != null && cs.getState().getWaiting() != null) {
+                    reason = cs.getState().getWaiting().getReason();
+                }
+            }
+        }
+        m.put("ready", ready);
+        m.put("restarts", restarts);
+        if (reason != null) m.put("reason", reason);
+        return m;
+    }
+
+    private static Map<String, Object> summarize(ResourceQuota q) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("hard", q.getStatus() != null ? quantities(q.getStatus().getHard()) : quantities(q.getSpec() != null ? q.getSpec().getHard() : null));
+        m.put("used", q.getStatus() != null ? quantities(q.getStatus().getUsed()) : Map.of());
+        return m;
+    }
+
+    private static Map<String, Object> summarize(Event e) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("eventType", e.getType());
+        m.put("reason", e.getReason());
+        m.put("message", e.getMessage());
+        m.put("count", e.getCount());
+        if (e.getInvolvedObject() != null) {
+            m.put("kind", e.getInvolvedObject().getKind());
+            m.put("object", e.getInvolvedObject().getName());
+        }
+        m.put("lastTimestamp", e.getLastTimestamp());
+        return m;
+    }
+
+    private static Map<String, String> quantities(Map<String, Quantity> map) {
+        Map<String, String> result = new TreeMap<>();
+        if (map != null) map.forEach((k, v) -> result.put(k, v.toString()));
+        return result;
+    }
+
+    private static Long parseId(String lastEventId) {
+        if (lastEventId == null || lastEventId.isBlank()) return null;
+        try {
+            return Long.parseLong(lastEventId.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String channelKey(String clusterId, String namespace) {
+        return clusterId + "/" + namespace;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        channels.values().forEach(Channel::close);
+        channels.values().forEach(c -> c.subscribers.forEach(s -> s.emitter.complete()));
+        channels.clear();
+        scheduler.shutdownNow();
+        sender.shutdownNow();
+    }
+
+    /** 将集群级 Informer 事件按 namespace 投递到已有频道；没有订阅者的 namespace 直接忽略 */
+    private class Dispatcher<T extends HasMetadata> implements ResourceEventHandler<T> {
+        private final String clusterId;
+        private final String type;
+        private final Function<T, Map<String, Object>> summarizer;
+
+        Dispatcher(String clusterId, String type, Function<T, Map<String, Object>> summarizer) {
+            this.clusterId = clusterId;
+            this.type = type;
+            this.summarizer = summarizer;
+        }
+
+        @Override
+        public void onAdd(T obj) {
+            dispatch("ADDED", obj);
+        }
+
+        @Override
+        public void onUpdate(T oldObj, T newObj) {
+            // resync 产生的无变化更新不推送
+            if (oldObj.getMetadata().getResourceVersion() != null
+                    && oldObj.getMetadata().getResourceVersion().equals(newObj.getMetadata().getResourceVersion())) return;
+            dispatch("MODIFIED", newObj);
+        }
+
+        @Override
+        public void onDelete(T obj, boolean deletedFinalStateUnknown) {
+            dispatch("DELETED", obj);
+        }
+
+        private void dispatch(String action, T obj) {
+            String ns = obj.getMetadata().getNamespace();
+            if (ns == null || !channels.containsKey(channelKey(clusterId, ns))) return;
+            publish(clusterId, ns, objectEvent(type, action, obj, summarizer.apply(obj)));
+        }
+    }
+
+    /** 单个 namespace 的订阅者集合、续传缓冲与 K8s Event watch */
+    private class Channel {
+        private final String clusterId;
+        private final String namespace;
+        private final Set<Subscriber> subscribers = new CopyOnWriteArraySet<>();
+        private final ArrayDeque<PoolEvent> recent = new ArrayDeque<>();
+        /** 已被淘汰出续传缓冲的最大事件 ID；Last-Event-ID 不小于它时才能无缝续传 */
+        private long evictedUpTo;
+        private Watch eventWatch;
+        private boolean closed;
+
+        Channel(String clusterId, String namespace) {
+            this.clusterId = clusterId;
+            this.namespace = namespace;
+            this.evictedUpTo = sequence.get();
+        }
+
+        synchronized void record(PoolEvent event) {
+            recent.addLast(event);
+            while (recent.size() > replaySize) {
+                evictedUpTo = recent.removeFirst().getId();
+            }
+        }
+
+        /** 返回 lastId 之后的事件；无法续传（ID 未知、已被淘汰或来自未来）时返回 null */
+        synchronized List<PoolEvent> replaySince(Long lastId) {
+            if (lastId == null || lastId < evictedUpTo || lastId > sequence.get()) return null;
+            List<PoolEvent> result = new ArrayList<>();
+            for (PoolEvent e : recent) {
+                if (e.getId() > lastId) result.add(e);
+            }
+            return result;
+        }
+
+        synchronized void ensureEventWatch() {
+            if (closed || eventWatch != null) return;
+            try {
+                // 从当前 resourceVersion 开始 watch，避免建立时把历史 Event 全量推给订阅者
+                String rv = clientManager.call(clusterId, client -> client.v1().events().inNamespace(namespace)
+                        .list(new ListOptionsBuilder().withLimit(1L).build()).getMetadata().getResourceVersion());
+                eventWatch = clientManager.call(clusterId, client -> client.v1().events().inNamespace(namespace)
+                        .watch(new ListOptionsBuilder().withResourceVersion(rv).build(), new Watcher<Event>() {
+                            @Override
+                            public void eventReceived(Action action, Event event) {
+                                publish(clusterId, namespace, objectEvent("event", action.name(), event, summarize(event)));
+                            }
+
+                            @Override
+                            public void onClose(WatcherException cause) {
+                                // 资源版本过期等异常关闭时重建（正常关闭 cause 为 null）
+                                if (cause == null) return;
+                                log.debug("namespace {} Event watch 断开: {}", namespace, cause.getMessage());
+                                reopen();
+                            }
+                        }));
+            } catch (RuntimeException e) {
+                log.warn("namespace {} Event watch 建立失败，稍后重试: {}", namespace, e.getMessage());
+                scheduler.schedule(this::reopen, 5, TimeUnit.SECONDS);
+            }
+        }
+
+        private void reopen() {
+            synchronized (this) {
+                eventWatch = null;
+            }
+            if (!subscribers.isEmpty()) ensureEventWatch();
+        }
+
+        synchronized void close() {
+            closed = true;
+            if (eventWatch != null) eventWatch.close();
+            eventWatch = null;
+        }
+    }
+
+    /** 单个 SSE 连接：按对象合并的有界待发送缓冲 */
+    private class Subscriber {
+        private final SseEmitter emitter;
+        /** 合并键（type/name）-> 最新事件，保持插入顺序 */
+        private final LinkedHashMap<String, PoolEvent> pending = new LinkedHashMap<>();
+        private int dropped;
+        private boolean draining;
+        private volatile boolean closed;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        synchronized void offer(PoolEvent event) {
+            if (closed) return;
+            String key = event.getName() != null ? event.getType() + "/" + event.getName() : event.getType() + "#" + event.getId();
+            // 同一对象仅保留最新状态，并移到队尾保持事件顺序
+            if (pending.remove(key) == null && pending.size() >= bufferSize) {
+                Iterator<String> it = pending.keySet().iterator();
+                it.next();
+                it.remove();
+                dropped++;
+            }
+            pending.put(key, event);
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.acmp.compute.service;
+
+import com.acmp.compute.dto.NodeCacheEntry;
+import com.acmp.compute.dto.PrestageItemResponse;
+import com.acmp.compute.dto.PrestageRequest;
+import com.acmp.compute.entity.PrestageItem;
+import com.acmp.compute.exception.ResourceNotFoundException;
+import com.acmp.compute.k8s.ClusterInformers;
+import com.acmp.compute.k8s.K8sResourceBuilder;
+import com.acmp.compute.k8s.KubernetesClientManager;
+import com.acmp.compute.k8s.SpecHash;
+import com.acmp.compute.mapper.PhysicalClusterMapper;
+import com.acmp.compute.mapper.PrestageItemMapper;
+import io.fabric8.kubernetes.api.model.Affinity;
+import io.fabric8.kubernetes.api.model.ContainerImage;
+import io.fabric8.kubernetes.api.model.Node;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.apps.DaemonSet;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 镜像预拉取与权重预置：管理员把镜像或权重目录标记为热点，平台在物理集群的 GPU 节点（或 nodeSelector 选中的节点）上
+ * 运行预置 DaemonSet（见 {@link K8sResourceBuilder#buildPrestageDaemonSet}），新加入的节点由 DaemonSet 自动覆盖。
+ * <ul>
+ *   <li>索引：节点已有的镜像及 digest 取自 Node status.images（kubelet 上报），已预置的权重目录取自节点上已就绪的预置 Pod；
+ *       由 Informer 缓存计算，短时缓存</li>
+ *   <li>调度：vLLM 部署与温备副本附加 preferred 节点亲和，倾向已有镜像与权重的节点，见 {@link #preferredAffinity}</li>
+ *   <li>预置 DaemonSet 定期重新 apply，删除后由下一轮补回；{@link KubernetesClientManager#apply} 写入 {@link SpecHash} 注解，
+ *       与集群中对象的注解相同则跳过写入</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+public class PrestageService {
+
+    static final String KIND_IMAGE = "image";
+    static final String KIND_WEIGHTS = "weights";
+    private static final String LABEL_PRESTAGE = "acmp.io/prestage";
+    private static final Map<String, String> GPU_NODES = Map.of("gpu-node", "true");
+
+    private final PrestageItemMapper prestageItemMapper;
+    private final PhysicalClusterMapper physicalClusterMapper;
+    private final KubernetesClientManager clientManager;
+    private final boolean enabled;
+    private final String namespace;
+    private final String helperImage;
+    private final String pauseImage;
+    private final long indexCacheMs;
+
+    /** 集群 ID -> 节点预置索引 */
+    private final Map<String, Index> indexes = new ConcurrentHashMap<>();
+
+    public PrestageService(PrestageItemMapper prestageItemMapper,
+                           PhysicalClusterMapper physicalClusterMapper,
+                           KubernetesClientManager clientManager,
+                           @Value("${prestage.enabled:true}") boolean enabled,
+                           @Value("${prestage.namespace:acmp-system}") String namespace,
+                           @Value("${prestage.helper-image:busybox:1.36}") String helperImage,
+                           @Value("${prestage.pause-image:registry.k8s.io/pause:3.9}") String pauseImage,
+                           @Value("${prestage.index-cache-ms:10000}") long indexCacheMs) {
+        this.prestageItemMapper = prestageItemMapper;
+        this.physicalClusterMapper = physicalClusterMapper;
+        this.clientManager = clientManager;
+        this.enabled = enabled;
+        this.namespace = namespace;
+        this.helperImage = helperImage;
+        this.pauseImage = pauseImage;
+        this.indexCacheMs = indexCacheMs;
+    }
+
+    public PrestageItemResponse create(String physicalClusterId, PrestageRequest request) {
+        if (physicalClusterMapper.findById(physicalClusterId).isEmpty()) {
+            throw new ResourceNotFoundException("物理集群不存在: " + physicalClusterId);
+        }
+        if (KIND_IMAGE.equals(request.getKind()) && isBlank(request.getImage())) {
+            throw new IllegalArgumentException("kind=image 时 image 不能为空");
+        }
+        if (KIND_WEIGHTS.equals(request.getKind()) && isBlank(request.getHostPath())) {
+            throw new IllegalArgumentException("kind=weights 时 hostPath 不能为空");
+        }
+        PrestageItem item = PrestageItem.builder()
+                .id(UUID.randomUUID().toString())
+                .physicalClusterId(physicalClusterId)
+                .kind(request.getKind())
+                .image(KIND_IMAGE.equals(request.getKind()) ? request.getImage() : null)
+                .hostPath(KIND_WEIGHTS.equals(request.getKind()) ? trimSlash(request.getHostPath()) : null)
+                .sourcePath(KIND_WEIGHTS.equals(request.getKind()) ? request.getSourcePath() : null)
+                .nodeSelector(request.getNodeSelector())
+                .build();
+        prestageItemMapper.insert(item);
+        try {
+            apply(item);
+        } catch (RuntimeException e) {
+            log.warn("预置项 {} 下发失败，将在下一轮重试: {}", item.getId(), e.getMessage());
+        }
+        return toResponse(item, null);
+    }
+
+    public List<PrestageItemResponse> list(String physicalClusterId) {
+        return prestageItemMapper.findByPhysicalClusterId(physicalClusterId).stream()
+                .map(item -> {
+                    DaemonSet ds = null;
+                    try {
+                        ds = clientManager.call(physicalClusterId, client -> client.apps().daemonSets()
+                                .inNamespace(namespace).withName(daemonSetName(item)).get());
+                    } catch (RuntimeException e) {
+                        log.debug("读取预置 DaemonSet {} 失败: {}", daemonSetName(item), e.getMessage());
+                    }
+                    return toResponse(item, ds);
+                })
+                .collect(Collectors.toList());
+    }
+
+    public void delete(String itemId) {
+        PrestageItem item = prestageItemMapper.findById(itemId)
+                .orElseThrow(() -> new ResourceNotFoundException("预置项不存在: " + itemId));
+        prestageItemMapper.deleteById(itemId);
+        try {
+            clientManager.run(item.getPhysicalClusterId(), client -> client.apps().daemonSets()
+                    .inNamespace(namespace).withName(daemonSetName(item)).delete());
+        } catch (RuntimeException e) {
+            log.warn("删除预置 DaemonSet {} 失败: {}", daemonSetName(item), e.getMessage());
+        }
+        indexes.remove(item.getPhysicalClusterId());
+    }
+
+    @Scheduled(initialDelayString = "${prestage.initial-delay-ms:60000}", fixedDelayString = "${prestage.interval-ms:300000}")
+    public void reconcileAll() {
+        if (!enabled) return;
+        for (PrestageItem item : prestageItemMapper.findAll()) {
+            try {
+                KubernetesClientManager.inBackground(() -> {
+                    apply(item);
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                log.warn("预置项 {} 下发失败: {}", item.getId(), e.getMessage());
+            }
+        }
+    }
+
+    private void apply(PrestageItem item) {
+        clientManager.createNamespace(item.getPhysicalClusterId(), namespace);
+        clientManager.apply(item.getPhysicalClusterId(), K8sResourceBuilder.buildPrestageDaemonSet(
+                daemonSetName(item), namespace, item.getId(), item.getKind(), item.getImage(), item.getHostPath(),
+                item.getSourcePath(), nodeSelectorOf(item), helperImage, pauseImage));
+    }
+
+    /** 集群各节点的预置索引（按节点名排序） */
+    public List<NodeCacheEntry> index(String physicalClusterId) {
+        if (physicalClusterMapper.findById(physicalClusterId).isEmpty()) {
+            throw new ResourceNotFoundException("物理集群不存在: " + physicalClusterId);
+        }
+        Index index = indexOf(physicalClusterId);
+        Set<String> nodes = new HashSet<>(index.images.keySet());
+        nodes.addAll(index.weights.keySet());
+        return nodes.stream().sorted()
+                .map(node -> NodeCacheEntry.builder()
+                        .nodeName(node)
+                        .images(new TreeMap<>(index.images.getOrDefault(node, Map.of())))
+                        .weights(index.weights.getOrDefault(node, Set.of()).stream().sorted().collect(Collectors.toList()))
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 倾向已有镜像与权重的节点的亲和；没有任何节点缓存或集群不可达时返回 null（不影响部署）。
+     */
+    public Affinity preferredAffinity(String physicalClusterId, String image, String hostModelPath) {
+        if (!enabled) return null;
+        try {
+            Index index = indexOf(physicalClusterId);
+            String ref = image != null ? normalizeImage(image) : null;
+            String path = hostModelPath != null && !hostModelPath.isEmpty() ? trimSlash(hostModelPath) : null;
+            List<String> imageNodes = new ArrayList<>();
+            index.images.forEach((node, images) -> {
+                if (ref != null && images.containsKey(ref)) imageNodes.add(node);
+            });
+            List<String> weightNodes = new ArrayList<>();
+            index.weights.forEach((node, paths) -> {
+                if (path != null && paths.contains(path)) weightNodes.add(node);
+            });
+            return K8sResourceBuilder.preferredNodeAffinity(imageNodes, weightNodes);
+        } catch (RuntimeException e) {
+            log.debug("集群 {} 预置索引不可用: {}", physicalClusterId, e.getMessage());
+            return null;
+        }
+    }
+
+    private Index indexOf(String physicalClusterId) {
+        long now = System.currentTimeMillis();
+        Index cached = indexes.get(physicalClusterId);
+        if (cached != null && now - cached.builtAtMs < indexCacheMs) return cached;
+
+        ClusterInformers informers = clientManager.getInformers(physicalClusterId);
+        List<Node> nodes = informers.nodes().hasSynced()
+                ? informers.nodes().getStore().list()
+                : clientManager.call(physicalClusterId, client -> client.nodes().list().getItems());
+        List<Pod> pods = clientManager.listPods(physicalClusterId, namespace, "app", "acmp-prestage").getValue();
+        Map<String, PrestageItem> items = prestageItemMapper.findByPhysicalClusterId(physicalClusterId).stream()
+                .collect(Collectors.toMap(PrestageItem::getId, i -> i));
+
+        Index index = new Index(now);
+        for (Node node : nodes) {
+            if (node.getStatus() == null || node.getStatus().getImages() == null) continue;
+            Map<String, String> images = index.images.computeIfAbsent(node.getMetadata().getName(), k -> new HashMap<>());
+            for (ContainerImage ci : node.getStatus().getImages()) {
+                if (ci.getNames() == null) continue;
+                String digest = ci.getNames().stream().filter(n -> n.contains("@")).findFirst()
+                        .map(n -> n.substring(n.indexOf('@') + 1)).orElse("");
+                for (String name : ci.getNames()) images.put(normalizeImage(name), digest);
+            }
+        }
+        for (Pod pod : pods) {
+            PrestageItem item = items.get(pod.getMetadata().getLabels().get(LABEL_PRESTAGE));
+            String node = pod.getSpec() != null ? pod.getSpec().getNodeName() : null;
+            if (item == null || node == null || !ClusterInformers.isReady(pod)) continue;
+            if (KIND_WEIGHTS.equals(item.getKind())) {
+                index.weights.computeIfAbsent(node, k -> new HashSet<>()).add(item.getHostPath());
+            } else {
+                // kubelet 只上报部分镜像（默认最大的 50 个），预置 Pod 就绪同样说明镜像已在节点上
+                index.images.computeIfAbsent(node, k -> new HashMap<>()).putIfAbsent(normalizeImage(item.getImage()), "");
+            }
+        }
+        indexes.put(physicalClusterId, index);
+        return index;
+    }
+
+    /**
+     * 规范化镜像地址以便与 kubelet 上报的名称比较：补全默认仓库 docker.io、官方镜像前缀 library/ 与默认标签 latest。
+     */
+    static String normalizeImage(String ref) {
+        int at = ref.indexOf('@');
+        String name = at >= 0 ? ref.substring(0, at) : ref;
+        int slash = name.indexOf('/');
+        String first = slash >= 0 ? name.substring(0, slash) : "";
+        boolean hasRegistry = slash >= 0 && (first.contains(".") || first.contains(":") || "localhost".equals(first));
+        if (!hasRegistry) name = "docker.io/" + (slash >= 0 ? name : "library/" + name);
+        if (at >= 0) return name + ref.substring(at);
+        return name.indexOf(':', name.lastIndexOf('/')) < 0 ? name + ":latest" : name;
+    }
+
+    private static Map<String, String> nodeSelectorOf(PrestageItem item) {
+        if (isBlank(item.getNodeSelector())) return GPU_NODES;
+        String[] kv = item.getNodeSelector().split("=", 2);
+        return Map.of(kv[0], kv[1]);
+    }
+
+    private static String daemonSetName(PrestageItem item) {
+        return "prestage-" + item.getKind() + "-" + item.getId().substring(0, 8);
+    }
+
+    private static boolean isBlank(String s) {
+        return s == null || s.isBlank();
+    }
+
+    private static String trimSlash(String path) {
+        return path.length() > 1 && path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+    }
+
+    private static PrestageItemResponse toResponse(PrestageItem item, DaemonSet ds) {
+        return PrestageItemResponse.builder()
+                .id(item.getId())
+                .physicalClusterId(item.getPhysicalClusterId())
+                .kind(item.getKind())
+                .image(item.getImage())
+                .hostPath(item.getHostPath())
+                .sourcePath(item.getSourcePath())
+                .nodeSelector(item.getNodeSelector())
+                .desiredNodes(ds != null && ds.getStatus() != null ? ds.getStatus().getDesiredNumberScheduled() : null)
+                .readyNodes(ds != null && ds.getStatus() != null ? ds.getStatus().getNumberReady() : null)
+                .createdAt(item.getCreatedAt())
+                .build();
+    }
+
+    /** 节点名 -> 镜像（规范化地址 -> digest）与已预置的权重目录 */
+    private static final class Index {
+        private final long builtAtMs;
+        private final Map<String, Map<String, String>> images = new HashMap<>();
+        private final Map<String, Set<String>> weights = new HashMap<>();
+
+        Index(long builtAtMs) {
+            this.builtAtMs = builtAtMs;
+        }
+    }
+}
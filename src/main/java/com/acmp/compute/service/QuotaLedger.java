@@ -0,0 +1,428 @@
+package com.acmp.compute.service;
+
+import com.acmp.compute.entity.ModelDeployment;
+import com.acmp.compute.entity.ResourcePool;
+import com.acmp.compute.exception.QuotaExceededException;
+import com.acmp.compute.k8s.CapacityIndex;
+import com.acmp.compute.k8s.ClusterInformers;
+import com.acmp.compute.k8s.K8sResourceBuilder;
+import com.acmp.compute.k8s.KubernetesClientManager;
+import com.acmp.compute.mapper.ModelDeploymentMapper;
+import com.acmp.compute.mapper.ResourcePoolMapper;
+import io.fabric8.kubernetes.api.model.GenericKubernetesResource;
+import io.fabric8.kubernetes.api.model.Quantity;
+import io.fabric8.kubernetes.client.informers.ResourceEventHandler;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 资源池配额账本：在提交到 apiserver 之前按资源池剩余的 GPU / CPU / 内存做准入，超额请求直接拒绝并给出缺口。
+ * <ul>
+ *   <li>每个资源池的占用量是一个不可变的 {@link Usage}，预留以 CAS 整体替换，多个维度同时检查、无锁</li>
+ *   <li>占用按 key 登记（deployment:&lt;id&gt;、job:&lt;name&gt;）：reserve 预留，提交成功后 commit，失败或删除时 release</li>
+ *   <li>启动时从数据库中的模型部署重建；训练任务由 VolcanoJob Informer 补齐（含首次同步回放），任务结束或删除时自动释放</li>
+ * </ul>
+ * 限额取 ResourcePool 的 gpuSlots + gpuBorrowed（与 ResourceQuota 一致）/ cpuCores / memoryGiB（为空表示不限）；gpumem、gpucores 只记账不限额。
+ * 账本只做快速失败，最终约束仍以集群 ResourceQuota 为准。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class QuotaLedger {
+
+    public static final String KEY_DEPLOYMENT = "deployment:";
+    public static final String KEY_JOB = "job:";
+    /** 温备池待命副本，见 WarmPoolService */
+    public static final String KEY_STANDBY = "standby:";
+
+    static final Set<String> TERMINAL_JOB_PHASES = Set.of("Completed", "Failed", "Terminated", "Aborted");
+    /** 不占用集群资源的部署状态 */
+    private static final Set<String> RELEASED_DEPLOYMENT_STATUSES = Set.of("failed", "missing", "stopped");
+
+    private final ResourcePoolMapper resourcePoolMapper;
+    private final ModelDeploymentMapper modelDeploymentMapper;
+    private final KubernetesClientManager clientManager;
+
+    /** 资源池 ID -> 账本 */
+    private final Map<String, PoolLedger> ledgers = new ConcurrentHashMap<>();
+    /** clusterId/namespace -> 资源池 ID，供 Informer 事件定位账本 */
+    private final Map<String, String> poolByNamespace = new ConcurrentHashMap<>();
+    /** 集群 ID -> 已注册 VolcanoJob 处理器的 Informer 集合（客户端重建后需重新注册） */
+    private final Map<String, ClusterInformers> watched = new ConcurrentHashMap<>();
+
+    /** 启动时从数据库重建全部资源池的账本，并注册 VolcanoJob 事件以补齐训练任务占用 */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        int pools = 0, holdings = 0;
+        for (ResourcePool pool : resourcePoolMapper.findAll()) {
+            PoolLedger ledger = ledgerOf(pool);
+            for (ModelDeployment d : modelDeploymentMapper.findByResourcePoolId(pool.getId())) {
+                if (RELEASED_DEPLOYMENT_STATUSES.contains(d.getStatus())) continue;
+                if (ledger.hold(KEY_DEPLOYMENT + d.getId(), usageOf(d))) holdings++;
+            }
+            pools++;
+            try {
+                watch(pool.getPhysicalClusterId());
+            } catch (RuntimeException e) {
+                log.warn("集群 {} VolcanoJob 事件注册失败，训练任务占用暂不可见: {}", pool.getPhysicalClusterId(), e.getMessage());
+            }
+        }
+        log.info("配额账本已重建：{} 个资源池，{} 条部署占用", pools, holdings);
+    }
+
+    /**
+     * 原子预留：剩余配额足够时登记为 key 的占用并返回预留凭证，否则抛出 {@link QuotaExceededException}。
+     * 调用方须在提交成功后 commit，失败时 release。
+     */
+    public Reservation reserve(ResourcePool pool, String key, Usage usage) {
+        PoolLedger ledger = ledgerOf(pool);
+        ledger.reserve(key, usage);
+        return new Reservation(ledger, key);
+    }
+
+    /** 仅检查不预留，用于异步提交在登记操作前快速失败；账本未加载的资源池跳过 */
+    public void check(String poolId, Usage usage) {
+        PoolLedger ledger = ledgers.get(poolId);
+        if (ledger != null) ledger.check(usage);
+    }
+
+    /**
+     * 调整 key 的占用（如部署扩缩容）：增加的部分须有剩余配额，否则抛出 {@link QuotaExceededException}；减少总是成功。
+     * 同一 key 的调整须由单一调用方串行进行。
+     */
+    public void resize(ResourcePool pool, String key, Usage usage) {
+        ledgerOf(pool).resize(key, usage);
+    }
+
+    /** 释放 key 的占用（如删除部署），不存在时忽略 */
+    public void release(String poolId, String key) {
+        PoolLedger ledger = ledgers.get(poolId);
+        if (ledger != null) ledger.release(key);
+    }
+
+    /**
+     * 调谐收敛部署状态后同步其占用：转入 failed / missing / stopped 时释放；
+     * 从这些状态恢复（如在集群中被手动扩容）时按库中规格无条件登记，对象已在运行，不做限额检查。
+     */
+    public void syncDeployment(ResourcePool pool, ModelDeployment d, String status) {
+        String key = KEY_DEPLOYMENT + d.getId();
+        if (RELEASED_DEPLOYMENT_STATUSES.contains(status)) {
+            release(pool.getId(), key);
+        } else {
+            ledgerOf(pool).hold(key, usageOf(d));
+        }
+    }
+
+    /** 资源池容量变更后刷新限额；已有占用不受影响，超出新限额的部分只会阻止后续预留 */
+    public void updateLimits(ResourcePool pool) {
+        PoolLedger ledger = ledgers.get(pool.getId());
+        if (ledger != null) ledger.limits = limitsOf(pool);
+    }
+
+    /** 当前占用（含未 commit 的预留），账本未加载时返回 null */
+    public Usage used(String poolId) {
+        PoolLedger ledger = ledgers.get(poolId);
+        return ledger != null ? ledger.used.get() : null;
+    }
+
+    private PoolLedger ledgerOf(ResourcePool pool) {
+        return ledgers.computeIfAbsent(pool.getId(), id -> {
+            poolByNamespace.put(namespaceKey(pool.getPhysicalClusterId(), pool.getNamespace()), id);
+            return new PoolLedger(id, limitsOf(pool));
+        });
+    }
+
+    /** 在集群 VolcanoJob Informer 上注册处理器：未结束的任务登记占用，结束或删除时释放 */
+    private void watch(String physicalClusterId) {
+        ClusterInformers informers = clientManager.getInformers(physicalClusterId);
+        if (watched.get(physicalClusterId) == informers) return;
+        synchronized (watched) {
+            if (watched.get(physicalClusterId) == informers) return;
+            informers.volcanoJobs().addEventHandler(new ResourceEventHandler<GenericKubernetesResource>() {
+                @Override
+                public void onAdd(GenericKubernetesResource obj) {
+                    observe(physicalClusterId, obj, false);
+                }
+
+                @Override
+                public void onUpdate(GenericKubernetesResource oldObj, GenericKubernetesResource newObj) {
+                    observe(physicalClusterId, newObj, false);
+                }
+
+                @Override
+                public void onDelete(GenericKubernetesResource obj, boolean deletedFinalStateUnknown) {
+                    observe(physicalClusterId, obj, true);
+                }
+            });
+            watched.put(physicalClusterId, informers);
+        }
+    }
+
+    private void observe(String physicalClusterId, GenericKubernetesResource job, boolean deleted) {
+        String poolId = poolByNamespace.get(namespaceKey(physicalClusterId, job.getMetadata().getNamespace()));
+        PoolLedger ledger = poolId != null ? ledgers.get(poolId) : null;
+        if (ledger == null) return;
+        // 多节点模型服务的 VolcanoJob 按部署记录（KEY_DEPLOYMENT）登记
+        Map<String, String> labels = job.getMetadata().getLabels();
+        if (labels != null && labels.containsKey(K8sResourceBuilder.LABEL_SERVING_GROUP)) return;
+        String key = KEY_JOB + job.getMetadata().getName();
+        if (deleted || TERMINAL_JOB_PHASES.contains(jobPhase(job))) {
+            ledger.release(key);
+        } else {
+            ledger.hold(key, usageOf(job));
+        }
+    }
+
+    /** 确保训练任务所在集群已注册 VolcanoJob 事件（新建资源池后首次提交时调用） */
+    void watchJobs(String physicalClusterId) {
+        try {
+            watch(physicalClusterId);
+        } catch (RuntimeException e) {
+            log.warn("集群 {} VolcanoJob 事件注册失败: {}", physicalClusterId, e.getMessage());
+        }
+    }
+
+    public static Usage usageOf(ModelDeployment d) {
+        return Usage.vllmReplica(nz(d.getGpuPerReplica()), nz(d.getGpumemMb()), nz(d.getGpucores()))
+                .times(nz(d.getReplicas()) * Math.max(1, nz(d.getNodes())));
+    }
+
+    /** VolcanoJob 的总请求量：各 task 的 replicas × 容器请求（未声明 requests 时以 limits 计） */
+    @SuppressWarnings("unchecked")
+    public static Usage usageOf(GenericKubernetesResource job) {
+        Usage total = Usage.ZERO;
+        Object spec = job.getAdditionalProperties().get("spec");
+        if (!(spec instanceof Map)) return total;
+        Object tasks = ((Map<String, Object>) spec).get("tasks");
+        if (!(tasks instanceof List)) return total;
+        for (Object t : (List<Object>) tasks) {
+            if (!(t instanceof Map)) continue;
+            Map<String, Object> task = (Map<String, Object>) t;
+            int replicas = task.get("replicas") instanceof Number ? ((Number) task.get("replicas")).intValue() : 1;
+            Usage pod = Usage.ZERO;
+            for (Map<String, Object> c : containersOf(task)) {
+                Map<String, Object> resources = c.get("resources") instanceof Map ? (Map<String, Object>) c.get("resources") : Map.of();
+                Map<String, Object> limits = resources.get("limits") instanceof Map ? (Map<String, Object>) resources.get("limits") : Map.of();
+                Map<String, Object> requests = resources.get("requests") instanceof Map ? (Map<String, Object>) resources.get("requests") : Map.of();
+                pod = pod.plus(Usage.perReplica(
+                        CapacityIndex.toLong(quantity(requests, limits, CapacityIndex.RESOURCE_GPU)),
+                        CapacityIndex.toLong(quantity(requests, limits, CapacityIndex.RESOURCE_GPUMEM)),
+                        CapacityIndex.toLong(quantity(requests, limits, CapacityIndex.RESOURCE_GPUCORES)),
+                        CapacityIndex.toMillis(quantity(requests, limits, "cpu")),
+                        CapacityIndex.toLong(quantity(requests, limits, "memory"))));
+            }
+            total = total.plus(pod.times(replicas));
+        }
+        return total;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> containersOf(Map<String, Object> task) {
+        Object template = task.get("template");
+        if (!(template instanceof Map)) return List.of();
+        Object podSpec = ((Map<String, Object>) template).get("spec");
+        if (!(podSpec instanceof Map)) return List.of();
+        Object containers = ((Map<String, Object>) podSpec).get("containers");
+        return containers instanceof List ? (List<Map<String, Object>>) containers : List.of();
+    }
+
+    private static Quantity quantity(Map<String, Object> requests, Map<String, Object> limits, String name) {
+        Object v = requests.containsKey(name) ? requests.get(name) : limits.get(name);
+        if (v == null) return null;
+        return v instanceof Quantity ? (Quantity) v : Quantity.parse(String.valueOf(v));
+    }
+
+    @SuppressWarnings("unchecked")
+    static String jobPhase(GenericKubernetesResource job) {
+        Object status = job.getAdditionalProperties().get("status");
+        if (!(status instanceof Map)) return null;
+        Object state = ((Map<String, Object>) status).get("state");
+        return state instanceof Map ? (String) ((Map<String, Object>) state).get("phase") : null;
+    }
+
+    /**
+     * GPU 限额与 ResourceQuota 一致，取当前可用量 gpuSlots + gpuBorrowed（借出时为负）：
+     * 借出中的资源池不会在账本通过而在 apiserver 被拒，收回后也不会重新扩进已收回的 GPU。借入量变化时由弹性配额控制器刷新。
+     */
+    private static Usage limitsOf(ResourcePool pool) {
+        return new Usage(
+                pool.getGpuSlots() != null ? ResourcePoolService.gpuAllowance(pool) : Long.MAX_VALUE,
+                Long.MAX_VALUE,
+                Long.MAX_VALUE,
+                pool.getCpuCores() != null ? pool.getCpuCores() * 1000L : Long.MAX_VALUE,
+                pool.getMemoryGiB() != null ? pool.getMemoryGiB() * (1L << 30) : Long.MAX_VALUE);
+    }
+
+    private static String namespaceKey(String physicalClusterId, String namespace) {
+        return physicalClusterId + "/" + namespace;
+    }
+
+    private static int nz(Integer v) {
+        return v != null ? v : 0;
+    }
+
+    /** 多维资源量（不可变）：GPU 卡数、HAMi gpumem（MiB）与 gpucores（百分比核数）、CPU 毫核、内存字节 */
+    @Getter
+    public static final class Usage {
+        public static final Usage ZERO = new Usage(0, 0, 0, 0, 0);
+
+        private final long gpu;
+        private final long gpumemMb;
+        private final long gpucores;
+        private final long cpuMillis;
+        private final long memoryBytes;
+
+        public Usage(long gpu, long gpumemMb, long gpucores, long cpuMillis, long memoryBytes) {
+            this.gpu = gpu;
+            this.gpumemMb = gpumemMb;
+            this.gpucores = gpucores;
+            this.cpuMillis = cpuMillis;
+            this.memoryBytes = memoryBytes;
+        }
+
+        public static Usage perReplica(long gpu, long gpumemMb, long gpucores, long cpuMillis, long memoryBytes) {
+            return new Usage(gpu, gpumemMb, gpucores, cpuMillis, memoryBytes);
+        }
+
+        /** vLLM 服务单个 Pod 的占用：CPU / 内存按 {@link K8sResourceBuilder} 给容器设置的每卡请求推算 */
+        public static Usage vllmReplica(long gpu, long gpumemMb, long gpucores) {
+            return new Usage(gpu, gpumemMb, gpucores, gpu * K8sResourceBuilder.VLLM_CPU_MILLIS_PER_GPU,
+                    gpu * (K8sResourceBuilder.VLLM_MEMORY_GIB_PER_GPU << 30));
+        }
+
+        public Usage times(int n) {
+            return new Usage(gpu * n, gpumemMb * n, gpucores * n, cpuMillis * n, memoryBytes * n);
+        }
+
+        public Usage plus(Usage o) {
+            return new Usage(gpu + o.gpu, gpumemMb + o.gpumemMb, gpucores + o.gpucores,
+                    cpuMillis + o.cpuMillis, memoryBytes + o.memoryBytes);
+        }
+
+        public Usage minus(Usage o) {
+            return new Usage(gpu - o.gpu, gpumemMb - o.gpumemMb, gpucores - o.gpucores,
+                    cpuMillis - o.cpuMillis, memoryBytes - o.memoryBytes);
+        }
+
+        /** 本占用相对限额的缺口，未超出时为空 */
+        Map<String, Long> shortfall(Usage limits) {
+            Map<String, Long> s = new LinkedHashMap<>();
+            if (gpu > limits.gpu) s.put("gpu", gpu - limits.gpu);
+            if (gpumemMb > limits.gpumemMb) s.put("gpumemMb", gpumemMb - limits.gpumemMb);
+            if (gpucores > limits.gpucores) s.put("gpucores", gpucores - limits.gpucores);
+            if (cpuMillis > limits.cpuMillis) s.put("cpuMillis", cpuMillis - limits.cpuMillis);
+            if (memoryBytes > limits.memoryBytes) s.put("memoryBytes", memoryBytes - limits.memoryBytes);
+            return s;
+        }
+
+        @Override
+        public String toString() {
+            return "gpu=" + gpu + ", gpumemMb=" + gpumemMb + ", gpucores=" + gpucores
+                    + ", cpuMillis=" + cpuMillis + ", memoryBytes=" + memoryBytes;
+        }
+    }
+
+    /** 预留凭证：commit 与 release 均幂等，release 在 commit 之后调用等同于删除占用 */
+    public static final class Reservation {
+        private final PoolLedger ledger;
+        @Getter
+        private final String key;
+        private volatile boolean committed;
+
+        private Reservation(PoolLedger ledger, String key) {
+            this.ledger = ledger;
+            this.key = key;
+        }
+
+        public void commit() {
+            committed = true;
+        }
+
+        /** 提交失败时释放；已 commit 的预留不受影响 */
+        public void releaseIfUncommitted() {
+            if (!committed) ledger.release(key);
+        }
+    }
+
+    /** 单个资源池的账本 */
+    private static final class PoolLedger {
+        private final String poolId;
+        private final AtomicReference<Usage> used = new AtomicReference<>(Usage.ZERO);
+        private final Map<String, Usage> holdings = new ConcurrentHashMap<>();
+        private volatile Usage limits;
+
+        PoolLedger(String poolId, Usage limits) {
+            this.poolId = poolId;
+            this.limits = limits;
+        }
+
+        void check(Usage usage) {
+            Map<String, Long> shortfall = used.get().plus(usage).shortfall(limits);
+            if (!shortfall.isEmpty()) throw new QuotaExceededException(poolId, shortfall);
+        }
+
+        void reserve(String key, Usage usage) {
+            if (holdings.putIfAbsent(key, usage) != null) {
+                throw new IllegalArgumentException("资源占用已存在: " + key);
+            }
+            while (true) {
+                Usage cur = used.get();
+                Usage next = cur.plus(usage);
+                Map<String, Long> shortfall = next.shortfall(limits);
+                if (!shortfall.isEmpty()) {
+                    holdings.remove(key, usage);
+                    throw new QuotaExceededException(poolId, shortfall);
+                }
+                if (used.compareAndSet(cur, next)) return;
+            }
+        }
+
+        void resize(String key, Usage usage) {
+            Usage old = holdings.getOrDefault(key, Usage.ZERO);
+            Usage delta = usage.minus(old);
+            while (true) {
+                Usage cur = used.get();
+                Usage next = cur.plus(delta);
+                Map<String, Long> shortfall = next.shortfall(limits);
+                // 只在增加的维度上检查：已超限的资源池仍允许缩容
+                shortfall.keySet().removeIf(k -> !grows(delta, k));
+                if (!shortfall.isEmpty()) throw new QuotaExceededException(poolId, shortfall);
+                if (used.compareAndSet(cur, next)) break;
+            }
+            holdings.put(key, usage);
+        }
+
+        private static boolean grows(Usage delta, String dimension) {
+            switch (dimension) {
+                case "gpu": return delta.gpu > 0;
+                case "gpumemMb": return delta.gpumemMb > 0;
+                case "gpucores": return delta.gpucores > 0;
+                case "cpuMillis": return delta.cpuMillis > 0;
+                default: return delta.memoryBytes > 0;
+            }
+        }
+
+        /** 无条件登记已存在于集群中的占用（重建与 Informer 回放），已登记时不重复计入 */
+        boolean hold(String key, Usage usage) {
+            if (holdings.putIfAbsent(key, usage) != null) return false;
+            used.accumulateAndGet(usage, Usage::plus);
+            return true;
+        }
+
+        void release(String key) {
+            Usage usage = holdings.remove(key);
+            if (usage != null) used.accumulateAndGet(usage, Usage::minus);
+        }
+    }
+}
@@ -0,0 +1,425 @@
+package com.acmp.compute.service;
+
+import com.acmp.compute.entity.ModelDeployment;
+import com.acmp.compute.entity.PhysicalCluster;
+import com.acmp.compute.entity.ResourcePool;
+import com.acmp.compute.exception.ClusterUnavailableException;
+import com.acmp.compute.k8s.ApplyStats;
+import com.acmp.compute.k8s.ClusterInformers;
+import com.acmp.compute.k8s.KubernetesClientManager;
+import com.acmp.compute.k8s.WorkQueue;
+import com.acmp.compute.mapper.ModelDeploymentMapper;
+import com.acmp.compute.mapper.PhysicalClusterMapper;
+import com.acmp.compute.mapper.ResourcePoolMapper;
+import io.fabric8.kubernetes.api.model.GenericKubernetesResource;
+import io.fabric8.kubernetes.api.model.ResourceQuota;
+import io.fabric8.kubernetes.api.model.apps.Deployment;
+import io.fabric8.kubernetes.api.model.apps.DeploymentCondition;
+import io.fabric8.kubernetes.client.informers.ResourceEventHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 后台调谐：让集群状态向库中记录收敛（控制器模式）。
+ * <ul>
+ *   <li>资源池：重新 apply Namespace / ResourceQuota / RBAC / Volcano Queue，补回被删除的对象（哈希一致的对象不写入）</li>
+ *   <li>模型部署：按 Deployment 实际状态收敛 status 列（running / pending / stopped / missing / failed）</li>
+ *   <li>孤儿回收：资源池 namespace 下库中已无记录的 vLLM Deployment 及其 Service</li>
+ * </ul>
+ * 每个集群一个去重、限流的工作队列与可配置数量的 worker；队列由 Informer 事件与周期性全量 resync 驱动，
+ * 失败按 key 指数退避重试。所有调用走后台限流通道，不挤占用户交互请求。
+ */
+@Slf4j
+@Service
+public class ReconcileService {
+
+    private static final String KEY_POOL = "pool:";
+    private static final String KEY_NAMESPACE = "namespace:";
+    private static final String KEY_DEPLOYMENT = "deployment:";
+    private static final String KEY_K8S_DEPLOYMENT = "k8s-deployment:";
+    private static final String KEY_ORPHANS = "orphans";
+
+    private final PhysicalClusterMapper physicalClusterMapper;
+    private final ResourcePoolMapper resourcePoolMapper;
+    private final ModelDeploymentMapper modelDeploymentMapper;
+    private final ResourcePoolService resourcePoolService;
+    private final QuotaLedger quotaLedger;
+    private final KubernetesClientManager clientManager;
+    private final Environment environment;
+
+    private final boolean enabled;
+    private final int defaultWorkers;
+    private final double qps;
+    private final int burst;
+    private final long baseBackoffMs;
+    private final long maxBackoffMs;
+    private final long graceMs;
+    private final boolean gcOrphans;
+
+    /** 集群 ID -> 工作队列与 worker */
+    private final Map<String, ClusterWorkers> workers = new ConcurrentHashMap<>();
+    /** 集群 ID -> 已注册事件处理器的 Informer 集合（客户端重建后需重新注册） */
+    private final Map<String, ClusterInformers> watched = new ConcurrentHashMap<>();
+
+    public ReconcileService(PhysicalClusterMapper physicalClusterMapper,
+                            ResourcePoolMapper resourcePoolMapper,
+                            ModelDeploymentMapper modelDeploymentMapper,
+                            ResourcePoolService resourcePoolService,
+                            QuotaLedger quotaLedger,
+                            KubernetesClientManager clientManager,
+                            Environment environment,
+                            @Value("${reconcile.enabled:true}") boolean enabled,
+                            @Value("${reconcile.workers-per-cluster:2}") int defaultWorkers,
+                            @Value("${reconcile.qps:5}") double qps,
+                            @Value("${reconcile.burst:20}") int burst,
+                            @Value("${reconcile.base-backoff-ms:500}") long baseBackoffMs,
+                            @Value("${reconcile.max-backoff-ms:300000}") long maxBackoffMs,
+                            @Value("${reconcile.grace-ms:120000}") long graceMs,
+                            @Value("${reconcile.gc-orphans:true}") boolean gcOrphans) {
+        this.physicalClusterMapper = physicalClusterMapper;
+        this.resourcePoolMapper = resourcePoolMapper;
+        this.modelDeploymentMapper = modelDeploymentMapper;
+        this.resourcePoolService = resourcePoolService;
+        this.quotaLedger = quotaLedger;
+        this.clientManager = clientManager;
+        this.environment = environment;
+        this.enabled = enabled;
+        this.defaultWorkers = defaultWorkers;
+        this.qps = qps;
+        this.burst = burst;
+        this.baseBackoffMs = baseBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.graceMs = graceMs;
+        this.gcOrphans = gcOrphans;
+    }
+
+    /**
+     * 周期性全量 resync：为每个集群入队全部资源池、模型部署与一次孤儿扫描。
+     * 事件丢失或 watch 断开期间的漂移由此兜底。
+     */
+    @Scheduled(initialDelayString = "${reconcile.initial-delay-ms:30000}", fixedDelayString = "${reconcile.resync-ms:60000}")
+    public void resync() {
+        if (!enabled) return;
+        List<PhysicalCluster> clusters = physicalClusterMapper.findAll();
+        Set<String> ids = clusters.stream().map(PhysicalCluster::getId).collect(Collectors.toSet());
+        // 已删除的集群：停止其 worker
+        for (String id : new ArrayList<>(workers.keySet())) {
+            if (!ids.contains(id)) {
+                ClusterWorkers w = workers.remove(id);
+                if (w != null) w.shutdown();
+                watched.remove(id);
+            }
+        }
+        for (PhysicalCluster cluster : clusters) {
+            String id = cluster.getId();
+            ClusterWorkers w = workers.computeIfAbsent(id, this::startWorkers);
+            try {
+                watch(id);
+            } catch (RuntimeException e) {
+                log.warn("集群 {} Informer 事件注册失败: {}", id, e.getMessage());
+            }
+            for (ResourcePool pool : resourcePoolMapper.findByPhysicalClusterId(id)) {
+                w.queue.add(KEY_POOL + pool.getId());
+                for (ModelDeployment d : modelDeploymentMapper.findByResourcePoolId(pool.getId())) {
+                    w.queue.add(KEY_DEPLOYMENT + d.getId());
+                }
+            }
+            w.queue.add(KEY_ORPHANS);
+        }
+    }
+
+    /** 在集群 Informer 上注册事件处理器：Deployment 状态变化/删除、ResourceQuota 删除时入队 */
+    private void watch(String physicalClusterId) {
+        ClusterInformers informers = clientManager.getInformers(physicalClusterId);
+        if (watched.get(physicalClusterId) == informers) return;
+        informers.deployments().addEventHandler(new ResourceEventHandler<Deployment>() {
+            @Override
+            public void onAdd(Deployment obj) {
+                // 新增由部署流程自身或 resync 处理
+            }
+
+            @Override
+            public void onUpdate(Deployment oldObj, Deployment newObj) {
+                if (isVllm(newObj) && !Objects.equals(oldObj.getStatus(), newObj.getStatus())) {
+                    enqueue(physicalClusterId, KEY_K8S_DEPLOYMENT + key(newObj));
+                }
+            }
+
+            @Override
+            public void onDelete(Deployment obj, boolean deletedFinalStateUnknown) {
+                if (isVllm(obj)) enqueue(physicalClusterId, KEY_K8S_DEPLOYMENT + key(obj));
+            }
+        });
+        informers.resourceQuotas().addEventHandler(new ResourceEventHandler<ResourceQuota>() {
+            @Override
+            public void onAdd(ResourceQuota obj) {
+            }
+
+            @Override
+            public void onUpdate(ResourceQuota oldObj, ResourceQuota newObj) {
+            }
+
+            @Override
+            public void onDelete(ResourceQuota obj, boolean deletedFinalStateUnknown) {
+                enqueue(physicalClusterId, KEY_NAMESPACE + obj.getMetadata().getNamespace());
+            }
+        });
+        watched.put(physicalClusterId, informers);
+    }
+
+    private void enqueue(String physicalClusterId, String key) {
+        ClusterWorkers w = workers.get(physicalClusterId);
+        if (w != null) w.queue.add(key);
+    }
+
+    private ClusterWorkers startWorkers(String physicalClusterId) {
+        int n = environment.getProperty("reconcile.workers." + physicalClusterId, Integer.class, defaultWorkers);
+        String prefix = "reconcile-" + (physicalClusterId.length() > 8 ? physicalClusterId.substring(0, 8) : physicalClusterId);
+        WorkQueue<String> queue = new WorkQueue<>(prefix, qps, burst, baseBackoffMs, maxBackoffMs);
+        List<Thread> threads = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Thread t = new Thread(() -> workLoop(physicalClusterId, queue), prefix + "-" + (i + 1));
+            t.setDaemon(true);
+            t.start();
+            threads.add(t);
+        }
+        log.info("集群 {} 调谐 worker 已启动（{} 个）", physicalClusterId, n);
+        return new ClusterWorkers(queue, threads);
+    }
+
+    private void workLoop(String physicalClusterId, WorkQueue<String> queue) {
+        while (true) {
+            String key;
+            try {
+                key = queue.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (key == null) return;
+            try {
+                KubernetesClientManager.inBackground(() -> {
+                    reconcile(physicalClusterId, key);
+                    return null;
+                });
+                queue.forget(key);
+            } catch (Exception e) {
+                if (e instanceof ClusterUnavailableException) {
+                    log.debug("调谐 {} 暂缓，集群不可用: {}", key, e.getMessage());
+                } else {
+                    log.warn("调谐 {} 失败（第 {} 次重试）@ cluster {}: {}", key, queue.retries(key) + 1, physicalClusterId, e.getMessage());
+                }
+                queue.addRateLimited(key);
+            } finally {
+                queue.done(key);
+            }
+        }
+    }
+
+    private void reconcile(String physicalClusterId, String key) {
+        if (key.startsWith(KEY_POOL)) {
+            resourcePoolMapper.findById(key.substring(KEY_POOL.length())).ifPresent(this::reconcilePool);
+        } else if (key.startsWith(KEY_NAMESPACE)) {
+            resourcePoolMapper.findByNamespace(physicalClusterId, key.substring(KEY_NAMESPACE.length()))
+                    .ifPresent(this::reconcilePool);
+        } else if (key.startsWith(KEY_DEPLOYMENT)) {
+            modelDeploymentMapper.findById(key.substring(KEY_DEPLOYMENT.length())).ifPresent(record ->
+                    resourcePoolMapper.findById(record.getResourcePoolId()).ifPresent(pool -> reconcileDeployment(pool, record)));
+        } else if (key.startsWith(KEY_K8S_DEPLOYMENT)) {
+            String[] nsName = key.substring(KEY_K8S_DEPLOYMENT.length()).split("/", 2);
+            ResourcePool pool = resourcePoolMapper.findByNamespace(physicalClusterId, nsName[0]).orElse(null);
+            if (pool == null) return;
+            ModelDeployment record = modelDeploymentMapper.findByResourcePoolId(pool.getId()).stream()
+                    .filter(d -> nsName[1].equals(d.getK8sDeploymentName()))
+                    .findFirst().orElse(null);
+            if (record != null) {
+                reconcileDeployment(pool, record);
+            } else {
+                collectOrphan(pool, nsName[1]);
+            }
+        } else if (KEY_ORPHANS.equals(key)) {
+            collectOrphans(physicalClusterId);
+        }
+    }
+
+    private void reconcilePool(ResourcePool pool) {
+        ApplyStats stats;
+        try {
+            stats = resourcePoolService.reconcileObjects(pool);
+        } catch (ClusterUnavailableException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            if ("active".equals(pool.getStatus())) {
+                resourcePoolMapper.updateStatus(pool.getId(), "degraded");
+                log.warn("资源池 {} 调谐失败，标记为 degraded: {}", pool.getId(), e.getMessage());
+            }
+            throw e;
+        }
+        if (stats.getWritten() > 0) {
+            log.info("资源池 {} 已补回漂移对象 ({})", pool.getId(), stats);
+        }
+        if (!"active".equals(pool.getStatus())) {
+            resourcePoolMapper.updateStatus(pool.getId(), "active");
+            log.info("资源池 {} 状态收敛: {} -> active", pool.getId(), pool.getStatus());
+        }
+    }
+
+    private void reconcileDeployment(ResourcePool pool, ModelDeployment record) {
+        String current = record.getStatus();
+        // failed 为部署流程已补偿的终态；pending 且仍在宽限期内说明部署流程尚在进行
+        if ("failed".equals(current)) return;
+        if ("pending".equals(current) && withinGrace(record.getUpdatedAt())) return;
+
+        String observed;
+        if (ModelDeploymentService.isMultiNode(record.getNodes())) {
+            GenericKubernetesResource job = clientManager.readVolcanoJob(pool.getPhysicalClusterId(), pool.getNamespace(),
+                    record.getK8sDeploymentName()).getValue();
+            if (job == null) {
+                if (withinGrace(record.getUpdatedAt())) return;
+                observed = "missing";
+            } else {
+                observed = observedStatus(pool, job);
+            }
+        } else {
+            Deployment deployment = clientManager.readDeployment(pool.getPhysicalClusterId(), pool.getNamespace(),
+                    record.getK8sDeploymentName()).getValue();
+            if (deployment == null) {
+                if (withinGrace(record.getUpdatedAt())) return;
+                observed = "missing";
+            } else {
+                observed = observedStatus(deployment);
+            }
+        }
+        if (!observed.equals(current)
+                && modelDeploymentMapper.updateStatusIf(record.getId(), current, observed) > 0) {
+            log.info("模型部署 {} 状态收敛: {} -> {}", record.getId(), current, observed);
+            quotaLedger.syncDeployment(pool, record, observed);
+        }
+    }
+
+    private static String observedStatus(Deployment deployment) {
+        Integer desired = deployment.getSpec() != null ? deployment.getSpec().getReplicas() : null;
+        if (desired != null && desired == 0) return "stopped";
+        if (deployment.getStatus() == null) return "pending";
+        Integer ready = deployment.getStatus().getReadyReplicas();
+        if (ready != null && ready > 0) return "running";
+        if (deployment.getStatus().getConditions() != null) {
+            for (DeploymentCondition c : deployment.getStatus().getConditions()) {
+                if ("Progressing".equals(c.getType()) && "ProgressDeadlineExceeded".equals(c.getReason())) {
+                    return "failed";
+                }
+            }
+        }
+        return "pending";
+    }
+
+    /** 多节点服务：VolcanoJob 已结束为 failed，Running 且 leader 就绪为 running，其余（排队、成组调度、重启中）为 pending */
+    private String observedStatus(ResourcePool pool, GenericKubernetesResource job) {
+        String phase = QuotaLedger.jobPhase(job);
+        if (phase != null && QuotaLedger.TERMINAL_JOB_PHASES.contains(phase)) return "failed";
+        if (!"Running".equals(phase)) return "pending";
+        boolean leaderReady = clientManager.listPods(pool.getPhysicalClusterId(), pool.getNamespace(),
+                        "deployment", job.getMetadata().getName()).getValue().stream()
+                .anyMatch(ClusterInformers::isReady);
+        return leaderReady ? "running" : "pending";
+    }
+
+    /** 扫描集群内所有资源池 namespace，回收库中已无记录的 vLLM Deployment */
+    private void collectOrphans(String physicalClusterId) {
+        ClusterInformers informers = clientManager.getInformers(physicalClusterId);
+        for (ResourcePool pool : resourcePoolMapper.findByPhysicalClusterId(physicalClusterId)) {
+            Set<String> known = modelDeploymentMapper.findByResourcePoolId(pool.getId()).stream()
+                    .map(ModelDeployment::getK8sDeploymentName)
+                    .collect(Collectors.toSet());
+            List<Deployment> live = informers.deployments().hasSynced()
+                    ? ClusterInformers.listByLabel(informers.deployments(), pool.getNamespace(), "app", "vllm")
+                    : clientManager.call(physicalClusterId, client -> client.apps().deployments()
+                            .inNamespace(pool.getNamespace()).withLabel("app", "vllm").list().getItems());
+            for (Deployment d : live) {
+                if (!known.contains(d.getMetadata().getName())) collectOrphan(pool, d.getMetadata().getName());
+            }
+        }
+    }
+
+    private void collectOrphan(ResourcePool pool, String deploymentName) {
+        String clusterId = pool.getPhysicalClusterId();
+        String namespace = pool.getNamespace();
+        Deployment deployment = clientManager.readDeployment(clusterId, namespace, deploymentName).getValue();
+        if (deployment == null || !isVllm(deployment)) return;
+        // 温备池的待命副本由 WarmPoolService 管理（周期扫描与事件路径共用此判断）
+        Map<String, String> labels = deployment.getMetadata().getLabels();
+        if (labels.containsKey(WarmPoolService.LABEL_STANDBY)) return;
+        // 刚被接管的待命副本：部署流程尚在落库
+        if (labels.containsKey(WarmPoolService.LABEL_CLAIMED) && claimedWithinGrace(deployment)) return;
+        // 新建对象给部署流程留出落库时间
+        String created = deployment.getMetadata().getCreationTimestamp();
+        if (created != null && withinGrace(Instant.parse(created))) return;
+        if (!gcOrphans) {
+            log.warn("发现孤儿 Deployment {}/{}（未开启自动回收）", namespace, deploymentName);
+            return;
+        }
+        clientManager.run(clusterId, client -> client.services().inNamespace(namespace).list().getItems().stream()
+                .filter(svc -> svc.getSpec() != null && svc.getSpec().getSelector() != null
+                        && deploymentName.equals(svc.getSpec().getSelector().get("deployment")))
+                .forEach(svc -> client.services().inNamespace(namespace).withName(svc.getMetadata().getName()).delete()));
+        clientManager.deleteDeployment(clusterId, namespace, deploymentName);
+        log.info("已回收孤儿 Deployment {}/{} 及其 Service", namespace, deploymentName);
+    }
+
+    private boolean claimedWithinGrace(Deployment deployment) {
+        Map<String, String> annotations = deployment.getMetadata().getAnnotations();
+        String claimedAt = annotations != null ? annotations.get(WarmPoolService.ANNOTATION_CLAIMED_AT) : null;
+        if (claimedAt == null) return true;
+        try {
+            return withinGrace(Instant.ofEpochMilli(Long.parseLong(claimedAt)));
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    private boolean withinGrace(Instant at) {
+        return at != null && at.plusMillis(graceMs).isAfter(Instant.now());
+    }
+
+    private static boolean isVllm(Deployment d) {
+        return d.getMetadata().getLabels() != null && "vllm".equals(d.getMetadata().getLabels().get("app"));
+    }
+
+    private static String key(Deployment d) {
+        return d.getMetadata().getNamespace() + "/" + d.getMetadata().getName();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.values().forEach(ClusterWorkers::shutdown);
+        workers.clear();
+    }
+
+    private static class ClusterWorkers {
+        final WorkQueue<String> queue;
+        final List<Thread> threads;
+
+        ClusterWorkers(WorkQueue<String> queue, List<Thread> threads) {
+            this.queue = queue;
+            this.threads = threads;
+        }
+
+        void shutdown() {
+            queue.shutdown();
+            threads.forEach(Thread::interrupt);
+        }
+    }
+}
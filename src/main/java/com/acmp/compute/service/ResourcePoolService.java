@@ -1,27 +1,47 @@
 package com.acmp.compute.service;
 
+import com.acmp.compute.dto.ProvisioningStepResult;
 import com.acmp.compute.dto.ResourcePoolCreateRequest;
 import com.acmp.compute.dto.ResourcePoolResponse;
+import com.acmp.compute.entity.Operation;
 import com.acmp.compute.entity.ResourcePool;
 import com.acmp.compute.exception.ResourceNotFoundException;
 import com.acmp.compute.exception.ForbiddenException;
+import com.acmp.compute.k8s.ApplyStats;
+import com.acmp.compute.k8s.CapacityIndex;
+import com.acmp.compute.k8s.ClusterInformers;
 import com.acmp.compute.k8s.K8sResourceBuilder;
 import com.acmp.compute.k8s.KubernetesClientManager;
+import com.acmp.compute.k8s.ProvisioningExecutor;
+import com.acmp.compute.k8s.ProvisioningPlan;
+import com.acmp.compute.k8s.WorkQueue;
 import com.acmp.compute.mapper.PhysicalClusterMapper;
 import com.acmp.compute.mapper.ResourcePoolMapper;
 import com.acmp.compute.security.UserPrincipal;
+import io.fabric8.kubernetes.api.model.GenericKubernetesResource;
+import io.fabric8.kubernetes.api.model.Quantity;
+import io.fabric8.kubernetes.api.model.ResourceQuota;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 /**
- * 逻辑资源池服务：创建时依次完成 Namespace → ResourceQuota → RBAC(SA/Role/RB) → Volcano Queue → 落库。
+ * 逻辑资源池服务：创建时按依赖图并行完成 Namespace → ResourceQuota / RBAC(SA/Role/RB)，Volcano Queue 独立并行，最后落库。
  * 所有用户通过平台代理操作，不 per-user 创建 K8s ServiceAccount。
  * 使用 fabric8 Builder API 构建 K8s 资源，无需模板引擎。
  */
@@ -30,25 +50,53 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class ResourcePoolService {
 
+    /** 开通中（尚未落库）的资源池创建操作绑定的资源类型，资源 ID 为 集群 ID/Namespace/Queue */
+    private static final String RESOURCE_PROVISIONING = "resource_pool_provisioning";
+
     private final ResourcePoolMapper resourcePoolMapper;
     private final PhysicalClusterMapper physicalClusterMapper;
     private final KubernetesClientManager clientManager;
+    private final ProvisioningExecutor provisioningExecutor;
+    private final OperationService operationService;
+    private final QuotaLedger quotaLedger;
+    private final InferenceAdmissionService inferenceAdmissionService;
+
+    /** 容量传播合并窗口：窗口内对同一资源池的多次调整合并为一次 apply */
+    @Value("${capacity-propagation.coalesce-ms:500}")
+    private long propagationCoalesceMs;
+    @Value("${capacity-propagation.qps:10}")
+    private double propagationQps;
+    @Value("${capacity-propagation.burst:20}")
+    private int propagationBurst;
+
+    private final Map<String, CapacityPropagation> propagation = new ConcurrentHashMap<>();
+    private WorkQueue<String> propagationQueue;
+    private Thread propagationWorker;
 
     /**
-     * 创建逻辑资源池（部门级）：严格按顺序完成以下步骤，保证 K8s 与 DB 一致。
-     * 步骤：
-     * 1) 校验物理集群存在
-     * 2) 生成 namespace 与相关 K8s 资源名
-     * 3) 创建 Namespace
-     * 4) 创建 ResourceQuota（包含 maxPods 限制）
-     * 5) 创建 ServiceAccount
-     * 6) 创建 Role（部门级权限）
-     * 7) 创建 RoleBinding
-     * 8) 创建 Volcano Queue（集群级）
-     * 9) 写入 DB
+     * 创建逻辑资源池（部门级）：以依赖图并行完成 K8s 开通步骤，全部成功后再写入 DB。
+     * 依赖关系：
+     * 1) Namespace
+     * 2) ResourceQuota / ServiceAccount / Role（依赖 Namespace，三者并行）
+     * 3) RoleBinding（依赖 ServiceAccount 与 Role）
+     * 4) Volcano Queue（集群级，与上述步骤无依赖，独立并行）
+     * 5) 写入 DB
+     * 任一步骤失败时抛出 ProvisioningException，指明失败步骤及各步骤耗时，并按 saga 日志补偿已创建的资源。
+     * 不在数据库事务中执行远程调用，事务仅覆盖本地写库。
      */
-    @Transactional(rollbackFor = Exception.class)
     public ResourcePoolResponse create(ResourcePoolCreateRequest request) {
+        return doCreate(request, SagaLog.detached());
+    }
+
+    /**
+     * 异步创建：登记操作后立即返回，开通在操作线程池中执行。
+     */
+    public Operation createAsync(ResourcePoolCreateRequest request, String idempotencyKey) {
+        return operationService.submit(OperationService.TYPE_CREATE_RESOURCE_POOL, idempotencyKey, request,
+                saga -> doCreate(request, saga));
+    }
+
+    private ResourcePoolResponse doCreate(ResourcePoolCreateRequest request, SagaLog saga) {
         String physicalClusterId = request.getPhysicalClusterId();
         if (physicalClusterMapper.findById(physicalClusterId).isEmpty()) {
             throw new ResourceNotFoundException("物理集群不存在: " + physicalClusterId);
@@ -58,40 +106,35 @@ public class ResourcePoolService {
         String shortId = UUID.randomUUID().toString().substring(0, 8);
         String namespace = "dept-" + request.getDepartmentCode() + "-" + shortId;
         String serviceAccountName = "sa-dept-" + request.getDepartmentCode();
-        String roleName = "role-dept-" + request.getDepartmentCode();
-        String roleBindingName = "rb-dept-" + request.getDepartmentCode();
-        String quotaName = "quota-dept-" + request.getDepartmentCode();
         String volcanoQueueName = "queue-dept-" + request.getDepartmentCode();
-        
-        // 步骤 1：创建 Namespace
-        clientManager.createNamespace(physicalClusterId, namespace);
-        
-        // 步骤 2：创建 ResourceQuota（包含 pods 限制）
         int maxPods = request.getMaxPods() != null ? request.getMaxPods() : 50;
-        clientManager.createResourceQuota(
-            physicalClusterId, namespace, quotaName,
-            request.getGpuSlots(), request.getCpuCores(), request.getMemoryGiB(), maxPods
-        );
-        
-        // 步骤 3：创建 ServiceAccount
-        clientManager.createServiceAccount(physicalClusterId, namespace, serviceAccountName);
         
-        // 步骤 4：创建 Role（部门专属权限）
-        clientManager.createRole(physicalClusterId, namespace, roleName);
-        
-        // 步骤 5：创建 RoleBinding（绑定 SA 到 Role）
-        clientManager.createRoleBinding(physicalClusterId, namespace, roleBindingName, roleName, serviceAccountName);
+        // 各对象带期望状态哈希，重复开通时未变化的对象不会重复写入
+        ApplyStats applyStats = new ApplyStats();
+        ResourcePool desired = ResourcePool.builder()
+                .physicalClusterId(physicalClusterId)
+                .departmentCode(request.getDepartmentCode())
+                .namespace(namespace)
+                .serviceAccountName(serviceAccountName)
+                .gpuSlots(request.getGpuSlots())
+                .cpuCores(request.getCpuCores())
+                .memoryGiB(request.getMemoryGiB())
+                .maxPods(maxPods)
+                .volcanoQueueName(volcanoQueueName)
+                .build();
+        ProvisioningPlan plan = provisioningPlan(desired, true, applyStats);
+        List<ProvisioningStepResult> steps;
+        // 落库前先绑定待开通的对象，进程中断时据此补偿（见 recoverInterruptedCreate）
+        saga.bindResource(RESOURCE_PROVISIONING, String.join("/", physicalClusterId, namespace, volcanoQueueName));
+        try {
+            steps = saga.step("k8s-provision", () -> provisioningExecutor.execute(physicalClusterId, plan),
+                    () -> deprovision(physicalClusterId, namespace, volcanoQueueName));
+        } catch (RuntimeException e) {
+            saga.compensate();
+            throw e;
+        }
         
-        // 步骤 6：创建 Volcano Queue（集群级 CRD）
-        // 使用 Builder API 构建 Queue YAML（替代模板引擎）
-        String queueYaml = K8sResourceBuilder.buildVolcanoQueue(
-            volcanoQueueName,
-            String.valueOf(request.getGpuSlots()),
-            String.valueOf(request.getCpuCores()),
-            String.valueOf(request.getMemoryGiB())
-        );
-        clientManager.applyClusterScopedYaml(physicalClusterId, queueYaml);
-        // 步骤 7：将逻辑资源池记录落库
+        // 将逻辑资源池记录落库
         String id = UUID.randomUUID().toString();
         ResourcePool pool = ResourcePool.builder()
                 .id(id)
@@ -108,12 +151,121 @@ public class ResourcePoolService {
                 .volcanoQueueName(volcanoQueueName)
                 .status("active")
                 .build();
-        resourcePoolMapper.insert(pool);
+        try {
+            saga.step("db-insert", () -> resourcePoolMapper.insert(pool), null);
+        } catch (RuntimeException e) {
+            saga.compensate();
+            throw e;
+        }
+        saga.bindResource("resource_pool", id);
         
-        log.info("✓ 已成功创建部门资源池 {} (namespace: {}, dept: {})",
-                id, namespace, request.getDepartmentCode());
+        log.info("✓ 已成功创建部门资源池 {} (namespace: {}, dept: {}, apply: {})",
+                id, namespace, request.getDepartmentCode(), applyStats);
         
-        return toResponse(resourcePoolMapper.findById(id).orElseThrow());
+        ResourcePoolResponse resp = toResponse(resourcePoolMapper.findById(id).orElseThrow());
+        resp.setProvisioningSteps(steps);
+        resp.setAppliedWritten(applyStats.getWritten());
+        resp.setAppliedSkipped(applyStats.getSkipped());
+        return resp;
+    }
+
+    /** 撤销开通：删除 Namespace（级联清理 Quota/RBAC）；Queue 仅在无其他资源池使用时删除 */
+    private void deprovision(String physicalClusterId, String namespace, String volcanoQueueName) {
+        clientManager.deleteNamespace(physicalClusterId, namespace);
+        boolean queueShared = resourcePoolMapper.findByPhysicalClusterId(physicalClusterId).stream()
+                .anyMatch(p -> volcanoQueueName.equals(p.getVolcanoQueueName()));
+        if (!queueShared) clientManager.deleteVolcanoQueue(physicalClusterId, volcanoQueueName);
+    }
+
+    /**
+     * 重启后恢复中断的资源池创建：资源池已落库时交由调谐收敛，
+     * 否则按绑定的集群 / Namespace / Queue 执行与 saga 相同的补偿。
+     */
+    private void recoverInterruptedCreate(Operation op) {
+        if (!RESOURCE_PROVISIONING.equals(op.getResourceType())) return;
+        String[] parts = op.getResourceId().split("/", 3);
+        if (parts.length < 3) return;
+        if (resourcePoolMapper.findByNamespace(parts[0], parts[1]).isPresent()) return;
+        deprovision(parts[0], parts[1], parts[2]);
+        log.info("已撤销中断的资源池开通 (cluster: {}, namespace: {})", parts[0], parts[1]);
+    }
+
+    /**
+     * 资源池的 K8s 开通计划：Namespace → ResourceQuota / SA / Role → RoleBinding，Volcano Queue 独立。
+     * 创建与调谐共用，保证两条路径生成的期望状态完全一致。
+     * 同一部门的多个资源池共用一个 Volcano Queue，其 capability 取这些资源池配额之和，
+     * 避免各资源池以各自配额反复覆盖同一个 Queue。
+     *
+     * @param isNew pool 尚未落库（创建路径），计算 Queue 配额时需额外计入
+     */
+    private ProvisioningPlan provisioningPlan(ResourcePool pool, boolean isNew, ApplyStats applyStats) {
+        String physicalClusterId = pool.getPhysicalClusterId();
+        String namespace = pool.getNamespace();
+        String departmentCode = pool.getDepartmentCode();
+        String serviceAccountName = pool.getServiceAccountName();
+        String roleName = "role-dept-" + departmentCode;
+        String roleBindingName = "rb-dept-" + departmentCode;
+        GenericKubernetesResource queue = volcanoQueueOf(pool, isNew);
+        
+        return new ProvisioningPlan("resource-pool " + namespace)
+            .step("namespace", () -> applyStats.record(clientManager.createNamespace(physicalClusterId, namespace)))
+            .step("resourceQuota", () -> applyStats.record(applyResourceQuota(pool)), "namespace")
+            .step("serviceAccount", () -> applyStats.record(clientManager.createServiceAccount(physicalClusterId, namespace, serviceAccountName)), "namespace")
+            .step("role", () -> applyStats.record(clientManager.createRole(physicalClusterId, namespace, roleName)), "namespace")
+            .step("roleBinding", () -> applyStats.record(clientManager.createRoleBinding(
+                    physicalClusterId, namespace, roleBindingName, roleName, serviceAccountName)), "serviceAccount", "role")
+            .step("volcanoQueue", () -> applyStats.record(clientManager.apply(physicalClusterId, queue)));
+    }
+
+    /** ResourceQuota 的 GPU 上限取当前可用量（保障份额 + 借入） */
+    private ApplyStats.Result applyResourceQuota(ResourcePool pool) {
+        int maxPods = pool.getMaxPods() != null ? pool.getMaxPods() : 50;
+        return clientManager.createResourceQuota(pool.getPhysicalClusterId(), pool.getNamespace(), quotaNameOf(pool),
+                gpuAllowance(pool), nz(pool.getCpuCores()), nz(pool.getMemoryGiB()), maxPods);
+    }
+
+    /**
+     * Volcano Queue（集群级 CRD），capability 为共用该 Queue 的全部资源池可用量（加借入、减借出）之和，
+     * 权重随可用量变化；存在借入时以保障份额之和作为 deserved，借入部分可被回收。
+     */
+    private GenericKubernetesResource volcanoQueueOf(ResourcePool pool, boolean isNew) {
+        List<ResourcePool> queueMembers = resourcePoolMapper.findByPhysicalClusterId(pool.getPhysicalClusterId()).stream()
+                .filter(p -> pool.getVolcanoQueueName().equals(p.getVolcanoQueueName()))
+                .collect(Collectors.toList());
+        if (isNew) queueMembers.add(pool);
+        int allowance = queueMembers.stream().mapToInt(ResourcePoolService::gpuAllowance).sum();
+        int guaranteed = queueMembers.stream().mapToInt(p -> nz(p.getGpuSlots())).sum();
+        return K8sResourceBuilder.buildVolcanoQueue(
+            pool.getVolcanoQueueName(),
+            String.valueOf(allowance),
+            String.valueOf(queueMembers.stream().mapToInt(p -> nz(p.getCpuCores())).sum()),
+            String.valueOf(queueMembers.stream().mapToInt(p -> nz(p.getMemoryGiB())).sum()),
+            allowance,
+            allowance > guaranteed ? String.valueOf(guaranteed) : null
+        );
+    }
+
+    /** 资源池当前可用 GPU：保障份额 gpuSlots 加上借入量，借出期间减去借出量（弹性配额控制器保证不低于其需求） */
+    static int gpuAllowance(ResourcePool pool) {
+        return Math.max(0, nz(pool.getGpuSlots()) + nz(pool.getGpuBorrowed()));
+    }
+
+    static String quotaNameOf(ResourcePool pool) {
+        return "quota-dept-" + pool.getDepartmentCode();
+    }
+
+    private static int nz(Integer v) {
+        return v != null ? v : 0;
+    }
+
+    /**
+     * 调谐：按库中记录重新 apply 资源池的全部 K8s 对象，补回被删除的 Namespace / Quota / RBAC / Queue。
+     * 未变化的对象因期望状态哈希一致而跳过；失败时抛出 ProvisioningException。
+     */
+    public ApplyStats reconcileObjects(ResourcePool pool) {
+        ApplyStats applyStats = new ApplyStats();
+        provisioningExecutor.execute(pool.getPhysicalClusterId(), provisioningPlan(pool, false, applyStats));
+        return applyStats;
     }
 
     public List<ResourcePoolResponse> list() {
@@ -131,18 +283,181 @@ public class ResourcePoolService {
         return toResponse(pool);
     }
 
+    /**
+     * 调整资源池容量：校验新容量不低于当前用量后写库，事务提交后交给传播阶段异步更新 ResourceQuota 与 Volcano Queue。
+     * 传播按资源池合并：合并窗口内的多次调整只会以最终值 apply 一次，进度见响应中的 capacityPropagation。
+     */
     @Transactional(rollbackFor = Exception.class)
     public ResourcePoolResponse patchCapacity(String id, Integer gpuSlots, Integer cpuCores, Integer memoryGiB) {
         ResourcePool pool = resourcePoolMapper.findById(id).orElseThrow(() -> new ResourceNotFoundException("资源池不存在: " + id));
+        if (gpuSlots != null && pool.getGpuFloor() != null && pool.getGpuFloor() > gpuSlots) {
+            throw new IllegalArgumentException("gpuSlots 不能小于弹性下限 gpuFloor(" + pool.getGpuFloor() + ")");
+        }
+        if (gpuSlots != null && pool.getGpuCeiling() != null && pool.getGpuCeiling() < gpuSlots) {
+            throw new IllegalArgumentException("gpuSlots 不能大于弹性上限 gpuCeiling(" + pool.getGpuCeiling() + ")");
+        }
+        ensureNotBelowUsage(pool, gpuSlots, cpuCores, memoryGiB);
         if (gpuSlots != null) pool.setGpuSlots(gpuSlots);
         if (cpuCores != null) pool.setCpuCores(cpuCores);
         if (memoryGiB != null) pool.setMemoryGiB(memoryGiB);
         resourcePoolMapper.update(pool);
+        quotaLedger.updateLimits(pool);
+        propagation.computeIfAbsent(id, k -> new CapacityPropagation()).requested();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    propagationQueue.addAfter(id, propagationCoalesceMs);
+                }
+            });
+        } else {
+            propagationQueue.addAfter(id, propagationCoalesceMs);
+        }
+        return toResponse(resourcePoolMapper.findById(id).orElseThrow());
+    }
+
+    /**
+     * 管理员设置弹性配额下限/上限：floor ≤ gpuSlots ≤ ceiling，为空表示不借出/不借入。
+     * 借入量由弹性配额控制器按需调整，此处只更新边界与账本限额。
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public ResourcePoolResponse updateElasticLimits(String id, Integer gpuFloor, Integer gpuCeiling) {
+        ResourcePool pool = resourcePoolMapper.findById(id).orElseThrow(() -> new ResourceNotFoundException("资源池不存在: " + id));
+        int slots = nz(pool.getGpuSlots());
+        if (gpuFloor != null && (gpuFloor < 0 || gpuFloor > slots)) {
+            throw new IllegalArgumentException("gpuFloor 须在 0 与 gpuSlots(" + slots + ") 之间");
+        }
+        if (gpuCeiling != null && gpuCeiling < slots) {
+            throw new IllegalArgumentException("gpuCeiling 不能小于 gpuSlots(" + slots + ")");
+        }
+        resourcePoolMapper.updateElasticLimits(id, gpuFloor, gpuCeiling);
+        pool.setGpuFloor(gpuFloor);
+        pool.setGpuCeiling(gpuCeiling);
+        quotaLedger.updateLimits(pool);
+        return toResponse(resourcePoolMapper.findById(id).orElseThrow());
+    }
+
+    /** 设置资源池推理限流（为空或 0 表示不限），本实例立即生效 */
+    public ResourcePoolResponse updateInferenceLimits(String id, Integer rps, Integer tps, Integer userRps, Integer userTps) {
+        ResourcePool pool = resourcePoolMapper.findById(id).orElseThrow(() -> new ResourceNotFoundException("资源池不存在: " + id));
+        for (Integer v : new Integer[]{rps, tps, userRps, userTps}) {
+            if (v != null && v < 0) throw new IllegalArgumentException("推理限流参数不能为负数");
+        }
+        resourcePoolMapper.updateInferenceLimits(id, rps, tps, userRps, userTps);
+        pool.setInferenceRps(rps);
+        pool.setInferenceTps(tps);
+        pool.setInferenceUserRps(userRps);
+        pool.setInferenceUserTps(userTps);
+        inferenceAdmissionService.updateLimits(pool);
+        return toResponse(resourcePoolMapper.findById(id).orElseThrow());
+    }
+
+    /** 设置资源池 Pod 运行时策略（部分更新，为空的字段保持原值），对之后提交的部署与训练任务生效 */
+    public ResourcePoolResponse updatePodPolicy(String id, Integer shmMaxGib, Boolean allowHostIpc, Boolean allowHostNetwork) {
+        ResourcePool pool = resourcePoolMapper.findById(id).orElseThrow(() -> new ResourceNotFoundException("资源池不存在: " + id));
+        if (shmMaxGib != null && shmMaxGib < 0) throw new IllegalArgumentException("shmMaxGib 不能为负数");
+        resourcePoolMapper.updatePodPolicy(id,
+                shmMaxGib != null ? shmMaxGib : pool.getShmMaxGib(),
+                Boolean.TRUE.equals(allowHostIpc != null ? allowHostIpc : pool.getAllowHostIpc()),
+                Boolean.TRUE.equals(allowHostNetwork != null ? allowHostNetwork : pool.getAllowHostNetwork()));
         return toResponse(resourcePoolMapper.findById(id).orElseThrow());
     }
 
+    /** 请求将资源池当前容量（含借入）传播到 ResourceQuota 与 Volcano Queue，与 patchCapacity 共用合并阶段 */
+    public void requestPropagation(String id) {
+        propagation.computeIfAbsent(id, k -> new CapacityPropagation()).requested();
+        propagationQueue.addAfter(id, propagationCoalesceMs);
+    }
+
+    /**
+     * 新容量低于当前用量时拒绝：用量取配额账本与 ResourceQuota status.used（Informer 缓存）中的较大者，
+     * 避免缩容后已运行的工作负载超出配额、后续 Pod 重建被 apiserver 拒绝。
+     */
+    private void ensureNotBelowUsage(ResourcePool pool, Integer gpuSlots, Integer cpuCores, Integer memoryGiB) {
+        QuotaLedger.Usage ledger = quotaLedger.used(pool.getId());
+        long usedGpu = ledger != null ? ledger.getGpu() : 0;
+        long usedCpuMillis = ledger != null ? ledger.getCpuMillis() : 0;
+        long usedMemory = ledger != null ? ledger.getMemoryBytes() : 0;
+        try {
+            ClusterInformers informers = clientManager.getInformers(pool.getPhysicalClusterId());
+            if (informers.resourceQuotas().hasSynced()) {
+                ResourceQuota quota = ClusterInformers.get(informers.resourceQuotas(), pool.getNamespace(), quotaNameOf(pool)).orElse(null);
+                Map<String, Quantity> used = quota != null && quota.getStatus() != null ? quota.getStatus().getUsed() : null;
+                if (used != null) {
+                    usedGpu = Math.max(usedGpu, CapacityIndex.toLong(used.get("nvidia.com/gpu")));
+                    usedCpuMillis = Math.max(usedCpuMillis, CapacityIndex.toMillis(used.get("cpu")));
+                    usedMemory = Math.max(usedMemory, CapacityIndex.toLong(used.get("memory")));
+                }
+            }
+        } catch (RuntimeException e) {
+            log.debug("读取资源池 {} 的 ResourceQuota 用量失败，仅按账本校验: {}", pool.getId(), e.getMessage());
+        }
+        List<String> violations = new ArrayList<>();
+        if (gpuSlots != null && gpuSlots < usedGpu) violations.add("gpuSlots=" + gpuSlots + " 低于已用 " + usedGpu);
+        if (cpuCores != null && cpuCores * 1000L < usedCpuMillis) violations.add("cpuCores=" + cpuCores + " 低于已用 " + usedCpuMillis + "m");
+        if (memoryGiB != null && memoryGiB * (1L << 30) < usedMemory) violations.add("memoryGiB=" + memoryGiB + " 低于已用 " + usedMemory + " 字节");
+        if (!violations.isEmpty()) throw new IllegalArgumentException("新容量低于当前用量: " + String.join("; ", violations));
+    }
+
+    @PostConstruct
+    void start() {
+        operationService.onInterrupted(OperationService.TYPE_CREATE_RESOURCE_POOL, this::recoverInterruptedCreate);
+
+        propagationQueue = new WorkQueue<>("capacity-propagation", propagationQps, propagationBurst, 500, 60000);
+        propagationWorker = new Thread(this::propagationLoop, "capacity-propagation");
+        propagationWorker.setDaemon(true);
+        propagationWorker.start();
+    }
+
+    @PreDestroy
+    void stopPropagation() {
+        if (propagationQueue != null) propagationQueue.shutdown();
+    }
+
+    private void propagationLoop() {
+        while (true) {
+            String poolId;
+            try {
+                poolId = propagationQueue.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (poolId == null) return;
+            CapacityPropagation state = propagation.computeIfAbsent(poolId, k -> new CapacityPropagation());
+            long generation = state.applying();
+            try {
+                KubernetesClientManager.inBackground(() -> {
+                    propagate(poolId);
+                    return null;
+                });
+                state.applied(generation);
+                propagationQueue.forget(poolId);
+            } catch (Exception e) {
+                log.warn("资源池 {} 容量传播失败（第 {} 次重试）: {}", poolId, propagationQueue.retries(poolId) + 1, e.getMessage());
+                state.failed(generation, e.getMessage());
+                propagationQueue.addRateLimited(poolId);
+            } finally {
+                propagationQueue.done(poolId);
+            }
+        }
+    }
+
+    /** 以库中最新容量 apply ResourceQuota 与 Volcano Queue；未变化的对象因期望状态哈希一致而跳过 */
+    private void propagate(String poolId) {
+        ResourcePool pool = resourcePoolMapper.findById(poolId).orElse(null);
+        if (pool == null) {
+            propagation.remove(poolId);
+            return;
+        }
+        ApplyStats.Result quota = applyResourceQuota(pool);
+        ApplyStats.Result queue = clientManager.apply(pool.getPhysicalClusterId(), volcanoQueueOf(pool, false));
+        log.info("资源池 {} 容量已传播 (gpu={}, cpu={}, mem={}Gi, quota: {}, queue: {})",
+                poolId, gpuAllowance(pool), pool.getCpuCores(), pool.getMemoryGiB(), quota, queue);
+    }
+
     private ResourcePoolResponse toResponse(ResourcePool p) {
-        return ResourcePoolResponse.builder()
+        ResourcePoolResponse resp = ResourcePoolResponse.builder()
                 .id(p.getId())
                 .physicalClusterId(p.getPhysicalClusterId())
                 .name(p.getName())
@@ -155,9 +470,61 @@ public class ResourcePoolService {
                 .memoryGiB(p.getMemoryGiB())
                 .maxPods(p.getMaxPods())
                 .volcanoQueueName(p.getVolcanoQueueName())
+                .gpuFloor(p.getGpuFloor())
+                .gpuCeiling(p.getGpuCeiling())
+                .gpuBorrowed(p.getGpuBorrowed())
+                .inferenceRps(p.getInferenceRps())
+                .inferenceTps(p.getInferenceTps())
+                .inferenceUserRps(p.getInferenceUserRps())
+                .inferenceUserTps(p.getInferenceUserTps())
+                .shmMaxGib(p.getShmMaxGib())
+                .allowHostIpc(p.getAllowHostIpc())
+                .allowHostNetwork(p.getAllowHostNetwork())
                 .status(p.getStatus())
                 .createdAt(p.getCreatedAt())
                 .updatedAt(p.getUpdatedAt())
                 .build();
+        CapacityPropagation state = propagation.get(p.getId());
+        if (state != null) {
+            resp.setCapacityPropagation(state.state);
+            resp.setCapacityPropagationError(state.error);
+            resp.setCapacityPropagatedAt(state.appliedAt);
+        }
+        return resp;
+    }
+
+    /**
+     * 单个资源池的容量传播状态。generation 随每次调整递增，传播完成时仅当期间没有新的调整才标记 applied。
+     */
+    private static final class CapacityPropagation {
+        private long requestedGeneration;
+        private volatile String state;
+        private volatile String error;
+        private volatile Instant appliedAt;
+
+        synchronized void requested() {
+            requestedGeneration++;
+            state = "pending";
+        }
+
+        synchronized long applying() {
+            state = "applying";
+            return requestedGeneration;
+        }
+
+        synchronized void applied(long generation) {
+            if (generation != requestedGeneration) {
+                state = "pending";
+                return;
+            }
+            state = "applied";
+            error = null;
+            appliedAt = Instant.now();
+        }
+
+        synchronized void failed(long generation, String message) {
+            state = generation == requestedGeneration ? "failed" : "pending";
+            error = message;
+        }
     }
 }
@@ -0,0 +1,127 @@
+package com.acmp.compute.service;
+
+import com.acmp.compute.dto.SagaStepRecord;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * saga 日志：记录一次操作中已执行的远程步骤及其补偿动作。
+ * 失败时按逆序执行补偿，撤销已部分生效的 K8s 资源；每次变更（含绑定资源）回调 onChange 以便持久化进度，
+ * 进程中断后可按已绑定的资源补偿。
+ */
+@Slf4j
+public class SagaLog {
+
+    private final List<SagaStepRecord> records = Collections.synchronizedList(new ArrayList<>());
+    private final Deque<NamedCompensation> compensations = new ArrayDeque<>();
+    private final Consumer<SagaLog> onChange;
+    private volatile String resourceType;
+    private volatile String resourceId;
+
+    public SagaLog(Consumer<SagaLog> onChange) {
+        this.onChange = onChange;
+    }
+
+    /** 不持久化的 saga 日志，用于同步接口 */
+    public static SagaLog detached() {
+        return new SagaLog(null);
+    }
+
+    /**
+     * 执行一个步骤。补偿动作先于执行登记，因此步骤自身失败（可能已部分生效）时也会被补偿。
+     */
+    public <T> T step(String name, Supplier<T> action, Runnable compensation) {
+        if (compensation != null) {
+            synchronized (compensations) {
+                compensations.push(new NamedCompensation(name, compensation));
+            }
+        }
+        try {
+            T result = action.get();
+            record(name, "succeeded", null);
+            return result;
+        } catch (RuntimeException e) {
+            record(name, "failed", e.getMessage());
+            throw e;
+        }
+    }
+
+    public void step(String name, Runnable action, Runnable compensation) {
+        step(name, () -> {
+            action.run();
+            return null;
+        }, compensation);
+    }
+
+    /** 逆序执行全部已登记的补偿动作，单个补偿失败不影响后续补偿 */
+    public void compensate() {
+        while (true) {
+            NamedCompensation c;
+            synchronized (compensations) {
+                c = compensations.poll();
+            }
+            if (c == null) break;
+            try {
+                c.action.run();
+                record(c.name, "compensated", null);
+            } catch (RuntimeException e) {
+                log.warn("补偿步骤 {} 失败: {}", c.name, e.getMessage());
+                record(c.name, "compensation_failed", e.getMessage());
+            }
+        }
+    }
+
+    /** 绑定操作产生的资源，便于操作记录关联；立即持久化，重启后据此恢复 */
+    public void bindResource(String resourceType, String resourceId) {
+        this.resourceType = resourceType;
+        this.resourceId = resourceId;
+        notifyChange();
+    }
+
+    public String getResourceType() {
+        return resourceType;
+    }
+
+    public String getResourceId() {
+        return resourceId;
+    }
+
+    public List<SagaStepRecord> getRecords() {
+        synchronized (records) {
+            return new ArrayList<>(records);
+        }
+    }
+
+    private void record(String step, String status, String error) {
+        records.add(SagaStepRecord.builder().step(step).status(status).error(error).at(Instant.now()).build());
+        notifyChange();
+    }
+
+    private void notifyChange() {
+        if (onChange != null) {
+            try {
+                onChange.accept(this);
+            } catch (RuntimeException e) {
+                log.warn("持久化 saga 日志失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    private static class NamedCompensation {
+        final String name;
+        final Runnable action;
+
+        NamedCompensation(String name, Runnable action) {
+            this.name = name;
+            this.action = action;
+        }
+    }
+}
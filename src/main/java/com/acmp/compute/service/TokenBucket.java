@@ -0,0 +1,54 @@
+package com.acmp.compute.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 无锁、无分配的令牌桶（GCRA：只维护一个"理论到达时间" tat）。
+ * 取 n 个令牌即把 tat 推后 n × interval；tat 超前当前时间不超过 burst × interval 时放行。
+ * 单次消耗超过桶容量（如长 prompt 的 token 数）时，须桶满才放行，超出部分记为欠账由后续请求等待。
+ */
+public class TokenBucket {
+
+    private final AtomicLong tat = new AtomicLong(System.nanoTime());
+    private volatile long intervalNanos;
+    private volatile long burstNanos;
+
+    public TokenBucket(double ratePerSecond, double burst) {
+        setRate(ratePerSecond, burst);
+    }
+
+    /** 运行时调整速率与容量，已有欠账保留 */
+    public void setRate(double ratePerSecond, double burst) {
+        long interval = Math.max(1L, (long) (1_000_000_000L / Math.max(ratePerSecond, 1e-9)));
+        this.intervalNanos = interval;
+        this.burstNanos = (long) (Math.max(1.0, burst) * interval);
+    }
+
+    /**
+     * 尝试取 cost 个令牌。
+     *
+     * @return 0 表示已取得；否则为还需等待的纳秒数（未扣减）
+     */
+    public long tryAcquire(long cost, long nowNanos) {
+        long interval = intervalNanos;
+        long burst = burstNanos;
+        long increment = cost * interval;
+        for (;;) {
+            long t = tat.get();
+            long base = Math.max(t, nowNanos);
+            long wait = base - nowNanos + Math.min(increment, burst) - burst;
+            if (wait > 0) return wait;
+            if (tat.compareAndSet(t, base + increment)) return 0;
+        }
+    }
+
+    /** 归还已取得的令牌（同一次准入中后续桶拒绝时） */
+    public void refund(long cost) {
+        tat.addAndGet(-cost * intervalNanos);
+    }
+
+    /** 桶已满（无欠账），可被清理 */
+    public boolean isIdle(long nowNanos) {
+        return tat.get() <= nowNanos;
+    }
+}
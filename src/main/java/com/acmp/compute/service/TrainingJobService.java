@@ -4,10 +4,12 @@ import com.acmp.compute.dto.TrainingJobRequest;
 import com.acmp.compute.entity.ResourcePool;
 import com.acmp.compute.exception.ForbiddenException;
 import com.acmp.compute.exception.ResourceNotFoundException;
+import com.acmp.compute.k8s.ApplyStats;
 import com.acmp.compute.k8s.K8sResourceBuilder;
 import com.acmp.compute.k8s.KubernetesClientManager;
 import com.acmp.compute.mapper.ResourcePoolMapper;
 import com.acmp.compute.security.UserPrincipal;
+import io.fabric8.kubernetes.api.model.GenericKubernetesResource;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -17,7 +19,8 @@ import org.springframework.stereotype.Service;
  * 训练任务服务：提交 VolcanoJob 到逻辑资源池。
  * 使用 fabric8 Builder API 构建 VolcanoJob，获得类型安全和编译时检查的好处。
  * 
- * 校验用户拥有该资源池权限后，自动构建 VolcanoJob YAML（含 nodeSelector 和资源配额）并提交。
+ * 校验用户拥有该资源池权限后，自动构建 VolcanoJob（含 nodeSelector 和资源配额），在配额账本中预留其总请求量，
+ * 再以 server-side apply 提交；剩余配额不足时不访问 apiserver 直接拒绝。
  */
 @Slf4j
 @Service
@@ -26,6 +29,7 @@ public class TrainingJobService {
 
     private final ResourcePoolMapper resourcePoolMapper;
     private final KubernetesClientManager clientManager;
+    private final QuotaLedger quotaLedger;
 
     private UserPrincipal currentUser() {
         Object p = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
@@ -40,30 +44,49 @@ public class TrainingJobService {
         ResourcePool pool = resourcePoolMapper.findById(poolId)
                 .orElseThrow(() -> new ResourceNotFoundException("资源池不存在: " + poolId));
         
+        // 使用 Builder API 构建 VolcanoJob，按其各 task 的请求量预留配额
+        GenericKubernetesResource job = buildJob(pool, request);
+        quotaLedger.watchJobs(pool.getPhysicalClusterId());
+        QuotaLedger.Reservation reservation = quotaLedger.reserve(pool,
+                QuotaLedger.KEY_JOB + request.getJobName(), QuotaLedger.usageOf(job));
         try {
-            // 使用 Builder API 构建 VolcanoJob YAML
-            String yaml = K8sResourceBuilder.buildVolcanoJob(
-                    request.getJobName(),
-                    pool.getNamespace(),
-                    pool.getVolcanoQueueName(),
-                    request.getReplicas(),
-                    request.getImage(),
-                    request.getGpuPerPod(),
-                    request.getGpuMemPerPod(),
-                    request.getGpuCoresPerPod(),
-                    request.getCommand()
-            );
+            ApplyStats.Result result = clientManager.apply(pool.getPhysicalClusterId(), job);
+            reservation.commit();
             
-            // 在 K8s 中应用资源
-            clientManager.applyYamlInNamespace(pool.getPhysicalClusterId(), pool.getNamespace(), yaml);
-            
-            log.info("✓ VolcanoJob {} 已成功提交到资源池 {} (namespace: {}, queue: {})", 
-                    request.getJobName(), poolId, pool.getNamespace(), pool.getVolcanoQueueName());
+            log.info("✓ VolcanoJob {} 已成功提交到资源池 {} (namespace: {}, queue: {}, apply: {})", 
+                    request.getJobName(), poolId, pool.getNamespace(), pool.getVolcanoQueueName(), result);
             
             return request.getJobName();
         } catch (Exception e) {
+            reservation.releaseIfUncommitted();
             log.error("✗ 训练任务提交失败: {}", e.getMessage(), e);
             throw new RuntimeException("训练任务提交失败: " + e.getMessage());
         }
     }
+
+    /** 仅渲染 VolcanoJob YAML，不提交到集群，用于调试与导出 */
+    public String renderManifest(String poolId, TrainingJobRequest request) {
+        UserPrincipal user = currentUser();
+        if (!user.canAccessPool(poolId)) throw new ForbiddenException("无权限访问该资源池");
+        ResourcePool pool = resourcePoolMapper.findById(poolId)
+                .orElseThrow(() -> new ResourceNotFoundException("资源池不存在: " + poolId));
+        return K8sResourceBuilder.toYaml(buildJob(pool, request));
+    }
+
+    private static GenericKubernetesResource buildJob(ResourcePool pool, TrainingJobRequest request) {
+        return K8sResourceBuilder.buildVolcanoJob(
+                request.getJobName(),
+                pool.getNamespace(),
+                pool.getVolcanoQueueName(),
+                request.getReplicas(),
+                request.getImage(),
+                request.getGpuPerPod(),
+                request.getGpuMemPerPod(),
+                request.getGpuCoresPerPod(),
+                request.getCommand(),
+                PodRuntimePolicy.shmSizeGiB(pool, request.getShmSizeGiB(), request.getGpuPerPod()),
+                PodRuntimePolicy.hostIpc(pool, request.getHostIpc()),
+                PodRuntimePolicy.hostNetwork(pool, request.getHostNetwork())
+        );
+    }
 }
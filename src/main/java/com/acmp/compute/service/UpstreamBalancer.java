@@ -0,0 +1,263 @@
+package com.acmp.compute.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个模型部署的上游副本选择，两种模式：
+ * <ul>
+ *   <li>{@link #acquire}：power-of-two-choices + 最少未完成请求。随机取两个可用副本，选择在途请求较少者；
+ *       长时间的生成请求因此不会像 kube-proxy 轮询那样堆在同一副本上</li>
+ *   <li>{@link #acquireByKey}：前缀亲和。亲和键（会话 ID 或 prompt 前缀的哈希）经一致性哈希环映射到固定副本，
+ *       使共享系统提示词的请求命中同一副本的 vLLM prefix cache；负载有界（Mirrokni 等的 bounded loads）：
+ *       副本在途请求达到平均值的 loadFactor 倍时沿环溢出到下一个副本</li>
+ * </ul>
+ * 连接失败的副本被短暂摘除（ejectMs），全部摘除时退回在全部候选中选择。
+ */
+public class UpstreamBalancer {
+
+    /** 每个副本在环上的虚拟节点数，副本数较少时保证键分布均匀 */
+    private static final int VIRTUAL_NODES = 160;
+    /** 每个副本记住的最近亲和键数，用于估算 prefix cache 命中（近似 vLLM 的缓存保留） */
+    private static final int RECENT_KEYS = 4096;
+
+    private final long ejectMs;
+    /** 上游地址（http://ip:port）-> 状态，副本消失后由 retain 清理 */
+    private final Map<String, Upstream> upstreams = new ConcurrentHashMap<>();
+    /** 一致性哈希环，候选列表变化时重建 */
+    private volatile Ring ring;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder affinityRequests = new LongAdder();
+    private final LongAdder affinitySpills = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder savedPrefixChars = new LongAdder();
+
+    public UpstreamBalancer(long ejectMs) {
+        this.ejectMs = ejectMs;
+    }
+
+    /**
+     * 从候选中选出一个副本并计入在途请求，调用方须在请求结束时 {@link Upstream#release()}。
+     *
+     * @param exclude 本次请求已尝试失败的地址
+     * @return 无候选时返回 null
+     */
+    public Upstream acquire(List<String> candidates, Set<String> exclude) {
+        List<Upstream> pool = usable(candidates, exclude);
+        if (pool.isEmpty()) return null;
+        Upstream chosen = pickTwo(pool);
+        chosen.outstanding.incrementAndGet();
+        requests.increment();
+        return chosen;
+    }
+
+    /**
+     * 按亲和键选择副本：从键在环上的位置顺时针找第一个未超载的副本。
+     * 上限为 ceil(loadFactor × (全部在途 + 1) / 可用副本数)，保证总有副本满足，最热副本的负载不超过平均值的 loadFactor 倍。
+     *
+     * @param keyHash     亲和键的 64 位哈希
+     * @param prefixChars 参与亲和的前缀长度（字符），命中时计入节省的 prefill
+     * @return 无候选时返回 null
+     */
+    public Upstream acquireByKey(List<String> candidates, Set<String> exclude, long keyHash, int prefixChars, double loadFactor) {
+        List<Upstream> pool = usable(candidates, exclude);
+        if (pool.isEmpty()) return null;
+        Set<String> usable = new HashSet<>(pool.size() * 2);
+        long total = 0;
+        for (Upstream u : pool) {
+            usable.add(u.address);
+            total += u.outstanding.get();
+        }
+        long cap = (long) Math.ceil(loadFactor * (total + 1) / pool.size());
+
+        Ring r = ringOf(candidates);
+        Upstream primary = null, chosen = null;
+        int start = r.indexOf(keyHash);
+        for (int i = 0; i < r.points.length && chosen == null; i++) {
+            String address = r.owners[(start + i) % r.points.length];
+            if (!usable.contains(address)) continue;
+            Upstream u = upstreams.get(address);
+            if (u == null) continue;
+            if (primary == null) primary = u;
+            if (u.outstanding.get() + 1 <= cap) chosen = u;
+        }
+        // 并发下计数可能瞬时越过上限，此时退回最少在途
+        if (chosen == null) chosen = pool.stream().min(Comparator.comparingInt(u -> u.outstanding.get())).orElseThrow();
+        chosen.outstanding.incrementAndGet();
+
+        requests.increment();
+        affinityRequests.increment();
+        if (chosen != primary) affinitySpills.increment();
+        if (chosen.touch(keyHash)) {
+            cacheHits.increment();
+            savedPrefixChars.add(prefixChars);
+        }
+        return chosen;
+    }
+
+    private List<Upstream> usable(List<String> candidates, Set<String> exclude) {
+        List<Upstream> available = new ArrayList<>(candidates.size());
+        List<Upstream> all = new ArrayList<>(candidates.size());
+        long now = System.currentTimeMillis();
+        for (String address : candidates) {
+            if (exclude.contains(address)) continue;
+            Upstream u = upstreams.computeIfAbsent(address, Upstream::new);
+            all.add(u);
+            if (u.ejectedUntil <= now) available.add(u);
+        }
+        return available.isEmpty() ? all : available;
+    }
+
+    private static Upstream pickTwo(List<Upstream> pool) {
+        if (pool.size() == 1) return pool.get(0);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = random.nextInt(pool.size());
+        int j = random.nextInt(pool.size() - 1);
+        if (j >= i) j++;
+        Upstream a = pool.get(i), b = pool.get(j);
+        return a.outstanding.get() <= b.outstanding.get() ? a : b;
+    }
+
+    private Ring ringOf(List<String> candidates) {
+        Ring r = ring;
+        if (r != null && r.candidates.equals(candidates)) return r;
+        r = new Ring(List.copyOf(candidates));
+        ring = r;
+        return r;
+    }
+
+    /** 连接失败：摘除一段时间 */
+    public void eject(Upstream upstream) {
+        upstream.ejectedUntil = System.currentTimeMillis() + ejectMs;
+    }
+
+    /** 清理已不在候选中的地址（无在途请求时） */
+    public void retain(Collection<String> live) {
+        upstreams.entrySet().removeIf(e -> !live.contains(e.getKey()) && e.getValue().outstanding.get() == 0);
+    }
+
+    public Collection<Upstream> upstreams() {
+        return upstreams.values();
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getAffinityRequests() {
+        return affinityRequests.sum();
+    }
+
+    /** 因首选副本超载而溢出到环上后续副本的请求数 */
+    public long getAffinitySpills() {
+        return affinitySpills.sum();
+    }
+
+    /** 选中副本近期处理过同一亲和键的请求数（估算的 prefix cache 命中） */
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    /** 命中请求的前缀字符总数（估算免于重复 prefill 的部分） */
+    public long getSavedPrefixChars() {
+        return savedPrefixChars.sum();
+    }
+
+    /** 64 位哈希（FNV-1a + splitmix64 混合），用于环上的虚拟节点与亲和键 */
+    public static long hash(CharSequence s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 30;
+        h *= 0xbf58476d1ce4e5b9L;
+        h ^= h >>> 27;
+        h *= 0x94d049bb133111ebL;
+        return h ^ (h >>> 31);
+    }
+
+    /** 一致性哈希环：按哈希值排序的虚拟节点及其所属副本 */
+    private static final class Ring {
+        private final List<String> candidates;
+        private final long[] points;
+        private final String[] owners;
+
+        Ring(List<String> candidates) {
+            this.candidates = candidates;
+            int n = candidates.size() * VIRTUAL_NODES;
+            long[][] nodes = new long[n][2];
+            for (int c = 0; c < candidates.size(); c++) {
+                for (int v = 0; v < VIRTUAL_NODES; v++) {
+                    nodes[c * VIRTUAL_NODES + v][0] = hash(candidates.get(c) + "#" + v);
+                    nodes[c * VIRTUAL_NODES + v][1] = c;
+                }
+            }
+            Arrays.sort(nodes, Comparator.comparingLong(a -> a[0]));
+            this.points = new long[n];
+            this.owners = new String[n];
+            for (int i = 0; i < n; i++) {
+                points[i] = nodes[i][0];
+                owners[i] = candidates.get((int) nodes[i][1]);
+            }
+        }
+
+        /** 第一个哈希值不小于 key 的虚拟节点下标（环回绕） */
+        int indexOf(long key) {
+            int i = Arrays.binarySearch(points, key);
+            if (i < 0) i = -i - 1;
+            return i >= points.length ? 0 : i;
+        }
+    }
+
+    /** 单个上游副本 */
+    public static final class Upstream {
+        private final String address;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private volatile long ejectedUntil;
+        /** 最近的亲和键（访问顺序 LRU） */
+        private final Map<Long, Boolean> recentKeys = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                return size() > RECENT_KEYS;
+            }
+        };
+
+        Upstream(String address) {
+            this.address = address;
+        }
+
+        public String getAddress() {
+            return address;
+        }
+
+        public int getOutstanding() {
+            return outstanding.get();
+        }
+
+        public boolean isEjected() {
+            return ejectedUntil > System.currentTimeMillis();
+        }
+
+        public void release() {
+            outstanding.decrementAndGet();
+        }
+
+        /** 记录亲和键，返回此前是否已见过 */
+        private synchronized boolean touch(long key) {
+            return recentKeys.put(key, Boolean.TRUE) != null;
+        }
+    }
+}
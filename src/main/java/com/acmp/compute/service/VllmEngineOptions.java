@@ -0,0 +1,118 @@
+package com.acmp.compute.service;
+
+import com.acmp.compute.dto.VllmDeployRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * vLLM 引擎参数：按预设补全部署请求中未显式设置的项，结合 GPU 规格校验，并渲染为容器启动参数。
+ * <ul>
+ *   <li>latency：小批量（max-num-seqs=32）、关闭 chunked prefill，首 token 延迟优先；要求独占算力（不限制 gpucores）</li>
+ *   <li>throughput：大批量（max-num-seqs=256）、开启 chunked prefill 与 prefix caching；要求每卡显存不少于 16GB</li>
+ *   <li>long-context：max-model-len=32768、低并发、显存利用率 0.95；要求单副本显存合计不少于 40GB</li>
+ * </ul>
+ * 显式设置的字段优先于预设；tensor-parallel-size 默认等于 gpuPerReplica，小于时其余 GPU 用于副本内流水线并行；
+ * 多节点服务（nodes 大于 1）在节点间再按节点数流水线并行。
+ */
+final class VllmEngineOptions {
+
+    static final String PRESET_LATENCY = "latency";
+    static final String PRESET_THROUGHPUT = "throughput";
+    static final String PRESET_LONG_CONTEXT = "long-context";
+
+    private static final int THROUGHPUT_MIN_GPUMEM_MB = 16 * 1024;
+    private static final int LONG_CONTEXT_MIN_GPUMEM_MB = 40 * 1024;
+
+    private VllmEngineOptions() {
+    }
+
+    /**
+     * 按预设补全并校验请求（原地修改，重复调用结果不变），不满足 GPU 规格时抛出 IllegalArgumentException。
+     */
+    static void resolve(VllmDeployRequest request) {
+        String preset = request.getEnginePreset();
+        if (PRESET_LATENCY.equals(preset)) {
+            if (request.getGpucores() != null && request.getGpucores() > 0 && request.getGpucores() < 100) {
+                throw new IllegalArgumentException("latency 预设需要独占 GPU 算力，不能限制 gpucores");
+            }
+            if (request.getMaxNumSeqs() == null) request.setMaxNumSeqs(32);
+            if (request.getEnableChunkedPrefill() == null) request.setEnableChunkedPrefill(false);
+            if (request.getEnablePrefixCaching() == null) request.setEnablePrefixCaching(true);
+            if (request.getGpuMemoryUtilization() == null) request.setGpuMemoryUtilization(0.90);
+        } else if (PRESET_THROUGHPUT.equals(preset)) {
+            if (request.getGpumemMb() != null && request.getGpumemMb() > 0 && request.getGpumemMb() < THROUGHPUT_MIN_GPUMEM_MB) {
+                throw new IllegalArgumentException("throughput 预设要求每卡显存不少于 " + THROUGHPUT_MIN_GPUMEM_MB + "MB");
+            }
+            if (request.getMaxNumSeqs() == null) request.setMaxNumSeqs(256);
+            if (request.getEnableChunkedPrefill() == null) request.setEnableChunkedPrefill(true);
+            if (request.getEnablePrefixCaching() == null) request.setEnablePrefixCaching(true);
+            if (request.getGpuMemoryUtilization() == null) request.setGpuMemoryUtilization(0.92);
+        } else if (PRESET_LONG_CONTEXT.equals(preset)) {
+            if (request.getGpumemMb() != null && request.getGpumemMb() > 0
+                    && request.getGpumemMb() * request.getGpuPerReplica() * nodesOf(request) < LONG_CONTEXT_MIN_GPUMEM_MB) {
+                throw new IllegalArgumentException("long-context 预设要求单副本显存合计不少于 " + LONG_CONTEXT_MIN_GPUMEM_MB
+                        + "MB（gpumemMb × gpuPerReplica × nodes）");
+            }
+            if (request.getMaxModelLen() == null) request.setMaxModelLen(32768);
+            if (request.getMaxNumSeqs() == null) request.setMaxNumSeqs(16);
+            if (request.getEnableChunkedPrefill() == null) request.setEnableChunkedPrefill(true);
+            if (request.getEnablePrefixCaching() == null) request.setEnablePrefixCaching(true);
+            if (request.getGpuMemoryUtilization() == null) request.setGpuMemoryUtilization(0.95);
+        }
+
+        int gpus = request.getGpuPerReplica();
+        if (request.getTensorParallelSize() == null) request.setTensorParallelSize(gpus);
+        int tp = request.getTensorParallelSize();
+        if (tp > gpus || gpus % tp != 0) {
+            throw new IllegalArgumentException("tensorParallelSize 必须能整除 gpuPerReplica（" + gpus + "），当前为 " + tp);
+        }
+    }
+
+    /** 渲染 vLLM OpenAI 服务的启动参数；未设置的项沿用 vLLM 默认值 */
+    static List<String> args(VllmDeployRequest request) {
+        List<String> args = new ArrayList<>();
+        args.add("--model");
+        args.add(request.getModelIdOrPath() != null ? request.getModelIdOrPath() : "/models");
+        int gpus = request.getGpuPerReplica();
+        int tp = request.getTensorParallelSize() != null ? request.getTensorParallelSize() : gpus;
+        args.add("--tensor-parallel-size");
+        args.add(String.valueOf(tp));
+        int pp = gpus / tp * nodesOf(request);
+        if (pp > 1) {
+            args.add("--pipeline-parallel-size");
+            args.add(String.valueOf(pp));
+        }
+        if (request.getMaxNumSeqs() != null) {
+            args.add("--max-num-seqs");
+            args.add(String.valueOf(request.getMaxNumSeqs()));
+        }
+        if (request.getMaxModelLen() != null) {
+            args.add("--max-model-len");
+            args.add(String.valueOf(request.getMaxModelLen()));
+        }
+        if (request.getGpuMemoryUtilization() != null) {
+            args.add("--gpu-memory-utilization");
+            args.add(String.valueOf(request.getGpuMemoryUtilization()));
+        }
+        if (request.getEnablePrefixCaching() != null) {
+            args.add(request.getEnablePrefixCaching() ? "--enable-prefix-caching" : "--no-enable-prefix-caching");
+        }
+        if (request.getEnableChunkedPrefill() != null) {
+            args.add("--enable-chunked-prefill=" + request.getEnableChunkedPrefill());
+        }
+        if (request.getQuantization() != null) {
+            args.add("--quantization");
+            args.add(request.getQuantization());
+        }
+        if (request.getDtype() != null) {
+            args.add("--dtype");
+            args.add(request.getDtype());
+        }
+        return args;
+    }
+
+    static int nodesOf(VllmDeployRequest request) {
+        return request.getNodes() != null ? request.getNodes() : 1;
+    }
+}
@@ -0,0 +1,463 @@
+package com.acmp.compute.service;
+
+import com.acmp.compute.dto.VllmDeployRequest;
+import com.acmp.compute.dto.WarmPoolRequest;
+import com.acmp.compute.dto.WarmPoolResponse;
+import com.acmp.compute.entity.ModelDeployment;
+import com.acmp.compute.entity.ResourcePool;
+import com.acmp.compute.entity.WarmPool;
+import com.acmp.compute.exception.QuotaExceededException;
+import com.acmp.compute.exception.ResourceNotFoundException;
+import com.acmp.compute.k8s.KubernetesClientManager;
+import com.acmp.compute.k8s.SpecHash;
+import com.acmp.compute.mapper.ModelDeploymentMapper;
+import com.acmp.compute.mapper.ResourcePoolMapper;
+import com.acmp.compute.mapper.WarmPoolMapper;
+import io.fabric8.kubernetes.api.model.Affinity;
+import io.fabric8.kubernetes.api.model.apps.Deployment;
+import io.fabric8.kubernetes.api.model.apps.DeploymentBuilder;
+import io.fabric8.kubernetes.api.model.apps.DeploymentCondition;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 温备池：管理员为资源池配置（镜像、模型、GPU 规格）与待命副本数，后台预先启动已加载模型的 vLLM 副本；
+ * 部署请求与某个待命副本完全一致时直接接管，省去镜像拉取、权重加载、CUDA graph 捕获与就绪探针的初始延迟。
+ * <ul>
+ *   <li>待命副本是单副本的 vLLM Deployment（label acmp.io/standby），Pod 模板由部署流程的同一构建方法生成（以该
+ *       Deployment 名为部署名），注解 acmp.io/template-hash 记录与名称无关的模板哈希</li>
+ *   <li>接管：以 resourceVersion 乐观锁给就绪的待命副本打上 acmp.io/claimed（多实例并发时只有一方成功），部署记录使用该
+ *       Deployment 名，随后按正常流程 server-side apply。Pod 模板不变，不触发滚动更新，已就绪的 Pod 立即可服务，
+ *       其余副本照常冷启动；待命标签随 apply 移除</li>
+ *   <li>配额：待命副本在配额账本中以 standby:&lt;name&gt; 占用资源池 GPU，余量不足时不补充；接管时占用转给部署。
+ *       部署因配额不足失败时先回收待命副本再重试，温备池不挤占真实负载</li>
+ *   <li>统计：命中 / 未命中（请求与规格一致但没有就绪的待命副本）次数，以及省去的就绪时间（待命副本从创建到就绪的实测耗时）</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+public class WarmPoolService {
+
+    public static final String LABEL_STANDBY = "acmp.io/standby";
+    private static final String LABEL_WARM_POOL = "acmp.io/warm-pool";
+    public static final String LABEL_CLAIMED = "acmp.io/claimed";
+    private static final String ANNOTATION_TEMPLATE_HASH = "acmp.io/template-hash";
+    private static final String ANNOTATION_WARMUP_MS = "acmp.io/warmup-ms";
+    public static final String ANNOTATION_CLAIMED_AT = "acmp.io/claimed-at";
+    /** 计算模板哈希时使用的统一部署名，使不同名称的 Deployment 可比较 */
+    private static final String TEMPLATE_NAME = "standby";
+
+    private final WarmPoolMapper warmPoolMapper;
+    private final ResourcePoolMapper resourcePoolMapper;
+    private final ModelDeploymentMapper modelDeploymentMapper;
+    private final KubernetesClientManager clientManager;
+    private final QuotaLedger quotaLedger;
+    private final PrestageService prestageService;
+    private final boolean enabled;
+    private final long claimGraceMs;
+
+    /** 已在配额账本中登记占用的待命副本（poolId/name），进程重启后由补充任务重新登记 */
+    private final Set<String> held = ConcurrentHashMap.newKeySet();
+
+    public WarmPoolService(WarmPoolMapper warmPoolMapper,
+                           ResourcePoolMapper resourcePoolMapper,
+                           ModelDeploymentMapper modelDeploymentMapper,
+                           KubernetesClientManager clientManager,
+                           QuotaLedger quotaLedger,
+                           PrestageService prestageService,
+                           @Value("${warm-pool.enabled:true}") boolean enabled,
+                           @Value("${warm-pool.claim-grace-ms:600000}") long claimGraceMs) {
+        this.warmPoolMapper = warmPoolMapper;
+        this.resourcePoolMapper = resourcePoolMapper;
+        this.modelDeploymentMapper = modelDeploymentMapper;
+        this.clientManager = clientManager;
+        this.quotaLedger = quotaLedger;
+        this.prestageService = prestageService;
+        this.enabled = enabled;
+        this.claimGraceMs = claimGraceMs;
+    }
+
+    public WarmPoolResponse create(String poolId, WarmPoolRequest request) {
+        ResourcePool pool = resourcePoolMapper.findById(poolId)
+                .orElseThrow(() -> new ResourceNotFoundException("资源池不存在: " + poolId));
+        WarmPool spec = WarmPool.builder()
+                .id(UUID.randomUUID().toString())
+                .resourcePoolId(poolId)
+                .vllmImage(request.getVllmImage())
+                .modelIdOrPath(request.getModelIdOrPath())
+                .hostModelPath(request.getHostModelPath())
+                .gpuPerReplica(request.getGpuPerReplica())
+                .gpumemMb(request.getGpumemMb())
+                .gpucores(request.getGpucores())
+                .size(request.getSize())
+                .build();
+        String hash = templateHash(pool, requestOf(spec));
+        boolean duplicate = warmPoolMapper.findByResourcePoolId(poolId).stream()
+                .anyMatch(w -> hash.equals(templateHash(pool, requestOf(w))));
+        if (duplicate) throw new IllegalArgumentException("资源池已存在相同镜像、模型与 GPU 规格的温备池");
+        warmPoolMapper.insert(spec);
+        log.info("资源池 {} 新增温备池 {}（{} × {} GPU）", poolId, spec.getId(), spec.getSize(), spec.getGpuPerReplica());
+        return list(poolId).stream().filter(w -> w.getId().equals(spec.getId())).findFirst().orElseThrow();
+    }
+
+    /** 调整待命副本数，由补充任务增删副本 */
+    public WarmPoolResponse resize(String warmPoolId, int size) {
+        WarmPool spec = warmPoolMapper.findById(warmPoolId)
+                .orElseThrow(() -> new ResourceNotFoundException("温备池不存在: " + warmPoolId));
+        if (size < 0) throw new IllegalArgumentException("size 不能小于 0");
+        warmPoolMapper.updateSize(warmPoolId, size);
+        return list(spec.getResourcePoolId()).stream().filter(w -> w.getId().equals(warmPoolId)).findFirst().orElseThrow();
+    }
+
+    /** 删除规格，其待命副本由补充任务回收 */
+    public void delete(String warmPoolId) {
+        if (warmPoolMapper.deleteById(warmPoolId) == 0) throw new ResourceNotFoundException("温备池不存在: " + warmPoolId);
+    }
+
+    /** 资源池的温备池规格与统计；集群不可达时待命副本数为空 */
+    public List<WarmPoolResponse> list(String poolId) {
+        ResourcePool pool = resourcePoolMapper.findById(poolId)
+                .orElseThrow(() -> new ResourceNotFoundException("资源池不存在: " + poolId));
+        Map<String, int[]> counts = null;
+        try {
+            counts = new HashMap<>();
+            for (Deployment d : standbys(pool)) {
+                if (claimed(d)) continue;
+                int[] c = counts.computeIfAbsent(label(d, LABEL_WARM_POOL), k -> new int[2]);
+                c[ready(d) ? 0 : 1]++;
+            }
+        } catch (RuntimeException e) {
+            log.warn("读取资源池 {} 的待命副本失败: {}", poolId, e.getMessage());
+            counts = null;
+        }
+        List<WarmPoolResponse> result = new ArrayList<>();
+        for (WarmPool w : warmPoolMapper.findByResourcePoolId(poolId)) {
+            int[] c = counts != null ? counts.getOrDefault(w.getId(), new int[2]) : null;
+            long total = w.getHits() + w.getMisses();
+            result.add(WarmPoolResponse.builder()
+                    .id(w.getId())
+                    .resourcePoolId(poolId)
+                    .vllmImage(w.getVllmImage())
+                    .modelIdOrPath(w.getModelIdOrPath())
+                    .hostModelPath(w.getHostModelPath())
+                    .gpuPerReplica(w.getGpuPerReplica())
+                    .gpumemMb(w.getGpumemMb())
+                    .gpucores(w.getGpucores())
+                    .size(w.getSize())
+                    .readyStandbys(c != null ? c[0] : null)
+                    .startingStandbys(c != null ? c[1] : null)
+                    .hits(w.getHits())
+                    .misses(w.getMisses())
+                    .hitRatio(total > 0 ? (double) w.getHits() / total : null)
+                    .timeToServeSavedSeconds(w.getSavedMs() / 1000)
+                    .createdAt(w.getCreatedAt())
+                    .build());
+        }
+        return result;
+    }
+
+    /**
+     * 为部署接管一个就绪且模板一致的待命副本，成功时其配额占用随即释放（由部署的预留接替）。
+     * 没有可接管的副本时返回 null；请求与某个温备池规格一致时计一次未命中。
+     *
+     * @param deploymentId 即将写入的部署记录 ID，记录在 claimed 标签上
+     */
+    public Claim claim(ResourcePool pool, VllmDeployRequest request, String deploymentId) {
+        if (!enabled) return null;
+        String hash = templateHash(pool, request);
+        List<Deployment> standbys;
+        try {
+            standbys = standbys(pool);
+        } catch (RuntimeException e) {
+            log.warn("读取资源池 {} 的待命副本失败，按冷启动部署: {}", pool.getId(), e.getMessage());
+            return null;
+        }
+        for (Deployment d : standbys) {
+            if (claimed(d) || !ready(d) || !hash.equals(annotation(d, ANNOTATION_TEMPLATE_HASH))) continue;
+            String name = d.getMetadata().getName();
+            // 带着读到的 resourceVersion 更新：对象已被其他实例接管或修改时返回冲突，换下一个
+            Deployment marked = new DeploymentBuilder(d)
+                    .editMetadata()
+                        .addToLabels(LABEL_CLAIMED, deploymentId)
+                        .addToAnnotations(ANNOTATION_CLAIMED_AT, String.valueOf(System.currentTimeMillis()))
+                    .endMetadata()
+                    .build();
+            try {
+                clientManager.run(pool.getPhysicalClusterId(), client -> client.apps().deployments()
+                        .inNamespace(pool.getNamespace()).resource(marked).update());
+            } catch (RuntimeException e) {
+                log.debug("待命副本 {} 接管冲突: {}", name, e.getMessage());
+                continue;
+            }
+            quotaLedger.release(pool.getId(), QuotaLedger.KEY_STANDBY + name);
+            held.remove(pool.getId() + "/" + name);
+            long savedMs = parseLong(annotation(d, ANNOTATION_WARMUP_MS));
+            String specId = label(d, LABEL_WARM_POOL);
+            if (specId != null) warmPoolMapper.recordHit(specId, savedMs);
+            log.info("部署 {} 接管待命副本 {}（省去约 {} 秒冷启动）", deploymentId, name, savedMs / 1000);
+            return new Claim(name, savedMs, d.getSpec().getTemplate().getSpec().getAffinity());
+        }
+        warmPoolMapper.findByResourcePoolId(pool.getId()).stream()
+                .filter(w -> hash.equals(templateHash(pool, requestOf(w))))
+                .findFirst()
+                .ifPresent(w -> warmPoolMapper.recordMiss(w.getId()));
+        return null;
+    }
+
+    /** 接管后部署未能落库或预留配额时归还待命副本，配额占用由补充任务重新登记 */
+    public void unclaim(ResourcePool pool, Claim claim) {
+        try {
+            clientManager.run(pool.getPhysicalClusterId(), client -> client.apps().deployments()
+                    .inNamespace(pool.getNamespace()).withName(claim.getName())
+                    .edit(d -> new DeploymentBuilder(d)
+                            .editMetadata()
+                                .removeFromLabels(LABEL_CLAIMED)
+                                .removeFromAnnotations(ANNOTATION_CLAIMED_AT)
+                            .endMetadata()
+                            .build()));
+        } catch (RuntimeException e) {
+            log.warn("归还待命副本 {} 失败: {}", claim.getName(), e.getMessage());
+        }
+    }
+
+    /**
+     * 回收待命副本直到资源池余量满足 usage（未就绪的优先），用于部署配额不足时让出温备池占用。
+     *
+     * @return 是否回收了任何副本
+     */
+    public boolean evictFor(ResourcePool pool, QuotaLedger.Usage usage) {
+        List<Deployment> candidates;
+        try {
+            candidates = standbys(pool).stream()
+                    .filter(d -> !claimed(d))
+                    .sorted(Comparator.comparing(WarmPoolService::ready))
+                    .collect(Collectors.toList());
+        } catch (RuntimeException e) {
+            return false;
+        }
+        boolean evicted = false;
+        for (Deployment d : candidates) {
+            try {
+                quotaLedger.check(pool.getId(), usage);
+                return evicted;
+            } catch (QuotaExceededException e) {
+                remove(pool, d.getMetadata().getName());
+                evicted = true;
+            }
+        }
+        return evicted;
+    }
+
+    @Scheduled(initialDelayString = "${warm-pool.initial-delay-ms:30000}", fixedDelayString = "${warm-pool.interval-ms:30000}")
+    public void refillAll() {
+        if (!enabled) return;
+        Map<String, List<WarmPool>> specsByPool = warmPoolMapper.findAll().stream()
+                .collect(Collectors.groupingBy(WarmPool::getResourcePoolId));
+        for (ResourcePool pool : resourcePoolMapper.findAll()) {
+            try {
+                KubernetesClientManager.inBackground(() -> {
+                    refill(pool, specsByPool.getOrDefault(pool.getId(), List.of()));
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                log.warn("资源池 {} 温备池补充失败: {}", pool.getId(), e.getMessage());
+            }
+        }
+    }
+
+    /** 回收多余、过时与规格已删除的待命副本，登记遗漏的配额占用，再按规格补足 */
+    void refill(ResourcePool pool, List<WarmPool> specs) {
+        List<Deployment> standbys = standbys(pool);
+        if (specs.isEmpty() && standbys.isEmpty()) return;
+        Map<String, WarmPool> byId = specs.stream().collect(Collectors.toMap(WarmPool::getId, Function.identity()));
+        Map<String, String> hashes = new HashMap<>();
+        specs.forEach(w -> hashes.put(w.getId(), templateHash(pool, requestOf(w))));
+        Map<String, Integer> live = new HashMap<>();
+        long now = System.currentTimeMillis();
+        // 就绪的排在前面，缩容时优先保留
+        standbys.sort(Comparator.comparing((Deployment d) -> !ready(d)));
+        for (Deployment d : standbys) {
+            String name = d.getMetadata().getName();
+            if (claimed(d)) {
+                if (now - parseLong(annotation(d, ANNOTATION_CLAIMED_AT)) > claimGraceMs && !adopted(label(d, LABEL_CLAIMED))) {
+                    log.warn("待命副本 {} 接管后部署未完成，回收", name);
+                    remove(pool, name);
+                }
+                continue;
+            }
+            String specId = label(d, LABEL_WARM_POOL);
+            WarmPool spec = byId.get(specId);
+            if (spec == null || !hashes.get(specId).equals(annotation(d, ANNOTATION_TEMPLATE_HASH))
+                    || live.getOrDefault(specId, 0) >= spec.getSize()) {
+                remove(pool, name);
+                continue;
+            }
+            if (!held.contains(pool.getId() + "/" + name)) {
+                try {
+                    quotaLedger.reserve(pool, QuotaLedger.KEY_STANDBY + name, usageOf(spec)).commit();
+                    held.add(pool.getId() + "/" + name);
+                } catch (QuotaExceededException e) {
+                    log.info("资源池 {} GPU 余量不足，回收待命副本 {}", pool.getId(), name);
+                    remove(pool, name);
+                    continue;
+                }
+            }
+            if (ready(d) && annotation(d, ANNOTATION_WARMUP_MS) == null) recordWarmup(pool, d, now);
+            live.merge(specId, 1, Integer::sum);
+        }
+        for (WarmPool spec : specs) {
+            for (int i = live.getOrDefault(spec.getId(), 0); i < spec.getSize(); i++) {
+                if (!start(pool, spec, hashes.get(spec.getId()))) break;
+            }
+        }
+    }
+
+    /** 新建一个待命副本；资源池 GPU 余量不足时返回 false */
+    private boolean start(ResourcePool pool, WarmPool spec, String hash) {
+        String name = "vllm-warm-" + UUID.randomUUID().toString().substring(0, 8);
+        String key = QuotaLedger.KEY_STANDBY + name;
+        try {
+            quotaLedger.reserve(pool, key, usageOf(spec)).commit();
+        } catch (QuotaExceededException e) {
+            log.debug("资源池 {} GPU 余量不足，温备池 {} 暂不补充", pool.getId(), spec.getId());
+            return false;
+        }
+        Deployment deployment = ModelDeploymentService.buildDeployment(name, pool, requestOf(spec));
+        deployment.getMetadata().getLabels().put(LABEL_STANDBY, "true");
+        deployment.getMetadata().getLabels().put(LABEL_WARM_POOL, spec.getId());
+        Map<String, String> annotations = new HashMap<>();
+        annotations.put(ANNOTATION_TEMPLATE_HASH, hash);
+        deployment.getMetadata().setAnnotations(annotations);
+        deployment.getSpec().getTemplate().getSpec().setAffinity(
+                prestageService.preferredAffinity(pool.getPhysicalClusterId(), spec.getVllmImage(), spec.getHostModelPath()));
+        try {
+            clientManager.apply(pool.getPhysicalClusterId(), deployment);
+        } catch (RuntimeException e) {
+            quotaLedger.release(pool.getId(), key);
+            throw e;
+        }
+        held.add(pool.getId() + "/" + name);
+        log.info("资源池 {} 温备池 {} 启动待命副本 {}", pool.getId(), spec.getId(), name);
+        return true;
+    }
+
+    /** 记录待命副本从创建到就绪的耗时：取 Available 条件的转换时间，没有时以本轮观察时刻近似 */
+    private void recordWarmup(ResourcePool pool, Deployment d, long now) {
+        long created = Instant.parse(d.getMetadata().getCreationTimestamp()).toEpochMilli();
+        long readyAt = now;
+        if (d.getStatus().getConditions() != null) {
+            for (DeploymentCondition c : d.getStatus().getConditions()) {
+                if ("Available".equals(c.getType()) && "True".equals(c.getStatus()) && c.getLastTransitionTime() != null) {
+                    readyAt = Instant.parse(c.getLastTransitionTime()).toEpochMilli();
+                }
+            }
+        }
+        String warmupMs = String.valueOf(Math.max(0, readyAt - created));
+        try {
+            clientManager.run(pool.getPhysicalClusterId(), client -> client.apps().deployments()
+                    .inNamespace(pool.getNamespace()).withName(d.getMetadata().getName())
+                    .edit(x -> new DeploymentBuilder(x).editMetadata().addToAnnotations(ANNOTATION_WARMUP_MS, warmupMs).endMetadata().build()));
+        } catch (RuntimeException e) {
+            log.debug("记录待命副本 {} 就绪耗时失败: {}", d.getMetadata().getName(), e.getMessage());
+        }
+    }
+
+    private void remove(ResourcePool pool, String name) {
+        try {
+            clientManager.deleteDeployment(pool.getPhysicalClusterId(), pool.getNamespace(), name);
+        } finally {
+            quotaLedger.release(pool.getId(), QuotaLedger.KEY_STANDBY + name);
+            held.remove(pool.getId() + "/" + name);
+        }
+    }
+
+    /** 接管方的部署记录存在且未失败 */
+    private boolean adopted(String deploymentId) {
+        if (deploymentId == null) return false;
+        return modelDeploymentMapper.findById(deploymentId)
+                .map(ModelDeployment::getStatus)
+                .filter(s -> !"failed".equals(s))
+                .isPresent();
+    }
+
+    private List<Deployment> standbys(ResourcePool pool) {
+        return new ArrayList<>(clientManager.listDeployments(pool.getPhysicalClusterId(), pool.getNamespace(),
+                LABEL_STANDBY, "true").getValue());
+    }
+
+    /** 与名称无关的 Pod 模板哈希：部署请求与待命副本按同一部署名构建后比较 */
+    private static String templateHash(ResourcePool pool, VllmDeployRequest request) {
+        return SpecHash.template(ModelDeploymentService.buildDeployment(TEMPLATE_NAME, pool, request).getSpec().getTemplate());
+    }
+
+    private static VllmDeployRequest requestOf(WarmPool spec) {
+        VllmDeployRequest request = new VllmDeployRequest();
+        request.setVllmImage(spec.getVllmImage());
+        request.setModelIdOrPath(spec.getModelIdOrPath());
+        request.setHostModelPath(spec.getHostModelPath());
+        request.setGpuPerReplica(spec.getGpuPerReplica());
+        request.setGpumemMb(spec.getGpumemMb());
+        request.setGpucores(spec.getGpucores());
+        request.setReplicas(1);
+        return request;
+    }
+
+    private static QuotaLedger.Usage usageOf(WarmPool spec) {
+        return QuotaLedger.Usage.vllmReplica(spec.getGpuPerReplica(),
+                spec.getGpumemMb() != null ? spec.getGpumemMb() : 0,
+                spec.getGpucores() != null ? spec.getGpucores() : 0);
+    }
+
+    private static boolean ready(Deployment d) {
+        return d.getStatus() != null && d.getStatus().getReadyReplicas() != null && d.getStatus().getReadyReplicas() > 0;
+    }
+
+    private static boolean claimed(Deployment d) {
+        return label(d, LABEL_CLAIMED) != null;
+    }
+
+    private static String label(Deployment d, String key) {
+        return d.getMetadata().getLabels() != null ? d.getMetadata().getLabels().get(key) : null;
+    }
+
+    private static String annotation(Deployment d, String key) {
+        return d.getMetadata().getAnnotations() != null ? d.getMetadata().getAnnotations().get(key) : null;
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return value != null ? Long.parseLong(value) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /** 接管结果：待命副本的 Deployment 名、省去的冷启动耗时与其节点亲和（沿用以免模板变化触发滚动） */
+    @Getter
+    public static final class Claim {
+        private final String name;
+        private final long savedMs;
+        private final Affinity affinity;
+
+        Claim(String name, long savedMs, Affinity affinity) {
+            this.name = name;
+            this.savedMs = savedMs;
+            this.affinity = affinity;
+        }
+    }
+}
@@ -1,7 +1,7 @@
 # VolcanoJob 模板：训练任务，支持 gang scheduling 与 HAMi vGPU 资源
 # 变量: jobName, namespace, queueName, minAvailable, image, replicas, gpuPerPod, gpuMemPerPod, gpuCoresPerPod, command
 apiVersion: batch.volcano.sh/v1alpha1
-kind: VolcanoJob
+kind: Job
 metadata:
   name: ${jobName}
   namespace: ${namespace}
@@ -34,6 +34,16 @@ CREATE TABLE IF NOT EXISTS resource_pool (
     memory_gib INT NOT NULL,
     max_pods INT DEFAULT 50,
     volcano_queue_name VARCHAR(255) NOT NULL,
+    gpu_floor INT,
+    gpu_ceiling INT,
+    gpu_borrowed INT NOT NULL DEFAULT 0,
+    inference_rps INT,
+    inference_tps INT,
+    inference_user_rps INT,
+    inference_user_tps INT,
+    shm_max_gib INT,
+    allow_host_ipc BOOLEAN NOT NULL DEFAULT FALSE,
+    allow_host_network BOOLEAN NOT NULL DEFAULT FALSE,
     status VARCHAR(32) NOT NULL DEFAULT 'active',
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
@@ -74,10 +84,26 @@ CREATE TABLE IF NOT EXISTS model_deployment (
     gpumem_mb INT,
     gpucores INT,
     replicas INT DEFAULT 1,
+    nodes INT,
     k8s_deployment_name VARCHAR(255),
     k8s_service_name VARCHAR(255),
     status VARCHAR(32) NOT NULL DEFAULT 'pending',
     service_url VARCHAR(512),
+    routing_mode VARCHAR(32) NOT NULL DEFAULT 'least_outstanding',
+    response_cache BOOLEAN NOT NULL DEFAULT FALSE,
+    min_replicas INT,
+    max_replicas INT,
+    idle_minutes INT,
+    last_active_at TIMESTAMP,
+    engine_preset VARCHAR(32),
+    tensor_parallel_size INT,
+    max_num_seqs INT,
+    max_model_len INT,
+    gpu_memory_utilization DOUBLE,
+    enable_prefix_caching BOOLEAN,
+    enable_chunked_prefill BOOLEAN,
+    quantization VARCHAR(32),
+    dtype VARCHAR(16),
     created_by VARCHAR(36),
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
@@ -115,4 +141,84 @@ CREATE INDEX IF NOT EXISTS idx_resource_pool_dept ON resource_pool(department_co
 CREATE INDEX IF NOT EXISTS idx_resource_pool_cluster ON resource_pool(physical_cluster_id);
 CREATE INDEX IF NOT EXISTS idx_credential_pool ON resource_pool_credential(resource_pool_id);
 CREATE INDEX IF NOT EXISTS idx_user_resource_pool_user ON user_resource_pool(user_id);
-CREATE INDEX IF NOT EXISTS idx_user_resource_pool_pool ON user_resource_pool(resource_pool_id);
\ No newline at end of file
+CREATE INDEX IF NOT EXISTS idx_user_resource_pool_pool ON user_resource_pool(resource_pool_id);
+-- 异步操作（资源池创建、模型部署等）：202 Accepted 后轮询/长轮询，含 saga 补偿日志与幂等键
+CREATE TABLE IF NOT EXISTS operation (
+    id VARCHAR(36) PRIMARY KEY,
+    type VARCHAR(64) NOT NULL,
+    status VARCHAR(32) NOT NULL DEFAULT 'pending',
+    resource_type VARCHAR(64),
+    resource_id VARCHAR(255),
+    idempotency_key VARCHAR(255),
+    request_hash VARCHAR(64),
+    result_json CLOB,
+    error VARCHAR(2048),
+    saga_log CLOB,
+    owner VARCHAR(128),
+    created_by VARCHAR(36),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    finished_at TIMESTAMP,
+    FOREIGN KEY (created_by) REFERENCES user(id)
+);
+CREATE UNIQUE INDEX IF NOT EXISTS uk_operation_idempotency ON operation(created_by, idempotency_key);
+CREATE INDEX IF NOT EXISTS idx_operation_owner ON operation(owner, status);
+-- 弹性配额借出/借入记录：gpu 为本次变化量，gpu_borrowed_after 为变化后的借入量（负数表示借出）
+CREATE TABLE IF NOT EXISTS quota_borrow_event (
+    id VARCHAR(36) PRIMARY KEY,
+    physical_cluster_id VARCHAR(36) NOT NULL,
+    resource_pool_id VARCHAR(36) NOT NULL,
+    action VARCHAR(16) NOT NULL,
+    gpu INT NOT NULL,
+    gpu_borrowed_after INT NOT NULL,
+    demand_gpu INT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (resource_pool_id) REFERENCES resource_pool(id)
+);
+CREATE INDEX IF NOT EXISTS idx_quota_borrow_event_pool ON quota_borrow_event(resource_pool_id, created_at);
+-- 空闲缩容记录：scale_to_zero 时 gpu 为释放的 GPU 数；wake 时 idle_ms 为本次休眠时长、cold_start_ms 为唤醒到首个副本就绪的耗时
+CREATE TABLE IF NOT EXISTS deployment_idle_event (
+    id VARCHAR(36) PRIMARY KEY,
+    resource_pool_id VARCHAR(36) NOT NULL,
+    model_deployment_id VARCHAR(36) NOT NULL,
+    action VARCHAR(16) NOT NULL,
+    gpu INT NOT NULL,
+    idle_ms BIGINT,
+    cold_start_ms BIGINT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (resource_pool_id) REFERENCES resource_pool(id)
+);
+CREATE INDEX IF NOT EXISTS idx_deployment_idle_event_pool ON deployment_idle_event(resource_pool_id, created_at);
+CREATE INDEX IF NOT EXISTS idx_deployment_idle_event_deployment ON deployment_idle_event(model_deployment_id, created_at);
+-- 温备池：每个资源池按（镜像、模型、GPU 规格）预热的待命副本数；hits / misses / saved_ms 为部署命中统计
+CREATE TABLE IF NOT EXISTS warm_pool (
+    id VARCHAR(36) PRIMARY KEY,
+    resource_pool_id VARCHAR(36) NOT NULL,
+    vllm_image VARCHAR(512) NOT NULL,
+    model_id_or_path VARCHAR(512),
+    host_model_path VARCHAR(512),
+    gpu_per_replica INT NOT NULL,
+    gpumem_mb INT,
+    gpucores INT,
+    size INT NOT NULL,
+    hits BIGINT NOT NULL DEFAULT 0,
+    misses BIGINT NOT NULL DEFAULT 0,
+    saved_ms BIGINT NOT NULL DEFAULT 0,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (resource_pool_id) REFERENCES resource_pool(id)
+);
+CREATE INDEX IF NOT EXISTS idx_warm_pool_pool ON warm_pool(resource_pool_id);
+-- 预置项：在 GPU 节点上预拉取的镜像（kind=image）或预置的权重目录（kind=weights，source_path 非空时从该目录复制）
+CREATE TABLE IF NOT EXISTS prestage_item (
+    id VARCHAR(36) PRIMARY KEY,
+    physical_cluster_id VARCHAR(36) NOT NULL,
+    kind VARCHAR(16) NOT NULL,
+    image VARCHAR(512),
+    host_path VARCHAR(512),
+    source_path VARCHAR(512),
+    node_selector VARCHAR(256),
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (physical_cluster_id) REFERENCES physical_cluster(id)
+);
+CREATE INDEX IF NOT EXISTS idx_prestage_item_cluster ON prestage_item(physical_cluster_id);
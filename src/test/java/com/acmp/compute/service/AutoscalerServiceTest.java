@@ -0,0 +1,219 @@
+package com.acmp.compute.service;
+
+import com.acmp.compute.entity.ModelDeployment;
+import com.acmp.compute.entity.ResourcePool;
+import com.acmp.compute.k8s.CachedRead;
+import com.acmp.compute.k8s.KubernetesClientManager;
+import com.acmp.compute.mapper.ModelDeploymentMapper;
+import com.acmp.compute.mapper.ResourcePoolMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.fabric8.kubernetes.api.model.apps.Deployment;
+import io.fabric8.kubernetes.api.model.apps.DeploymentBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 自动扩缩容：指标解析、稳定窗口、副本数范围与配额账本限制。
+ * 副本指标由本地 HttpServer 提供，Deployment 与 scale 调用为 mock，配额账本为真实实现。
+ */
+class AutoscalerServiceTest {
+
+    private static final String POOL_ID = "pool-1";
+    private static final String DEPLOYMENT_ID = "dep-1";
+
+    private HttpServer metricsServer;
+    private volatile String metrics = "";
+    private String metricsAddress;
+
+    private ResourcePoolMapper resourcePoolMapper;
+    private ModelDeploymentMapper modelDeploymentMapper;
+    private KubernetesClientManager clientManager;
+    private InferenceGatewayService gateway;
+    private QuotaLedger quotaLedger;
+    private ResourcePool pool;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        metricsServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        metricsServer.createContext("/metrics", exchange -> {
+            byte[] body = metrics.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        metricsServer.start();
+        metricsAddress = "http://127.0.0.1:" + metricsServer.getAddress().getPort();
+
+        pool = ResourcePool.builder().id(POOL_ID).physicalClusterId("cluster-1").namespace("ns-1").gpuSlots(8).build();
+        resourcePoolMapper = mock(ResourcePoolMapper.class);
+        when(resourcePoolMapper.findById(POOL_ID)).thenReturn(Optional.of(pool));
+        modelDeploymentMapper = mock(ModelDeploymentMapper.class);
+        clientManager = mock(KubernetesClientManager.class);
+        gateway = mock(InferenceGatewayService.class);
+        quotaLedger = new QuotaLedger(resourcePoolMapper, modelDeploymentMapper, clientManager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        metricsServer.stop(0);
+    }
+
+    @Test
+    void parseSumsLabelledSeriesAndSkipsOthers() {
+        Map<String, Double> values = AutoscalerService.parse(String.join("\n",
+                "# HELP vllm:num_requests_running Number of requests currently running on GPU.",
+                "# TYPE vllm:num_requests_running gauge",
+                "vllm:num_requests_running{model_name=\"a\"} 3.0",
+                "vllm:num_requests_running{model_name=\"b c\"} 2.0",
+                "vllm:num_requests_waiting 4",
+                "vllm:kv_cache_usage_perc{model_name=\"a\"} 0.75 1700000000000",
+                "vllm:prompt_tokens_total{model_name=\"a\"} 12345.0",
+                "vllm:num_requests_waiting{model_name=\"x\"} NaN-ish",
+                ""));
+
+        assertEquals(5.0, values.get("vllm:num_requests_running"), 1e-9);
+        assertEquals(4.0, values.get("vllm:num_requests_waiting"), 1e-9);
+        assertEquals(0.75, values.get("vllm:kv_cache_usage_perc"), 1e-9);
+        assertFalse(values.containsKey("vllm:prompt_tokens_total"));
+    }
+
+    @Test
+    void scaleDownHeldByStabilizationWindow() {
+        AutoscalerService autoscaler = autoscaler(0, 600_000);
+        ModelDeployment record = record(1, 8);
+        replicas(2);
+        load(2, 40, 0);
+        autoscaler.evaluate(record);
+        verify(modelDeploymentMapper).updateReplicas(DEPLOYMENT_ID, 5);
+
+        // 负载在高低之间抖动：缩容窗口内仍有较高的建议值，副本数保持不变
+        replicas(5);
+        for (int i = 0; i < 5; i++) {
+            load(5, 1, 0);
+            autoscaler.evaluate(record);
+            load(5, 16, 0);
+            autoscaler.evaluate(record);
+        }
+        verify(modelDeploymentMapper, times(1)).updateReplicas(anyString(), anyInt());
+    }
+
+    @Test
+    void scaleDownWithoutWindowFollowsLoad() {
+        AutoscalerService autoscaler = autoscaler(0, 0);
+        ModelDeployment record = record(1, 8);
+        replicas(4);
+        load(4, 4, 0);
+        autoscaler.evaluate(record);
+        verify(modelDeploymentMapper).updateReplicas(DEPLOYMENT_ID, 1);
+    }
+
+    @Test
+    void recommendationClampedToMaxReplicas() {
+        AutoscalerService autoscaler = autoscaler(0, 0);
+        ModelDeployment record = record(1, 3);
+        replicas(2);
+        load(2, 1000, 200);
+        autoscaler.evaluate(record);
+        verify(modelDeploymentMapper).updateReplicas(DEPLOYMENT_ID, 3);
+    }
+
+    @Test
+    void recommendationClampedToMinReplicas() {
+        AutoscalerService autoscaler = autoscaler(0, 0);
+        ModelDeployment record = record(2, 8);
+        replicas(4);
+        load(4, 0, 0);
+        autoscaler.evaluate(record);
+        verify(modelDeploymentMapper).updateReplicas(DEPLOYMENT_ID, 2);
+    }
+
+    @Test
+    void scaleUpLimitedByQuotaLedger() {
+        pool.setGpuSlots(4);
+        AutoscalerService autoscaler = autoscaler(0, 0);
+        ModelDeployment record = record(1, 8);
+        hold(record, 2);
+        replicas(2);
+        load(2, 200, 20);
+        autoscaler.evaluate(record);
+
+        verify(modelDeploymentMapper).updateReplicas(DEPLOYMENT_ID, 4);
+        assertEquals(4, quotaLedger.used(POOL_ID).getGpu());
+    }
+
+    @Test
+    void scaleUpRejectedWhenPoolFull() {
+        pool.setGpuSlots(2);
+        AutoscalerService autoscaler = autoscaler(0, 0);
+        ModelDeployment record = record(1, 8);
+        hold(record, 2);
+        replicas(2);
+        load(2, 200, 20);
+        autoscaler.evaluate(record);
+
+        verify(modelDeploymentMapper, never()).updateReplicas(anyString(), anyInt());
+        verify(clientManager, never()).run(anyString(), any());
+        assertEquals(2, quotaLedger.used(POOL_ID).getGpu());
+    }
+
+    private AutoscalerService autoscaler(long scaleUpWindowMs, long scaleDownWindowMs) {
+        return new AutoscalerService(modelDeploymentMapper, resourcePoolMapper, clientManager,
+                gateway, quotaLedger, true, 16, 1.0, 0.9, scaleUpWindowMs, scaleDownWindowMs, 2000);
+    }
+
+    private ModelDeployment record(int minReplicas, int maxReplicas) {
+        return ModelDeployment.builder()
+                .id(DEPLOYMENT_ID)
+                .resourcePoolId(POOL_ID)
+                .k8sDeploymentName("vllm-dep-1")
+                .status("running")
+                .gpuPerReplica(1)
+                .minReplicas(minReplicas)
+                .maxReplicas(maxReplicas)
+                .build();
+    }
+
+    /** 账本中登记部署当前副本的占用，与部署流程一致 */
+    private void hold(ModelDeployment record, int replicas) {
+        record.setReplicas(replicas);
+        quotaLedger.reserve(pool, QuotaLedger.KEY_DEPLOYMENT + record.getId(), QuotaLedger.usageOf(record)).commit();
+    }
+
+    private void replicas(int n) {
+        Deployment deployment = new DeploymentBuilder()
+                .withNewMetadata().withName("vllm-dep-1").withNamespace("ns-1").endMetadata()
+                .withNewSpec().withReplicas(n).endSpec()
+                .build();
+        when(clientManager.readDeployment("cluster-1", "ns-1", "vllm-dep-1")).thenReturn(CachedRead.live(deployment));
+    }
+
+    /** n 个副本，每个副本的 running / waiting 相同 */
+    private void load(int n, double running, double waiting) {
+        metrics = "vllm:num_requests_running{model_name=\"m\"} " + running + "\n"
+                + "vllm:num_requests_waiting{model_name=\"m\"} " + waiting + "\n"
+                + "vllm:gpu_cache_usage_perc{model_name=\"m\"} 0.1\n";
+        when(gateway.replicaEndpoints(DEPLOYMENT_ID)).thenReturn(Collections.nCopies(n, metricsAddress));
+    }
+}
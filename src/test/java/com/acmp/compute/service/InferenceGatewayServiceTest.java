@@ -0,0 +1,169 @@
+package com.acmp.compute.service;
+
+import com.acmp.compute.dto.InferenceRoutingStats;
+import com.acmp.compute.entity.ModelDeployment;
+import com.acmp.compute.entity.ResourcePool;
+import com.acmp.compute.exception.UpstreamUnavailableException;
+import com.acmp.compute.k8s.KubernetesClientManager;
+import com.acmp.compute.mapper.ModelDeploymentMapper;
+import com.acmp.compute.mapper.ResourcePoolMapper;
+import com.acmp.compute.security.Role;
+import com.acmp.compute.security.UserPrincipal;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 推理网关转发：连接失败的副本被摘除并在同一请求内重试到其他副本。
+ * 上游为本地 HttpServer，失败副本为已关闭的本地端口。
+ */
+class InferenceGatewayServiceTest {
+
+    private static final String DEPLOYMENT_ID = "dep-1";
+    private static final String POOL_ID = "pool-1";
+
+    private HttpServer live;
+    private final AtomicInteger liveRequests = new AtomicInteger();
+    private String liveAddress;
+    private String deadAddress;
+    private MockEnvironment environment;
+    private InferenceGatewayService gateway;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        live = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        live.createContext("/v1/", exchange -> {
+            liveRequests.incrementAndGet();
+            exchange.getRequestBody().readAllBytes();
+            byte[] body = "{\"ok\":true}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        live.start();
+        liveAddress = "http://127.0.0.1:" + live.getAddress().getPort();
+        try (ServerSocket socket = new ServerSocket(0)) {
+            deadAddress = "http://127.0.0.1:" + socket.getLocalPort();
+        }
+
+        ModelDeploymentMapper modelDeploymentMapper = mock(ModelDeploymentMapper.class);
+        when(modelDeploymentMapper.findById(DEPLOYMENT_ID)).thenReturn(Optional.of(ModelDeployment.builder()
+                .id(DEPLOYMENT_ID)
+                .resourcePoolId(POOL_ID)
+                .k8sDeploymentName("vllm-dep-1")
+                .routingMode(InferenceGatewayService.ROUTING_PREFIX_AFFINITY)
+                .responseCache(false)
+                .build()));
+        ResourcePoolMapper resourcePoolMapper = mock(ResourcePoolMapper.class);
+        when(resourcePoolMapper.findById(POOL_ID)).thenReturn(Optional.of(ResourcePool.builder()
+                .id(POOL_ID)
+                .physicalClusterId("cluster-1")
+                .namespace("ns-1")
+                .build()));
+        InferenceAdmissionService admissionService = mock(InferenceAdmissionService.class);
+        when(admissionService.admit(anyString(), anyString(), anyLong())).thenReturn(CompletableFuture.completedFuture(null));
+
+        environment = new MockEnvironment();
+        gateway = new InferenceGatewayService(modelDeploymentMapper, resourcePoolMapper, mock(KubernetesClientManager.class),
+                admissionService, mock(InferenceResponseCache.class), mock(IdleScalerService.class), environment,
+                new ObjectMapper(), 1000, 10_000, 10_000, 0, 60_000, 2, "X-Session-Id", 2048, 1.25, 4, 256);
+
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                UserPrincipal.builder().id("u-1").username("admin").role(Role.PLATFORM_ADMIN.name()).build(), null, List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        live.stop(0);
+    }
+
+    @Test
+    void connectFailureEjectsReplicaAndRetriesOnAnother() throws Exception {
+        List<String> endpoints = List.of(deadAddress, liveAddress);
+        environment.setProperty("inference.static-endpoints." + DEPLOYMENT_ID, String.join(",", endpoints));
+        // 选一个首选副本为失败副本的会话，使首次尝试确定落在失败副本上
+        String session = sessionRoutedTo(endpoints, deadAddress);
+
+        ResponseEntity<ResponseBodyEmitter> response = proxy(session);
+
+        assertEquals(200, response.getStatusCodeValue());
+        assertEquals(1, liveRequests.get());
+        InferenceRoutingStats stats = gateway.routingStats(DEPLOYMENT_ID);
+        assertEquals(2, stats.getRequests());
+        assertEquals(Set.of(deadAddress), ejected(stats));
+
+        // 摘除期间后续请求直接落到存活副本
+        assertEquals(200, proxy(session).getStatusCodeValue());
+        assertEquals(2, liveRequests.get());
+        assertEquals(3, gateway.routingStats(DEPLOYMENT_ID).getRequests());
+    }
+
+    @Test
+    void allReplicasFailingReturnsUnavailable() {
+        environment.setProperty("inference.static-endpoints." + DEPLOYMENT_ID, deadAddress);
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> proxy("s-1"));
+
+        assertInstanceOf(UpstreamUnavailableException.class, e.getCause());
+        assertEquals(0, liveRequests.get());
+    }
+
+    private ResponseEntity<ResponseBodyEmitter> proxy(String session) throws Exception {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Session-Id", session);
+        headers.set(HttpHeaders.CONTENT_TYPE, "application/json");
+        byte[] body = "{\"model\":\"m\",\"messages\":[{\"role\":\"user\",\"content\":\"hi\"}]}".getBytes(StandardCharsets.UTF_8);
+        return gateway.proxy(DEPLOYMENT_ID, "POST", "chat/completions", null, headers, body).get(10, TimeUnit.SECONDS);
+    }
+
+    /** 按网关相同的会话键与哈希环，找一个首选副本为 target 的会话 ID */
+    private static String sessionRoutedTo(List<String> endpoints, String target) {
+        for (int i = 0; ; i++) {
+            String session = "s-" + i;
+            UpstreamBalancer probe = new UpstreamBalancer(0);
+            if (target.equals(probe.acquireByKey(endpoints, Set.of(), UpstreamBalancer.hash("session:" + session), 0, 1.25).getAddress())) {
+                return session;
+            }
+        }
+    }
+
+    private static Set<String> ejected(InferenceRoutingStats stats) {
+        return stats.getReplicas().stream()
+                .filter(r -> Boolean.TRUE.equals(r.getEjected()))
+                .map(InferenceRoutingStats.Replica::getAddress)
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,131 @@
+package com.acmp.compute.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UpstreamBalancerTest {
+
+    private static final String A = "http://10.0.0.1:8000";
+    private static final String B = "http://10.0.0.2:8000";
+    private static final String C = "http://10.0.0.3:8000";
+    private static final String D = "http://10.0.0.4:8000";
+
+    @Test
+    void acquirePicksLessLoadedOfTwo() {
+        UpstreamBalancer balancer = new UpstreamBalancer(60_000);
+        UpstreamBalancer.Upstream busy = balancer.acquire(List.of(A, B), Set.of(B));
+        assertEquals(A, busy.getAddress());
+        for (int i = 0; i < 100; i++) {
+            UpstreamBalancer.Upstream u = balancer.acquire(List.of(A, B), Set.of());
+            assertEquals(B, u.getAddress());
+            u.release();
+        }
+        assertEquals(1, busy.getOutstanding());
+    }
+
+    @Test
+    void acquireNeverPicksMostLoadedOfThree() {
+        UpstreamBalancer balancer = new UpstreamBalancer(60_000);
+        List<String> candidates = List.of(A, B, C);
+        balancer.acquire(candidates, Set.of(B, C));
+        balancer.acquire(candidates, Set.of(B, C));
+        balancer.acquire(candidates, Set.of(A, C));
+        for (int i = 0; i < 200; i++) {
+            UpstreamBalancer.Upstream u = balancer.acquire(candidates, Set.of());
+            assertNotEquals(A, u.getAddress());
+            u.release();
+        }
+    }
+
+    @Test
+    void ejectedUpstreamSkippedWhileOthersAvailable() {
+        UpstreamBalancer balancer = new UpstreamBalancer(60_000);
+        UpstreamBalancer.Upstream a = balancer.acquire(List.of(A, B), Set.of(B));
+        a.release();
+        balancer.eject(a);
+        assertTrue(a.isEjected());
+        for (int i = 0; i < 50; i++) {
+            UpstreamBalancer.Upstream u = balancer.acquire(List.of(A, B), Set.of());
+            assertEquals(B, u.getAddress());
+            u.release();
+        }
+    }
+
+    @Test
+    void allEjectedFallsBackToAllCandidates() {
+        UpstreamBalancer balancer = new UpstreamBalancer(60_000);
+        for (Set<String> exclude : List.of(Set.of(B), Set.of(A))) {
+            UpstreamBalancer.Upstream u = balancer.acquire(List.of(A, B), exclude);
+            u.release();
+            balancer.eject(u);
+        }
+        assertNotNull(balancer.acquire(List.of(A, B), Set.of()));
+    }
+
+    @Test
+    void exhaustedRetryReturnsNull() {
+        UpstreamBalancer balancer = new UpstreamBalancer(60_000);
+        assertNull(balancer.acquire(List.of(A, B), Set.of(A, B)));
+        assertNull(balancer.acquireByKey(List.of(A, B), Set.of(A, B), 42L, 0, 1.25));
+    }
+
+    @Test
+    void sameKeyStaysOnSameUpstreamWhenUnloaded() {
+        UpstreamBalancer balancer = new UpstreamBalancer(60_000);
+        List<String> candidates = List.of(A, B, C, D);
+        long key = UpstreamBalancer.hash("system: you are a helpful assistant");
+        UpstreamBalancer.Upstream first = balancer.acquireByKey(candidates, Set.of(), key, 100, 1.25);
+        first.release();
+        for (int i = 0; i < 20; i++) {
+            UpstreamBalancer.Upstream u = balancer.acquireByKey(candidates, Set.of(), key, 100, 1.25);
+            assertEquals(first.getAddress(), u.getAddress());
+            u.release();
+        }
+        assertEquals(21, balancer.getAffinityRequests());
+        assertEquals(20, balancer.getCacheHits());
+        assertEquals(2000, balancer.getSavedPrefixChars());
+        assertEquals(0, balancer.getAffinitySpills());
+    }
+
+    @Test
+    void hotKeySpillsAtBoundedLoadCap() {
+        UpstreamBalancer balancer = new UpstreamBalancer(60_000);
+        List<String> candidates = List.of(A, B, C, D);
+        long key = UpstreamBalancer.hash("hot prefix");
+        double loadFactor = 1.25;
+        int requests = 40;
+        for (int i = 0; i < requests; i++) {
+            // 选择前全部在途为 i
+            long cap = (long) Math.ceil(loadFactor * (i + 1) / candidates.size());
+            UpstreamBalancer.Upstream u = balancer.acquireByKey(candidates, Set.of(), key, 0, loadFactor);
+            assertTrue(u.getOutstanding() <= cap, "副本 " + u.getAddress() + " 在途 " + u.getOutstanding() + " 超过上限 " + cap);
+        }
+        Map<String, Integer> load = new HashMap<>();
+        balancer.upstreams().forEach(u -> load.put(u.getAddress(), u.getOutstanding()));
+        long finalCap = (long) Math.ceil(loadFactor * requests / candidates.size());
+        load.values().forEach(n -> assertTrue(n <= finalCap, "负载分布 " + load));
+        assertEquals(requests, load.values().stream().mapToInt(Integer::intValue).sum());
+        assertTrue(balancer.getAffinitySpills() > 0);
+    }
+
+    @Test
+    void ringIgnoresExcludedPrimary() {
+        UpstreamBalancer balancer = new UpstreamBalancer(60_000);
+        List<String> candidates = List.of(A, B, C);
+        long key = UpstreamBalancer.hash("prefix");
+        UpstreamBalancer.Upstream primary = balancer.acquireByKey(candidates, Set.of(), key, 0, 1.25);
+        primary.release();
+        UpstreamBalancer.Upstream retried = balancer.acquireByKey(candidates, Set.of(primary.getAddress()), key, 0, 1.25);
+        assertNotEquals(primary.getAddress(), retried.getAddress());
+    }
+}